@@ -75,8 +75,11 @@ public class AccessoController {
     private void handleEntraNelSistema(ActionEvent event) {
         try {
              String mainViewPath = "/View/main.fxml"; 
-             Parent mainView = FXMLLoader.load(getClass().getResource(mainViewPath));
+             FXMLLoader loader = new FXMLLoader(getClass().getResource(mainViewPath));
+             Parent mainView = loader.load();
              Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
+             // La Biblioteca viene chiusa da Main.stop() all'uscita dell'applicazione
+             stage.setUserData(((MainController) loader.getController()).getBiblioteca());
              Scene scene = new Scene(mainView, stage.getWidth(), stage.getHeight()); 
 
              stage.setScene(scene);
@@ -0,0 +1,150 @@
+/**
+ * @file AlberoParole.java
+ * @brief Questo file contiene l'albero dei prefissi usato per cercare le parole simili ad una parola data.
+ *
+ * La classe AlberoParole memorizza un vocabolario come albero dei prefissi (trie): ogni nodo
+ * corrisponde ad un prefisso e le parole con lo stesso inizio condividono lo stesso cammino.
+ * La ricerca delle parole entro una distanza di Levenshtein (numero minimo di caratteri da
+ * inserire, cancellare o sostituire per passare da una parola all'altra) scende nell'albero
+ * calcolando una riga della matrice di Levenshtein per nodo, ricavata dalla riga del padre:
+ * appena tutti i valori della riga superano la distanza massima nessuna parola sotto quel nodo
+ * può corrispondere ed il ramo viene abbandonato. Così vengono visitati solo i prefissi vicini
+ * alla parola cercata, e non il vocabolario intero.
+ */
+package Controller;
+
+import java.util.Arrays;
+import java.util.function.ObjIntConsumer;
+
+public class AlberoParole {
+
+    private static class Nodo {
+        /// Parola che termina in questo nodo, null se nessuna.
+        String parola;
+        /// Numero di parole nel sottoalbero, usato per eliminare i rami vuoti.
+        int numParole;
+        char[] caratteri = new char[0];
+        Nodo[] figli = new Nodo[0];
+
+        Nodo figlio(char c) {
+            for(int i = 0; i < caratteri.length; i++)
+                if(caratteri[i] == c) return figli[i];
+            return null;
+        }
+    }
+
+    private final Nodo radice = new Nodo();
+
+    /// Righe della matrice di Levenshtein per profondità, riusate tra una ricerca e l'altra.
+    private int[][] righe = new int[0][];
+
+    /// Numero di nodi visitati dall'ultima ricerca (usato nei test).
+    private int numVisitati;
+
+    ///Getter del numero di parole cercabili
+    public int size() { return radice.numParole; }
+
+    ///Getter del numero di nodi visitati durante l'ultima ricerca
+    public int getNumVisitati() { return numVisitati; }
+
+    /**
+     * @brief Aggiunge una parola al vocabolario.
+     * @param parola La parola; se è già presente non accade nulla.
+     */
+    public void aggiungi(String parola) {
+        if(contiene(parola)) return;
+        Nodo n = radice;
+        n.numParole++;
+        for(int i = 0; i < parola.length(); i++){
+            char c = parola.charAt(i);
+            Nodo f = n.figlio(c);
+            if(f == null){
+                f = new Nodo();
+                int k = n.caratteri.length;
+                n.caratteri = Arrays.copyOf(n.caratteri, k + 1);
+                n.figli = Arrays.copyOf(n.figli, k + 1);
+                n.caratteri[k] = c;
+                n.figli[k] = f;
+            }
+            n = f;
+            n.numParole++;
+        }
+        n.parola = parola;
+    }
+
+    /**
+     * @brief Rimuove una parola dal vocabolario.
+     * @param parola La parola; se non è presente non accade nulla.
+     */
+    public void rimuovi(String parola) {
+        if(!contiene(parola)) return;
+        Nodo n = radice;
+        n.numParole--;
+        for(int i = 0; i < parola.length(); i++){
+            char c = parola.charAt(i);
+            int k = 0;
+            while(n.caratteri[k] != c) k++;
+            Nodo f = n.figli[k];
+            if(--f.numParole == 0){
+                // Il ramo non contiene altre parole: viene staccato
+                int ultimo = n.caratteri.length - 1;
+                n.caratteri[k] = n.caratteri[ultimo];
+                n.figli[k] = n.figli[ultimo];
+                n.caratteri = Arrays.copyOf(n.caratteri, ultimo);
+                n.figli = Arrays.copyOf(n.figli, ultimo);
+                return;
+            }
+            n = f;
+        }
+        n.parola = null;
+    }
+
+    /**
+     * @brief Cerca le parole entro una distanza massima.
+     * @param parola La parola cercata.
+     * @param massimo La distanza di Levenshtein massima.
+     * @param trovata Riceve ogni parola trovata con la sua distanza.
+     */
+    public void cerca(String parola, int massimo, ObjIntConsumer<String> trovata) {
+        numVisitati = 0;
+        if(massimo == 0){
+            if(contiene(parola)) trovata.accept(parola, 0);
+            return;
+        }
+        // Una parola entro la distanza massima non può essere più lunga di così
+        int profondita = parola.length() + massimo + 2;
+        if(righe.length < profondita) righe = Arrays.copyOf(righe, profondita);
+        for(int i = 0; i < profondita; i++)
+            if(righe[i] == null || righe[i].length <= parola.length()) righe[i] = new int[parola.length() + 1];
+        int[] prima = righe[0];
+        for(int j = 0; j <= parola.length(); j++) prima[j] = j;
+        visita(radice, 1, parola, massimo, trovata);
+    }
+
+    /// Visita i figli di un nodo; la riga del nodo è righe[profondita - 1].
+    private void visita(Nodo n, int profondita, String parola, int massimo, ObjIntConsumer<String> trovata) {
+        int lunghezza = parola.length();
+        int[] padre = righe[profondita - 1];
+        int[] riga = righe[profondita];
+        for(int i = 0; i < n.caratteri.length; i++){
+            numVisitati++;
+            char c = n.caratteri[i];
+            riga[0] = profondita;
+            int minimo = riga[0];
+            for(int j = 1; j <= lunghezza; j++){
+                int costo = c == parola.charAt(j - 1) ? 0 : 1;
+                riga[j] = Math.min(Math.min(riga[j - 1] + 1, padre[j] + 1), padre[j - 1] + costo);
+                if(riga[j] < minimo) minimo = riga[j];
+            }
+            Nodo f = n.figli[i];
+            if(f.parola != null && riga[lunghezza] <= massimo) trovata.accept(f.parola, riga[lunghezza]);
+            if(minimo <= massimo && f.caratteri.length > 0) visita(f, profondita + 1, parola, massimo, trovata);
+        }
+    }
+
+    private boolean contiene(String parola) {
+        Nodo n = radice;
+        for(int i = 0; i < parola.length() && n != null; i++) n = n.figlio(parola.charAt(i));
+        return n != null && n.parola != null;
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * @file AscoltatoreBiblioteca.java
+ * @brief Questo file contiene l'interfaccia per ricevere le modifiche del ServizioBiblioteca.
+ *
+ * Ogni notifica indica l'elemento coinvolto e la sua posizione nella lista del gestore
+ * (Libreria, Clienti o Prestiti), così che chi mostra le liste possa aggiornare solo la riga
+ * interessata senza cercarla. Prestiti e restituzioni notificano solo ciò che cambia davvero
+ * (copie disponibili del libro, prestiti attivi dell'utente), distinto dalla modifica dei dati.
+ * Le notifiche arrivano dopo che la modifica è stata applicata ed i lock dell'operazione sono
+ * stati rilasciati, quindi chi le riceve può leggere i gestori o avviare altre operazioni.
+ * Vengono consegnate un thread alla volta (non necessariamente quello che ha eseguito la
+ * modifica) e nell'ordine in cui sono state applicate le modifiche; le posizioni sono quelle
+ * al momento della modifica. Per ricevere le notifiche sul thread dell'interfaccia si usa
+ * AscoltatoreDifferito.
+ * Le notifiche di un'operazione su più elementi (ad esempio il prestito di più libri) arrivano
+ * tra inizioLotto() e fineLotto(), così che chi le riceve possa mostrarle come una sola modifica.
+ */
+package Controller;
+
+import Model.Libro;
+import Model.Prestito;
+import Model.Utente;
+
+public interface AscoltatoreBiblioteca {
+
+    /**
+     * @brief Un libro è stato aggiunto alla Libreria.
+     * @param l Il libro aggiunto.
+     * @param posizione La posizione del libro nella lista della Libreria.
+     */
+    default void libroAggiunto(Libro l, int posizione) {}
+
+    /**
+     * @brief Un libro è stato rimosso dalla Libreria.
+     * @param l Il libro rimosso.
+     * @param posizione La posizione che il libro occupava prima della rimozione.
+     */
+    default void libroRimosso(Libro l, int posizione) {}
+
+    /**
+     * @brief I dati di un libro (titolo, autori, ISBN, ...) sono stati modificati.
+     * @param l Il libro modificato.
+     * @param posizione La posizione del libro nella lista della Libreria.
+     */
+    default void libroModificato(Libro l, int posizione) {}
+
+    /**
+     * @brief Il numero di copie disponibili di un libro è cambiato per un prestito o una restituzione.
+     * @param l Il libro.
+     * @param posizione La posizione del libro nella lista della Libreria.
+     */
+    default void disponibilitaCambiata(Libro l, int posizione) {}
+
+    /**
+     * @brief Un utente è stato aggiunto ai Clienti.
+     * @param u L'utente aggiunto.
+     * @param posizione La posizione dell'utente nella lista dei Clienti.
+     */
+    default void utenteAggiunto(Utente u, int posizione) {}
+
+    /**
+     * @brief Un utente è stato rimosso dai Clienti.
+     * @param u L'utente rimosso.
+     * @param posizione La posizione che l'utente occupava prima della rimozione.
+     */
+    default void utenteRimosso(Utente u, int posizione) {}
+
+    /**
+     * @brief I dati anagrafici di un utente sono stati modificati.
+     * @param u L'utente modificato.
+     * @param posizione La posizione dell'utente nella lista dei Clienti.
+     */
+    default void utenteModificato(Utente u, int posizione) {}
+
+    /**
+     * @brief Il numero di prestiti attivi di un utente è cambiato per un prestito o una restituzione.
+     * @param u L'utente.
+     * @param posizione La posizione dell'utente nella lista dei Clienti.
+     */
+    default void prestitiAttiviCambiati(Utente u, int posizione) {}
+
+    /**
+     * @brief Un prestito è stato registrato.
+     * @param p Il prestito aggiunto.
+     * @param posizione La posizione del prestito nella lista dei Prestiti.
+     */
+    default void prestitoAggiunto(Prestito p, int posizione) {}
+
+    /**
+     * @brief Un prestito è stato restituito.
+     *
+     * Prestiti sostituisce il prestito rimosso con l'ultimo della lista: se spostato non è null,
+     * ora occupa la posizione del prestito rimosso.
+     *
+     * @param p Il prestito rimosso.
+     * @param posizione La posizione che il prestito occupava prima della rimozione.
+     * @param spostato L'ultimo prestito, spostato in posizione; null se il rimosso era l'ultimo.
+     */
+    default void prestitoRimosso(Prestito p, int posizione, Prestito spostato) {}
+
+    /**
+     * @brief Inizia un lotto di notifiche, che termina con fineLotto().
+     */
+    default void inizioLotto() {}
+
+    /**
+     * @brief Termina il lotto di notifiche iniziato con inizioLotto().
+     */
+    default void fineLotto() {}
+}
@@ -0,0 +1,102 @@
+/**
+ * @file AscoltatoreDifferito.java
+ * @brief Questo file contiene l'ascoltatore che inoltra le notifiche del ServizioBiblioteca al thread dell'interfaccia.
+ *
+ * La classe AscoltatoreDifferito riceve le notifiche sul thread che ha eseguito la modifica
+ * (anche una postazione di prestito in background) e le consegna ad un altro ascoltatore sul
+ * thread dell'interfaccia, nello stesso ordine in cui sono arrivate. Le notifiche vengono
+ * raccolte in una coda: se arrivano già sul thread dell'interfaccia vengono consegnate subito,
+ * insieme a quelle ancora in attesa, altrimenti la consegna viene affidata all'esecutore.
+ */
+package Controller;
+
+import Model.Libro;
+import Model.Prestito;
+import Model.Utente;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.function.BooleanSupplier;
+
+public class AscoltatoreDifferito implements AscoltatoreBiblioteca {
+
+    /// Ascoltatore che riceve le notifiche sul thread dell'interfaccia.
+    private final AscoltatoreBiblioteca delegato;
+
+    /// Esecutore del thread dell'interfaccia (Platform::runLater per JavaFX).
+    private final Executor esecutoreUI;
+
+    /// Indica se il thread corrente è quello dell'interfaccia.
+    private final BooleanSupplier sulThreadUI;
+
+    /// Notifiche ricevute e non ancora consegnate, nell'ordine di arrivo.
+    private final ConcurrentLinkedQueue<Runnable> inAttesa = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @brief Costruttore della classe.
+     * @param delegato L'ascoltatore a cui consegnare le notifiche.
+     * @param esecutoreUI L'esecutore del thread dell'interfaccia.
+     * @param sulThreadUI Indica se il thread corrente è quello dell'interfaccia.
+     */
+    public AscoltatoreDifferito(AscoltatoreBiblioteca delegato, Executor esecutoreUI, BooleanSupplier sulThreadUI) {
+        this.delegato = delegato;
+        this.esecutoreUI = esecutoreUI;
+        this.sulThreadUI = sulThreadUI;
+    }
+
+    /**
+     * @brief Accoda una notifica e ne avvia la consegna.
+     * @param n La notifica da consegnare al delegato.
+     */
+    private void inoltra(Runnable n) {
+        inAttesa.add(n);
+        if(sulThreadUI.getAsBoolean()) consegna();
+        else esecutoreUI.execute(this::consegna);
+    }
+
+    /**
+     * @brief Consegna al delegato tutte le notifiche in attesa.
+     *
+     * Può essere chiamato più volte per le stesse notifiche (una consegna per notifica affidata
+     * all'esecutore): le notifiche già consegnate non sono più in coda.
+     */
+    private synchronized void consegna() {
+        Runnable n;
+        while((n = inAttesa.poll()) != null) n.run();
+    }
+
+    @Override
+    public void libroAggiunto(Libro l, int posizione) { inoltra(() -> delegato.libroAggiunto(l, posizione)); }
+
+    @Override
+    public void libroRimosso(Libro l, int posizione) { inoltra(() -> delegato.libroRimosso(l, posizione)); }
+
+    @Override
+    public void libroModificato(Libro l, int posizione) { inoltra(() -> delegato.libroModificato(l, posizione)); }
+
+    @Override
+    public void disponibilitaCambiata(Libro l, int posizione) { inoltra(() -> delegato.disponibilitaCambiata(l, posizione)); }
+
+    @Override
+    public void utenteAggiunto(Utente u, int posizione) { inoltra(() -> delegato.utenteAggiunto(u, posizione)); }
+
+    @Override
+    public void utenteRimosso(Utente u, int posizione) { inoltra(() -> delegato.utenteRimosso(u, posizione)); }
+
+    @Override
+    public void utenteModificato(Utente u, int posizione) { inoltra(() -> delegato.utenteModificato(u, posizione)); }
+
+    @Override
+    public void prestitiAttiviCambiati(Utente u, int posizione) { inoltra(() -> delegato.prestitiAttiviCambiati(u, posizione)); }
+
+    @Override
+    public void prestitoAggiunto(Prestito p, int posizione) { inoltra(() -> delegato.prestitoAggiunto(p, posizione)); }
+
+    @Override
+    public void prestitoRimosso(Prestito p, int posizione, Prestito spostato) { inoltra(() -> delegato.prestitoRimosso(p, posizione, spostato)); }
+
+    @Override
+    public void inizioLotto() { inoltra(delegato::inizioLotto); }
+
+    @Override
+    public void fineLotto() { inoltra(delegato::fineLotto); }
+}
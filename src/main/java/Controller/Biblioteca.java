@@ -1,72 +1,109 @@
 /**
  * @file Biblioteca.java
  * @brief Questo file rappresenta il Controller del sistema di gestione della biblioteca.
- * 
- * La classe Biblioteca funge da coordinatore tra i vari moduli, infatti gestisce l'aggregazione
- * delle classi Clienti,Libreria e Prestiti ma comunica anche con il package View in quanto è
- * responsabile di liste osservabili per l'interfaccia utente
+ *
+ * La classe Biblioteca collega il ServizioBiblioteca, che gestisce dati, persistenza e ricerca
+ * senza dipendere da JavaFX, al package View: espone le liste osservabili per l'interfaccia
+ * utente e vi applica i filtri di ricerca.
+ * Le liste osservabili sono viste sulle liste di Libreria, Clienti e Prestiti, non loro copie:
+ * il ServizioBiblioteca notifica ogni modifica con la posizione della riga interessata, e solo
+ * quella riga viene ridisegnata dalle tabelle collegate.
  */
 package Controller;
 
+import java.io.Reader;
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.util.List;
 import Model.*;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Set;
 
 //Necessari per JavaFX(ObservableList, FilteredList)
-import javafx.collections.ObservableList; 
+import javafx.collections.ObservableList;
 import javafx.collections.transformation.FilteredList;
-import javafx.collections.FXCollections;
 import javafx.collections.transformation.SortedList;
+import javafx.application.Platform;
 
 public class Biblioteca implements Serializable{
-    
-    private Libreria libreria;
-    private Clienti clienti;
-    private Prestiti prestiti;
-    
-    private ObservableList<Libro> obLibreria;
-    private ObservableList<Utente> obClienti;
-    private ObservableList<Prestito> obPrestiti;
+
+    /// Nucleo della biblioteca: dati, persistenza e ricerca.
+    private transient ServizioBiblioteca servizio;
+
+    private ListaOsservabile<Libro> obLibreria;
+    private ListaOsservabile<Utente> obClienti;
+    private ListaOsservabile<Prestito> obPrestiti;
 
     private FilteredList<Libro> flLibreria;
     private FilteredList<Utente> flClienti;
-    
+
     private SortedList<Libro> slLibreria;
     private SortedList<Utente> slClienti;
-    
-    private final String filename = "output.bin";
-    
+
+    /// Ricerca sui libri in background, usata durante la digitazione.
+    private transient RicercaAsincrona<Set<Libro>> ricercaAsincronaLibri;
+
+    /// Ricerca sugli utenti in background, usata durante la digitazione.
+    private transient RicercaAsincrona<Set<Utente>> ricercaAsincronaUtenti;
+
+    /// Attesa, in millisecondi, dopo l'ultimo carattere digitato prima di avviare una ricerca in background.
+    private static final long ATTESA_RICERCA_MS = 150;
+
+    /// Ultima ricerca applicata alla lista dei libri, riapplicata dopo ogni modifica.
+    private transient String ricercaLibri;
+
+    /// True se l'ultima ricerca sui libri, o sugli utenti, tollera errori di battitura.
+    private transient boolean libriApprossimata;
+    private transient boolean utentiApprossimata;
+
+    /// Numero massimo di risultati mostrati da una ricerca approssimata.
+    private static final int MAX_RISULTATI_APPROSSIMATI = 500;
+
+    /// Libri trovati dall'ultima ricerca mostrata, null se la lista non è filtrata.
+    private transient Set<Libro> libriTrovati;
+
+    /// Ultima ricerca applicata alla lista degli utenti, riapplicata dopo ogni modifica.
+    private transient String ricercaUtenti;
+
+    /// True mentre si ricevono le notifiche di un lotto: le ricerche vengono riapplicate una volta sola, alla fine.
+    private transient boolean inLotto;
+    private transient boolean libriDaRifiltrare;
+    private transient boolean utentiDaRifiltrare;
+
     ///Costruttore della classe Biblioteca
     public Biblioteca(){
-        if(!caricaDaFile()){
-            this.libreria = new Libreria(new ArrayList<>()); 
-            this.clienti = new Clienti(new ArrayList<>()); 
-            this.prestiti = new Prestiti(new ArrayList<>());
-        }
+        this(new ServizioBiblioteca());
+    }
+
+    /**
+     * @brief Costruttore della classe Biblioteca.
+     * @param servizio Il nucleo della biblioteca da mostrare nell'interfaccia.
+     */
+    public Biblioteca(ServizioBiblioteca servizio){
+        this.servizio = servizio;
         // Inizializzazione delle liste ObservableList/FilteredList
         inizializzaListe();
     }
-    
+
+    //Getter del ServizioBiblioteca
+    public ServizioBiblioteca getServizio() { return servizio; }
+
+    //Getter del motivo per cui i dati salvati non sono stati caricati, null se il caricamento è riuscito
+    public String getErroreCaricamento() { return servizio.getErroreCaricamento(); }
+
     //Getter di Libreria
-    public Libreria getLibreria() { return libreria; }
-    
+    public Libreria getLibreria() { return servizio.getLibreria(); }
+
     //Getter di Clienti
-    public Clienti getClienti() { return clienti; }
-    
+    public Clienti getClienti() { return servizio.getClienti(); }
+
     //Getter di Prestiti
-    public Prestiti getPrestiti() { return prestiti; }
-    
+    public Prestiti getPrestiti() { return servizio.getPrestiti(); }
+
     //Getter di FilteredList<Libro>
     public FilteredList<Libro> getFlLibreria() { return flLibreria; }
-    
+
     //Getter di FilteredList<Utente>
     public FilteredList<Utente> getFlClienti() { return flClienti; }
 
@@ -75,189 +112,344 @@ public class Biblioteca implements Serializable{
 
     //Gettet di SortedList<utente>
     public SortedList<Utente> getSlClienti() { return slClienti; }
-    
+
     //Getter di ObservableList<Libro>
     public ObservableList<Libro> getObLibreria() { return obLibreria; }
-    
+
     //Getter di ObservableList<Utente>
     public ObservableList<Utente> getObClienti() { return obClienti; }
-    
+
     //Getter di ObservableList<Prestito>
     public ObservableList<Prestito> getObPrestiti() { return obPrestiti; }
-    
+
     /**
      * @brief Inizializza le liste osservabili e filtrate.
      *
-     * Crea le ObservableList a partire dalle liste interne dei gestori(Libreria,Prestiti,Clienti) e
-     * crea le FilteredList, agganciandole per le operazioni di UI.
+     * Crea le viste osservabili sulle liste interne dei gestori(Libreria,Prestiti,Clienti),
+     * crea le FilteredList agganciandole per le operazioni di UI e si registra sul servizio
+     * per ricevere le modifiche.
      *
      */
     private void inizializzaListe() {
-        this.obLibreria = FXCollections.observableArrayList(libreria.getLibreria());
-        this.obClienti = FXCollections.observableArrayList(clienti.getClienti());
-        this.obPrestiti = FXCollections.observableArrayList(prestiti.getPrestiti());
+        this.obLibreria = new ListaOsservabile<>(servizio.getLibreria().getLibreria());
+        this.obClienti = new ListaOsservabile<>(servizio.getClienti().getClienti());
+        this.obPrestiti = new ListaOsservabile<>(servizio.getPrestiti().getPrestiti());
 
         this.flLibreria = new FilteredList<>(obLibreria, p -> true);
         this.flClienti = new FilteredList<>(obClienti, p -> true);
-        
+
         this.slLibreria = new SortedList<>(flLibreria);
         this.slClienti = new SortedList<>(flClienti);
-        
+
         this.slLibreria.setComparator(Comparator.comparing(Libro::getTitolo, String.CASE_INSENSITIVE_ORDER));
         this.slClienti.setComparator(Comparator.comparing(Utente::getCognome, String.CASE_INSENSITIVE_ORDER)
                 .thenComparing(Utente::getNome, String.CASE_INSENSITIVE_ORDER));
+
+        this.ricercaAsincronaLibri = new RicercaAsincrona<>(servizio::cercaLibri, (s, r) -> mostraLibri(r), Platform::runLater, ATTESA_RICERCA_MS);
+        this.ricercaAsincronaUtenti = new RicercaAsincrona<>(servizio::cercaUtenti, (s, r) -> mostraUtenti(r), Platform::runLater, ATTESA_RICERCA_MS);
+
+        // Le modifiche possono arrivare da thread diversi da quello di JavaFX (postazioni di prestito):
+        // le liste osservabili vengono aggiornate solo sul thread dell'interfaccia
+        servizio.aggiungiAscoltatore(new AscoltatoreDifferito(new AscoltatoreBiblioteca() {
+            @Override
+            public void libroAggiunto(Libro l, int posizione) {
+                obLibreria.notificaAggiunta(posizione);
+                if(inLotto) libriDaRifiltrare = true;
+                else riapplicaRicercaLibri();
+            }
+
+            @Override
+            public void libroRimosso(Libro l, int posizione) {
+                obLibreria.notificaRimozione(posizione, l);
+            }
+
+            @Override
+            public void libroModificato(Libro l, int posizione) {
+                if(posizione >= 0) obLibreria.notificaAggiornamento(posizione);
+                aggiornaPrestiti(servizio.getPrestiti().getPrestitiLibro(l.getISBN()));
+                riapplicaRicercaLibri();
+            }
+
+            @Override
+            public void disponibilitaCambiata(Libro l, int posizione) {
+                if(posizione >= 0) obLibreria.notificaAggiornamento(posizione);
+            }
+
+            @Override
+            public void utenteAggiunto(Utente u, int posizione) {
+                obClienti.notificaAggiunta(posizione);
+                if(inLotto) utentiDaRifiltrare = true;
+                else riapplicaRicercaUtenti();
+            }
+
+            @Override
+            public void utenteRimosso(Utente u, int posizione) {
+                obClienti.notificaRimozione(posizione, u);
+            }
+
+            @Override
+            public void utenteModificato(Utente u, int posizione) {
+                if(posizione >= 0) obClienti.notificaAggiornamento(posizione);
+                aggiornaPrestiti(servizio.getPrestiti().getPrestitiUtente(u.getMatricola()));
+                if(inLotto) utentiDaRifiltrare = true;
+                else riapplicaRicercaUtenti();
+            }
+
+            @Override
+            public void prestitiAttiviCambiati(Utente u, int posizione) {
+                if(posizione >= 0) obClienti.notificaAggiornamento(posizione);
+            }
+
+            @Override
+            public void prestitoAggiunto(Prestito p, int posizione) {
+                obPrestiti.notificaAggiunta(posizione);
+            }
+
+            @Override
+            public void prestitoRimosso(Prestito p, int posizione, Prestito spostato) {
+                obPrestiti.notificaRimozioneConSpostamento(posizione, p, spostato);
+            }
+
+            @Override
+            public void inizioLotto() {
+                inLotto = true;
+                obLibreria.iniziaLotto();
+                obClienti.iniziaLotto();
+                obPrestiti.iniziaLotto();
+            }
+
+            @Override
+            public void fineLotto() {
+                obPrestiti.terminaLotto();
+                obClienti.terminaLotto();
+                obLibreria.terminaLotto();
+                inLotto = false;
+                if(libriDaRifiltrare){
+                    libriDaRifiltrare = false;
+                    riapplicaRicercaLibri();
+                }
+                if(utentiDaRifiltrare){
+                    utentiDaRifiltrare = false;
+                    riapplicaRicercaUtenti();
+                }
+            }
+        }, Biblioteca::eseguiSuThreadUI, Platform::isFxApplicationThread));
     }
-    
+
+    /**
+     * @brief Esegue un'azione sul thread di JavaFX.
+     *
+     * Se JavaFX non è stato avviato (test, strumenti a riga di comando) non esiste un thread
+     * dell'interfaccia, e l'azione viene eseguita subito sul thread corrente.
+     *
+     * @param azione L'azione da eseguire.
+     */
+    private static void eseguiSuThreadUI(Runnable azione) {
+        try{
+            Platform.runLater(azione);
+        }catch(IllegalStateException e){ azione.run(); }
+    }
+
+    /**
+     * @brief Aggiorna le righe dei prestiti che mostrano un libro o un utente appena modificato.
+     * @param coinvolti I prestiti del libro o dell'utente.
+     */
+    private void aggiornaPrestiti(List<Prestito> coinvolti) {
+        for(Prestito p : coinvolti){
+            int posizione = servizio.getPrestiti().posizioneDi(p);
+            if(posizione >= 0) obPrestiti.notificaAggiornamento(posizione);
+        }
+    }
+
     /**
      * @brief Applica un filtro alla lista dei Libri.
+     *
+     * I libri corrispondenti sono calcolati dal ServizioBiblioteca; la FilteredList verifica
+     * poi solo l'appartenenza all'insieme trovato.
+     *
      * @param search La stringa è utilizzata per specificare il tipo di filtraggio (titolo, autore, ISBN, ecc.).
      * @post La FilteredList flLibreria è aggiornata in base al filtro.
      */
     public void filtraLibri(String search) {
-        flLibreria.setPredicate(libro->{
-            if(search == null || search.isEmpty()) return true;
-            
-            String lowSearch = search.toLowerCase();
-            
-            return libro.getTitolo().toLowerCase().contains(lowSearch) || libro.getAutori().toString().toLowerCase().contains(lowSearch) || libro.getISBN().toLowerCase().contains(lowSearch);
-        });
-    }
-    
+        this.ricercaLibri = search;
+        this.libriApprossimata = false;
+        ricercaAsincronaLibri.annulla();
+        mostraLibri(servizio.cercaLibri(search));
+    }
+
+    /**
+     * @brief Applica un filtro alla lista dei Libri, calcolandolo in background.
+     *
+     * Da usare durante la digitazione: la ricerca parte solo dopo ATTESA_RICERCA_MS millisecondi
+     * senza nuovi caratteri, e viene applicata sul thread JavaFX solo se nel frattempo non ne è
+     * stata richiesta un'altra.
+     *
+     * @param search Il testo digitato dall'utente.
+     * @post La FilteredList flLibreria verrà aggiornata in base al filtro.
+     */
+    public void filtraLibriAsincrono(String search) {
+        this.ricercaLibri = search;
+        this.libriApprossimata = false;
+        ricercaAsincronaLibri.richiedi(search);
+    }
+
+    /**
+     * @brief Applica alla lista dei Libri una ricerca che tollera errori di battitura in titolo ed autori.
+     * @param search Il testo digitato dall'utente.
+     * @post La FilteredList flLibreria mostra i libri più simili alla ricerca (al più MAX_RISULTATI_APPROSSIMATI).
+     * @see ServizioBiblioteca#cercaLibriApprossimata
+     */
+    public void filtraLibriApprossimata(String search) {
+        this.ricercaLibri = search;
+        this.libriApprossimata = true;
+        ricercaAsincronaLibri.annulla();
+        List<Libro> trovati = servizio.cercaLibriApprossimata(search, MAX_RISULTATI_APPROSSIMATI);
+        mostraLibri(trovati == null ? null : new HashSet<>(trovati));
+    }
+
+    private void mostraLibri(Set<Libro> trovati) {
+        this.libriTrovati = trovati;
+        if(trovati == null) flLibreria.setPredicate(libro -> true);
+        else flLibreria.setPredicate(trovati::contains);
+    }
+
+    /**
+     * @brief Riapplica l'ultima ricerca sui libri, perché includa i libri aggiunti o modificati.
+     */
+    private void riapplicaRicercaLibri() {
+        if(ricercaLibri == null || ricercaLibri.isEmpty()) return;
+        if(libriApprossimata) filtraLibriApprossimata(ricercaLibri);
+        else filtraLibri(ricercaLibri);
+    }
+
     /**
      * @brief Applica un filtro alla lista degli Utenti.
      * @param search La stringa è utilizzata per specificare il tipo di filtraggio (nome, cognome, matricola, ecc.).
      * @post La FilteredList flClienti è aggiornata in base al filtro.
      */
     public void filtraUtenti(String search) {
-        flClienti.setPredicate(utente->{
-            if(search == null || search.isEmpty()) return true;
-            
-            String lowSearch = search.toLowerCase();
-            
-            return utente.getCognome().toLowerCase().contains(lowSearch) || utente.getMatricola().toLowerCase().contains(lowSearch);
-        });
-    }
-    
+        this.ricercaUtenti = search;
+        this.utentiApprossimata = false;
+        ricercaAsincronaUtenti.annulla();
+        mostraUtenti(servizio.cercaUtenti(search));
+    }
+
+    /**
+     * @brief Applica un filtro alla lista degli Utenti, calcolandolo in background.
+     * @param search Il testo digitato dall'utente.
+     * @post La FilteredList flClienti verrà aggiornata in base al filtro.
+     * @see filtraLibriAsincrono
+     */
+    public void filtraUtentiAsincrono(String search) {
+        this.ricercaUtenti = search;
+        this.utentiApprossimata = false;
+        ricercaAsincronaUtenti.richiedi(search);
+    }
+
+    /**
+     * @brief Applica alla lista degli Utenti una ricerca che tollera errori di battitura nel cognome.
+     * @param search Il testo digitato dall'utente.
+     * @post La FilteredList flClienti mostra gli utenti più simili alla ricerca (al più MAX_RISULTATI_APPROSSIMATI).
+     * @see ServizioBiblioteca#cercaUtentiApprossimata
+     */
+    public void filtraUtentiApprossimata(String search) {
+        this.ricercaUtenti = search;
+        this.utentiApprossimata = true;
+        ricercaAsincronaUtenti.annulla();
+        List<Utente> trovati = servizio.cercaUtentiApprossimata(search, MAX_RISULTATI_APPROSSIMATI);
+        mostraUtenti(trovati == null ? null : new HashSet<>(trovati));
+    }
+
+    private void mostraUtenti(Set<Utente> trovati) {
+        if(trovati == null) flClienti.setPredicate(utente -> true);
+        else flClienti.setPredicate(trovati::contains);
+    }
+
+    /**
+     * @brief Riapplica l'ultima ricerca sugli utenti, perché includa gli utenti aggiunti o modificati.
+     */
+    private void riapplicaRicercaUtenti() {
+        if(ricercaUtenti == null || ricercaUtenti.isEmpty()) return;
+        if(utentiApprossimata) filtraUtentiApprossimata(ricercaUtenti);
+        else filtraUtenti(ricercaUtenti);
+    }
+
+    /**
+     * @brief Cerca i libri pubblicati in un intervallo di anni, eventualmente solo quelli disponibili.
+     * @see ServizioBiblioteca#cercaLibriPerAnno
+     */
+    public List<Libro> cercaLibriPerAnno(int annoDa, int annoA, boolean soloDisponibili) {
+        return servizio.cercaLibriPerAnno(annoDa, annoA, soloDisponibili);
+    }
+
+    /**
+     * @brief Conta i libri mostrati dall'ultima ricerca per decennio, disponibilità ed autore.
+     * @param numAutori Il numero massimo di autori da restituire.
+     * @return I conteggi delle faccette dei libri trovati, o dell'intero catalogo se la lista non è filtrata.
+     * @see ServizioBiblioteca#contaFaccette
+     */
+    public ConteggiFaccette contaFaccetteLibri(int numAutori) {
+        return servizio.contaFaccette(libriTrovati, numAutori);
+    }
+
+    /**
+     * @brief Crea un'interrogazione sul catalogo, da comporre con le condizioni desiderate.
+     * @see ServizioBiblioteca#interrogaLibri
+     */
+    public InterrogazioneLibri interrogaLibri() {
+        return servizio.interrogaLibri();
+    }
+
     /**
      * @brief Controlla la validità minima dei campi per l'aggiunta di un Libro.
-     * @param titolo Il titolo del libro.
-     * @param autori La lista degli autori del libro.
-     * @param anno L'anno di publicazione del libro.
-     * @param ISBN Il codice ISBN .
-     * @param copieTot Il numero di copie totali.
-     * @param copieDisp Il numero di copie disponibili.
-     * @return true se i campi sono validi, false altrimenti.
+     * @see ServizioBiblioteca#checkValiditaCampiLibro
      */
     public boolean checkValiditaCampiLibro(String titolo, List<Autore> autori, int anno, String ISBN, int copieTot, int copieDisp) {
-        
-        if(!ISBN.matches("^\\d{13}$") || copieTot < copieDisp || copieDisp < 0 || anno <= 0 || !titolo.trim().matches("^[\\p{L}\\p{N}'\":\\-.,?! ]+$"))
-            return false;
-        
-        for(Autore a : autori){
-            if(!a.getNome().trim().matches("^[\\p{L}'\\. ]+$") || !a.getCognome().trim().matches("^[\\p{L}'\\. ]*$"))
-                return false;
-        }
-        
-        return true;
+        return servizio.checkValiditaCampiLibro(titolo, autori, anno, ISBN, copieTot, copieDisp);
     }
-    
+
     /**
      * @brief Controlla la validità minima dei campi per l'aggiunta di un Utente.
-     * @param nome Il nome dell'utente.
-     * @param cognome Il cognome dell'utente.
-     * @param matricola La matricola univoca.
-     * @param email L'email istituzionale.
-     * @param numPrestitiAttivi Il numero di prestiti attivi dell'utente.
-     * @return true se i campi sono validi, false altrimenti.
+     * @see ServizioBiblioteca#checkValiditaCampiUtente
      */
-    
     public boolean checkValiditaCampiUtente(String nome, String cognome, String matricola, String email, int numPrestitiAttivi){
-        
-        return nome.matches("^[\\p{L}' ]+$") 
-                && cognome.matches("^[\\p{L}' ]+$") 
-                && matricola.matches("^\\d{10}$") 
-                && email.matches("^[A-Za-z]\\.[\\p{L}']+\\d*+@studenti\\.unisa\\.it$") 
-                && numPrestitiAttivi >= 0;
-    }
-    
+        return servizio.checkValiditaCampiUtente(nome, cognome, matricola, email, numPrestitiAttivi);
+    }
+
     /**
      * @brief Aggiunge un nuovo libro alla Libreria.
-     *
-     * Effettua i controlli di validità sui campi e affida l'aggiunta del libro alla classe Libreria.
-     * Aggiorna la lista osservabile in caso di successo.
-     *
-     * @param titolo Il titolo del libro.
-     * @param autori La lista degli autori del libro.
-     * @param anno L'anno di pubblicazione.
-     * @param ISBN Il codice ISBN .
-     * @param copieTot Il numero di copie totali.
-     * @param copieDisp Il numero di copie disponibili.
      * @throws Exception Se i dati non sono validi o il libro esiste già.
-     * @post Il libro è aggiunto alla Libreria e alla obLibreria.
+     * @post Il libro è aggiunto alla Libreria ed appare in obLibreria.
+     * @see ServizioBiblioteca#aggiungiLibro
      */
     public void aggiungiLibro(String titolo, List<Autore> autori, int anno, String ISBN, int copieTot, int copieDisp) throws Exception {
-       if(!checkValiditaCampiLibro(titolo, autori, anno, ISBN, copieTot, copieDisp)) throw new Exception("Campi non validi!");
-       
-       Libro l = new Libro(titolo, new ArrayList<>(autori), anno, ISBN, copieTot, copieDisp);
-       
-       if(libreria.isInLibreria(l)) throw new Exception("Libro già presente");
-       
-       libreria.aggiungiLibro(l);
-       obLibreria.add(l);
-       salvaSuFile();
-    }
-    
+        servizio.aggiungiLibro(titolo, autori, anno, ISBN, copieTot, copieDisp);
+    }
+
     /**
      * @brief Elimina un libro dalla Libreria.
-     *
-     * Controlla che il libro non sia in prestito ed affida la rimozione del libro alla classe Libreria.
-     * Aggiorna la lista osservabile.
-     * 
      * @param l Il Libro da eliminare.
      * @throws Exception Se il libro ha ancora copie in prestito.
      * @post Il libro è rimosso da Libreria e da obLibreria.
      */
     public void eliminaLibro(Libro l) throws Exception {
-        if(l.isLibroInPrestito()) throw new Exception("Impossibile eliminare: Libro in prestito");
-        
-        libreria.eliminaLibro(l);
-        obLibreria.remove(l);
-        salvaSuFile();
+        servizio.eliminaLibro(l);
     }
-    
+
     public void modificaLibro(Libro l, String titolo, List<Autore> autori, int anno, String ISBN, int copieTot, int copieDisp) throws Exception{
-        if(!checkValiditaCampiLibro(titolo, autori, anno, ISBN, copieTot, copieDisp)) throw new Exception("Campi non validi!");
-        
-        libreria.modificaLibro(l, titolo, autori, anno, ISBN, copieTot, copieDisp);
-        obLibreria.set(obLibreria.indexOf(l), l);
-        salvaSuFile();
+        servizio.modificaLibro(l, titolo, autori, anno, ISBN, copieTot, copieDisp);
     }
-    
+
     /**
      * @brief Aggiunge un nuovo utente ai Clienti.
-     *
-     * Effettua i controlli di validità e delega l'aggiunta alla classe Clienti.
-     *
-     * @param nome Il nome dell'utente.
-     * @param cognome Il cognome dell'utente.
-     * @param matricola La matricola dell'utente.
-     * @param email L'indirizzo email.
-     * @param numPrestitiAttivi Numero di prestiti attivi.
      * @throws Exception Se i dati non sono validi o la matricola esiste già.
-     * @post L'utente è aggiunto a Clienti e a obClienti.
+     * @post L'utente è aggiunto a Clienti ed appare in obClienti.
+     * @see ServizioBiblioteca#aggiungiUtente
      */
     public void aggiungiUtente(String nome, String cognome, String matricola, String email, int numPrestitiAttivi) throws Exception {
-       if(!checkValiditaCampiUtente(nome, cognome, matricola, email, numPrestitiAttivi)) throw new Exception("Campi non validi!");
-       
-       Utente u = new Utente(nome, cognome, matricola, email, numPrestitiAttivi);
-       
-       if(clienti.esisteUtente(u)) throw new Exception("Utente già registrato");
-       
-       clienti.aggiungiUtente(u);
-       obClienti.add(u);
-       salvaSuFile();
-    }
-    
+        servizio.aggiungiUtente(nome, cognome, matricola, email, numPrestitiAttivi);
+    }
+
     /**
      * @brief Elimina un utente dal sistema.
      *
@@ -266,114 +458,90 @@ public class Biblioteca implements Serializable{
      * @post L'utente è rimosso da Clienti e da obClienti.
      */
     public void eliminaUtente(Utente u) throws Exception {
-        if(u.inPrestito()) throw new Exception("Impossibile eliminare: Utente possiede prestiti attivi");
-        
-        clienti.eliminaUtente(u);
-        obClienti.remove(u);
-        salvaSuFile();
-    }
-    
-    
+        servizio.eliminaUtente(u);
+    }
+
+
     public void modificaUtente(Utente u, String nome, String cognome, String matricola, String email) throws Exception{
-        if(!checkValiditaCampiUtente(nome, cognome, matricola, email, 0)) throw new Exception("Campi non validi!");
-        
-        clienti.modificaUtente(u, nome, cognome, matricola, email);
-        obClienti.set(obClienti.indexOf(u), u);
-        salvaSuFile();
+        servizio.modificaUtente(u, nome, cognome, matricola, email);
     }
-    
+
     /**
      * @brief Registra un nuovo prestito nel sistema.
-     *
-     * Controlla la disponibilità del libro e la possibilità dell'utente di prendere in prestito.
-     *
-     * @param u L'Utente che richiede il prestito.
-     * @param l Il Libro richiesto.
-     * @param data La data di inizio del prestito.
      * @throws Exception Se il libro non è disponibile o l'utente ha troppi prestiti.
-     * @post Viene creato un nuovo Prestito, il contatore dei prestiti attivi è aggiornato
-     * e il numero di copie disponibili del libro è decrementato.
+     * @see ServizioBiblioteca#aggiungiPrestito
      */
     public void aggiungiPrestito(Utente u, Libro l, LocalDate data) throws Exception {
-        if(u == null || l == null || data == null) throw new Exception("Dati non validi");
-        if(l.getNumCopieDisponibili() <= 0) throw new Exception("Copie del libro non disponibili");
-        if(u.getNumPrestitiAttivi() >= 3) throw new Exception("L'utente selezionato è già a carico di 3 prestiti");
-        
-        Prestito p = new Prestito(u, l, data);
-        prestiti.aggiungiPrestito(p);
-        obPrestiti.add(p);
-        
-        l.diminuisciCopie();
-        u.incrementaPrestitiAttivi();
-        obClienti.set(obClienti.indexOf(u), u);
-        obLibreria.set(obLibreria.indexOf(l), l);
-        
-        salvaSuFile();
-    }
-    
+        servizio.aggiungiPrestito(u, l, data);
+    }
+
     /**
-     * @brief Gestisce la restituzione di un Prestito.
+     * @brief Registra più prestiti per lo stesso utente, tutti o nessuno.
      *
-     * Aggiorna lo stato del Prestito e delega la rimozione.
+     * Le liste osservabili ricevono un'unica modifica per l'intero lotto.
      *
+     * @throws Exception Se un libro non è disponibile o l'utente supererebbe il limite di prestiti.
+     * @see ServizioBiblioteca#aggiungiPrestiti
+     */
+    public void aggiungiPrestiti(Utente u, List<Libro> libri, LocalDate data) throws Exception {
+        servizio.aggiungiPrestiti(u, libri, data);
+    }
+
+    /**
+     * @brief Gestisce la restituzione di un Prestito.
      * @param p Il Prestito da restituire.
      * @throws Exception Se il prestito non è più attivo o non esiste.
-     * @post Il Prestito rimosso, il contatore dei prestiti attivi dell'utente 
-     * viene decrementato e il numero di copie del libro incrementato.
+     * @see ServizioBiblioteca#restituisciPrestito
      */
     public void restituisciPrestito(Prestito p) throws Exception {
-        if (!obPrestiti.contains(p)) {
-            throw new Exception("Prestito non trovato per la rimozione.");
-        }
-        prestiti.rimuoviPrestito(p);
-        obPrestiti.remove(p);
-        
-        Libro l = p.getLibro();
-        Utente u = p.getUtente();
-        
-        l.aumentaCopie();
-        u.decrementaPrestitiAttivi();
-        obClienti.set(obClienti.indexOf(u), u);
-        obLibreria.set(obLibreria.indexOf(l), l);
-        
-        salvaSuFile();
-    }
-    
+        servizio.restituisciPrestito(p);
+    }
+
     /**
-     * @brief Salva lo stato corrente della Biblioteca su un file esterno.
-     *
-     * Serializza l'oggetto Biblioteca (e quindi i gestori Clienti, Libreria, Prestiti)
-     * nel file specificato da 'filename'.
-     *
-     * @throws Exception Se si verificano errori di I/O durante la serializzazione.
-     * @post I dati sono salvati sul file.
+     * @brief Gestisce la restituzione di più prestiti, tutti o nessuno.
+     * @param prestiti I Prestiti da restituire.
+     * @throws Exception Se un prestito non è più attivo o non esiste.
+     * @see ServizioBiblioteca#restituisciPrestiti
      */
-    private void salvaSuFile() throws Exception {
-        try(ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(filename))){
-            
-            out.writeObject(libreria);
-            out.writeObject(clienti);
-            out.writeObject(prestiti);
-            
-        }catch(IOException e){ throw new Exception("Errore nel salvataggio dei dati"); }
+    public void restituisciPrestiti(List<Prestito> prestiti) throws Exception {
+        servizio.restituisciPrestiti(prestiti);
     }
 
     /**
-     * @brief Carica lo stato della Biblioteca da un file esterno.
+     * @brief Importa un catalogo di libri da un file CSV o JSON.
+     * @param sorgente Il testo da importare.
+     * @param formato Il formato del testo.
+     * @return Il rapporto con i record importati e scartati.
+     * @throws Exception Se l'intestazione del file non è valida o il salvataggio non riesce.
+     * @see ServizioBiblioteca#importaLibri
+     */
+    public RapportoImportazione importaLibri(Reader sorgente, LettoreRecord.Formato formato) throws Exception {
+        return servizio.importaLibri(sorgente, formato);
+    }
+
+    /**
+     * @brief Allinea gli utenti all'anagrafe universitaria letta da un file CSV o JSON.
+     * @param sorgente Il testo da sincronizzare.
+     * @param formato Il formato del testo.
+     * @param rimuoviAssenti True per rimuovere gli utenti assenti dall'anagrafe, se senza prestiti attivi.
+     * @return Il rapporto con gli utenti inseriti, aggiornati, invariati, rimossi e scartati.
+     * @throws Exception Se l'intestazione del file non è valida o il salvataggio non riesce.
+     * @see ServizioBiblioteca#sincronizzaUtenti
+     */
+    public RapportoSincronizzazione sincronizzaUtenti(Reader sorgente, LettoreRecord.Formato formato, boolean rimuoviAssenti) throws Exception {
+        return servizio.sincronizzaUtenti(sorgente, formato, rimuoviAssenti);
+    }
+
+    /**
+     * @brief Attende che tutte le modifiche effettuate siano state scritte su disco e rilascia i file.
      *
-     * Deserializza l'oggetto Biblioteca dal file e ripristina lo stato interno.
-     * Richiama inizializzaListe() dopo il caricamento.
+     * Va chiamato prima di chiudere l'applicazione o di leggere i file da un altro processo;
+     * dopo la chiusura le modifiche non possono più essere salvate.
      *
-     * @return true se il caricamento ha avuto successo, false altrimenti.
+     * @throws Exception Se si verificano errori di I/O durante il salvataggio.
+     * @post I dati sono salvati sul file.
      */
-    private boolean caricaDaFile(){
-        try(ObjectInputStream in = new ObjectInputStream(new FileInputStream(filename))){
-            
-            libreria = (Libreria) in.readObject();
-            clienti = (Clienti) in.readObject();
-            prestiti = (Prestiti) in.readObject();
-            
-            return true;
-        }catch(Exception e){ return false; }
+    public void chiudi() throws Exception {
+        servizio.chiudi();
     }
 }
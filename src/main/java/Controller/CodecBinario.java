@@ -0,0 +1,352 @@
+/**
+ * @file CodecBinario.java
+ * @brief Questo file contiene il formato binario compatto con cui vengono salvati i dati della biblioteca.
+ *
+ * La classe CodecBinario scrive e legge Libreria, Clienti e Prestiti senza passare dalla serializzazione
+ * Java: le stringhe sono codificate in UTF-8 precedute dalla lunghezza, ISBN e matricole numeriche
+ * sono compattati in un long, le date sono salvate come giorni dall'epoca e i prestiti fanno
+ * riferimento a libri ed utenti tramite la loro posizione, invece di includerne una copia.
+ */
+package Controller;
+
+import Model.*;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+
+public class CodecBinario {
+
+    /// Intestazione che identifica un file nel formato compatto ("G17B").
+    public static final int MAGIC = 0x47313742;
+
+    /// Versione corrente del formato.
+    public static final int VERSIONE = 1;
+
+    /**
+     * @brief Contenuto di uno snapshot letto da file.
+     */
+    public static class Snapshot {
+
+        private final Libreria libreria;
+        private final Clienti clienti;
+        private final Prestiti prestiti;
+
+        /// Numero di sequenza dell'ultima operazione inclusa nello snapshot.
+        private final long sequenza;
+
+        public Snapshot(Libreria libreria, Clienti clienti, Prestiti prestiti, long sequenza) {
+            this.libreria = libreria;
+            this.clienti = clienti;
+            this.prestiti = prestiti;
+            this.sequenza = sequenza;
+        }
+
+        ///Getter di Libreria
+        public Libreria getLibreria() { return libreria; }
+
+        ///Getter di Clienti
+        public Clienti getClienti() { return clienti; }
+
+        ///Getter di Prestiti
+        public Prestiti getPrestiti() { return prestiti; }
+
+        ///Getter della sequenza
+        public long getSequenza() { return sequenza; }
+    }
+
+    private CodecBinario() {}
+
+    /**
+     * @brief Scrive uno snapshot completo della biblioteca.
+     *
+     * @param out La destinazione dei dati.
+     * @param libreria La Libreria da salvare.
+     * @param clienti I Clienti da salvare.
+     * @param prestiti I Prestiti da salvare.
+     * @param sequenza Il numero di sequenza dell'ultima operazione inclusa.
+     * @throws IOException Se si verificano errori durante la scrittura.
+     */
+    public static void scrivi(DataOutput out, Libreria libreria, Clienti clienti, Prestiti prestiti, long sequenza) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeShort(VERSIONE);
+        out.writeLong(sequenza);
+
+        // Posizione di ogni libro ed utente, usata dai prestiti come riferimento
+        IndiceCodici<Integer> posLibri = new IndiceCodici<>(CodiceNumerico.CIFRE_ISBN, libreria.getLibreria().size());
+        IndiceCodici<Integer> posUtenti = new IndiceCodici<>(CodiceNumerico.CIFRE_MATRICOLA, clienti.getClienti().size());
+
+        scriviVarInt(out, libreria.getLibreria().size());
+        for(Libro l : libreria.getLibreria()){
+            posLibri.put(l.getISBN(), posLibri.size());
+            scriviLibro(out, l);
+        }
+
+        scriviVarInt(out, clienti.getClienti().size());
+        for(Utente u : clienti.getClienti()){
+            posUtenti.put(u.getMatricola(), posUtenti.size());
+            scriviUtente(out, u);
+        }
+
+        scriviVarInt(out, prestiti.getPrestiti().size());
+        for(Prestito p : prestiti.getPrestiti()){
+            // 0 indica un elemento non presente negli elenchi, salvato per intero
+            Integer pu = p.getUtente().getCodiceMatricola() != CodiceNumerico.NON_NUMERICO
+                    ? posUtenti.get(p.getUtente().getCodiceMatricola()) : posUtenti.get(p.getUtente().getMatricola());
+            scriviVarInt(out, pu == null ? 0 : pu + 1);
+            if(pu == null) scriviUtente(out, p.getUtente());
+
+            Integer pl = p.getLibro().getCodiceISBN() != CodiceNumerico.NON_NUMERICO
+                    ? posLibri.get(p.getLibro().getCodiceISBN()) : posLibri.get(p.getLibro().getISBN());
+            scriviVarInt(out, pl == null ? 0 : pl + 1);
+            if(pl == null) scriviLibro(out, p.getLibro());
+
+            scriviData(out, p.getDataRestituzione());
+        }
+    }
+
+    /**
+     * @brief Legge uno snapshot completo della biblioteca.
+     *
+     * @param in La sorgente dei dati, posizionata all'inizio del file.
+     * @return Lo snapshot letto.
+     * @throws IOException Se i dati non sono nel formato compatto o sono danneggiati.
+     */
+    public static Snapshot leggi(DataInput in) throws IOException {
+        if(in.readInt() != MAGIC) throw new IOException("Il file non è nel formato della biblioteca");
+        int versione = in.readUnsignedShort();
+        if(versione > VERSIONE) throw new IOException("Versione del formato non supportata: " + versione);
+        long sequenza = in.readLong();
+
+        int numLibri = leggiVarInt(in);
+        ArrayList<Libro> libri = new ArrayList<>(numLibri);
+        for(int i = 0; i < numLibri; i++) libri.add(leggiLibro(in));
+
+        int numUtenti = leggiVarInt(in);
+        ArrayList<Utente> utenti = new ArrayList<>(numUtenti);
+        for(int i = 0; i < numUtenti; i++) utenti.add(leggiUtente(in));
+
+        int numPrestiti = leggiVarInt(in);
+        ArrayList<Prestito> elenco = new ArrayList<>(numPrestiti);
+        for(int i = 0; i < numPrestiti; i++){
+            int pu = leggiVarInt(in);
+            Utente u = pu == 0 ? leggiUtente(in) : utenti.get(pu - 1);
+            int pl = leggiVarInt(in);
+            Libro l = pl == 0 ? leggiLibro(in) : libri.get(pl - 1);
+            elenco.add(new Prestito(u, l, leggiData(in)));
+        }
+
+        return new Snapshot(new Libreria(libri), new Clienti(utenti), new Prestiti(elenco), sequenza);
+    }
+
+    /**
+     * @brief Scrive un singolo libro.
+     * @param out La destinazione dei dati.
+     * @param l Il libro da scrivere.
+     * @throws IOException Se si verificano errori durante la scrittura.
+     */
+    public static void scriviLibro(DataOutput out, Libro l) throws IOException {
+        scriviStringa(out, l.getTitolo());
+        scriviVarInt(out, l.getAutori().size());
+        for(Autore a : l.getAutori()){
+            scriviStringa(out, a.getNome());
+            scriviStringa(out, a.getCognome());
+        }
+        scriviIntero(out, l.getAnno());
+        if(l.getCodiceISBN() != CodiceNumerico.NON_NUMERICO) scriviCodice(out, l.getCodiceISBN(), CodiceNumerico.CIFRE_ISBN);
+        else scriviCodice(out, l.getISBN());
+        scriviIntero(out, l.getNumCopieTotali());
+        scriviIntero(out, l.getNumCopieDisponibili());
+    }
+
+    /**
+     * @brief Legge un singolo libro scritto con scriviLibro().
+     * @param in La sorgente dei dati.
+     * @return Il libro letto.
+     * @throws IOException Se i dati sono danneggiati.
+     */
+    public static Libro leggiLibro(DataInput in) throws IOException {
+        String titolo = leggiStringa(in);
+        int numAutori = leggiVarInt(in);
+        ArrayList<Autore> autori = new ArrayList<>(numAutori);
+        for(int i = 0; i < numAutori; i++) autori.add(new Autore(leggiStringa(in), leggiStringa(in)));
+        int anno = leggiIntero(in);
+        String ISBN = leggiCodice(in);
+        int copieTot = leggiIntero(in);
+        int copieDisp = leggiIntero(in);
+        return new Libro(titolo, autori, anno, ISBN, copieTot, copieDisp);
+    }
+
+    /**
+     * @brief Scrive un singolo utente.
+     * @param out La destinazione dei dati.
+     * @param u L'utente da scrivere.
+     * @throws IOException Se si verificano errori durante la scrittura.
+     */
+    public static void scriviUtente(DataOutput out, Utente u) throws IOException {
+        scriviStringa(out, u.getNome());
+        scriviStringa(out, u.getCognome());
+        if(u.getCodiceMatricola() != CodiceNumerico.NON_NUMERICO) scriviCodice(out, u.getCodiceMatricola(), CodiceNumerico.CIFRE_MATRICOLA);
+        else scriviCodice(out, u.getMatricola());
+        scriviStringa(out, u.getEmail());
+        scriviIntero(out, u.getNumPrestitiAttivi());
+    }
+
+    /**
+     * @brief Legge un singolo utente scritto con scriviUtente().
+     * @param in La sorgente dei dati.
+     * @return L'utente letto.
+     * @throws IOException Se i dati sono danneggiati.
+     */
+    public static Utente leggiUtente(DataInput in) throws IOException {
+        String nome = leggiStringa(in);
+        String cognome = leggiStringa(in);
+        String matricola = leggiCodice(in);
+        String email = leggiStringa(in);
+        return new Utente(nome, cognome, matricola, email, leggiIntero(in));
+    }
+
+    /**
+     * @brief Scrive una stringa in UTF-8 preceduta dalla sua lunghezza (0 indica null).
+     */
+    public static void scriviStringa(DataOutput out, String s) throws IOException {
+        if(s == null){
+            scriviVarInt(out, 0);
+            return;
+        }
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        scriviVarInt(out, b.length + 1);
+        out.write(b);
+    }
+
+    /**
+     * @brief Legge una stringa scritta con scriviStringa().
+     */
+    public static String leggiStringa(DataInput in) throws IOException {
+        int lunghezza = leggiVarInt(in);
+        if(lunghezza == 0) return null;
+        byte[] b = new byte[lunghezza - 1];
+        in.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @brief Scrive un codice identificativo (ISBN o matricola).
+     *
+     * Se il codice è composto solo da cifre viene scritto il numero di cifre seguito dal valore
+     * compattato in un long, così da conservare anche gli zeri iniziali; altrimenti viene
+     * scritto come stringa.
+     */
+    public static void scriviCodice(DataOutput out, String codice) throws IOException {
+        if(codice != null && codice.length() > 0 && codice.length() <= 18 && soloCifre(codice)){
+            out.writeByte(codice.length());
+            scriviVarLong(out, Long.parseLong(codice));
+        }else{
+            out.writeByte(0);
+            scriviStringa(out, codice);
+        }
+    }
+
+    /**
+     * @brief Scrive un codice già compresso (CodiceNumerico), nello stesso formato di scriviCodice(String).
+     */
+    public static void scriviCodice(DataOutput out, long valore, int cifre) throws IOException {
+        out.writeByte(cifre);
+        scriviVarLong(out, valore);
+    }
+
+    /**
+     * @brief Legge un codice scritto con scriviCodice().
+     */
+    public static String leggiCodice(DataInput in) throws IOException {
+        int cifre = in.readUnsignedByte();
+        if(cifre == 0) return leggiStringa(in);
+
+        String valore = Long.toString(leggiVarLong(in));
+        StringBuilder sb = new StringBuilder(cifre);
+        for(int i = valore.length(); i < cifre; i++) sb.append('0');
+        return sb.append(valore).toString();
+    }
+
+    /**
+     * @brief Scrive una data come numero di giorni dall'epoca (null è ammesso).
+     */
+    public static void scriviData(DataOutput out, LocalDate data) throws IOException {
+        out.writeBoolean(data != null);
+        if(data != null) scriviVarLong(out, zigZag(data.toEpochDay()));
+    }
+
+    /**
+     * @brief Legge una data scritta con scriviData().
+     */
+    public static LocalDate leggiData(DataInput in) throws IOException {
+        if(!in.readBoolean()) return null;
+        return LocalDate.ofEpochDay(deZigZag(leggiVarLong(in)));
+    }
+
+    /**
+     * @brief Scrive un intero con segno in forma variabile (1 byte per i valori piccoli).
+     */
+    public static void scriviIntero(DataOutput out, int v) throws IOException {
+        scriviVarLong(out, zigZag(v));
+    }
+
+    /**
+     * @brief Legge un intero scritto con scriviIntero().
+     */
+    public static int leggiIntero(DataInput in) throws IOException {
+        return (int) deZigZag(leggiVarLong(in));
+    }
+
+    /**
+     * @brief Scrive un intero non negativo in forma variabile, 7 bit per byte.
+     */
+    public static void scriviVarInt(DataOutput out, int v) throws IOException {
+        scriviVarLong(out, v & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @brief Legge un intero scritto con scriviVarInt().
+     */
+    public static int leggiVarInt(DataInput in) throws IOException {
+        long v = leggiVarLong(in);
+        if(v > Integer.MAX_VALUE) throw new IOException("Valore fuori intervallo: " + v);
+        return (int) v;
+    }
+
+    private static void scriviVarLong(DataOutput out, long v) throws IOException {
+        while((v & ~0x7FL) != 0){
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    private static long leggiVarLong(DataInput in) throws IOException {
+        long v = 0;
+        for(int shift = 0; shift < 64; shift += 7){
+            int b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+            if((b & 0x80) == 0) return v;
+        }
+        throw new IOException("Intero a lunghezza variabile non valido");
+    }
+
+    private static long zigZag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long deZigZag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static boolean soloCifre(String s) {
+        for(int i = 0; i < s.length(); i++){
+            char c = s.charAt(i);
+            if(c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+}
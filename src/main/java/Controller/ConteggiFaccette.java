@@ -0,0 +1,48 @@
+/**
+ * @file ConteggiFaccette.java
+ * @brief Questo file contiene i conteggi per le faccette di una ricerca sui libri.
+ *
+ * La classe ConteggiFaccette riporta, per un insieme di risultati, quanti libri cadono in ogni
+ * decennio di pubblicazione, quanti hanno copie disponibili e quali autori compaiono in più libri.
+ * I conteggi sono calcolati da IndiceCatalogo.
+ */
+package Controller;
+
+import Model.Autore;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+public class ConteggiFaccette {
+
+    private final int totale;
+    private final int disponibili;
+    private final SortedMap<Integer, Integer> perDecennio;
+    private final Map<Autore, Integer> autoriPrincipali;
+
+    ConteggiFaccette(int totale, int disponibili, TreeMap<Integer, Integer> perDecennio, LinkedHashMap<Autore, Integer> autoriPrincipali) {
+        this.totale = totale;
+        this.disponibili = disponibili;
+        this.perDecennio = Collections.unmodifiableSortedMap(perDecennio);
+        this.autoriPrincipali = Collections.unmodifiableMap(autoriPrincipali);
+    }
+
+    ///Getter del numero di libri considerati
+    public int getTotale() { return totale; }
+
+    ///Getter del numero di libri con almeno una copia disponibile
+    public int getDisponibili() { return disponibili; }
+
+    ///Getter del numero di libri per decennio (1990 per gli anni dal 1990 al 1999), solo per i decenni con almeno un libro
+    public SortedMap<Integer, Integer> getPerDecennio() { return perDecennio; }
+
+    ///Getter del numero di libri degli autori più presenti, dal più presente
+    public Map<Autore, Integer> getAutoriPrincipali() { return autoriPrincipali; }
+
+    @Override
+    public String toString() {
+        return "Libri: " + totale + ", disponibili: " + disponibili + ", per decennio: " + perDecennio + ", autori: " + autoriPrincipali;
+    }
+}
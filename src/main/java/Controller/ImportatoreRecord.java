@@ -0,0 +1,194 @@
+/**
+ * @file ImportatoreRecord.java
+ * @brief Questo file contiene la pipeline di importazione in blocco da file.
+ *
+ * La classe ImportatoreRecord legge i record a lotti di dimLotto dal LettoreRecord, li converte e
+ * valida in parallelo su numThread thread, e li consegna alla Destinazione nell'ordine del file,
+ * un lotto alla volta, tra inizioLotto() e fineLotto(): lettura e conversione dei lotti
+ * successivi proseguono senza attendere la Destinazione. Al più 2 * numThread lotti sono in memoria contemporaneamente, quindi
+ * la memoria occupata non dipende dalla dimensione del file.
+ * Un record non valido viene scartato ed annotato nel RapportoImportazione senza fermare
+ * l'importazione; un errore di lettura (file non nel formato atteso) la interrompe, dopo aver
+ * consegnato i record letti fino a quel punto.
+ */
+package Controller;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ImportatoreRecord<T> {
+
+    /// Converte i campi di un record nell'elemento da importare.
+    @FunctionalInterface
+    public interface Convertitore<T> {
+        /**
+         * @brief Converte e valida un record; può essere chiamato da più thread contemporaneamente.
+         * @param campi I campi del record, nell'ordine richiesto al LettoreRecord.
+         * @return L'elemento da importare.
+         * @throws Exception Se il record non è valido; il messaggio finisce nel rapporto.
+         */
+        T converti(String[] campi) throws Exception;
+    }
+
+    /// Riceve gli elementi validi, nell'ordine del file, sul thread che esegue l'importazione.
+    public interface Destinazione<T> {
+        /// Chiamato prima del primo elemento di ogni lotto (ad esempio per prendere un lock).
+        default void inizioLotto() {}
+
+        /**
+         * @brief Applica un elemento.
+         * @param elemento L'elemento convertito.
+         * @throws Exception Se l'elemento va scartato (ad esempio perché già presente).
+         */
+        void applica(T elemento) throws Exception;
+
+        /// Chiamato dopo l'ultimo elemento di ogni lotto, anche se l'applicazione si è interrotta.
+        default void fineLotto() {}
+    }
+
+    /// Lotto di record letti e, dopo la conversione, i relativi esiti.
+    private static class Lotto {
+        final List<String[]> campi;
+        final long[] posizioni;
+        /// Per ogni record l'elemento convertito.
+        final Object[] elementi;
+        /// Per ogni record scartato il motivo, null per i record validi.
+        final String[] errori;
+
+        Lotto(int dimensione) {
+            this.campi = new ArrayList<>(dimensione);
+            this.posizioni = new long[dimensione];
+            this.elementi = new Object[dimensione];
+            this.errori = new String[dimensione];
+        }
+    }
+
+    private final Convertitore<T> convertitore;
+    private final int numThread;
+    private final int dimLotto;
+
+    /**
+     * @brief Costruttore della classe.
+     * @param convertitore La conversione dei record, eseguita in parallelo.
+     * @param numThread Il numero di thread di conversione.
+     * @param dimLotto Il numero di record per lotto.
+     */
+    public ImportatoreRecord(Convertitore<T> convertitore, int numThread, int dimLotto) {
+        this.convertitore = convertitore;
+        this.numThread = Math.max(1, numThread);
+        this.dimLotto = Math.max(1, dimLotto);
+    }
+
+    /**
+     * @brief Importa tutti i record del lettore.
+     * @param lettore La sorgente dei record.
+     * @param destinazione Chi riceve gli elementi validi.
+     * @return Il rapporto dell'importazione.
+     */
+    public RapportoImportazione importa(LettoreRecord lettore, Destinazione<T> destinazione) {
+        return importa(lettore, destinazione, new RapportoImportazione());
+    }
+
+    /**
+     * @brief Importa tutti i record del lettore, annotando l'esito nel rapporto dato.
+     * @param lettore La sorgente dei record.
+     * @param destinazione Chi riceve gli elementi validi.
+     * @param rapporto Il rapporto da completare (ad esempio un RapportoSincronizzazione).
+     * @return Il rapporto dato.
+     */
+    public <R extends RapportoImportazione> R importa(LettoreRecord lettore, Destinazione<T> destinazione, R rapporto) {
+        long inizio = System.nanoTime();
+        ExecutorService convertitori = Executors.newFixedThreadPool(numThread, r -> {
+            Thread t = new Thread(r, "importazione-biblioteca");
+            t.setDaemon(true);
+            return t;
+        });
+        Deque<Future<Lotto>> inCorso = new ArrayDeque<>();
+        IOException erroreLettura = null;
+        long posizioneErrore = 0;
+        try{
+            while(true){
+                Lotto lotto;
+                try{
+                    lotto = leggiLotto(lettore);
+                }catch(IOException e){
+                    erroreLettura = e;
+                    posizioneErrore = lettore.getPosizione();
+                    break;
+                }
+                if(lotto == null) break;
+                inCorso.add(convertitori.submit(() -> converti(lotto)));
+                if(inCorso.size() >= 2 * numThread) applica(attendi(inCorso.poll()), destinazione, rapporto);
+            }
+            while(!inCorso.isEmpty()) applica(attendi(inCorso.poll()), destinazione, rapporto);
+            // I record letti prima dell'errore sono stati consegnati: l'errore va in fondo al rapporto
+            if(erroreLettura != null) rapporto.interrompi(posizioneErrore, erroreLettura.getMessage());
+        }finally{
+            convertitori.shutdownNow();
+        }
+        rapporto.setDurataNanos(System.nanoTime() - inizio);
+        return rapporto;
+    }
+
+    private Lotto leggiLotto(LettoreRecord lettore) throws IOException {
+        Lotto lotto = null;
+        String[] campi;
+        while((lotto == null || lotto.campi.size() < dimLotto) && (campi = lettore.prossimo()) != null){
+            if(lotto == null) lotto = new Lotto(dimLotto);
+            lotto.posizioni[lotto.campi.size()] = lettore.getPosizione();
+            lotto.campi.add(campi);
+        }
+        return lotto;
+    }
+
+    private Lotto converti(Lotto lotto) {
+        for(int i = 0; i < lotto.campi.size(); i++){
+            try{
+                lotto.elementi[i] = convertitore.converti(lotto.campi.get(i));
+            }catch(Exception e){
+                lotto.errori[i] = e.getMessage() != null ? e.getMessage() : e.toString();
+            }
+        }
+        return lotto;
+    }
+
+    private Lotto attendi(Future<Lotto> f) {
+        try{
+            return f.get();
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Importazione interrotta", e);
+        }catch(ExecutionException e){
+            throw new IllegalStateException("Errore durante la conversione dei record", e.getCause());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void applica(Lotto lotto, Destinazione<T> destinazione, RapportoImportazione rapporto) {
+        destinazione.inizioLotto();
+        try{
+            for(int i = 0; i < lotto.campi.size(); i++){
+                rapporto.contaLetto();
+                if(lotto.errori[i] != null){
+                    rapporto.scarta(lotto.posizioni[i], lotto.errori[i]);
+                    continue;
+                }
+                try{
+                    destinazione.applica((T) lotto.elementi[i]);
+                    rapporto.contaImportato();
+                }catch(Exception e){
+                    rapporto.scarta(lotto.posizioni[i], e.getMessage());
+                }
+            }
+        }finally{
+            destinazione.fineLotto();
+        }
+    }
+}
@@ -0,0 +1,383 @@
+/**
+ * @file IndiceCatalogo.java
+ * @brief Questo file contiene gli indici secondari dei libri per anno di pubblicazione e disponibilità.
+ *
+ * La classe IndiceCatalogo assegna ad ogni libro indicizzato un identificativo intero e ne
+ * conserva anno e disponibilità in array primitivi. Per ogni anno mantiene la lista degli
+ * identificativi dei libri pubblicati in quell'anno, in una mappa ordinata, così che un
+ * intervallo di anni costi quanto i libri trovati; i libri con almeno una copia disponibile
+ * sono i bit accesi di un BitSet.
+ * Una ricerca combinata parte dall'insieme più piccolo dei due e verifica l'altra condizione
+ * sugli array, senza mai scorrere l'intero catalogo.
+ *
+ * L'indice mantiene inoltre i conteggi per le faccette della ricerca (libri per decennio,
+ * disponibili, libri per autore), aggiornati ad ogni modifica: per l'intero catalogo sono già
+ * pronti, per un insieme di risultati vengono calcolati dagli array per identificativo, senza
+ * leggere i campi dei libri.
+ */
+package Controller;
+
+import Model.Autore;
+import Model.Libro;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class IndiceCatalogo {
+
+    /// Lista di identificativi che cresce secondo necessità, senza un oggetto per ogni voce.
+    private static class ListaId {
+        int[] id = new int[4];
+        int size;
+
+        /// Aggiunge un identificativo e ne restituisce la posizione.
+        int aggiungi(int v) {
+            if(size == id.length) id = Arrays.copyOf(id, size * 2);
+            id[size] = v;
+            return size++;
+        }
+    }
+
+    /// Identificativo di ogni libro indicizzato.
+    private final IdentityHashMap<Libro, Integer> identificativi = new IdentityHashMap<>();
+
+    /// Libro di ogni identificativo, null per gli identificativi liberi.
+    private Libro[] libri = new Libro[16];
+
+    /// Anno di pubblicazione di ogni identificativo, come indicizzato.
+    private int[] anni = new int[16];
+
+    /// Posizione di ogni identificativo nella lista del suo anno.
+    private int[] posizioniInAnno = new int[16];
+
+    /// Identificativi dei libri con almeno una copia disponibile.
+    private final BitSet disponibili = new BitSet();
+
+    /// Per ogni anno, gli identificativi dei libri pubblicati in quell'anno.
+    private final TreeMap<Integer, ListaId> perAnno = new TreeMap<>();
+
+    /// Identificativi liberati dai libri rimossi, riusati dai successivi.
+    private final ListaId liberi = new ListaId();
+
+    /// Primo identificativo mai assegnato.
+    private int prossimo;
+
+    /// Numero di bit accesi in disponibili.
+    private int numDisponibili;
+
+    /// Identificativo di ogni autore presente in almeno un libro indicizzato.
+    private final HashMap<Autore, Integer> idAutori = new HashMap<>();
+
+    /// Autore di ogni identificativo di autore, null per gli identificativi liberi.
+    private final List<Autore> autori = new ArrayList<>();
+
+    /// Identificativi liberati dagli autori rimasti senza libri.
+    private final ListaId autoriLiberi = new ListaId();
+
+    /// Numero di libri indicizzati di ogni autore.
+    private int[] libriPerAutore = new int[16];
+
+    /// Identificativi degli autori di ogni libro, senza ripetizioni.
+    private int[][] autoriLibro = new int[16][];
+
+    /// Numero di libri indicizzati per decennio (1990 per gli anni dal 1990 al 1999).
+    private final TreeMap<Integer, int[]> perDecennio = new TreeMap<>();
+
+    /// Contatori per autore riusati dal calcolo delle faccette, tutti a zero tra un calcolo e l'altro.
+    private int[] contatoriAutori = new int[0];
+
+    ///Getter del numero di libri indicizzati
+    public int size() { return identificativi.size(); }
+
+    ///Getter del numero di libri con almeno una copia disponibile
+    public int getNumDisponibili() { return numDisponibili; }
+
+    /**
+     * @brief Indicizza un libro.
+     * @param l Il libro da aggiungere. Se è già presente vengono aggiornati anno e disponibilità.
+     */
+    public void aggiungi(Libro l) {
+        if(identificativi.containsKey(l)){
+            aggiorna(l);
+            return;
+        }
+        int id = liberi.size > 0 ? liberi.id[--liberi.size] : prossimo++;
+        if(id == libri.length){
+            int n = libri.length * 2;
+            libri = Arrays.copyOf(libri, n);
+            anni = Arrays.copyOf(anni, n);
+            posizioniInAnno = Arrays.copyOf(posizioniInAnno, n);
+            autoriLibro = Arrays.copyOf(autoriLibro, n);
+        }
+        identificativi.put(l, id);
+        libri[id] = l;
+        inserisciInAnno(id, l.getAnno());
+        impostaDisponibile(id, l.isDisponibile());
+        registraAutori(id, l);
+    }
+
+    /**
+     * @brief Rimuove un libro dall'indice.
+     * @param l Il libro da rimuovere; se non è indicizzato non accade nulla.
+     */
+    public void rimuovi(Libro l) {
+        Integer id = identificativi.remove(l);
+        if(id == null) return;
+        rimuoviDaAnno(id);
+        impostaDisponibile(id, false);
+        dimenticaAutori(id);
+        libri[id] = null;
+        liberi.aggiungi(id);
+    }
+
+    /**
+     * @brief Aggiorna anno, disponibilità ed autori di un libro indicizzato, dopo una modifica.
+     * @param l Il libro modificato; se non è indicizzato non accade nulla.
+     */
+    public void aggiorna(Libro l) {
+        Integer id = identificativi.get(l);
+        if(id == null) return;
+        if(anni[id] != l.getAnno()){
+            rimuoviDaAnno(id);
+            inserisciInAnno(id, l.getAnno());
+        }
+        impostaDisponibile(id, l.isDisponibile());
+        dimenticaAutori(id);
+        registraAutori(id, l);
+    }
+
+    /**
+     * @brief Aggiorna la disponibilità di un libro indicizzato, dopo un prestito o una restituzione.
+     * @param l Il libro le cui copie disponibili sono cambiate; se non è indicizzato non accade nulla.
+     */
+    public void aggiornaDisponibilita(Libro l) {
+        Integer id = identificativi.get(l);
+        if(id != null) impostaDisponibile(id, l.isDisponibile());
+    }
+
+    ///Svuota l'indice
+    public void clear() {
+        identificativi.clear();
+        Arrays.fill(libri, null);
+        Arrays.fill(autoriLibro, null);
+        disponibili.clear();
+        numDisponibili = 0;
+        perAnno.clear();
+        perDecennio.clear();
+        idAutori.clear();
+        autori.clear();
+        autoriLiberi.size = 0;
+        Arrays.fill(libriPerAutore, 0);
+        liberi.size = 0;
+        prossimo = 0;
+    }
+
+    /**
+     * @brief Conta i libri pubblicati in un intervallo di anni, senza scorrerli.
+     * @param da Il primo anno dell'intervallo.
+     * @param a L'ultimo anno dell'intervallo, compreso.
+     * @return Il numero di libri indicizzati con anno compreso tra da ed a.
+     */
+    public int contaAnnoTra(int da, int a) {
+        if(da > a) return 0;
+        int n = 0;
+        for(ListaId lista : perAnno.subMap(da, true, a, true).values()) n += lista.size;
+        return n;
+    }
+
+    /**
+     * @brief Restituisce i libri pubblicati in un intervallo di anni, eventualmente solo quelli disponibili.
+     *
+     * Se sono richiesti solo i libri disponibili e questi sono meno dei libri dell'intervallo,
+     * vengono scorsi i disponibili controllandone l'anno; altrimenti vengono scorse le liste
+     * degli anni dell'intervallo controllando la disponibilità.
+     *
+     * @param da Il primo anno dell'intervallo.
+     * @param a L'ultimo anno dell'intervallo, compreso.
+     * @param soloDisponibili true per escludere i libri senza copie disponibili.
+     * @return I libri trovati, ordinati per anno e, a parità di anno, per identificativo.
+     */
+    public List<Libro> cerca(int da, int a, boolean soloDisponibili) {
+        if(da > a) return new ArrayList<>();
+
+        long[] trovati;
+        int n = 0;
+        if(soloDisponibili && getNumDisponibili() < contaAnnoTra(da, a)){
+            trovati = new long[getNumDisponibili()];
+            for(int id = disponibili.nextSetBit(0); id >= 0; id = disponibili.nextSetBit(id + 1))
+                if(anni[id] >= da && anni[id] <= a) trovati[n++] = chiave(id);
+        }else{
+            trovati = new long[contaAnnoTra(da, a)];
+            for(ListaId lista : perAnno.subMap(da, true, a, true).values()){
+                for(int i = 0; i < lista.size; i++){
+                    int id = lista.id[i];
+                    if(!soloDisponibili || disponibili.get(id)) trovati[n++] = chiave(id);
+                }
+            }
+        }
+
+        // Anno ed identificativo sono codificati in un long, così l'ordinamento resta su un array primitivo
+        Arrays.sort(trovati, 0, n);
+        List<Libro> risultato = new ArrayList<>(n);
+        for(int i = 0; i < n; i++) risultato.add(libri[(int) trovati[i]]);
+        return risultato;
+    }
+
+    /**
+     * @brief Restituisce i libri con almeno una copia disponibile.
+     * @return I libri disponibili, nell'ordine degli identificativi.
+     */
+    public List<Libro> cercaDisponibili() {
+        List<Libro> risultato = new ArrayList<>(getNumDisponibili());
+        for(int id = disponibili.nextSetBit(0); id >= 0; id = disponibili.nextSetBit(id + 1)) risultato.add(libri[id]);
+        return risultato;
+    }
+
+    /**
+     * @brief Calcola le faccette di un insieme di risultati.
+     *
+     * Per l'intero catalogo i conteggi sono quelli mantenuti ad ogni modifica; per un insieme di
+     * risultati vengono sommati dagli array per identificativo, in tempo proporzionale al numero
+     * di risultati e dei loro autori.
+     *
+     * @param risultati I libri trovati, oppure null per l'intero catalogo. I libri non indicizzati sono ignorati.
+     * @param numAutori Il numero massimo di autori da restituire.
+     * @return I conteggi per decennio, dei disponibili e gli autori con più libri tra i risultati.
+     */
+    public ConteggiFaccette faccette(Collection<Libro> risultati, int numAutori) {
+        TreeMap<Integer, Integer> decenni = new TreeMap<>();
+        if(risultati == null){
+            for(Map.Entry<Integer, int[]> e : perDecennio.entrySet()) decenni.put(e.getKey(), e.getValue()[0]);
+            return new ConteggiFaccette(size(), numDisponibili, decenni, principali(libriPerAutore, null, autori.size(), numAutori));
+        }
+        if(perAnno.isEmpty()) return new ConteggiFaccette(0, 0, decenni, new LinkedHashMap<>());
+
+        int primoDecennio = decennio(perAnno.firstKey());
+        int[] perIndice = new int[(decennio(perAnno.lastKey()) - primoDecennio) / 10 + 1];
+        if(contatoriAutori.length < autori.size()) contatoriAutori = new int[libriPerAutore.length];
+        ListaId toccati = new ListaId();
+        int totale = 0, disp = 0;
+        for(Libro l : risultati){
+            Integer id = identificativi.get(l);
+            if(id == null) continue;
+            totale++;
+            perIndice[(decennio(anni[id]) - primoDecennio) / 10]++;
+            if(disponibili.get(id)) disp++;
+            for(int a : autoriLibro[id])
+                if(contatoriAutori[a]++ == 0) toccati.aggiungi(a);
+        }
+        for(int i = 0; i < perIndice.length; i++)
+            if(perIndice[i] > 0) decenni.put(primoDecennio + i * 10, perIndice[i]);
+
+        LinkedHashMap<Autore, Integer> principali = principali(contatoriAutori, toccati.id, toccati.size, numAutori);
+        for(int i = 0; i < toccati.size; i++) contatoriAutori[toccati.id[i]] = 0;
+        return new ConteggiFaccette(totale, disp, decenni, principali);
+    }
+
+    /**
+     * @brief Sceglie gli autori con più libri, a parità di libri nell'ordine in cui sono stati indicizzati.
+     * @param conteggi Il numero di libri per identificativo di autore.
+     * @param candidati Gli identificativi da considerare, oppure null per i primi n.
+     * @param n Il numero di candidati.
+     * @param numAutori Il numero massimo di autori da restituire.
+     */
+    private LinkedHashMap<Autore, Integer> principali(int[] conteggi, int[] candidati, int n, int numAutori) {
+        // Libri ed identificativo sono codificati in un long, come in cerca()
+        long[] chiavi = new long[n];
+        int k = 0;
+        for(int i = 0; i < n; i++){
+            int a = candidati == null ? i : candidati[i];
+            if(conteggi[a] > 0) chiavi[k++] = ((long) -conteggi[a] << 32) | a;
+        }
+        Arrays.sort(chiavi, 0, k);
+        LinkedHashMap<Autore, Integer> risultato = new LinkedHashMap<>();
+        for(int i = 0; i < Math.min(k, numAutori); i++){
+            int a = (int) chiavi[i];
+            risultato.put(autori.get(a), conteggi[a]);
+        }
+        return risultato;
+    }
+
+    private static int decennio(int anno) {
+        return Math.floorDiv(anno, 10) * 10;
+    }
+
+    private void impostaDisponibile(int id, boolean disponibile) {
+        if(disponibili.get(id) == disponibile) return;
+        disponibili.set(id, disponibile);
+        numDisponibili += disponibile ? 1 : -1;
+    }
+
+    /// Assegna al libro gli identificativi dei suoi autori e ne incrementa i conteggi.
+    private void registraAutori(int id, Libro l) {
+        int[] ids = new int[l.getAutori().size()];
+        int n = 0;
+        for(Autore a : l.getAutori()){
+            if(a == null) continue;
+            Integer ida = idAutori.get(a);
+            if(ida == null){
+                if(autoriLiberi.size > 0){
+                    ida = autoriLiberi.id[--autoriLiberi.size];
+                    autori.set(ida, a);
+                }else{
+                    ida = autori.size();
+                    autori.add(a);
+                    if(ida == libriPerAutore.length) libriPerAutore = Arrays.copyOf(libriPerAutore, ida * 2);
+                }
+                idAutori.put(a, ida);
+            }
+            boolean ripetuto = false;
+            for(int i = 0; i < n && !ripetuto; i++) ripetuto = ids[i] == ida;
+            if(ripetuto) continue;
+            ids[n++] = ida;
+            libriPerAutore[ida]++;
+        }
+        autoriLibro[id] = n == ids.length ? ids : Arrays.copyOf(ids, n);
+    }
+
+    /// Decrementa i conteggi degli autori del libro e libera gli identificativi di quelli rimasti senza libri.
+    private void dimenticaAutori(int id) {
+        for(int a : autoriLibro[id]){
+            if(--libriPerAutore[a] > 0) continue;
+            idAutori.remove(autori.get(a));
+            autori.set(a, null);
+            autoriLiberi.aggiungi(a);
+        }
+        autoriLibro[id] = null;
+    }
+
+    /// Chiave di ordinamento di un identificativo: l'anno nei 32 bit alti, l'identificativo in quelli bassi.
+    private long chiave(int id) {
+        return ((long) anni[id] << 32) | id;
+    }
+
+    private void inserisciInAnno(int id, int anno) {
+        ListaId lista = perAnno.get(anno);
+        if(lista == null){
+            lista = new ListaId();
+            perAnno.put(anno, lista);
+        }
+        anni[id] = anno;
+        posizioniInAnno[id] = lista.aggiungi(id);
+        perDecennio.computeIfAbsent(decennio(anno), k -> new int[1])[0]++;
+    }
+
+    /// Toglie un identificativo dalla lista del suo anno, spostando l'ultimo al suo posto.
+    private void rimuoviDaAnno(int id) {
+        ListaId lista = perAnno.get(anni[id]);
+        int pos = posizioniInAnno[id];
+        int ultimo = lista.id[--lista.size];
+        lista.id[pos] = ultimo;
+        posizioniInAnno[ultimo] = pos;
+        if(lista.size == 0) perAnno.remove(anni[id]);
+        int[] conteggio = perDecennio.get(decennio(anni[id]));
+        if(--conteggio[0] == 0) perDecennio.remove(decennio(anni[id]));
+    }
+}
@@ -0,0 +1,256 @@
+/**
+ * @file IndiceRicerca.java
+ * @brief Questo file contiene l'indice invertito usato per la ricerca testuale.
+ *
+ * La classe IndiceRicerca associa ad ogni parola (token) l'insieme degli elementi che la contengono.
+ * Le parole sono mantenute in ordine alfabetico, così che una ricerca per prefisso si riduca ad un
+ * intervallo della mappa. Una ricerca con più parole restituisce gli elementi che le contengono tutte.
+ *
+ * Le parole indicizzate di almeno tre caratteri e non composte da sole cifre formano anche un
+ * vocabolario organizzato in un AlberoParole, usato dalla ricerca approssimata: ogni parola della
+ * ricerca corrisponde alle parole indicizzate entro una distanza di Levenshtein che cresce con la
+ * sua lunghezza, così che gli errori di battitura non azzerino i risultati.
+ */
+package Controller;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+public class IndiceRicerca<T> {
+
+    /// Funzione che estrae da un elemento i testi da indicizzare.
+    private final Function<T, Collection<String>> estrattore;
+
+    /// Per ogni parola, gli elementi che la contengono.
+    private final TreeMap<String, Set<T>> indice = new TreeMap<>();
+
+    /// Per ogni elemento, le parole con cui è stato indicizzato (usate per la rimozione).
+    private final IdentityHashMap<T, Set<String>> paroleElemento = new IdentityHashMap<>();
+
+    /// Parole indicizzate su cui è possibile la ricerca approssimata.
+    private final AlberoParole vocabolario = new AlberoParole();
+
+    /**
+     * @brief Costruttore della classe.
+     * @param estrattore La funzione che restituisce i testi (titolo, autori, ...) di un elemento.
+     */
+    public IndiceRicerca(Function<T, Collection<String>> estrattore) {
+        this.estrattore = estrattore;
+    }
+
+    ///Getter del numero di elementi indicizzati
+    public int getNumElementi() { return paroleElemento.size(); }
+
+    /**
+     * @brief Indicizza un elemento.
+     * @param elemento L'elemento da aggiungere. Se è già presente viene reindicizzato.
+     */
+    public void aggiungi(T elemento) {
+        if(paroleElemento.containsKey(elemento)) rimuovi(elemento);
+
+        Set<String> parole = new HashSet<>();
+        for(String testo : estrattore.apply(elemento)) parole.addAll(tokenizza(testo));
+
+        for(String p : parole){
+            Set<T> elementi = indice.get(p);
+            if(elementi == null){
+                elementi = Collections.newSetFromMap(new IdentityHashMap<>());
+                indice.put(p, elementi);
+                if(approssimabile(p)) vocabolario.aggiungi(p);
+            }
+            elementi.add(elemento);
+        }
+        paroleElemento.put(elemento, parole);
+    }
+
+    /**
+     * @brief Rimuove un elemento dall'indice.
+     * @param elemento L'elemento da rimuovere.
+     */
+    public void rimuovi(T elemento) {
+        Set<String> parole = paroleElemento.remove(elemento);
+        if(parole == null) return;
+        for(String p : parole){
+            Set<T> elementi = indice.get(p);
+            elementi.remove(elemento);
+            if(elementi.isEmpty()){
+                indice.remove(p);
+                vocabolario.rimuovi(p);
+            }
+        }
+    }
+
+    /**
+     * @brief Aggiorna l'indice dopo la modifica di un elemento.
+     * @param elemento L'elemento modificato.
+     */
+    public void aggiorna(T elemento) {
+        aggiungi(elemento);
+    }
+
+    /**
+     * @brief Cerca gli elementi che contengono tutte le parole della ricerca.
+     *
+     * Ogni parola della ricerca corrisponde alle parole indicizzate che iniziano con essa,
+     * senza distinguere maiuscole e minuscole.
+     *
+     * @param ricerca Il testo digitato dall'utente.
+     * @return L'insieme degli elementi trovati, oppure null se la ricerca non contiene parole
+     * (nel qual caso tutti gli elementi sono validi).
+     */
+    public Set<T> cerca(String ricerca) {
+        if(ricerca == null) return null;
+        List<String> parole = tokenizza(ricerca);
+        if(parole.isEmpty()) return null;
+
+        // Si parte dalla parola con meno parole indicizzate corrispondenti, per ridurre le intersezioni
+        List<Map<String, Set<T>>> intervalli = new ArrayList<>(parole.size());
+        for(String p : parole) intervalli.add(intervallo(p));
+        intervalli.sort((a, b) -> Integer.compare(a.size(), b.size()));
+
+        Set<T> risultato = unione(intervalli.get(0));
+        for(int i = 1; i < intervalli.size() && !risultato.isEmpty(); i++){
+            Set<T> altri = unione(intervalli.get(i));
+            risultato.retainAll(altri);
+        }
+        return risultato;
+    }
+
+    /**
+     * @brief Cerca gli elementi che contengono, per ogni parola della ricerca, una parola simile.
+     *
+     * Una parola della ricerca corrisponde alle parole indicizzate entro tolleranza(parola)
+     * modifiche. La distanza di un elemento è la somma, sulle parole della ricerca, della minima
+     * distanza tra la parola e quelle dell'elemento. Si parte dalla parola della ricerca le cui
+     * parole simili hanno meno elementi; per le altre vengono controllate solo le parole dei
+     * candidati.
+     *
+     * @param ricerca Il testo digitato dall'utente.
+     * @return Gli elementi trovati con la loro distanza, oppure null se la ricerca non contiene parole.
+     */
+    public Map<T, Integer> cercaApprossimata(String ricerca) {
+        if(ricerca == null) return null;
+        List<String> parole = new ArrayList<>(new HashSet<>(tokenizza(ricerca)));
+        if(parole.isEmpty()) return null;
+
+        Map<T, Integer> risultato = new IdentityHashMap<>();
+        List<Map<String, Integer>> simili = new ArrayList<>(parole.size());
+        long[] numElementi = new long[parole.size()];
+        for(int i = 0; i < parole.size(); i++){
+            String p = parole.get(i);
+            Map<String, Integer> vicine = new HashMap<>();
+            if(approssimabile(p)) vocabolario.cerca(p, tolleranza(p), vicine::put);
+            else if(indice.containsKey(p)) vicine.put(p, 0);
+            if(vicine.isEmpty()) return risultato;
+            for(String v : vicine.keySet()) numElementi[i] += indice.get(v).size();
+            simili.add(vicine);
+        }
+
+        int primo = 0;
+        for(int i = 1; i < numElementi.length; i++)
+            if(numElementi[i] < numElementi[primo]) primo = i;
+        for(Map.Entry<String, Integer> v : simili.get(primo).entrySet())
+            for(T elemento : indice.get(v.getKey())) risultato.merge(elemento, v.getValue(), Math::min);
+
+        for(int i = 0; i < simili.size(); i++){
+            if(i == primo) continue;
+            Map<String, Integer> vicine = simili.get(i);
+            risultato.entrySet().removeIf(e -> {
+                int minima = Integer.MAX_VALUE;
+                for(String q : paroleElemento.get(e.getKey())){
+                    Integer d = vicine.get(q);
+                    if(d != null && d < minima) minima = d;
+                }
+                if(minima == Integer.MAX_VALUE) return true;
+                e.setValue(e.getValue() + minima);
+                return false;
+            });
+        }
+        return risultato;
+    }
+
+    /**
+     * @brief Restituisce il numero massimo di modifiche tollerate per una parola della ricerca approssimata.
+     * @param parola La parola cercata.
+     * @return 0 sotto i tre caratteri, 1 fino a cinque, 2 oltre.
+     */
+    public static int tolleranza(String parola) {
+        if(parola.length() < 3) return 0;
+        return parola.length() <= 5 ? 1 : 2;
+    }
+
+    /// True se la parola fa parte del vocabolario della ricerca approssimata.
+    private static boolean approssimabile(String parola) {
+        if(parola.length() < 3) return false;
+        for(int i = 0; i < parola.length(); i++)
+            if(!Character.isDigit(parola.charAt(i))) return true;
+        return false;
+    }
+
+    /**
+     * @brief Verifica se un elemento indicizzato corrisponde ad una ricerca, con la stessa semantica di cerca().
+     * @param elemento L'elemento da verificare.
+     * @param ricerca Il testo digitato dall'utente.
+     * @return True se ogni parola della ricerca è l'inizio di una parola dell'elemento;
+     * false se l'elemento non è indicizzato o la ricerca non contiene parole.
+     */
+    public boolean corrisponde(T elemento, String ricerca) {
+        Set<String> paroleIndicizzate = paroleElemento.get(elemento);
+        List<String> parole = tokenizza(ricerca);
+        if(paroleIndicizzate == null || parole.isEmpty()) return false;
+
+        for(String p : parole){
+            boolean trovata = false;
+            for(String q : paroleIndicizzate){
+                if(q.startsWith(p)){
+                    trovata = true;
+                    break;
+                }
+            }
+            if(!trovata) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @brief Suddivide un testo in parole minuscole, separandolo sui caratteri che non sono lettere o cifre.
+     * @param testo Il testo da suddividere.
+     * @return La lista delle parole, senza parole vuote.
+     */
+    public static List<String> tokenizza(String testo) {
+        List<String> parole = new ArrayList<>();
+        if(testo == null) return parole;
+
+        String basso = testo.toLowerCase(Locale.ROOT);
+        int inizio = -1;
+        for(int i = 0; i <= basso.length(); i++){
+            boolean carattere = i < basso.length() && Character.isLetterOrDigit(basso.charAt(i));
+            if(carattere && inizio < 0) inizio = i;
+            else if(!carattere && inizio >= 0){
+                parole.add(basso.substring(inizio, i));
+                inizio = -1;
+            }
+        }
+        return parole;
+    }
+
+    private Map<String, Set<T>> intervallo(String prefisso) {
+        return indice.subMap(prefisso, true, prefisso + Character.MAX_VALUE, false);
+    }
+
+    private Set<T> unione(Map<String, Set<T>> intervallo) {
+        Set<T> risultato = Collections.newSetFromMap(new IdentityHashMap<>());
+        for(Set<T> elementi : intervallo.values()) risultato.addAll(elementi);
+        return risultato;
+    }
+}
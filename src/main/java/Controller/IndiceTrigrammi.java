@@ -0,0 +1,235 @@
+/**
+ * @file IndiceTrigrammi.java
+ * @brief Questo file contiene l'indice per trigrammi usato per la ricerca di sottostringhe.
+ *
+ * La classe IndiceTrigrammi associa ad ogni sequenza di tre caratteri consecutivi (trigramma)
+ * l'insieme degli elementi i cui testi la contengono. Una ricerca di almeno tre caratteri
+ * interseca gli insiemi dei suoi trigrammi per ottenere pochi candidati, e solo su questi
+ * verifica con String.contains che la ricerca compaia davvero in uno dei testi.
+ * Ogni elemento riceve un numero progressivo, e l'insieme di un trigramma è un array ordinato
+ * di numeri: un libro occupa così pochi byte per trigramma invece di una voce di un
+ * IdentityHashMap, ed indicizzare un grande catalogo non satura la memoria.
+ */
+package Controller;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Function;
+
+public class IndiceTrigrammi<T> {
+
+    /// Numeri degli elementi che contengono un trigramma, in ordine crescente.
+    private static class Numeri {
+        int[] valori = new int[4];
+        int dimensione;
+
+        void aggiungi(int n) {
+            // I numeri sono assegnati in ordine crescente: l'aggiunta avviene sempre in fondo
+            if(dimensione == valori.length) valori = Arrays.copyOf(valori, dimensione * 2);
+            valori[dimensione++] = n;
+        }
+
+        void rimuovi(int n) {
+            int i = Arrays.binarySearch(valori, 0, dimensione, n);
+            if(i < 0) return;
+            System.arraycopy(valori, i + 1, valori, i, dimensione - i - 1);
+            dimensione--;
+        }
+
+        boolean contiene(int n) {
+            return Arrays.binarySearch(valori, 0, dimensione, n) >= 0;
+        }
+    }
+
+    /// Funzione che estrae da un elemento i testi da indicizzare.
+    private final Function<T, Collection<String>> estrattore;
+
+    /// Per ogni trigramma, i numeri degli elementi che lo contengono.
+    private final HashMap<Long, Numeri> indice = new HashMap<>();
+
+    /// Numero assegnato ad ogni elemento indicizzato.
+    private final IdentityHashMap<T, Integer> numeri = new IdentityHashMap<>();
+
+    /// Elemento per numero, null se rimosso.
+    private final List<T> elementi = new ArrayList<>();
+
+    /// Per numero, i testi in minuscolo usati per la verifica finale e la rimozione.
+    private final List<String[]> testi = new ArrayList<>();
+
+    /**
+     * @brief Costruttore della classe.
+     * @param estrattore La funzione che restituisce i testi (titolo, cognome, matricola, ...) di un elemento.
+     */
+    public IndiceTrigrammi(Function<T, Collection<String>> estrattore) {
+        this.estrattore = estrattore;
+    }
+
+    ///Getter del numero di elementi indicizzati
+    public int getNumElementi() { return numeri.size(); }
+
+    /**
+     * @brief Indicizza un elemento.
+     * @param elemento L'elemento da aggiungere. Se è già presente viene reindicizzato.
+     */
+    public void aggiungi(T elemento) {
+        if(numeri.containsKey(elemento)) rimuovi(elemento);
+
+        Collection<String> originali = estrattore.apply(elemento);
+        String[] bassi = new String[originali.size()];
+        int i = 0;
+        for(String t : originali) bassi[i++] = t == null ? "" : t.toLowerCase(Locale.ROOT);
+
+        int n = elementi.size();
+        elementi.add(elemento);
+        testi.add(bassi);
+        numeri.put(elemento, n);
+        for(long tri : trigrammi(bassi)){
+            Numeri lista = indice.get(tri);
+            if(lista == null) indice.put(tri, lista = new Numeri());
+            lista.aggiungi(n);
+        }
+    }
+
+    /**
+     * @brief Rimuove un elemento dall'indice.
+     * @param elemento L'elemento da rimuovere.
+     */
+    public void rimuovi(T elemento) {
+        Integer n = numeri.remove(elemento);
+        if(n == null) return;
+        for(long tri : trigrammi(testi.get(n))){
+            Numeri lista = indice.get(tri);
+            lista.rimuovi(n);
+            if(lista.dimensione == 0) indice.remove(tri);
+        }
+        elementi.set(n, null);
+        testi.set(n, null);
+        // I numeri non vengono riusati: quando quelli liberi sono la maggioranza, vengono riassegnati
+        if(elementi.size() > 1024 && numeri.size() < elementi.size() / 2) rinumera();
+    }
+
+    /**
+     * @brief Aggiorna l'indice dopo la modifica di un elemento.
+     * @param elemento L'elemento modificato.
+     */
+    public void aggiorna(T elemento) {
+        aggiungi(elemento);
+    }
+
+    /**
+     * @brief Cerca gli elementi in cui uno dei testi contiene la ricerca, senza distinguere maiuscole e minuscole.
+     *
+     * Con meno di tre caratteri non ci sono trigrammi su cui restringere la ricerca,
+     * quindi la verifica viene fatta su tutti gli elementi.
+     *
+     * @param ricerca Il testo digitato dall'utente.
+     * @return L'insieme degli elementi trovati, oppure null se la ricerca è vuota
+     * (nel qual caso tutti gli elementi sono validi).
+     */
+    public Set<T> cerca(String ricerca) {
+        if(ricerca == null || ricerca.isEmpty()) return null;
+        String basso = ricerca.toLowerCase(Locale.ROOT);
+
+        Set<T> risultato = Collections.newSetFromMap(new IdentityHashMap<>());
+        if(basso.length() < 3){
+            for(int n = 0; n < elementi.size(); n++)
+                if(elementi.get(n) != null && contiene(testi.get(n), basso)) risultato.add(elementi.get(n));
+            return risultato;
+        }
+
+        List<Numeri> insiemi = new ArrayList<>();
+        for(long tri : trigrammi(new String[]{basso})){
+            Numeri lista = indice.get(tri);
+            if(lista == null) return risultato;
+            insiemi.add(lista);
+        }
+        insiemi.sort((a, b) -> Integer.compare(a.dimensione, b.dimensione));
+
+        Numeri minore = insiemi.get(0);
+        for(int k = 0; k < minore.dimensione; k++){
+            int candidato = minore.valori[k];
+            boolean inTutti = true;
+            for(int i = 1; i < insiemi.size() && inTutti; i++) inTutti = insiemi.get(i).contiene(candidato);
+            if(inTutti && contiene(testi.get(candidato), basso)) risultato.add(elementi.get(candidato));
+        }
+        return risultato;
+    }
+
+    /**
+     * @brief Stima il numero di candidati che cerca() dovrebbe verificare, senza calcolarli.
+     * @param ricerca Il testo da cercare.
+     * @return Il numero di elementi del trigramma meno frequente della ricerca (0 se uno manca),
+     * oppure il numero di elementi indicizzati se la ricerca ha meno di tre caratteri.
+     */
+    public int stimaCandidati(String ricerca) {
+        if(ricerca == null || ricerca.length() < 3) return getNumElementi();
+        int minimo = Integer.MAX_VALUE;
+        for(long tri : trigrammi(new String[]{ricerca.toLowerCase(Locale.ROOT)})){
+            Numeri lista = indice.get(tri);
+            if(lista == null) return 0;
+            minimo = Math.min(minimo, lista.dimensione);
+        }
+        return minimo;
+    }
+
+    /**
+     * @brief Verifica se un elemento indicizzato corrisponde ad una ricerca, con la stessa semantica di cerca().
+     * @param elemento L'elemento da verificare.
+     * @param ricerca Il testo digitato dall'utente.
+     * @return True se uno dei testi dell'elemento contiene la ricerca; false se l'elemento non è indicizzato.
+     */
+    public boolean corrisponde(T elemento, String ricerca) {
+        Integer n = numeri.get(elemento);
+        return n != null && ricerca != null && contiene(testi.get(n), ricerca.toLowerCase(Locale.ROOT));
+    }
+
+    private static boolean contiene(String[] testi, String ricerca) {
+        for(String t : testi)
+            if(t.contains(ricerca)) return true;
+        return false;
+    }
+
+    /**
+     * @brief Riassegna i numeri agli elementi presenti, eliminando quelli liberati dalle rimozioni.
+     */
+    private void rinumera() {
+        List<T> presenti = new ArrayList<>(numeri.size());
+        for(T e : elementi) if(e != null) presenti.add(e);
+        indice.clear();
+        numeri.clear();
+        elementi.clear();
+        testi.clear();
+        for(T e : presenti) aggiungi(e);
+    }
+
+    /**
+     * @brief Calcola i trigrammi distinti dei testi, ciascuno codificato in un long.
+     *
+     * I caratteri sono distanziati di 21 bit: così Long.hashCode() mescola tutti e tre i
+     * caratteri nei bit bassi usati da HashMap, mentre con 16 bit i trigrammi di testo ASCII
+     * finivano in poche centinaia di bucket. I doppioni vengono eliminati ordinando l'array,
+     * senza creare un Long per ogni trigramma.
+     */
+    private static long[] trigrammi(String[] testi) {
+        int n = 0;
+        for(String t : testi) n += Math.max(0, t.length() - 2);
+        long[] risultato = new long[n];
+        n = 0;
+        for(String t : testi){
+            for(int i = 0; i + 3 <= t.length(); i++)
+                risultato[n++] = ((long) t.charAt(i) << 42) | ((long) t.charAt(i + 1) << 21) | t.charAt(i + 2);
+        }
+        Arrays.sort(risultato);
+        int distinti = 0;
+        for(int i = 0; i < n; i++)
+            if(i == 0 || risultato[i] != risultato[i - 1]) risultato[distinti++] = risultato[i];
+        return distinti == n ? risultato : Arrays.copyOf(risultato, distinti);
+    }
+}
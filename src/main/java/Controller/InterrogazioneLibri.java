@@ -0,0 +1,208 @@
+/**
+ * @file InterrogazioneLibri.java
+ * @brief Questo file contiene la descrizione di una ricerca sul catalogo composta da più condizioni.
+ *
+ * La classe InterrogazioneLibri raccoglie le condizioni (titolo, autore, anno, disponibilità,
+ * prefisso dell'ISBN), l'ordinamento e l'intervallo dei risultati da restituire. Non sceglie come
+ * eseguire la ricerca: lo fa ServizioBiblioteca, che costruisce un PianoInterrogazione partendo
+ * dall'indice più selettivo.
+ *
+ * Esempio:
+ * @code
+ * List<Libro> libri = servizio.interrogaLibri()
+ *         .annoTra(1990, 2000).disponibili()
+ *         .ordinaPer(InterrogazioneLibri.Ordine.TITOLO)
+ *         .limite(20).esegui();
+ * @endcode
+ */
+package Controller;
+
+import Model.Autore;
+import Model.Libro;
+import java.util.List;
+
+public class InterrogazioneLibri {
+
+    /// Campo secondo cui ordinare i risultati.
+    public enum Ordine { TITOLO, ANNO, ISBN }
+
+    private final ServizioBiblioteca servizio;
+
+    private String titoloContiene;
+    private Autore autore;
+    private boolean conAnno;
+    private int annoDa;
+    private int annoA;
+    private boolean soloDisponibili;
+    private String prefissoISBN;
+    private int salta;
+    private int limite = Integer.MAX_VALUE;
+    private Ordine ordine;
+    private boolean decrescente;
+
+    /**
+     * @brief Costruttore della classe.
+     * @param servizio Il servizio su cui verrà eseguita l'interrogazione.
+     * @see ServizioBiblioteca#interrogaLibri
+     */
+    public InterrogazioneLibri(ServizioBiblioteca servizio) {
+        this.servizio = servizio;
+    }
+
+    /**
+     * @brief Richiede che il titolo contenga un testo, senza distinguere maiuscole e minuscole.
+     * @param testo Il testo da cercare; null o vuoto per togliere la condizione.
+     * @return Questa interrogazione.
+     */
+    public InterrogazioneLibri titoloContiene(String testo) {
+        this.titoloContiene = testo == null || testo.isEmpty() ? null : testo;
+        return this;
+    }
+
+    /**
+     * @brief Richiede che tra gli autori ci sia un autore (conta solo nome e cognome).
+     * @param a L'autore; null per togliere la condizione.
+     * @return Questa interrogazione.
+     */
+    public InterrogazioneLibri autore(Autore a) {
+        this.autore = a;
+        return this;
+    }
+
+    /**
+     * @brief Richiede che l'anno di pubblicazione sia in un intervallo.
+     * @param da Il primo anno dell'intervallo.
+     * @param a L'ultimo anno dell'intervallo, compreso.
+     * @return Questa interrogazione.
+     */
+    public InterrogazioneLibri annoTra(int da, int a) {
+        this.conAnno = true;
+        this.annoDa = da;
+        this.annoA = a;
+        return this;
+    }
+
+    /**
+     * @brief Richiede che il libro abbia almeno una copia disponibile.
+     * @return Questa interrogazione.
+     */
+    public InterrogazioneLibri disponibili() {
+        this.soloDisponibili = true;
+        return this;
+    }
+
+    /**
+     * @brief Richiede che l'ISBN inizi con un prefisso.
+     * @param prefisso L'inizio dell'ISBN; null o vuoto per togliere la condizione.
+     * @return Questa interrogazione.
+     */
+    public InterrogazioneLibri prefissoISBN(String prefisso) {
+        this.prefissoISBN = prefisso == null || prefisso.isEmpty() ? null : prefisso;
+        return this;
+    }
+
+    /**
+     * @brief Salta i primi risultati.
+     * @param n Il numero di risultati da saltare.
+     * @return Questa interrogazione.
+     * @throws IllegalArgumentException Se n è negativo.
+     */
+    public InterrogazioneLibri salta(int n) {
+        if(n < 0) throw new IllegalArgumentException("Numero di risultati da saltare negativo");
+        this.salta = n;
+        return this;
+    }
+
+    /**
+     * @brief Limita il numero di risultati.
+     * @param n Il numero massimo di risultati.
+     * @return Questa interrogazione.
+     * @throws IllegalArgumentException Se n è negativo.
+     */
+    public InterrogazioneLibri limite(int n) {
+        if(n < 0) throw new IllegalArgumentException("Limite dei risultati negativo");
+        this.limite = n;
+        return this;
+    }
+
+    /**
+     * @brief Ordina i risultati in ordine crescente. Senza ordinamento i risultati seguono l'ordine del catalogo.
+     * @param o Il campo secondo cui ordinare; null per l'ordine del catalogo.
+     * @return Questa interrogazione.
+     */
+    public InterrogazioneLibri ordinaPer(Ordine o) {
+        return ordinaPer(o, false);
+    }
+
+    /**
+     * @brief Ordina i risultati. A parità del campo scelto vale l'ordine del catalogo.
+     * @param o Il campo secondo cui ordinare; null per l'ordine del catalogo.
+     * @param decrescente true per l'ordine decrescente.
+     * @return Questa interrogazione.
+     */
+    public InterrogazioneLibri ordinaPer(Ordine o, boolean decrescente) {
+        this.ordine = o;
+        this.decrescente = decrescente;
+        return this;
+    }
+
+    /**
+     * @brief Esegue l'interrogazione.
+     * @return I libri trovati.
+     * @see ServizioBiblioteca#eseguiInterrogazione
+     */
+    public List<Libro> esegui() {
+        return servizio.eseguiInterrogazione(this);
+    }
+
+    /**
+     * @brief Descrive come verrebbe eseguita l'interrogazione, senza eseguirla.
+     * @return Il piano scelto, con le stime di tutti gli indici considerati.
+     * @see ServizioBiblioteca#spiegaInterrogazione
+     */
+    public PianoInterrogazione spiega() {
+        return servizio.spiegaInterrogazione(this);
+    }
+
+    /**
+     * @brief Esegue l'interrogazione e ne descrive il piano, con i libri effettivamente esaminati.
+     * @return Il piano eseguito.
+     * @see ServizioBiblioteca#analizzaInterrogazione
+     */
+    public PianoInterrogazione analizza() {
+        return servizio.analizzaInterrogazione(this);
+    }
+
+    ///Getter del testo da cercare nel titolo, null se non richiesto
+    public String getTitoloContiene() { return titoloContiene; }
+
+    ///Getter dell'autore richiesto, null se non richiesto
+    public Autore getAutore() { return autore; }
+
+    ///True se è richiesto un intervallo di anni
+    public boolean isConAnno() { return conAnno; }
+
+    ///Getter del primo anno dell'intervallo
+    public int getAnnoDa() { return annoDa; }
+
+    ///Getter dell'ultimo anno dell'intervallo
+    public int getAnnoA() { return annoA; }
+
+    ///True se sono richiesti solo i libri disponibili
+    public boolean isSoloDisponibili() { return soloDisponibili; }
+
+    ///Getter del prefisso dell'ISBN, null se non richiesto
+    public String getPrefissoISBN() { return prefissoISBN; }
+
+    ///Getter del numero di risultati da saltare
+    public int getSalta() { return salta; }
+
+    ///Getter del numero massimo di risultati
+    public int getLimite() { return limite; }
+
+    ///Getter del campo di ordinamento, null per l'ordine del catalogo
+    public Ordine getOrdine() { return ordine; }
+
+    ///True se l'ordinamento è decrescente
+    public boolean isDecrescente() { return decrescente; }
+}
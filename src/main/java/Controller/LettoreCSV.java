@@ -0,0 +1,131 @@
+/**
+ * @file LettoreCSV.java
+ * @brief Questo file contiene la lettura incrementale di un file CSV con intestazione.
+ *
+ * La classe LettoreCSV legge il testo a blocchi e ne estrae un record alla volta. La prima riga
+ * contiene i nomi delle colonne (senza distinzione tra maiuscole e minuscole), le colonne sono
+ * separate da virgole, ed un campo tra virgolette può contenere virgole, a capo e virgolette
+ * raddoppiate (""). Le righe vuote vengono ignorate.
+ */
+package Controller;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class LettoreCSV implements LettoreRecord {
+
+    private final Reader in;
+
+    /// Blocco di caratteri letto dalla sorgente.
+    private final char[] buffer = new char[8192];
+    private int pos;
+    private int lim;
+
+    /// Per ogni campo richiesto, la colonna del file che lo contiene.
+    private final int[] colonne;
+
+    /// Riga del file a cui inizia l'ultimo record letto.
+    private long posizione;
+
+    /// Riga del file su cui si trova la lettura.
+    private long rigaCorrente = 1;
+
+    /// Campo in costruzione, riusato tra i record.
+    private final StringBuilder campo = new StringBuilder();
+
+    /**
+     * @brief Costruttore della classe: legge l'intestazione.
+     * @param in Il testo CSV.
+     * @param campi I nomi delle colonne da estrarre.
+     * @throws IOException Se il file è vuoto o manca una delle colonne richieste.
+     */
+    public LettoreCSV(Reader in, String... campi) throws IOException {
+        this.in = in;
+        List<String> intestazione = leggiCampi();
+        if(intestazione == null) throw new IOException("File CSV vuoto");
+
+        this.colonne = new int[campi.length];
+        Arrays.fill(colonne, -1);
+        for(int i = 0; i < campi.length; i++){
+            for(int j = 0; j < intestazione.size(); j++){
+                if(intestazione.get(j).trim().replace("\uFEFF", "").equalsIgnoreCase(campi[i])) colonne[i] = j;
+            }
+            if(colonne[i] < 0) throw new IOException("Colonna mancante nell'intestazione: " + campi[i]);
+        }
+    }
+
+    @Override
+    public String[] prossimo() throws IOException {
+        List<String> letti = leggiCampi();
+        if(letti == null) return null;
+
+        String[] valori = new String[colonne.length];
+        for(int i = 0; i < colonne.length; i++)
+            if(colonne[i] < letti.size()) valori[i] = letti.get(colonne[i]);
+        return valori;
+    }
+
+    @Override
+    public long getPosizione() { return posizione; }
+
+    /**
+     * @brief Legge i campi del record successivo.
+     * @return I campi, oppure null a fine file.
+     * @throws IOException Se un campo tra virgolette non viene chiuso.
+     */
+    private List<String> leggiCampi() throws IOException {
+        int c = leggi();
+        while(c == '\r' || c == '\n'){
+            if(c == '\n') rigaCorrente++;
+            c = leggi();
+        }
+        if(c == -1) return null;
+
+        posizione = rigaCorrente;
+        List<String> campi = new ArrayList<>();
+        campo.setLength(0);
+        boolean traVirgolette = false;
+        while(true){
+            if(traVirgolette){
+                if(c == -1) throw new IOException("Virgolette non chiuse nel record alla riga " + posizione);
+                if(c == '"'){
+                    c = leggi();
+                    if(c != '"'){
+                        traVirgolette = false;
+                        continue;
+                    }
+                }else if(c == '\n'){
+                    rigaCorrente++;
+                }
+                campo.append((char) c);
+            }else if(c == '"' && campo.length() == 0){
+                traVirgolette = true;
+            }else if(c == ','){
+                campi.add(campo.toString());
+                campo.setLength(0);
+            }else if(c == '\n' || c == -1){
+                if(c == '\n') rigaCorrente++;
+                campi.add(campo.toString());
+                return campi;
+            }else if(c != '\r'){
+                campo.append((char) c);
+            }
+            c = leggi();
+        }
+    }
+
+    private int leggi() throws IOException {
+        if(pos == lim){
+            lim = in.read(buffer, 0, buffer.length);
+            pos = 0;
+            if(lim <= 0){
+                lim = 0;
+                return -1;
+            }
+        }
+        return buffer[pos++];
+    }
+}
@@ -0,0 +1,203 @@
+/**
+ * @file LettoreJSON.java
+ * @brief Questo file contiene la lettura incrementale di un file JSON di oggetti.
+ *
+ * La classe LettoreJSON legge un array di oggetti ([{...}, {...}]) oppure una sequenza di
+ * oggetti (uno per riga), un oggetto alla volta, senza costruire l'intero documento in memoria.
+ * Di ogni oggetto vengono conservati solo i campi richiesti, come testo:
+ * - numeri e booleani nella loro forma testuale, null come valore assente;
+ * - un array come i suoi elementi separati da ", " (es. ["Umberto Eco", "Italo Calvino"]);
+ * - un oggetto come i suoi valori separati da spazi (es. {"nome": "Umberto", "cognome": "Eco"}).
+ */
+package Controller;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
+
+public class LettoreJSON implements LettoreRecord {
+
+    private final Reader in;
+
+    /// Blocco di caratteri letto dalla sorgente.
+    private final char[] buffer = new char[8192];
+    private int pos;
+    private int lim;
+
+    /// Per ogni nome di campo richiesto, la sua posizione nel record restituito.
+    private final Map<String, Integer> indici = new HashMap<>();
+
+    /// Numero dell'ultimo oggetto letto.
+    private long posizione;
+
+    /// True se gli oggetti sono racchiusi in un array.
+    private boolean inArray;
+
+    /// True se è già stato letto almeno un oggetto (o l'apertura dell'array).
+    private boolean iniziato;
+
+    /// True dopo la chiusura dell'array.
+    private boolean finito;
+
+    private final StringBuilder testo = new StringBuilder();
+
+    /**
+     * @brief Costruttore della classe.
+     * @param in Il testo JSON.
+     * @param campi I nomi dei campi da estrarre da ogni oggetto.
+     */
+    public LettoreJSON(Reader in, String... campi) {
+        this.in = in;
+        for(int i = 0; i < campi.length; i++) indici.put(campi[i], i);
+    }
+
+    @Override
+    public String[] prossimo() throws IOException {
+        if(finito) return null;
+        int c = saltaSpazi();
+        if(!iniziato){
+            iniziato = true;
+            if(c == '['){
+                inArray = true;
+                c = saltaSpazi();
+                if(c == ']') return chiudi();
+            }
+        }else if(inArray){
+            if(c == ']') return chiudi();
+            if(c != ',') throw errore("atteso ',' o ']' dopo l'oggetto");
+            c = saltaSpazi();
+        }
+        if(c == -1){
+            if(inArray) throw errore("array non chiuso");
+            return null;
+        }
+        if(c != '{') throw errore("atteso un oggetto");
+
+        posizione++;
+        String[] valori = new String[indici.size()];
+        c = saltaSpazi();
+        if(c == '}') return valori;
+        while(true){
+            if(c != '"') throw errore("attesa una chiave");
+            String chiave = leggiStringa();
+            if(saltaSpazi() != ':') throw errore("atteso ':' dopo la chiave " + chiave);
+            String valore = leggiValore(saltaSpazi());
+            Integer i = indici.get(chiave);
+            if(i != null) valori[i] = valore;
+
+            c = saltaSpazi();
+            if(c == '}') return valori;
+            if(c != ',') throw errore("atteso ',' o '}'");
+            c = saltaSpazi();
+        }
+    }
+
+    @Override
+    public long getPosizione() { return posizione; }
+
+    private String[] chiudi() throws IOException {
+        finito = true;
+        if(saltaSpazi() != -1) throw errore("contenuto dopo la fine dell'array");
+        return null;
+    }
+
+    /**
+     * @brief Legge un valore JSON che inizia con il carattere dato e lo converte in testo.
+     */
+    private String leggiValore(int c) throws IOException {
+        if(c == '"') return leggiStringa();
+        if(c == '[' || c == '{'){
+            char chiusura = c == '[' ? ']' : '}';
+            String separatore = c == '[' ? ", " : " ";
+            StringBuilder unione = new StringBuilder();
+            c = saltaSpazi();
+            if(c == chiusura) return "";
+            while(true){
+                if(chiusura == '}'){
+                    if(c != '"') throw errore("attesa una chiave");
+                    leggiStringa();
+                    if(saltaSpazi() != ':') throw errore("atteso ':'");
+                    c = saltaSpazi();
+                }
+                String elemento = leggiValore(c);
+                if(elemento != null && !elemento.isEmpty()){
+                    if(unione.length() > 0) unione.append(separatore);
+                    unione.append(elemento);
+                }
+                c = saltaSpazi();
+                if(c == chiusura) return unione.toString();
+                if(c != ',') throw errore("atteso ',' o '" + chiusura + "'");
+                c = saltaSpazi();
+            }
+        }
+
+        testo.setLength(0);
+        while(c != -1 && (Character.isLetterOrDigit(c) || c == '-' || c == '+' || c == '.')){
+            testo.append((char) c);
+            c = leggi();
+        }
+        if(c != -1) pos--;
+        if(testo.length() == 0) throw errore("valore non valido");
+        String letterale = testo.toString();
+        return letterale.equals("null") ? null : letterale;
+    }
+
+    /**
+     * @brief Legge una stringa JSON, dopo le virgolette di apertura.
+     */
+    private String leggiStringa() throws IOException {
+        testo.setLength(0);
+        while(true){
+            int c = leggi();
+            if(c == -1) throw errore("stringa non chiusa");
+            if(c == '"') return testo.toString();
+            if(c != '\\'){
+                testo.append((char) c);
+                continue;
+            }
+            c = leggi();
+            switch(c){
+                case 'n': testo.append('\n'); break;
+                case 't': testo.append('\t'); break;
+                case 'r': testo.append('\r'); break;
+                case 'b': testo.append('\b'); break;
+                case 'f': testo.append('\f'); break;
+                case 'u': {
+                    int codice = 0;
+                    for(int i = 0; i < 4; i++){
+                        int cifra = Character.digit(leggi(), 16);
+                        if(cifra < 0) throw errore("sequenza \\u non valida");
+                        codice = codice * 16 + cifra;
+                    }
+                    testo.append((char) codice);
+                    break;
+                }
+                case -1: throw errore("stringa non chiusa");
+                default: testo.append((char) c); break;
+            }
+        }
+    }
+
+    private int saltaSpazi() throws IOException {
+        int c = leggi();
+        while(c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\uFEFF') c = leggi();
+        return c;
+    }
+
+    private IOException errore(String motivo) {
+        return new IOException("JSON non valido all'oggetto " + (posizione + 1) + ": " + motivo);
+    }
+
+    private int leggi() throws IOException {
+        if(pos == lim){
+            lim = in.read(buffer, 0, buffer.length);
+            pos = 0;
+            if(lim <= 0){
+                lim = 0;
+                return -1;
+            }
+        }
+        return buffer[pos++];
+    }
+}
@@ -0,0 +1,42 @@
+/**
+ * @file LettoreRecord.java
+ * @brief Questo file contiene l'interfaccia per leggere un file di importazione un record alla volta.
+ *
+ * Un LettoreRecord legge i record di un file (CSV o JSON) senza caricarlo tutto in memoria, e
+ * restituisce di ogni record solo i campi richiesti, nell'ordine in cui sono stati richiesti.
+ */
+package Controller;
+
+import java.io.IOException;
+import java.io.Reader;
+
+public interface LettoreRecord {
+
+    /// Formati di file supportati.
+    enum Formato { CSV, JSON }
+
+    /**
+     * @brief Legge il record successivo.
+     * @return I valori dei campi richiesti (null per i campi assenti), oppure null a fine file.
+     * @throws IOException Se il file non è leggibile o non è nel formato atteso.
+     */
+    String[] prossimo() throws IOException;
+
+    /**
+     * @brief Restituisce la posizione dell'ultimo record letto, da usare nei messaggi di errore.
+     * @return La riga del file (CSV) o il numero dell'oggetto (JSON), a partire da 1.
+     */
+    long getPosizione();
+
+    /**
+     * @brief Crea il lettore adatto al formato indicato.
+     * @param sorgente Il testo da leggere.
+     * @param formato Il formato del testo.
+     * @param campi I nomi dei campi da estrarre da ogni record.
+     * @return Il lettore.
+     * @throws IOException Se l'intestazione del file non è valida.
+     */
+    static LettoreRecord apri(Reader sorgente, Formato formato, String... campi) throws IOException {
+        return formato == Formato.CSV ? new LettoreCSV(sorgente, campi) : new LettoreJSON(sorgente, campi);
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * @file ListaOsservabile.java
+ * @brief Questo file contiene la vista osservabile, in sola lettura, di una lista del modello.
+ *
+ * La classe ListaOsservabile espone a JavaFX una lista di Libreria, Clienti o Prestiti senza
+ * copiarla: legge direttamente gli elementi della lista originale, ed i metodi notifica*
+ * comunicano alle viste collegate (FilteredList, SortedList, tabelle) le modifiche già
+ * avvenute su di essa. Le modifiche vanno fatte sulla lista originale, mai sulla vista.
+ * Le notifiche comprese tra iniziaLotto() e terminaLotto() arrivano alle viste come un'unica modifica.
+ */
+package Controller;
+
+import java.util.List;
+import javafx.collections.ObservableListBase;
+
+public class ListaOsservabile<T> extends ObservableListBase<T> {
+
+    /// Lista del modello mostrata dalla vista.
+    private final List<T> lista;
+
+    /**
+     * @brief Costruttore della classe.
+     * @param lista La lista del modello da mostrare.
+     */
+    public ListaOsservabile(List<T> lista) {
+        this.lista = lista;
+    }
+
+    @Override
+    public T get(int index) {
+        return lista.get(index);
+    }
+
+    @Override
+    public int size() {
+        return lista.size();
+    }
+
+    /**
+     * @brief Notifica che un elemento è stato inserito.
+     * @param posizione La posizione dell'elemento inserito.
+     */
+    public void notificaAggiunta(int posizione) {
+        beginChange();
+        nextAdd(posizione, posizione + 1);
+        endChange();
+    }
+
+    /**
+     * @brief Notifica che un elemento è stato rimosso.
+     * @param posizione La posizione che l'elemento occupava.
+     * @param elemento L'elemento rimosso.
+     */
+    public void notificaRimozione(int posizione, T elemento) {
+        beginChange();
+        nextRemove(posizione, elemento);
+        endChange();
+    }
+
+    /**
+     * @brief Notifica che un elemento è stato rimosso e sostituito dall'ultimo della lista.
+     * @param posizione La posizione che l'elemento occupava.
+     * @param elemento L'elemento rimosso.
+     * @param spostato L'ultimo elemento, ora in posizione; null se il rimosso era l'ultimo.
+     */
+    public void notificaRimozioneConSpostamento(int posizione, T elemento, T spostato) {
+        if(spostato == null){
+            notificaRimozione(posizione, elemento);
+            return;
+        }
+        beginChange();
+        nextSet(posizione, elemento);
+        nextRemove(lista.size(), spostato);
+        endChange();
+    }
+
+    /**
+     * @brief Notifica che i dati di un elemento sono cambiati, senza che cambi la sua posizione.
+     * @param posizione La posizione dell'elemento modificato.
+     */
+    public void notificaAggiornamento(int posizione) {
+        beginChange();
+        nextUpdate(posizione);
+        endChange();
+    }
+
+    /**
+     * @brief Raggruppa le notifiche successive, fino a terminaLotto(), in un'unica modifica.
+     */
+    public void iniziaLotto() {
+        beginChange();
+    }
+
+    /**
+     * @brief Invia alle viste collegate le notifiche raccolte da iniziaLotto().
+     */
+    public void terminaLotto() {
+        endChange();
+    }
+}
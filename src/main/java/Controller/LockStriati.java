@@ -0,0 +1,82 @@
+/**
+ * @file LockStriati.java
+ * @brief Questo file contiene i lock a strisce usati per le operazioni di prestito concorrenti.
+ *
+ * La classe LockStriati suddivide le chiavi (ISBN, matricole) su un numero fisso di lock:
+ * due operazioni si escludono solo se coinvolgono chiavi della stessa striscia, così che
+ * prestiti di libri ed utenti diversi possano procedere in parallelo.
+ * I lock di più chiavi vengono acquisiti sempre in ordine crescente di striscia, quindi due
+ * thread che bloccano le stesse chiavi in ordine diverso non possono andare in deadlock.
+ */
+package Controller;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class LockStriati {
+
+    /// Un lock per ogni striscia.
+    private final ReentrantLock[] strisce;
+
+    /**
+     * @brief Costruttore della classe.
+     * @param numStrisce Il numero di strisce, arrotondato alla potenza di due successiva.
+     */
+    public LockStriati(int numStrisce) {
+        int n = numStrisce <= 1 ? 1 : Integer.highestOneBit(numStrisce - 1) << 1;
+        this.strisce = new ReentrantLock[n];
+        for(int i = 0; i < n; i++) strisce[i] = new ReentrantLock();
+    }
+
+    ///Getter del numero di strisce
+    public int getNumStrisce() { return strisce.length; }
+
+    /**
+     * @brief Restituisce la striscia a cui appartiene una chiave.
+     * @param chiave La chiave (ISBN o matricola).
+     * @return L'indice della striscia.
+     */
+    public int strisciaDi(String chiave) {
+        int h = chiave == null ? 0 : chiave.hashCode();
+        h ^= (h >>> 16);
+        return h & (strisce.length - 1);
+    }
+
+    /**
+     * @brief Acquisisce i lock delle strisce delle chiavi date, in ordine crescente di striscia.
+     *
+     * Come per i Lock di java.util.concurrent, il rilascio va eseguito in un blocco finally:
+     * `Blocco b = blocca(...); try{ ... }finally{ b.rilascia(); }`.
+     *
+     * @param chiavi Le chiavi coinvolte nell'operazione.
+     * @return Il blocco da rilasciare per sbloccare i lock.
+     */
+    public Blocco blocca(String... chiavi) {
+        int[] indici = new int[chiavi.length];
+        for(int i = 0; i < chiavi.length; i++) indici[i] = strisciaDi(chiavi[i]);
+        Arrays.sort(indici);
+
+        // Chiavi diverse possono cadere nella stessa striscia: ogni striscia va bloccata una volta sola
+        int distinti = 0;
+        for(int i = 0; i < indici.length; i++)
+            if(i == 0 || indici[i] != indici[i - 1]) indici[distinti++] = indici[i];
+
+        Blocco b = new Blocco(Arrays.copyOf(indici, distinti));
+        for(int i : b.indici) strisce[i].lock();
+        return b;
+    }
+
+    /// Insieme di lock acquisiti da blocca(), rilasciati da rilascia().
+    public class Blocco {
+        private final int[] indici;
+
+        private Blocco(int[] indici) {
+            this.indici = indici;
+        }
+
+        /// Rilascia i lock, in ordine inverso rispetto all'acquisizione.
+        public void rilascia() {
+            for(int i = indici.length - 1; i >= 0; i--) strisce[indici[i]].unlock();
+        }
+    }
+}
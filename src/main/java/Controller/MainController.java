@@ -10,6 +10,7 @@ package Controller;
 
 import Model.*;
 //import java.awt.Image;
+import javafx.application.Platform;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.fxml.FXML;
@@ -33,6 +34,12 @@ public class MainController {
     
     // --- Riferimento al Model ---
     private Biblioteca biblioteca;
+
+    /**
+     * @brief Restituisce la Biblioteca aperta dal controller, da chiudere all'uscita dell'applicazione.
+     * @return La Biblioteca gestita dalla schermata principale.
+     */
+    public Biblioteca getBiblioteca() { return biblioteca; }
     
     // --- ELEMENTI GRAFICI ---
     // Pannelli principali
@@ -194,13 +201,18 @@ public class MainController {
         tableUtenti.setItems(biblioteca.getSlClienti());
 
         if (searchLibri != null) {
-            searchLibri.textProperty().addListener((obs, oldVal, newVal) -> biblioteca.filtraLibri(newVal));
+            searchLibri.textProperty().addListener((obs, oldVal, newVal) -> biblioteca.filtraLibriAsincrono(newVal));
         }
         if (searchUtenti != null) {
-            searchUtenti.textProperty().addListener((obs, oldVal, newVal) -> biblioteca.filtraUtenti(newVal));
+            searchUtenti.textProperty().addListener((obs, oldVal, newVal) -> biblioteca.filtraUtentiAsincrono(newVal));
         }
         
         mostraLibri();
+
+        if (biblioteca.getErroreCaricamento() != null) {
+            // L'avviso viene mostrato dopo l'apertura della finestra principale
+            Platform.runLater(() -> alertErrore(biblioteca.getErroreCaricamento()));
+        }
     }
 
     /**
@@ -398,10 +410,6 @@ public class MainController {
                     if (result.isPresent() && result.get() == ButtonType.OK) {
                         try {
                             biblioteca.restituisciPrestito(prestito);
-
-                            tablePrestiti.refresh();
-                            tableLibri.refresh();
-                            tableUtenti.refresh();
                         } catch (Exception ex) {
                             alertErrore(ex.getMessage());
                         }
@@ -516,8 +524,6 @@ public class MainController {
                     copie, 
                     copie
                 );
-                
-                tableLibri.refresh();
             } catch (NumberFormatException e) {
                 alertErrore("Anno e Copie devono essere numeri validi.");
             } catch (Exception e) {
@@ -571,7 +577,6 @@ public class MainController {
                          tEmail.getText(),
                          0
                      );
-                     tableUtenti.refresh();
                  } catch (Exception e) {
                      alertErrore("Errore inserimento: " + e.getMessage());
                  }
@@ -619,9 +624,6 @@ public class MainController {
                         comboLibri.getValue(), 
                         datePicker.getValue()
                     );
-                    tablePrestiti.refresh();
-                    tableLibri.refresh();
-                    tableUtenti.refresh();
                 } catch (Exception e) {
                     alertErrore(e.getMessage());
                 }
@@ -676,7 +678,6 @@ public class MainController {
                      List<Autore> newautori = parseAutori(tAutori.getText());
                      
                      biblioteca.modificaLibro(l, tTitolo.getText(), newautori, newanno, tIsbn.getText(), newcopieTot, newcopieDisp);
-                     tableLibri.refresh();
                  } catch (Exception e) {
                      alertErrore(e.getMessage());
                  }
@@ -721,7 +722,6 @@ public class MainController {
              if (response == ButtonType.OK) {
                  try {
                      biblioteca.modificaUtente(u, tNome.getText(), tCognome.getText(), tMatricola.getText(), tEmail.getText());
-                     tableUtenti.refresh();
                  } catch (Exception e) {
                      alertErrore(e.getMessage());
                  }
@@ -0,0 +1,260 @@
+/**
+ * @file Operazione.java
+ * @brief Questo file contiene la rappresentazione delle modifiche salvate nel registro delle operazioni.
+ *
+ * La classe Operazione descrive una singola modifica ai dati della biblioteca (aggiunta, modifica,
+ * eliminazione di libri e utenti, apertura e chiusura di prestiti) in forma compatta, e sa
+ * riapplicarla sui gestori Libreria, Clienti e Prestiti durante il caricamento.
+ * Un lotto raggruppa più operazioni in un'unica voce del registro: dopo un'interruzione
+ * viene ritrovato per intero oppure non viene ritrovato affatto.
+ */
+package Controller;
+
+import Model.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class Operazione {
+
+    /// Tipi di operazione registrabili.
+    public enum Tipo { AGGIUNGI_LIBRO, ELIMINA_LIBRO, MODIFICA_LIBRO, AGGIUNGI_UTENTE, ELIMINA_UTENTE, MODIFICA_UTENTE, AGGIUNGI_PRESTITO, RESTITUISCI_PRESTITO, LOTTO }
+
+    /// Tipo dell'operazione.
+    private final Tipo tipo;
+
+    /// Chiave (ISBN o matricola) dell'elemento su cui agisce l'operazione, prima della modifica.
+    private final String chiave;
+
+    /// Chiave secondaria (ISBN del libro) per le operazioni sui prestiti.
+    private final String chiaveLibro;
+
+    /// Nuovo stato del libro, per aggiunte e modifiche.
+    private final Libro libro;
+
+    /// Nuovo stato dell'utente, per aggiunte e modifiche.
+    private final Utente utente;
+
+    /// Data di restituzione, per le operazioni sui prestiti.
+    private final LocalDate data;
+
+    /// Operazioni raggruppate, per i lotti.
+    private final List<Operazione> operazioni;
+
+    private Operazione(Tipo tipo, String chiave, String chiaveLibro, Libro libro, Utente utente, LocalDate data) {
+        this(tipo, chiave, chiaveLibro, libro, utente, data, Collections.emptyList());
+    }
+
+    private Operazione(Tipo tipo, String chiave, String chiaveLibro, Libro libro, Utente utente, LocalDate data, List<Operazione> operazioni) {
+        this.tipo = tipo;
+        this.chiave = chiave;
+        this.chiaveLibro = chiaveLibro;
+        this.libro = libro;
+        this.utente = utente;
+        this.data = data;
+        this.operazioni = operazioni;
+    }
+
+    ///Getter del tipo
+    public Tipo getTipo() { return tipo; }
+
+    ///Getter delle operazioni raggruppate (vuota se l'operazione non è un lotto)
+    public List<Operazione> getOperazioni() { return operazioni; }
+
+    public static Operazione aggiungiLibro(Libro l) {
+        return new Operazione(Tipo.AGGIUNGI_LIBRO, l.getISBN(), null, l, null, null);
+    }
+
+    public static Operazione eliminaLibro(String ISBN) {
+        return new Operazione(Tipo.ELIMINA_LIBRO, ISBN, null, null, null, null);
+    }
+
+    public static Operazione modificaLibro(String vecchioISBN, Libro l) {
+        return new Operazione(Tipo.MODIFICA_LIBRO, vecchioISBN, null, l, null, null);
+    }
+
+    public static Operazione aggiungiUtente(Utente u) {
+        return new Operazione(Tipo.AGGIUNGI_UTENTE, u.getMatricola(), null, null, u, null);
+    }
+
+    public static Operazione eliminaUtente(String matricola) {
+        return new Operazione(Tipo.ELIMINA_UTENTE, matricola, null, null, null, null);
+    }
+
+    public static Operazione modificaUtente(String vecchiaMatricola, Utente u) {
+        return new Operazione(Tipo.MODIFICA_UTENTE, vecchiaMatricola, null, null, u, null);
+    }
+
+    public static Operazione aggiungiPrestito(Prestito p) {
+        return new Operazione(Tipo.AGGIUNGI_PRESTITO, p.getUtente().getMatricola(), p.getLibro().getISBN(), null, null, p.getDataRestituzione());
+    }
+
+    public static Operazione restituisciPrestito(Prestito p) {
+        return new Operazione(Tipo.RESTITUISCI_PRESTITO, p.getUtente().getMatricola(), p.getLibro().getISBN(), null, null, p.getDataRestituzione());
+    }
+
+    /**
+     * @brief Raggruppa più operazioni in un lotto, registrato come una sola voce.
+     * @param operazioni Le operazioni, nell'ordine in cui vanno riapplicate.
+     * @return Il lotto.
+     */
+    public static Operazione lotto(List<Operazione> operazioni) {
+        return new Operazione(Tipo.LOTTO, "", null, null, null, null, Collections.unmodifiableList(new ArrayList<>(operazioni)));
+    }
+
+    /**
+     * @brief Codifica l'operazione in forma binaria compatta.
+     * @return I byte che rappresentano l'operazione.
+     * @throws IOException Se si verificano errori durante la codifica.
+     */
+    public byte[] codifica() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(buffer);
+        scrivi(out);
+        out.flush();
+        return buffer.toByteArray();
+    }
+
+    private void scrivi(DataOutputStream out) throws IOException {
+        out.writeByte(tipo.ordinal());
+        CodecBinario.scriviCodice(out, chiave);
+        switch(tipo){
+            case AGGIUNGI_LIBRO:
+            case MODIFICA_LIBRO:
+                CodecBinario.scriviLibro(out, libro);
+                break;
+            case AGGIUNGI_UTENTE:
+            case MODIFICA_UTENTE:
+                CodecBinario.scriviUtente(out, utente);
+                break;
+            case AGGIUNGI_PRESTITO:
+            case RESTITUISCI_PRESTITO:
+                CodecBinario.scriviCodice(out, chiaveLibro);
+                CodecBinario.scriviData(out, data);
+                break;
+            case LOTTO:
+                CodecBinario.scriviVarInt(out, operazioni.size());
+                for(Operazione op : operazioni) op.scrivi(out);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * @brief Ricostruisce un'operazione a partire dalla sua codifica binaria.
+     * @param dati I byte prodotti da codifica().
+     * @return L'operazione decodificata.
+     * @throws IOException Se i dati non rappresentano un'operazione valida.
+     */
+    public static Operazione decodifica(byte[] dati) throws IOException {
+        return leggi(new DataInputStream(new ByteArrayInputStream(dati)));
+    }
+
+    private static Operazione leggi(DataInputStream in) throws IOException {
+        int ordinale = in.readUnsignedByte();
+        if(ordinale >= Tipo.values().length) throw new IOException("Tipo di operazione sconosciuto: " + ordinale);
+        Tipo tipo = Tipo.values()[ordinale];
+        String chiave = CodecBinario.leggiCodice(in);
+
+        switch(tipo){
+            case AGGIUNGI_LIBRO:
+            case MODIFICA_LIBRO:
+                return new Operazione(tipo, chiave, null, CodecBinario.leggiLibro(in), null, null);
+            case AGGIUNGI_UTENTE:
+            case MODIFICA_UTENTE:
+                return new Operazione(tipo, chiave, null, null, CodecBinario.leggiUtente(in), null);
+            case AGGIUNGI_PRESTITO:
+            case RESTITUISCI_PRESTITO: {
+                String chiaveLibro = CodecBinario.leggiCodice(in);
+                return new Operazione(tipo, chiave, chiaveLibro, null, null, CodecBinario.leggiData(in));
+            }
+            case LOTTO: {
+                int n = CodecBinario.leggiVarInt(in);
+                List<Operazione> operazioni = new ArrayList<>(n);
+                for(int i = 0; i < n; i++) operazioni.add(leggi(in));
+                return new Operazione(tipo, chiave, null, null, null, null, Collections.unmodifiableList(operazioni));
+            }
+            default:
+                return new Operazione(tipo, chiave, null, null, null, null);
+        }
+    }
+
+    /**
+     * @brief Riapplica l'operazione sui gestori della biblioteca.
+     *
+     * Le operazioni vengono riapplicate senza ripetere i controlli di validità dei campi,
+     * già superati al momento della registrazione. Se un'operazione di un lotto fallisce, quelle
+     * precedenti restano applicate: chi riapplica il registro deve ripartire dallo snapshot
+     * (come fa ServizioBiblioteca al caricamento).
+     *
+     * @param libreria La Libreria su cui applicare l'operazione.
+     * @param clienti I Clienti su cui applicare l'operazione.
+     * @param prestiti I Prestiti su cui applicare l'operazione.
+     * @throws Exception Se l'operazione non è coerente con lo stato corrente.
+     */
+    public void applica(Libreria libreria, Clienti clienti, Prestiti prestiti) throws Exception {
+        switch(tipo){
+            case AGGIUNGI_LIBRO:
+                libreria.aggiungiLibro(libro);
+                break;
+            case ELIMINA_LIBRO:
+                libreria.eliminaLibro(cercaLibro(libreria, chiave));
+                break;
+            case MODIFICA_LIBRO:
+                libreria.modificaLibro(cercaLibro(libreria, chiave), libro.getTitolo(), libro.getAutori(), libro.getAnno(),
+                        libro.getISBN(), libro.getNumCopieTotali(), libro.getNumCopieDisponibili());
+                prestiti.aggiornaISBN(chiave, libro.getISBN());
+                break;
+            case AGGIUNGI_UTENTE:
+                clienti.aggiungiUtente(utente);
+                break;
+            case ELIMINA_UTENTE:
+                clienti.eliminaUtente(cercaUtente(clienti, chiave));
+                break;
+            case MODIFICA_UTENTE:
+                clienti.modificaUtente(cercaUtente(clienti, chiave), utente.getNome(), utente.getCognome(), utente.getMatricola(), utente.getEmail());
+                prestiti.aggiornaMatricola(chiave, utente.getMatricola());
+                break;
+            case AGGIUNGI_PRESTITO: {
+                Utente u = cercaUtente(clienti, chiave);
+                Libro l = cercaLibro(libreria, chiaveLibro);
+                prestiti.aggiungiPrestito(new Prestito(u, l, data));
+                l.diminuisciCopie();
+                u.incrementaPrestitiAttivi();
+                break;
+            }
+            case RESTITUISCI_PRESTITO: {
+                Utente u = cercaUtente(clienti, chiave);
+                Libro l = cercaLibro(libreria, chiaveLibro);
+                prestiti.rimuoviPrestito(new Prestito(u, l, data));
+                l.aumentaCopie();
+                u.decrementaPrestitiAttivi();
+                break;
+            }
+            case LOTTO:
+                for(Operazione op : operazioni) op.applica(libreria, clienti, prestiti);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static Libro cercaLibro(Libreria libreria, String ISBN) throws Exception {
+        Libro l = libreria.cercaPerISBN(ISBN);
+        if(l != null) return l;
+        throw new Exception("Libro con ISBN " + ISBN + " non presente nella libreria.");
+    }
+
+    private static Utente cercaUtente(Clienti clienti, String matricola) throws Exception {
+        Utente u = clienti.cercaPerMatricola(matricola);
+        if(u != null) return u;
+        throw new Exception("Utente con matricola " + matricola + " non presente tra i clienti.");
+    }
+}
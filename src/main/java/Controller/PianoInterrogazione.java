@@ -0,0 +1,231 @@
+/**
+ * @file PianoInterrogazione.java
+ * @brief Questo file contiene il piano di esecuzione di una InterrogazioneLibri.
+ *
+ * La classe PianoInterrogazione stima, per ogni indice utilizzabile dalle condizioni
+ * dell'interrogazione, quanti libri dovrebbe esaminare, e sceglie l'accesso con la stima minore:
+ * i libri restituiti dall'accesso vengono poi verificati con le condizioni rimanenti (i filtri).
+ * Se nessun indice è più selettivo, il catalogo viene scorso per intero.
+ * Le stime sono esatte per anno, disponibilità, autore e prefisso dell'ISBN; per il titolo sono il
+ * numero di libri che contengono il trigramma meno frequente della ricerca.
+ * toString() descrive il piano, per capire perché un'interrogazione è lenta.
+ */
+package Controller;
+
+import Model.Libreria;
+import Model.Libro;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+
+public class PianoInterrogazione {
+
+    /// Modo in cui vengono trovati i libri da verificare.
+    public enum Accesso {
+        SCANSIONE("scansione del catalogo"),
+        TITOLO("indice per trigrammi"),
+        AUTORE("libri dell'autore"),
+        ANNO("indice per anno"),
+        DISPONIBILI("indice dei disponibili"),
+        PREFISSO_ISBN("ISBN ordinati");
+
+        private final String descrizione;
+
+        Accesso(String descrizione) { this.descrizione = descrizione; }
+
+        ///Getter della descrizione dell'accesso
+        public String getDescrizione() { return descrizione; }
+    }
+
+    /// Condizione verificata su ogni libro restituito dall'accesso.
+    private static class Filtro {
+        final String descrizione;
+        final Predicate<Libro> predicato;
+
+        Filtro(String descrizione, Predicate<Libro> predicato) {
+            this.descrizione = descrizione;
+            this.predicato = predicato;
+        }
+    }
+
+    private final InterrogazioneLibri interrogazione;
+    private final Libreria libreria;
+    private final IndiceCatalogo catalogo;
+    private final IndiceTrigrammi<Libro> trigrammi;
+
+    /// Stima del numero di libri da esaminare per ogni accesso utilizzabile.
+    private final EnumMap<Accesso, Integer> stime = new EnumMap<>(Accesso.class);
+
+    private final Accesso accesso;
+
+    /// True se l'accesso per anno restituisce già solo i libri disponibili.
+    private final boolean annoEDisponibili;
+
+    private final List<Filtro> filtri = new ArrayList<>();
+
+    /// Numero di libri esaminati dall'ultima esecuzione, -1 se il piano non è stato eseguito.
+    private int esaminati = -1;
+
+    /// Numero di libri restituiti dall'ultima esecuzione.
+    private int restituiti;
+
+    /**
+     * @brief Costruttore della classe: sceglie l'accesso più selettivo.
+     * @param q L'interrogazione da pianificare.
+     * @param libreria La libreria, per la scansione, i libri di un autore ed i prefissi dell'ISBN.
+     * @param catalogo Gli indici per anno e disponibilità.
+     * @param trigrammi L'indice per trigrammi su titolo, autori ed ISBN.
+     */
+    PianoInterrogazione(InterrogazioneLibri q, Libreria libreria, IndiceCatalogo catalogo, IndiceTrigrammi<Libro> trigrammi) {
+        this.interrogazione = q;
+        this.libreria = libreria;
+        this.catalogo = catalogo;
+        this.trigrammi = trigrammi;
+
+        // In caso di parità vince l'accesso dichiarato prima: la scansione mantiene l'ordine del catalogo
+        stime.put(Accesso.SCANSIONE, libreria.getLibreria().size());
+        if(q.getTitoloContiene() != null && q.getTitoloContiene().length() >= 3)
+            stime.put(Accesso.TITOLO, trigrammi.stimaCandidati(q.getTitoloContiene()));
+        if(q.getAutore() != null) stime.put(Accesso.AUTORE, libreria.cercaPerAutore(q.getAutore()).size());
+        if(q.isConAnno()) stime.put(Accesso.ANNO, catalogo.contaAnnoTra(q.getAnnoDa(), q.getAnnoA()));
+        if(q.isSoloDisponibili()) stime.put(Accesso.DISPONIBILI, catalogo.getNumDisponibili());
+        if(q.getPrefissoISBN() != null) stime.put(Accesso.PREFISSO_ISBN, libreria.contaPerPrefissoISBN(q.getPrefissoISBN()));
+
+        Accesso migliore = Accesso.SCANSIONE;
+        for(Map.Entry<Accesso, Integer> e : stime.entrySet())
+            if(e.getValue() < stime.get(migliore)) migliore = e.getKey();
+        this.accesso = migliore;
+        // IndiceCatalogo interseca da solo anno e disponibilità, partendo dal più piccolo
+        this.annoEDisponibili = q.isConAnno() && q.isSoloDisponibili() && (migliore == Accesso.ANNO || migliore == Accesso.DISPONIBILI);
+
+        if(q.getTitoloContiene() != null){
+            String testo = q.getTitoloContiene().toLowerCase(Locale.ROOT);
+            filtri.add(new Filtro("titolo contiene \"" + q.getTitoloContiene() + "\"",
+                    l -> l.getTitolo() != null && l.getTitolo().toLowerCase(Locale.ROOT).contains(testo)));
+        }
+        if(q.getAutore() != null && accesso != Accesso.AUTORE)
+            filtri.add(new Filtro("autore " + q.getAutore(), l -> l.getAutori().contains(q.getAutore())));
+        if(q.isConAnno() && accesso != Accesso.ANNO && !annoEDisponibili)
+            filtri.add(new Filtro("anno tra " + q.getAnnoDa() + " e " + q.getAnnoA(), l -> l.getAnno() >= q.getAnnoDa() && l.getAnno() <= q.getAnnoA()));
+        if(q.isSoloDisponibili() && accesso != Accesso.DISPONIBILI && !annoEDisponibili)
+            filtri.add(new Filtro("disponibili", Libro::isDisponibile));
+        if(q.getPrefissoISBN() != null && accesso != Accesso.PREFISSO_ISBN)
+            filtri.add(new Filtro("ISBN inizia con " + q.getPrefissoISBN(), l -> l.getISBN() != null && l.getISBN().startsWith(q.getPrefissoISBN())));
+    }
+
+    ///Getter dell'accesso scelto
+    public Accesso getAccesso() { return accesso; }
+
+    ///Getter della stima dei libri esaminati dall'accesso scelto
+    public int getStima() { return stime.get(accesso); }
+
+    ///Getter delle stime di tutti gli accessi considerati
+    public Map<Accesso, Integer> getStime() { return Collections.unmodifiableMap(stime); }
+
+    ///Getter del numero di libri esaminati dall'ultima esecuzione, -1 se il piano non è stato eseguito
+    public int getEsaminati() { return esaminati; }
+
+    ///Getter del numero di libri restituiti dall'ultima esecuzione
+    public int getRestituiti() { return restituiti; }
+
+    /**
+     * @brief Esegue il piano.
+     *
+     * Da chiamare con gli indici bloccati da ServizioBiblioteca. Senza ordinamento, se l'accesso
+     * è la scansione l'esecuzione si ferma appena trovati i risultati richiesti.
+     *
+     * @return I libri trovati, ordinati e ridotti all'intervallo richiesto.
+     */
+    List<Libro> esegui() {
+        InterrogazioneLibri q = interrogazione;
+        long richiesti = (long) q.getSalta() + q.getLimite();
+        boolean interrompibile = accesso == Accesso.SCANSIONE && q.getOrdine() == null;
+
+        List<Libro> trovati = new ArrayList<>();
+        esaminati = 0;
+        for(Libro l : candidati()){
+            if(interrompibile && trovati.size() >= richiesti) break;
+            esaminati++;
+            if(verifica(l)) trovati.add(l);
+        }
+
+        Comparator<Libro> perCatalogo = Comparator.comparingInt(libreria::posizioneDi);
+        Comparator<Libro> criterio = ordinamento();
+        if(criterio != null) trovati.sort(criterio.thenComparing(perCatalogo));
+        else if(accesso != Accesso.SCANSIONE) trovati.sort(perCatalogo);
+
+        int da = Math.min(q.getSalta(), trovati.size());
+        int a = (int) Math.min(richiesti, trovati.size());
+        restituiti = a - da;
+        return new ArrayList<>(trovati.subList(da, a));
+    }
+
+    /// Libri restituiti dall'accesso scelto, da verificare con i filtri.
+    private Collection<Libro> candidati() {
+        InterrogazioneLibri q = interrogazione;
+        switch(accesso){
+            case TITOLO: return trigrammi.cerca(q.getTitoloContiene());
+            case AUTORE: return libreria.cercaPerAutore(q.getAutore());
+            case ANNO: return catalogo.cerca(q.getAnnoDa(), q.getAnnoA(), annoEDisponibili);
+            case DISPONIBILI: return annoEDisponibili ? catalogo.cerca(q.getAnnoDa(), q.getAnnoA(), true) : catalogo.cercaDisponibili();
+            case PREFISSO_ISBN: return libreria.cercaPerPrefissoISBN(q.getPrefissoISBN());
+            default: return libreria.getLibreria();
+        }
+    }
+
+    private boolean verifica(Libro l) {
+        for(Filtro f : filtri)
+            if(!f.predicato.test(l)) return false;
+        return true;
+    }
+
+    private Comparator<Libro> ordinamento() {
+        if(interrogazione.getOrdine() == null) return null;
+        Comparator<Libro> c;
+        switch(interrogazione.getOrdine()){
+            case TITOLO: c = Comparator.comparing(Libro::getTitolo, String.CASE_INSENSITIVE_ORDER); break;
+            case ANNO: c = Comparator.comparingInt(Libro::getAnno); break;
+            default: c = Comparator.comparing(Libro::getISBN); break;
+        }
+        return interrogazione.isDecrescente() ? c.reversed() : c;
+    }
+
+    /**
+     * @brief Descrive il piano: accesso scelto, alternative scartate, filtri, ordinamento ed intervallo.
+     * @return La descrizione, una voce per riga.
+     */
+    @Override
+    public String toString() {
+        InterrogazioneLibri q = interrogazione;
+        StringBuilder sb = new StringBuilder("Accesso: ").append(accesso.getDescrizione());
+        if(annoEDisponibili) sb.append(" (anno e disponibili intersecati)");
+        sb.append(", stima ").append(getStima()).append(" libri");
+
+        StringBuilder alternative = new StringBuilder();
+        for(Map.Entry<Accesso, Integer> e : stime.entrySet()){
+            if(e.getKey() == accesso) continue;
+            if(alternative.length() > 0) alternative.append(", ");
+            alternative.append(e.getKey().getDescrizione()).append(' ').append(e.getValue());
+        }
+        if(alternative.length() > 0) sb.append("\nAlternative: ").append(alternative);
+
+        sb.append("\nFiltri: ");
+        if(filtri.isEmpty()) sb.append("nessuno");
+        for(int i = 0; i < filtri.size(); i++) sb.append(i == 0 ? "" : ", ").append(filtri.get(i).descrizione);
+
+        sb.append("\nOrdinamento: ");
+        if(q.getOrdine() == null) sb.append("catalogo");
+        else sb.append(q.getOrdine().name().toLowerCase(Locale.ROOT)).append(q.isDecrescente() ? " decrescente" : " crescente");
+
+        sb.append("\nRisultati: salta ").append(q.getSalta());
+        if(q.getLimite() != Integer.MAX_VALUE) sb.append(", al più ").append(q.getLimite());
+        if(esaminati >= 0) sb.append("\nEsecuzione: esaminati ").append(esaminati).append(" libri, restituiti ").append(restituiti);
+        return sb.toString();
+    }
+}
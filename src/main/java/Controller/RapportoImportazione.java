@@ -0,0 +1,96 @@
+/**
+ * @file RapportoImportazione.java
+ * @brief Questo file contiene il resoconto di un'importazione da file.
+ *
+ * La classe RapportoImportazione conta i record letti, importati e scartati, conserva il motivo
+ * dello scarto di ogni record (fino a MAX_ERRORI, così che un file interamente sbagliato non
+ * esaurisca la memoria) e misura la velocità dell'importazione.
+ */
+package Controller;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class RapportoImportazione {
+
+    /// Numero massimo di errori conservati; gli scarti successivi vengono solo contati.
+    public static final int MAX_ERRORI = 1000;
+
+    /// Record scartato e motivo dello scarto.
+    public static class Errore {
+        private final long posizione;
+        private final String motivo;
+
+        public Errore(long posizione, String motivo) {
+            this.posizione = posizione;
+            this.motivo = motivo;
+        }
+
+        ///Getter della posizione del record nel file (riga per CSV, numero dell'oggetto per JSON)
+        public long getPosizione() { return posizione; }
+
+        ///Getter del motivo dello scarto
+        public String getMotivo() { return motivo; }
+
+        @Override
+        public String toString() {
+            return "Record " + posizione + ": " + motivo;
+        }
+    }
+
+    private long letti;
+    private long importati;
+    private long scartati;
+    private long durataNanos;
+    private boolean interrotta;
+    private final List<Errore> errori = new ArrayList<>();
+
+    ///Getter del numero di record letti
+    public long getLetti() { return letti; }
+
+    ///Getter del numero di record importati
+    public long getImportati() { return importati; }
+
+    ///Getter del numero di record scartati
+    public long getScartati() { return scartati; }
+
+    ///Getter degli errori conservati (al più MAX_ERRORI)
+    public List<Errore> getErrori() { return Collections.unmodifiableList(errori); }
+
+    ///True se la lettura del file è stata interrotta da un errore di formato
+    public boolean isInterrotta() { return interrotta; }
+
+    ///Getter della durata dell'importazione, in millisecondi
+    public long getDurataMillis() { return durataNanos / 1_000_000; }
+
+    /**
+     * @brief Restituisce la velocità dell'importazione.
+     * @return Il numero di record letti al secondo.
+     */
+    public double getRecordAlSecondo() {
+        return durataNanos == 0 ? 0 : letti * 1e9 / durataNanos;
+    }
+
+    void contaLetto() { letti++; }
+
+    void contaImportato() { importati++; }
+
+    void scarta(long posizione, String motivo) {
+        scartati++;
+        if(errori.size() < MAX_ERRORI) errori.add(new Errore(posizione, motivo));
+    }
+
+    void interrompi(long posizione, String motivo) {
+        interrotta = true;
+        errori.add(new Errore(posizione, "Lettura interrotta: " + motivo));
+    }
+
+    void setDurataNanos(long durataNanos) { this.durataNanos = durataNanos; }
+
+    @Override
+    public String toString() {
+        return "Letti: " + letti + ", importati: " + importati + ", scartati: " + scartati
+                + (interrotta ? ", lettura interrotta" : "") + " (" + String.format("%.0f", getRecordAlSecondo()) + " record/s)";
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * @file RapportoSincronizzazione.java
+ * @brief Questo file contiene il resoconto della sincronizzazione degli utenti con l'anagrafe universitaria.
+ *
+ * La classe RapportoSincronizzazione aggiunge al RapportoImportazione quanti utenti sono stati
+ * inseriti, aggiornati, lasciati invariati e rimossi perché assenti dall'anagrafe, e quanti
+ * assenti sono stati conservati perché hanno ancora prestiti attivi.
+ */
+package Controller;
+
+public class RapportoSincronizzazione extends RapportoImportazione {
+
+    private long inseriti;
+    private long aggiornati;
+    private long invariati;
+    private long rimossi;
+    private long conservati;
+
+    ///Getter del numero di utenti nuovi
+    public long getInseriti() { return inseriti; }
+
+    ///Getter del numero di utenti i cui dati sono cambiati
+    public long getAggiornati() { return aggiornati; }
+
+    ///Getter del numero di utenti già aggiornati
+    public long getInvariati() { return invariati; }
+
+    ///Getter del numero di utenti rimossi perché assenti dall'anagrafe
+    public long getRimossi() { return rimossi; }
+
+    ///Getter del numero di utenti assenti dall'anagrafe ma conservati per i prestiti attivi
+    public long getConservati() { return conservati; }
+
+    void contaInserito() { inseriti++; }
+
+    void contaAggiornato() { aggiornati++; }
+
+    void contaInvariato() { invariati++; }
+
+    void contaRimossi(long n) { rimossi += n; }
+
+    void contaConservato() { conservati++; }
+
+    @Override
+    public String toString() {
+        return super.toString() + "; inseriti: " + inseriti + ", aggiornati: " + aggiornati + ", invariati: " + invariati
+                + ", rimossi: " + rimossi + ", conservati con prestiti attivi: " + conservati;
+    }
+}
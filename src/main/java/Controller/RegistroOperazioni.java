@@ -0,0 +1,189 @@
+/**
+ * @file RegistroOperazioni.java
+ * @brief Questo file contiene il registro delle operazioni (write-ahead journal) della biblioteca.
+ *
+ * La classe RegistroOperazioni accoda su file ogni modifica effettuata sui dati, in modo che il
+ * salvataggio di una singola operazione costi O(1) invece di riscrivere l'intero archivio.
+ * Al caricamento le operazioni vengono rilette e riapplicate sopra l'ultimo snapshot.
+ */
+package Controller;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.BufferedInputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+public class RegistroOperazioni implements Closeable {
+
+    /// Nome del file su cui vengono accodate le operazioni.
+    private final String filename;
+
+    /// Stream di scrittura in modalità append.
+    private FileOutputStream out;
+
+    /// Numero di operazioni presenti nel registro dall'ultimo azzeramento.
+    private int numOperazioni;
+
+    /// Numero di operazioni scritte ma non ancora sincronizzate sul disco.
+    private int nonSincronizzate;
+
+    /**
+     * @brief Rappresenta un'operazione letta dal registro.
+     */
+    public static class Voce {
+
+        /// Numero di sequenza dell'operazione.
+        private final long sequenza;
+
+        /// Contenuto codificato dell'operazione.
+        private final byte[] dati;
+
+        public Voce(long sequenza, byte[] dati){
+            this.sequenza = sequenza;
+            this.dati = dati;
+        }
+
+        ///Getter della sequenza
+        public long getSequenza() { return sequenza; }
+
+        ///Getter dei dati
+        public byte[] getDati() { return dati; }
+    }
+
+    ///Costruttore della classe
+    public RegistroOperazioni(String filename) {
+        this.filename = filename;
+    }
+
+    ///Getter del numero di operazioni presenti nel registro
+    public int getNumOperazioni() { return numOperazioni; }
+
+    /**
+     * @brief Legge tutte le operazioni valide presenti nel registro.
+     *
+     * Ogni voce è protetta da un CRC: la lettura si interrompe alla prima voce incompleta o corrotta
+     * (ad esempio una scrittura interrotta da un crash) e la parte finale non valida viene troncata,
+     * così che le operazioni successive vengano accodate dopo l'ultima voce integra.
+     *
+     * @return La lista delle voci lette, nell'ordine in cui sono state scritte.
+     * @throws IOException Se si verificano errori di I/O durante la lettura.
+     */
+    public List<Voce> leggi() throws IOException {
+        List<Voce> voci = new ArrayList<>();
+        File f = new File(filename);
+        if(!f.exists()) return voci;
+
+        long lunghezzaValida = 0;
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)))){
+            while(true){
+                int lunghezza = in.readInt();
+                if(lunghezza < 0 || lunghezza > f.length()) break;
+                long sequenza = in.readLong();
+                byte[] dati = new byte[lunghezza];
+                in.readFully(dati);
+                int crc = in.readInt();
+                if(crc != calcolaCrc(sequenza, dati)) break;
+
+                voci.add(new Voce(sequenza, dati));
+                lunghezzaValida += 4 + 8 + lunghezza + 4;
+            }
+        }catch(EOFException e){
+            //Fine del registro (eventualmente con una voce troncata)
+        }
+
+        if(lunghezzaValida < f.length()){
+            try(RandomAccessFile raf = new RandomAccessFile(f, "rw")){
+                raf.setLength(lunghezzaValida);
+            }
+        }
+        numOperazioni = voci.size();
+        return voci;
+    }
+
+    /**
+     * @brief Accoda un gruppo di operazioni con una sola scrittura ed una sola sincronizzazione (group commit).
+     *
+     * @param voci Le operazioni da accodare, in ordine di sequenza.
+     * @throws IOException Se si verificano errori di I/O durante la scrittura.
+     * @post Le operazioni sono state accodate e sincronizzate sul disco.
+     */
+    public void appendi(List<Voce> voci) throws IOException {
+        if(voci.isEmpty()) return;
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(voci.size() * 64);
+        DataOutputStream dos = new DataOutputStream(buffer);
+        for(Voce v : voci) scriviVoce(dos, v.getSequenza(), v.getDati());
+
+        apri().write(buffer.toByteArray());
+        numOperazioni += voci.size();
+        nonSincronizzate += voci.size();
+        sincronizza();
+    }
+
+    /**
+     * @brief Forza la scrittura su disco delle operazioni accodate.
+     * @throws IOException Se si verificano errori di I/O.
+     */
+    public void sincronizza() throws IOException {
+        if(out != null && nonSincronizzate > 0) out.getChannel().force(false);
+        nonSincronizzate = 0;
+    }
+
+    /**
+     * @brief Svuota il registro.
+     *
+     * Va chiamato dopo aver scritto uno snapshot completo, che rende superflue le operazioni accodate.
+     *
+     * @throws IOException Se si verificano errori di I/O.
+     * @post Il registro non contiene operazioni.
+     */
+    public void azzera() throws IOException {
+        close();
+        try(FileOutputStream vuoto = new FileOutputStream(filename, false)){
+            vuoto.getChannel().force(true);
+        }
+        numOperazioni = 0;
+    }
+
+    /**
+     * @brief Sincronizza e chiude il file del registro.
+     * @throws IOException Se si verificano errori di I/O.
+     */
+    @Override
+    public void close() throws IOException {
+        if(out != null){
+            sincronizza();
+            out.close();
+            out = null;
+        }
+    }
+
+    private FileOutputStream apri() throws IOException {
+        if(out == null) out = new FileOutputStream(filename, true);
+        return out;
+    }
+
+    private static void scriviVoce(DataOutputStream dos, long sequenza, byte[] dati) throws IOException {
+        dos.writeInt(dati.length);
+        dos.writeLong(sequenza);
+        dos.write(dati);
+        dos.writeInt(calcolaCrc(sequenza, dati));
+    }
+
+    private static int calcolaCrc(long sequenza, byte[] dati) {
+        CRC32 crc = new CRC32();
+        for(int i = 56; i >= 0; i -= 8) crc.update((int) (sequenza >>> i));
+        crc.update(dati, 0, dati.length);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * @file RicercaAsincrona.java
+ * @brief Questo file contiene l'esecuzione in background delle ricerche digitate dall'utente.
+ *
+ * La classe RicercaAsincrona attende che l'utente smetta di digitare per un breve intervallo
+ * (debounce), calcola i risultati su un thread di lavoro e li consegna al thread dell'interfaccia.
+ * Ogni nuova richiesta annulla quelle precedenti: un risultato viene pubblicato solo se
+ * corrisponde ancora all'ultima ricerca richiesta.
+ */
+package Controller;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+public class RicercaAsincrona<R> {
+
+    /// Thread di lavoro condivisi da tutte le ricerche in background.
+    private static final ScheduledExecutorService esecutore = Executors.newScheduledThreadPool(2, r -> {
+        Thread t = new Thread(r, "ricerca-biblioteca");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /// Calcolo dei risultati di una ricerca, eseguito su un thread di lavoro.
+    private final Function<String, R> calcolo;
+
+    /// Pubblicazione dei risultati, eseguita tramite esecutoreUI.
+    private final BiConsumer<String, R> pubblica;
+
+    /// Esecutore del thread dell'interfaccia (Platform::runLater per JavaFX).
+    private final Executor esecutoreUI;
+
+    /// Attesa, in millisecondi, dopo l'ultima richiesta prima di avviare il calcolo.
+    private final long attesaMs;
+
+    /// Numero dell'ultima richiesta: le richieste con numero inferiore sono superate.
+    private final AtomicLong generazione = new AtomicLong();
+
+    /// Calcolo in attesa di essere avviato.
+    private ScheduledFuture<?> inAttesa;
+
+    /**
+     * @brief Costruttore della classe.
+     * @param calcolo La funzione che calcola i risultati di una ricerca.
+     * @param pubblica La funzione che applica i risultati all'interfaccia.
+     * @param esecutoreUI L'esecutore del thread dell'interfaccia.
+     * @param attesaMs L'attesa dopo l'ultima richiesta prima di avviare il calcolo.
+     */
+    public RicercaAsincrona(Function<String, R> calcolo, BiConsumer<String, R> pubblica, Executor esecutoreUI, long attesaMs) {
+        this.calcolo = calcolo;
+        this.pubblica = pubblica;
+        this.esecutoreUI = esecutoreUI;
+        this.attesaMs = attesaMs;
+    }
+
+    /**
+     * @brief Richiede una ricerca, annullando quelle precedenti non ancora pubblicate.
+     * @param ricerca Il testo digitato dall'utente.
+     */
+    public synchronized void richiedi(String ricerca) {
+        long numero = generazione.incrementAndGet();
+        if(inAttesa != null) inAttesa.cancel(false);
+
+        inAttesa = esecutore.schedule(() -> {
+            if(superata(numero)) return;
+            R risultato;
+            try{
+                risultato = calcolo.apply(ricerca);
+            }catch(RuntimeException e){
+                System.err.println("Errore durante la ricerca: " + e.getMessage());
+                return;
+            }
+            if(superata(numero)) return;
+
+            esecutoreUI.execute(() -> {
+                // Un'altra richiesta può essere arrivata mentre il risultato attendeva il thread dell'interfaccia
+                if(!superata(numero)) pubblica.accept(ricerca, risultato);
+            });
+        }, attesaMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @brief Annulla le ricerche in corso, ad esempio perché il filtro è stato applicato in modo sincrono.
+     */
+    public synchronized void annulla() {
+        generazione.incrementAndGet();
+        if(inAttesa != null) inAttesa.cancel(false);
+        inAttesa = null;
+    }
+
+    private boolean superata(long numero) {
+        return generazione.get() != numero;
+    }
+}
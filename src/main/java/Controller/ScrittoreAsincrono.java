@@ -0,0 +1,309 @@
+/**
+ * @file ScrittoreAsincrono.java
+ * @brief Questo file contiene il thread di salvataggio in background della biblioteca.
+ *
+ * La classe ScrittoreAsincrono riceve le operazioni da registrare e gli snapshot completi già
+ * serializzati, e li scrive su disco da un thread dedicato, in modo che il thread dell'interfaccia
+ * non attenda mai la scrittura degli snapshot. Le richieste arrivate a raffica vengono raggruppate
+ * in un'unica scrittura seguita da una sola sincronizzazione (group commit).
+ * Ogni richiesta restituisce un esito, completato dopo la sua scrittura oppure con l'errore che
+ * l'ha impedita: chi ha eseguito l'operazione può così sapere se è stata salvata.
+ */
+package Controller;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class ScrittoreAsincrono implements Closeable {
+
+    /// Scrittori attivi, uno per file di snapshot, condivisi tra le istanze che usano gli stessi file.
+    private static final Map<String, ScrittoreAsincrono> attivi = new HashMap<>();
+
+    /// Tipi di richiesta.
+    private static final int OPERAZIONE = 0, SNAPSHOT = 1, BARRIERA = 2, FINE = 3;
+
+    /// Nome del file dello snapshot completo.
+    private final String filenameSnapshot;
+
+    /// Registro su cui vengono accodate le operazioni.
+    private final RegistroOperazioni registro;
+
+    /// Numero massimo di richieste raggruppate in un'unica scrittura.
+    private final int maxBatch;
+
+    /// Attesa massima, in nanosecondi, per raccogliere altre richieste prima di scrivere.
+    private final long maxLatenza;
+
+    /// Coda delle richieste da scrivere.
+    private final BlockingQueue<Richiesta> coda = new LinkedBlockingQueue<>();
+
+    /// Ultimo errore di scrittura dall'ultimo flush(), segnalato da flush() e close().
+    private volatile IOException errore;
+
+    /// Numero di utilizzatori dello scrittore (vedi per() e close()).
+    private int utilizzi = 1;
+
+    /// True dopo close(): le richieste successive vengono rifiutate.
+    private boolean chiuso;
+
+    /// Thread che alla chiusura dell'applicazione scrive le richieste ancora in coda.
+    private final Thread chiusura;
+
+    /// Richiesta accodata allo scrittore.
+    private static class Richiesta {
+        /// OPERAZIONE, SNAPSHOT, BARRIERA (flush()) o FINE (close()).
+        final int tipo;
+        /// Numero di sequenza dell'operazione o dello snapshot.
+        final long sequenza;
+        /// Dati da scrivere.
+        final byte[] dati;
+        /// Completato dopo la scrittura, oppure con l'errore che l'ha impedita.
+        final CompletableFuture<Void> esito = new CompletableFuture<>();
+
+        Richiesta(int tipo, long sequenza, byte[] dati) {
+            this.tipo = tipo;
+            this.sequenza = sequenza;
+            this.dati = dati;
+        }
+    }
+
+    /**
+     * @brief Restituisce lo scrittore associato ai file indicati, creandolo se necessario.
+     *
+     * Più istanze della biblioteca aperte sugli stessi file condividono lo stesso scrittore, così che
+     * le scritture restino ordinate e che flush() attenda anche quelle delle istanze precedenti.
+     * Ogni chiamata va bilanciata da una chiamata a close().
+     *
+     * @param filenameSnapshot Il file dello snapshot completo.
+     * @param filenameRegistro Il file del registro delle operazioni.
+     * @param maxBatch Il numero massimo di richieste raggruppate in un'unica scrittura.
+     * @param maxLatenzaMs L'attesa massima, in millisecondi, prima di scrivere una richiesta.
+     * @return Lo scrittore associato ai file.
+     */
+    public static synchronized ScrittoreAsincrono per(String filenameSnapshot, String filenameRegistro, int maxBatch, long maxLatenzaMs) {
+        String chiave = new File(filenameSnapshot).getAbsolutePath();
+        ScrittoreAsincrono s = attivi.get(chiave);
+        if(s == null){
+            s = new ScrittoreAsincrono(filenameSnapshot, new RegistroOperazioni(filenameRegistro), maxBatch, maxLatenzaMs);
+            attivi.put(chiave, s);
+        }else{
+            synchronized(s){ s.utilizzi++; }
+        }
+        return s;
+    }
+
+    ///Costruttore della classe
+    public ScrittoreAsincrono(String filenameSnapshot, RegistroOperazioni registro, int maxBatch, long maxLatenzaMs) {
+        this.filenameSnapshot = filenameSnapshot;
+        this.registro = registro;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.maxLatenza = TimeUnit.MILLISECONDS.toNanos(maxLatenzaMs);
+
+        Thread t = new Thread(this::esegui, "Salvataggio-" + new File(filenameSnapshot).getName());
+        t.setDaemon(true);
+        t.start();
+
+        // Alla chiusura dell'applicazione vengono scritte le richieste ancora in coda
+        this.chiusura = new Thread(() -> {
+            try { flush(); } catch(IOException e) { System.err.println("Errore nel salvataggio dei dati: " + e.getMessage()); }
+        });
+        Runtime.getRuntime().addShutdownHook(chiusura);
+    }
+
+    ///Getter del registro
+    public RegistroOperazioni getRegistro() { return registro; }
+
+    /**
+     * @brief Accoda un'operazione da scrivere sul registro.
+     * @param sequenza Il numero di sequenza dell'operazione.
+     * @param dati L'operazione codificata.
+     * @return L'esito, completato quando l'operazione è sul registro oppure con l'errore di scrittura.
+     */
+    public CompletableFuture<Void> accoda(long sequenza, byte[] dati) {
+        return aggiungi(new Richiesta(OPERAZIONE, sequenza, dati));
+    }
+
+    /**
+     * @brief Accoda uno snapshot completo già serializzato.
+     *
+     * Lo snapshot sostituisce il file 'filenameSnapshot' e svuota il registro. Se in coda sono presenti
+     * più snapshot, viene scritto solo l'ultimo insieme alle operazioni successive. Se la scrittura
+     * dello snapshot fallisce, le operazioni che lo precedono restano nel registro.
+     *
+     * @param sequenza Il numero di sequenza dell'ultima operazione inclusa nello snapshot.
+     * @param dati Lo snapshot serializzato.
+     * @return L'esito, completato quando lo snapshot è su disco oppure con l'errore di scrittura.
+     */
+    public CompletableFuture<Void> accodaSnapshot(long sequenza, byte[] dati) {
+        return aggiungi(new Richiesta(SNAPSHOT, sequenza, dati));
+    }
+
+    /**
+     * @brief Attende che tutte le richieste accodate finora siano scritte e sincronizzate su disco.
+     * @throws IOException Se una scrittura è fallita dopo il flush() precedente.
+     */
+    public void flush() throws IOException {
+        attendi(aggiungi(new Richiesta(BARRIERA, 0, null)));
+        controllaErrore();
+    }
+
+    /**
+     * @brief Rilascia lo scrittore.
+     *
+     * Attende le richieste accodate; quando l'ultimo utilizzatore lo rilascia, ferma il thread
+     * di salvataggio, chiude il registro e rimuove lo scrittore da quelli attivi, così che
+     * per() ne crei uno nuovo. Le richieste successive alla chiusura falliscono.
+     *
+     * @throws IOException Se una scrittura è fallita dopo il flush() precedente.
+     */
+    @Override
+    public void close() throws IOException {
+        Richiesta fine;
+        synchronized(ScrittoreAsincrono.class){
+            synchronized(this){
+                if(chiuso) return;
+                if(--utilizzi > 0){
+                    fine = null;
+                }else{
+                    chiuso = true;
+                    attivi.remove(new File(filenameSnapshot).getAbsolutePath(), this);
+                    fine = new Richiesta(FINE, 0, null);
+                    coda.add(fine);
+                }
+            }
+        }
+        if(fine == null){
+            flush();
+            return;
+        }
+
+        attendi(fine.esito);
+        try{
+            Runtime.getRuntime().removeShutdownHook(chiusura);
+        }catch(IllegalStateException e){
+            // L'applicazione è già in chiusura
+        }
+        registro.close();
+        controllaErrore();
+    }
+
+    private synchronized CompletableFuture<Void> aggiungi(Richiesta r) {
+        if(chiuso){
+            r.esito.completeExceptionally(new IOException("Salvataggio già chiuso per " + filenameSnapshot));
+        }else{
+            coda.add(r);
+        }
+        return r.esito;
+    }
+
+    private static void attendi(CompletableFuture<Void> esito) throws IOException {
+        try{
+            esito.get();
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IOException("Attesa del salvataggio interrotta");
+        }catch(ExecutionException e){
+            if(e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private void controllaErrore() throws IOException {
+        IOException e = errore;
+        if(e != null){
+            errore = null;
+            throw e;
+        }
+    }
+
+    /**
+     * @brief Ciclo del thread di salvataggio.
+     *
+     * Attende la prima richiesta, poi raccoglie le successive finché non ne ha `maxBatch`,
+     * non è trascorsa `maxLatenza` o non incontra una barriera, e le scrive tutte insieme.
+     * Termina dopo aver scritto le richieste che precedono quella di tipo FINE.
+     */
+    private void esegui() {
+        List<Richiesta> batch = new ArrayList<>();
+        while(true){
+            try{
+                batch.clear();
+                Richiesta r = coda.take();
+                batch.add(r);
+                long scadenza = System.nanoTime() + maxLatenza;
+                while(r.tipo < BARRIERA && batch.size() < maxBatch){
+                    long attesa = scadenza - System.nanoTime();
+                    r = attesa > 0 ? coda.poll(attesa, TimeUnit.NANOSECONDS) : coda.poll();
+                    if(r == null) break;
+                    batch.add(r);
+                }
+                scrivi(batch);
+                if(batch.get(batch.size() - 1).tipo == FINE) return;
+            }catch(InterruptedException e){
+                return;
+            }
+        }
+    }
+
+    private void scrivi(List<Richiesta> batch) {
+        // Le operazioni precedenti all'ultimo snapshot sono già contenute in esso
+        int ultimoSnapshot = -1;
+        for(int i = batch.size() - 1; i >= 0 && ultimoSnapshot < 0; i--)
+            if(batch.get(i).tipo == SNAPSHOT) ultimoSnapshot = i;
+
+        IOException erroreSnapshot = null;
+        int inizio = 0;
+        if(ultimoSnapshot >= 0){
+            try{
+                scriviSnapshot(batch.get(ultimoSnapshot).dati);
+                inizio = ultimoSnapshot + 1;
+            }catch(IOException e){
+                erroreSnapshot = e;
+            }
+        }
+
+        List<RegistroOperazioni.Voce> voci = new ArrayList<>();
+        for(int i = inizio; i < batch.size(); i++){
+            Richiesta r = batch.get(i);
+            if(r.tipo == OPERAZIONE) voci.add(new RegistroOperazioni.Voce(r.sequenza, r.dati));
+        }
+        IOException erroreRegistro = null;
+        try{
+            registro.appendi(voci);
+        }catch(IOException e){
+            erroreRegistro = e;
+        }
+
+        if(erroreSnapshot != null) errore = erroreSnapshot;
+        if(erroreRegistro != null) errore = erroreRegistro;
+        for(int i = 0; i < batch.size(); i++){
+            Richiesta r = batch.get(i);
+            IOException e = r.tipo == SNAPSHOT ? erroreSnapshot : r.tipo == OPERAZIONE && i >= inizio ? erroreRegistro : null;
+            if(e == null) r.esito.complete(null);
+            else r.esito.completeExceptionally(e);
+        }
+    }
+
+    private void scriviSnapshot(byte[] dati) throws IOException {
+        File temp = new File(filenameSnapshot + ".tmp");
+        try(FileOutputStream fos = new FileOutputStream(temp)){
+            fos.write(dati);
+            fos.getChannel().force(true);
+        }
+        Files.move(temp.toPath(), new File(filenameSnapshot).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        registro.azzera();
+    }
+}
@@ -0,0 +1,1645 @@
+/**
+ * @file ServizioBiblioteca.java
+ * @brief Questo file contiene il nucleo del sistema di gestione della biblioteca, indipendente da JavaFX.
+ *
+ * La classe ServizioBiblioteca gestisce l'aggregazione delle classi Clienti, Libreria e Prestiti,
+ * i controlli di validità, la persistenza e gli indici di ricerca. Non dipende dall'interfaccia
+ * grafica: può essere usata da strumenti a riga di comando o da test senza avviare JavaFX.
+ * Chi mostra i dati (ad esempio Biblioteca) si registra come AscoltatoreBiblioteca e riceve
+ * le modifiche riga per riga, dopo che i lock dell'operazione sono stati rilasciati.
+ * Più postazioni possono registrare prestiti e restituzioni in parallelo sulla stessa istanza:
+ * ogni prestito blocca solo il libro e l'utente coinvolti (LockStriati), mentre le modifiche al
+ * catalogo ed il salvataggio dello snapshot richiedono l'accesso esclusivo.
+ * Le modifiche vengono accodate nel RegistroOperazioni; lo snapshot completo viene riscritto
+ * solo quando il registro supera la soglia di compattazione. Prestiti e restituzioni di più libri
+ * (aggiungiPrestiti, restituisciPrestiti) vengono applicati per intero o per niente, notificati
+ * come un solo lotto e registrati come una sola voce del registro. I cataloghi importati da file
+ * (importaLibri) vengono salvati con un unico snapshot al termine dell'importazione, così come gli utenti
+ * allineati all'anagrafe universitaria (sincronizzaUtenti). Le scritture su disco sono
+ * eseguite in background dallo ScrittoreAsincrono, che raggruppa quelle delle operazioni
+ * concorrenti: ogni operazione attende, dopo aver rilasciato i lock, che la propria voce sia
+ * sul registro, così che un errore di scrittura venga segnalato a chi l'ha eseguita.
+ */
+package Controller;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.OptionalDataException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+import Model.*;
+
+public class ServizioBiblioteca {
+
+    private Libreria libreria;
+    private Clienti clienti;
+    private Prestiti prestiti;
+
+    /// Ascoltatori delle modifiche, notificati dopo ogni operazione.
+    private final List<AscoltatoreBiblioteca> ascoltatori = new CopyOnWriteArrayList<>();
+
+    /// Notifiche delle modifiche già applicate, nell'ordine delle modifiche, in attesa di essere consegnate.
+    private final ConcurrentLinkedQueue<Consumer<AscoltatoreBiblioteca>> daNotificare = new ConcurrentLinkedQueue<>();
+
+    /// Consegna le notifiche un thread alla volta.
+    private final Object lockNotifiche = new Object();
+
+    /// Numero di strisce dei lock per ISBN e matricola.
+    private static final int NUM_STRISCE = 64;
+
+    /// Lock per ISBN e matricola, presi da prestiti e restituzioni.
+    private final LockStriati lockStriati = new LockStriati(NUM_STRISCE);
+
+    /// Condiviso da prestiti e restituzioni, esclusivo per le modifiche al catalogo e lo snapshot.
+    private final ReadWriteLock lockCatalogo = new ReentrantReadWriteLock();
+
+    /// Protegge il numero di sequenza e l'ordine delle operazioni nel registro.
+    private final Object lockRegistro = new Object();
+
+    /// Indice invertito sulle parole di titolo, autori ed ISBN dei libri.
+    private IndiceRicerca<Libro> indiceLibri;
+
+    /// Indice per trigrammi su titolo, autori ed ISBN dei libri, per la ricerca di sottostringhe.
+    private IndiceTrigrammi<Libro> trigrammiLibri;
+
+    /// Indice per trigrammi su cognome e matricola degli utenti.
+    private IndiceTrigrammi<Utente> trigrammiUtenti;
+
+    /// Indice invertito sul cognome degli utenti, per la ricerca approssimata.
+    private IndiceRicerca<Utente> cognomiUtenti;
+
+    /// Indici dei libri per anno di pubblicazione e disponibilità.
+    private IndiceCatalogo indiceCatalogo;
+
+    /// Sessione di ricerca sui libri, che riusa i risultati delle ricerche precedenti durante la digitazione.
+    private SessioneRicerca<Libro> sessioneLibri;
+
+    /// Sessione di ricerca sugli utenti.
+    private SessioneRicerca<Utente> sessioneUtenti;
+
+    /// Protegge indici e sessioni di ricerca, che possono essere letti da thread di ricerca in background.
+    private final Object lockIndici = new Object();
+
+    /// Osservatore registrato su ogni libro per aggiornare gli indici di ricerca quando viene modificato.
+    private final Consumer<Libro> osservatoreLibri = this::reindicizzaLibro;
+
+    /// Osservatore registrato su ogni utente per aggiornare l'indice di ricerca quando viene modificato.
+    private final Consumer<Utente> osservatoreUtenti = this::reindicizzaUtente;
+
+    private final String filename;
+
+    private final String filenameRegistro;
+
+    /// Numero di operazioni nel registro oltre il quale viene riscritto lo snapshot completo.
+    private static final int SOGLIA_COMPATTAZIONE = 10000;
+
+    /// Numero massimo di scritture raggruppate dallo scrittore in background.
+    private static final int MAX_BATCH = 256;
+
+    /// Attesa massima, in millisecondi, prima che una modifica venga scritta su disco.
+    private static final long MAX_LATENZA_MS = 5;
+
+    /// Scrittore in background dello snapshot e del registro delle operazioni.
+    private final ScrittoreAsincrono scrittore;
+
+    /// True dopo chiudi(), che rilascia lo scrittore.
+    private boolean chiuso;
+
+    /// Numero di sequenza dell'ultima operazione registrata.
+    private long sequenza;
+
+    /// Numero di operazioni registrate dopo l'ultimo snapshot.
+    private int operazioniDaSnapshot;
+
+    /// Motivo per cui i dati salvati non sono stati caricati, null se il caricamento è riuscito.
+    private String erroreCaricamento;
+
+    /// Campi letti da ogni record di un catalogo da importare.
+    public static final String[] CAMPI_LIBRO = {"titolo", "autori", "anno", "isbn", "copieTotali", "copieDisponibili"};
+
+    /// Campi letti da ogni record dell'anagrafe degli utenti da sincronizzare.
+    public static final String[] CAMPI_UTENTE = {"nome", "cognome", "matricola", "email"};
+
+    /// Regole di validità dei campi. Il codice di controllo degli ISBN non viene verificato, perché
+    /// i cataloghi già salvati contengono codici interni di 13 cifre che non sono ISBN-13 veri e propri.
+    private final ValidatoreCampi validatore = new ValidatoreCampi(false);
+
+    /// Numero di record convertiti e validati insieme durante un'importazione.
+    private static final int DIM_LOTTO_IMPORTAZIONE = 4096;
+
+    ///Costruttore della classe ServizioBiblioteca, che usa i file predefiniti
+    public ServizioBiblioteca(){
+        this("output.bin", "output.journal");
+    }
+
+    /**
+     * @brief Costruttore della classe ServizioBiblioteca.
+     *
+     * Carica lo snapshot ed il registro delle operazioni dai file indicati; se lo snapshot
+     * non esiste la biblioteca parte vuota. Se il registro non può essere letto o riapplicato
+     * per intero, la biblioteca parte dallo snapshot e dalle operazioni riapplicate fino a quel
+     * punto ed il registro viene spostato da parte senza modificarlo. Se è lo snapshot a non
+     * poter essere letto, vengono spostati da parte entrambi i file e la biblioteca parte vuota.
+     * In entrambi i casi il motivo è restituito da getErroreCaricamento().
+     *
+     * @param filename Il file dello snapshot.
+     * @param filenameRegistro Il file del registro delle operazioni.
+     * @throws IllegalStateException Se i file non leggibili non possono nemmeno essere spostati.
+     */
+    public ServizioBiblioteca(String filename, String filenameRegistro){
+        this.filename = filename;
+        this.filenameRegistro = filenameRegistro;
+        this.scrittore = ScrittoreAsincrono.per(filename, filenameRegistro, MAX_BATCH, MAX_LATENZA_MS);
+        try {
+            // Attende eventuali scritture ancora in corso sugli stessi file
+            scrittore.flush();
+        } catch(IOException e) { System.err.println("Errore nel salvataggio dei dati: " + e.getMessage()); }
+
+        try{
+            caricaDaFile();
+        }catch(Exception e){
+            // I file vanno conservati: lo snapshot vuoto scritto sotto non deve sostituirli
+            this.erroreCaricamento = accantonaFile(e.getMessage(), filename, filenameRegistro) + " e la biblioteca è stata aperta vuota.";
+            this.libreria = new Libreria(new ArrayList<>());
+            this.clienti = new Clienti(new ArrayList<>());
+            this.prestiti = new Prestiti(new ArrayList<>());
+            this.sequenza = 0;
+            this.operazioniDaSnapshot = 0;
+            try {
+                salvaSuFile();
+                scrittore.flush();
+            } catch(Exception ex) { System.err.println(ex.getMessage()); }
+        }
+        inizializzaIndici();
+    }
+
+    ///Getter del motivo per cui i dati salvati non sono stati caricati, null se il caricamento è riuscito
+    public String getErroreCaricamento() { return erroreCaricamento; }
+
+    //Getter di Libreria
+    public Libreria getLibreria() { return libreria; }
+
+    //Getter di Clienti
+    public Clienti getClienti() { return clienti; }
+
+    //Getter di Prestiti
+    public Prestiti getPrestiti() { return prestiti; }
+
+    /**
+     * @brief Registra un ascoltatore delle modifiche.
+     * @param a L'ascoltatore da aggiungere.
+     */
+    public void aggiungiAscoltatore(AscoltatoreBiblioteca a) {
+        ascoltatori.add(a);
+    }
+
+    /**
+     * @brief Rimuove un ascoltatore delle modifiche.
+     * @param a L'ascoltatore da rimuovere.
+     */
+    public void rimuoviAscoltatore(AscoltatoreBiblioteca a) {
+        ascoltatori.remove(a);
+    }
+
+    /**
+     * @brief Crea gli indici di ricerca e vi inserisce libri ed utenti caricati.
+     */
+    private void inizializzaIndici() {
+        this.indiceLibri = new IndiceRicerca<>(ServizioBiblioteca::testiLibro);
+        this.trigrammiLibri = new IndiceTrigrammi<>(l -> Arrays.asList(l.getTitolo(), l.getAutori().toString(), l.getISBN()));
+        this.trigrammiUtenti = new IndiceTrigrammi<>(u -> Arrays.asList(u.getCognome(), u.getMatricola()));
+        this.cognomiUtenti = new IndiceRicerca<>(u -> Collections.singletonList(u.getCognome()));
+        this.indiceCatalogo = new IndiceCatalogo();
+        this.sessioneLibri = new SessioneRicerca<>(this::cercaSugliIndici,
+                (l, search) -> trigrammiLibri.corrisponde(l, search) || indiceLibri.corrisponde(l, search));
+        this.sessioneUtenti = new SessioneRicerca<>(trigrammiUtenti::cerca, trigrammiUtenti::corrisponde);
+        for(Libro l : libreria.getLibreria()) indicizzaLibro(l);
+        for(Utente u : clienti.getClienti()) indicizzaUtente(u);
+    }
+
+    /**
+     * @brief Aggiunge un libro agli indici di ricerca e ne osserva le modifiche.
+     * @param l Il libro da indicizzare.
+     */
+    private void indicizzaLibro(Libro l) {
+        synchronized(lockIndici){
+            indiceLibri.aggiungi(l);
+            trigrammiLibri.aggiungi(l);
+            indiceCatalogo.aggiungi(l);
+            sessioneLibri.invalida();
+        }
+        l.aggiungiOsservatore(osservatoreLibri);
+    }
+
+    /**
+     * @brief Rimuove un libro dagli indici di ricerca.
+     * @param l Il libro da rimuovere.
+     */
+    private void deindicizzaLibro(Libro l) {
+        l.rimuoviOsservatore(osservatoreLibri);
+        synchronized(lockIndici){
+            indiceLibri.rimuovi(l);
+            trigrammiLibri.rimuovi(l);
+            indiceCatalogo.rimuovi(l);
+            sessioneLibri.invalida();
+        }
+    }
+
+    /**
+     * @brief Aggiorna la disponibilità di un libro negli indici, dopo un prestito o una restituzione.
+     * @param l Il libro le cui copie disponibili sono cambiate.
+     */
+    private void aggiornaDisponibilita(Libro l) {
+        synchronized(lockIndici){
+            indiceCatalogo.aggiornaDisponibilita(l);
+        }
+    }
+
+    private void reindicizzaLibro(Libro l) {
+        synchronized(lockIndici){
+            indiceLibri.aggiorna(l);
+            trigrammiLibri.aggiorna(l);
+            indiceCatalogo.aggiorna(l);
+            sessioneLibri.invalida();
+        }
+    }
+
+    /**
+     * @brief Aggiunge un utente all'indice di ricerca e ne osserva le modifiche.
+     * @param u L'utente da indicizzare.
+     */
+    private void indicizzaUtente(Utente u) {
+        synchronized(lockIndici){
+            trigrammiUtenti.aggiungi(u);
+            cognomiUtenti.aggiungi(u);
+            sessioneUtenti.invalida();
+        }
+        u.aggiungiOsservatore(osservatoreUtenti);
+    }
+
+    /**
+     * @brief Rimuove un utente dall'indice di ricerca.
+     * @param u L'utente da rimuovere.
+     */
+    private void deindicizzaUtente(Utente u) {
+        u.rimuoviOsservatore(osservatoreUtenti);
+        synchronized(lockIndici){
+            trigrammiUtenti.rimuovi(u);
+            cognomiUtenti.rimuovi(u);
+            sessioneUtenti.invalida();
+        }
+    }
+
+    private void reindicizzaUtente(Utente u) {
+        synchronized(lockIndici){
+            trigrammiUtenti.aggiorna(u);
+            cognomiUtenti.aggiorna(u);
+            sessioneUtenti.invalida();
+        }
+    }
+
+    /**
+     * @brief Restituisce i testi di un libro su cui è possibile effettuare la ricerca.
+     * @param l Il libro.
+     * @return Titolo, nome e cognome degli autori ed ISBN del libro.
+     */
+    private static List<String> testiLibro(Libro l) {
+        List<String> testi = new ArrayList<>();
+        testi.add(l.getTitolo());
+        for(Autore a : l.getAutori()){
+            testi.add(a.getNome());
+            testi.add(a.getCognome());
+        }
+        testi.add(l.getISBN());
+        return testi;
+    }
+
+    /**
+     * @brief Cerca i libri sugli indici, senza riusare le ricerche precedenti.
+     *
+     * Un libro corrisponde se la ricerca compare nel titolo, negli autori o nell'ISBN, oppure se
+     * ogni parola della ricerca è l'inizio di una parola del titolo, del nome o cognome di un
+     * autore o dell'ISBN.
+     */
+    private Set<Libro> cercaSugliIndici(String search) {
+        Set<Libro> trovati = trigrammiLibri.cerca(search);
+        Set<Libro> perParole = indiceLibri.cerca(search);
+        if(trovati != null && perParole != null) trovati.addAll(perParole);
+        return trovati;
+    }
+
+    /**
+     * @brief Cerca i libri corrispondenti ad una ricerca.
+     *
+     * I risultati sono calcolati dalla sessione di ricerca: se la ricerca estende la precedente
+     * vengono verificati solo i libri già trovati, altrimenti si usano gli indici.
+     * Può essere chiamato da qualsiasi thread.
+     *
+     * @param search Il testo digitato dall'utente (titolo, autore, ISBN, ecc.).
+     * @return L'insieme (da non modificare) dei libri trovati, oppure null se la ricerca è vuota.
+     */
+    public Set<Libro> cercaLibri(String search) {
+        synchronized(lockIndici){
+            return sessioneLibri.cerca(search);
+        }
+    }
+
+    /**
+     * @brief Cerca gli utenti il cui cognome o la cui matricola contengono la ricerca.
+     * @param search Il testo digitato dall'utente.
+     * @return L'insieme (da non modificare) degli utenti trovati, oppure null se la ricerca è vuota.
+     * @see cercaLibri
+     */
+    public Set<Utente> cercaUtenti(String search) {
+        synchronized(lockIndici){
+            return sessioneUtenti.cerca(search);
+        }
+    }
+
+    /**
+     * @brief Cerca i libri pubblicati in un intervallo di anni, eventualmente solo quelli disponibili.
+     *
+     * Usa gli indici per anno e disponibilità, senza scorrere l'intero catalogo.
+     * Può essere chiamato da qualsiasi thread.
+     *
+     * @param annoDa Il primo anno dell'intervallo.
+     * @param annoA L'ultimo anno dell'intervallo, compreso.
+     * @param soloDisponibili true per escludere i libri senza copie disponibili.
+     * @return I libri trovati, ordinati per anno di pubblicazione.
+     */
+    public List<Libro> cercaLibriPerAnno(int annoDa, int annoA, boolean soloDisponibili) {
+        synchronized(lockIndici){
+            return indiceCatalogo.cerca(annoDa, annoA, soloDisponibili);
+        }
+    }
+
+    /**
+     * @brief Cerca i libri tollerando errori di battitura nelle parole di titolo ed autori.
+     *
+     * Ogni parola della ricerca deve essere simile (IndiceRicerca.tolleranza) ad una parola del
+     * titolo o del nome o cognome di un autore. Può essere chiamato da qualsiasi thread.
+     *
+     * @param search Il testo digitato dall'utente.
+     * @param massimo Il numero massimo di libri da restituire.
+     * @return I libri trovati dal più simile, a parità di distanza nell'ordine del catalogo;
+     * null se la ricerca non contiene parole.
+     */
+    public List<Libro> cercaLibriApprossimata(String search, int massimo) {
+        // Il catalogo non può cambiare finché i risultati non sono ordinati per posizione
+        lockCatalogo.readLock().lock();
+        try{
+            Map<Libro, Integer> trovati;
+            synchronized(lockIndici){
+                trovati = indiceLibri.cercaApprossimata(search);
+            }
+            return trovati == null ? null : ordinaPerDistanza(trovati, libreria::posizioneDi, libreria.getLibreria(), massimo);
+        }finally{ lockCatalogo.readLock().unlock(); }
+    }
+
+    /**
+     * @brief Cerca gli utenti tollerando errori di battitura nel cognome.
+     * @param search Il testo digitato dall'utente.
+     * @param massimo Il numero massimo di utenti da restituire.
+     * @return Gli utenti trovati dal più simile, a parità di distanza nell'ordine dei clienti;
+     * null se la ricerca non contiene parole.
+     * @see cercaLibriApprossimata
+     */
+    public List<Utente> cercaUtentiApprossimata(String search, int massimo) {
+        lockCatalogo.readLock().lock();
+        try{
+            Map<Utente, Integer> trovati;
+            synchronized(lockIndici){
+                trovati = cognomiUtenti.cercaApprossimata(search);
+            }
+            return trovati == null ? null : ordinaPerDistanza(trovati, clienti::posizioneDi, clienti.getClienti(), massimo);
+        }finally{ lockCatalogo.readLock().unlock(); }
+    }
+
+    /**
+     * @brief Ordina i risultati di una ricerca approssimata per distanza e poi per posizione.
+     * @param trovati Gli elementi trovati con la loro distanza.
+     * @param posizione La posizione di un elemento nella sua lista.
+     * @param lista La lista degli elementi.
+     * @param massimo Il numero massimo di elementi da restituire.
+     */
+    private static <T> List<T> ordinaPerDistanza(Map<T, Integer> trovati, ToIntFunction<T> posizione, List<T> lista, int massimo) {
+        // Distanza e posizione sono codificate in un long, così l'ordinamento resta su un array primitivo
+        long[] chiavi = new long[trovati.size()];
+        int n = 0;
+        for(Map.Entry<T, Integer> e : trovati.entrySet()){
+            int pos = posizione.applyAsInt(e.getKey());
+            if(pos >= 0) chiavi[n++] = ((long) e.getValue() << 32) | pos;
+        }
+        Arrays.sort(chiavi, 0, n);
+        List<T> risultato = new ArrayList<>(Math.min(n, massimo));
+        for(int i = 0; i < n && i < massimo; i++) risultato.add(lista.get((int) chiavi[i]));
+        return risultato;
+    }
+
+    /**
+     * @brief Conta i risultati di una ricerca per decennio, disponibilità ed autore.
+     *
+     * I conteggi sono calcolati dagli indici, senza scorrere il catalogo: per l'intero catalogo
+     * sono già pronti, per un insieme di risultati costano quanto i risultati.
+     * Può essere chiamato da qualsiasi thread.
+     *
+     * @param risultati I libri trovati (ad esempio da cercaLibri), oppure null per l'intero catalogo.
+     * @param numAutori Il numero massimo di autori da restituire.
+     * @return I conteggi delle faccette.
+     */
+    public ConteggiFaccette contaFaccette(Collection<Libro> risultati, int numAutori) {
+        synchronized(lockIndici){
+            return indiceCatalogo.faccette(risultati, numAutori);
+        }
+    }
+
+    /**
+     * @brief Crea un'interrogazione sul catalogo, da comporre con le condizioni desiderate.
+     * @return Una nuova interrogazione senza condizioni, che restituisce tutti i libri.
+     */
+    public InterrogazioneLibri interrogaLibri() {
+        return new InterrogazioneLibri(this);
+    }
+
+    /**
+     * @brief Esegue un'interrogazione sul catalogo, partendo dall'indice più selettivo.
+     *
+     * Il catalogo non può essere modificato durante l'esecuzione; prestiti e restituzioni attendono
+     * solo l'aggiornamento degli indici. Può essere chiamato da qualsiasi thread.
+     *
+     * @param q L'interrogazione da eseguire.
+     * @return I libri trovati.
+     * @see PianoInterrogazione
+     */
+    public List<Libro> eseguiInterrogazione(InterrogazioneLibri q) {
+        lockCatalogo.readLock().lock();
+        try{
+            synchronized(lockIndici){
+                return new PianoInterrogazione(q, libreria, indiceCatalogo, trigrammiLibri).esegui();
+            }
+        }finally{ lockCatalogo.readLock().unlock(); }
+    }
+
+    /**
+     * @brief Descrive come verrebbe eseguita un'interrogazione, senza eseguirla.
+     * @param q L'interrogazione da pianificare.
+     * @return Il piano, con l'accesso scelto e le stime degli altri accessi considerati.
+     */
+    public PianoInterrogazione spiegaInterrogazione(InterrogazioneLibri q) {
+        lockCatalogo.readLock().lock();
+        try{
+            synchronized(lockIndici){
+                return new PianoInterrogazione(q, libreria, indiceCatalogo, trigrammiLibri);
+            }
+        }finally{ lockCatalogo.readLock().unlock(); }
+    }
+
+    /**
+     * @brief Esegue un'interrogazione e restituisce il piano, con il numero di libri esaminati e restituiti.
+     * @param q L'interrogazione da eseguire.
+     * @return Il piano eseguito.
+     */
+    public PianoInterrogazione analizzaInterrogazione(InterrogazioneLibri q) {
+        lockCatalogo.readLock().lock();
+        try{
+            synchronized(lockIndici){
+                PianoInterrogazione piano = new PianoInterrogazione(q, libreria, indiceCatalogo, trigrammiLibri);
+                piano.esegui();
+                return piano;
+            }
+        }finally{ lockCatalogo.readLock().unlock(); }
+    }
+
+    /**
+     * @brief Controlla la validità minima dei campi per l'aggiunta di un Libro.
+     * @param titolo Il titolo del libro.
+     * @param autori La lista degli autori del libro.
+     * @param anno L'anno di publicazione del libro.
+     * @param ISBN Il codice ISBN .
+     * @param copieTot Il numero di copie totali.
+     * @param copieDisp Il numero di copie disponibili.
+     * @return true se i campi sono validi, false altrimenti.
+     */
+    public boolean checkValiditaCampiLibro(String titolo, List<Autore> autori, int anno, String ISBN, int copieTot, int copieDisp) {
+        return validatore.validaLibro(titolo, autori, anno, ISBN, copieTot, copieDisp) == 0;
+    }
+
+    /**
+     * @brief Controlla la validità minima dei campi per l'aggiunta di un Utente.
+     * @param nome Il nome dell'utente.
+     * @param cognome Il cognome dell'utente.
+     * @param matricola La matricola univoca.
+     * @param email L'email istituzionale.
+     * @param numPrestitiAttivi Il numero di prestiti attivi dell'utente.
+     * @return true se i campi sono validi, false altrimenti.
+     */
+    public boolean checkValiditaCampiUtente(String nome, String cognome, String matricola, String email, int numPrestitiAttivi){
+        return validatore.validaUtente(nome, cognome, matricola, email, numPrestitiAttivi) == 0;
+    }
+
+    /**
+     * @brief Aggiunge un nuovo libro alla Libreria.
+     *
+     * Effettua i controlli di validità sui campi e affida l'aggiunta del libro alla classe Libreria.
+     *
+     * @param titolo Il titolo del libro.
+     * @param autori La lista degli autori del libro.
+     * @param anno L'anno di pubblicazione.
+     * @param ISBN Il codice ISBN .
+     * @param copieTot Il numero di copie totali.
+     * @param copieDisp Il numero di copie disponibili.
+     * @return Il libro aggiunto.
+     * @throws Exception Se i dati non sono validi o il libro esiste già.
+     * @post Il libro è aggiunto alla Libreria e gli ascoltatori sono notificati.
+     */
+    public Libro aggiungiLibro(String titolo, List<Autore> autori, int anno, String ISBN, int copieTot, int copieDisp) throws Exception {
+       if(!checkValiditaCampiLibro(titolo, autori, anno, ISBN, copieTot, copieDisp)) throw new Exception("Campi non validi!");
+
+       Libro l = new Libro(titolo, new ArrayList<>(autori), anno, ISBN, copieTot, copieDisp);
+
+       CompletableFuture<Void> salvataggio;
+       lockCatalogo.writeLock().lock();
+       try{
+           if(libreria.isInLibreria(l)) throw new Exception("Libro già presente");
+
+           libreria.aggiungiLibro(l);
+           indicizzaLibro(l);
+           int pos = libreria.posizioneDi(l);
+           notifica(a -> a.libroAggiunto(l, pos));
+           salvataggio = registra(Operazione.aggiungiLibro(l));
+       }finally{
+           lockCatalogo.writeLock().unlock();
+           consegnaNotifiche();
+       }
+       attendi(salvataggio);
+       compattaSeNecessario();
+       return l;
+    }
+
+    /**
+     * @brief Elimina un libro dalla Libreria.
+     *
+     * Controlla che il libro non sia in prestito ed affida la rimozione del libro alla classe Libreria.
+     *
+     * @param l Il Libro da eliminare.
+     * @throws Exception Se il libro ha ancora copie in prestito o non è presente.
+     * @post Il libro è rimosso dalla Libreria e gli ascoltatori sono notificati.
+     */
+    public void eliminaLibro(Libro l) throws Exception {
+        CompletableFuture<Void> salvataggio;
+        lockCatalogo.writeLock().lock();
+        try{
+            if(l.isLibroInPrestito()) throw new Exception("Impossibile eliminare: Libro in prestito");
+
+            Libro memorizzato = libreria.cercaPerISBN(l.getISBN());
+            int pos = libreria.posizioneDi(memorizzato);
+            libreria.eliminaLibro(l);
+            deindicizzaLibro(memorizzato);
+            notifica(a -> a.libroRimosso(memorizzato, pos));
+            salvataggio = registra(Operazione.eliminaLibro(l.getISBN()));
+        }finally{
+            lockCatalogo.writeLock().unlock();
+            consegnaNotifiche();
+        }
+        attendi(salvataggio);
+        compattaSeNecessario();
+    }
+
+    /**
+     * @brief Modifica i dati di un libro.
+     *
+     * @param l Il Libro da modificare.
+     * @param titolo Il nuovo titolo.
+     * @param autori La nuova lista di autori.
+     * @param anno Il nuovo anno di pubblicazione.
+     * @param ISBN Il nuovo ISBN.
+     * @param copieTot Il nuovo numero di copie totali.
+     * @param copieDisp Il nuovo numero di copie disponibili.
+     * @throws Exception Se i dati non sono validi o il nuovo ISBN è già assegnato.
+     * @post Il libro ed i prestiti che lo riferiscono sono aggiornati.
+     */
+    public void modificaLibro(Libro l, String titolo, List<Autore> autori, int anno, String ISBN, int copieTot, int copieDisp) throws Exception{
+        if(!checkValiditaCampiLibro(titolo, autori, anno, ISBN, copieTot, copieDisp)) throw new Exception("Campi non validi!");
+
+        CompletableFuture<Void> salvataggio;
+        lockCatalogo.writeLock().lock();
+        try{
+            String vecchioISBN = l.getISBN();
+            libreria.modificaLibro(l, titolo, autori, anno, ISBN, copieTot, copieDisp);
+            prestiti.aggiornaISBN(vecchioISBN, ISBN);
+            int pos = libreria.posizioneDi(l);
+            notifica(a -> a.libroModificato(l, pos));
+            salvataggio = registra(Operazione.modificaLibro(vecchioISBN, l));
+        }finally{
+            lockCatalogo.writeLock().unlock();
+            consegnaNotifiche();
+        }
+        attendi(salvataggio);
+        compattaSeNecessario();
+    }
+
+    /**
+     * @brief Aggiunge un nuovo utente ai Clienti.
+     *
+     * Effettua i controlli di validità e delega l'aggiunta alla classe Clienti.
+     *
+     * @param nome Il nome dell'utente.
+     * @param cognome Il cognome dell'utente.
+     * @param matricola La matricola dell'utente.
+     * @param email L'indirizzo email.
+     * @param numPrestitiAttivi Numero di prestiti attivi.
+     * @return L'utente aggiunto.
+     * @throws Exception Se i dati non sono validi o la matricola esiste già.
+     * @post L'utente è aggiunto a Clienti e gli ascoltatori sono notificati.
+     */
+    public Utente aggiungiUtente(String nome, String cognome, String matricola, String email, int numPrestitiAttivi) throws Exception {
+       if(!checkValiditaCampiUtente(nome, cognome, matricola, email, numPrestitiAttivi)) throw new Exception("Campi non validi!");
+
+       Utente u = new Utente(nome, cognome, matricola, email, numPrestitiAttivi);
+
+       CompletableFuture<Void> salvataggio;
+       lockCatalogo.writeLock().lock();
+       try{
+           if(clienti.esisteUtente(u)) throw new Exception("Utente già registrato");
+
+           clienti.aggiungiUtente(u);
+           indicizzaUtente(u);
+           int pos = clienti.posizioneDi(u);
+           notifica(a -> a.utenteAggiunto(u, pos));
+           salvataggio = registra(Operazione.aggiungiUtente(u));
+       }finally{
+           lockCatalogo.writeLock().unlock();
+           consegnaNotifiche();
+       }
+       attendi(salvataggio);
+       compattaSeNecessario();
+       return u;
+    }
+
+    /**
+     * @brief Elimina un utente dal sistema.
+     *
+     * @param u L'Utente da eliminare.
+     * @throws Exception Se l'utente ha ancora prestiti attivi o non è presente.
+     * @post L'utente è rimosso da Clienti e gli ascoltatori sono notificati.
+     */
+    public void eliminaUtente(Utente u) throws Exception {
+        CompletableFuture<Void> salvataggio;
+        lockCatalogo.writeLock().lock();
+        try{
+            if(u.inPrestito()) throw new Exception("Impossibile eliminare: Utente possiede prestiti attivi");
+
+            Utente memorizzato = clienti.cercaPerMatricola(u.getMatricola());
+            int pos = clienti.posizioneDi(memorizzato);
+            clienti.eliminaUtente(u);
+            deindicizzaUtente(memorizzato);
+            notifica(a -> a.utenteRimosso(memorizzato, pos));
+            salvataggio = registra(Operazione.eliminaUtente(u.getMatricola()));
+        }finally{
+            lockCatalogo.writeLock().unlock();
+            consegnaNotifiche();
+        }
+        attendi(salvataggio);
+        compattaSeNecessario();
+    }
+
+    /**
+     * @brief Modifica i dati anagrafici di un utente.
+     *
+     * @param u L'Utente da modificare.
+     * @param nome Il nuovo nome.
+     * @param cognome Il nuovo cognome.
+     * @param matricola La nuova matricola.
+     * @param email La nuova email.
+     * @throws Exception Se i dati non sono validi o matricola ed email sono già assegnate.
+     * @post L'utente ed i prestiti che lo riferiscono sono aggiornati.
+     */
+    public void modificaUtente(Utente u, String nome, String cognome, String matricola, String email) throws Exception{
+        if(!checkValiditaCampiUtente(nome, cognome, matricola, email, 0)) throw new Exception("Campi non validi!");
+
+        CompletableFuture<Void> salvataggio;
+        lockCatalogo.writeLock().lock();
+        try{
+            String vecchiaMatricola = u.getMatricola();
+            clienti.modificaUtente(u, nome, cognome, matricola, email);
+            prestiti.aggiornaMatricola(vecchiaMatricola, matricola);
+            int pos = clienti.posizioneDi(u);
+            notifica(a -> a.utenteModificato(u, pos));
+            salvataggio = registra(Operazione.modificaUtente(vecchiaMatricola, u));
+        }finally{
+            lockCatalogo.writeLock().unlock();
+            consegnaNotifiche();
+        }
+        attendi(salvataggio);
+        compattaSeNecessario();
+    }
+
+    /**
+     * @brief Registra un nuovo prestito nel sistema.
+     *
+     * Controlla la disponibilità del libro e la possibilità dell'utente di prendere in prestito.
+     * Controlli ed aggiornamenti avvengono sotto il lock del libro e dell'utente, quindi prestiti
+     * concorrenti non possono superare le copie disponibili né il limite dell'utente.
+     * Libro ed utente devono essere quelli memorizzati: un oggetto eliminato o sostituito
+     * viene rifiutato, perché il prestito non potrebbe essere riapplicato dal registro.
+     *
+     * @param u L'Utente che richiede il prestito.
+     * @param l Il Libro richiesto.
+     * @param data La data di inizio del prestito.
+     * @return Il prestito registrato.
+     * @throws Exception Se libro o utente non sono registrati, il libro non è disponibile o l'utente ha troppi prestiti.
+     * @post Viene creato un nuovo Prestito, il contatore dei prestiti attivi è aggiornato
+     * e il numero di copie disponibili del libro è decrementato.
+     */
+    public Prestito aggiungiPrestito(Utente u, Libro l, LocalDate data) throws Exception {
+        if(u == null || l == null || data == null) throw new Exception("Dati non validi");
+
+        Prestito p = new Prestito(u, l, data);
+        CompletableFuture<Void> salvataggio;
+        lockCatalogo.readLock().lock();
+        LockStriati.Blocco b = lockStriati.blocca(l.getISBN(), u.getMatricola());
+        try{
+            controllaRegistrati(u, Collections.singletonList(l));
+            if(l.getNumCopieDisponibili() <= 0) throw new Exception("Copie del libro non disponibili");
+            if(u.getNumPrestitiAttivi() >= Utente.MAX_PRESTITI) throw new Exception("L'utente selezionato è già a carico di " + Utente.MAX_PRESTITI + " prestiti");
+
+            synchronized(prestiti){
+                prestiti.aggiungiPrestito(p);
+                int pos = prestiti.getPrestiti().size() - 1;
+                notifica(a -> a.prestitoAggiunto(p, pos));
+            }
+
+            l.diminuisciCopie();
+            u.incrementaPrestitiAttivi();
+            aggiornaDisponibilita(l);
+
+            int posUtente = clienti.posizioneDi(u);
+            int posLibro = libreria.posizioneDi(l);
+            notifica(a -> {
+                a.prestitiAttiviCambiati(u, posUtente);
+                a.disponibilitaCambiata(l, posLibro);
+            });
+
+            salvataggio = registra(Operazione.aggiungiPrestito(p));
+        }finally{
+            b.rilascia();
+            lockCatalogo.readLock().unlock();
+            consegnaNotifiche();
+        }
+        attendi(salvataggio);
+        compattaSeNecessario();
+        return p;
+    }
+
+    /**
+     * @brief Gestisce la restituzione di un Prestito.
+     *
+     * Aggiorna lo stato del Prestito e delega la rimozione.
+     *
+     * @param p Il Prestito da restituire.
+     * @throws Exception Se il prestito non è più attivo o non esiste.
+     * @post Il Prestito rimosso, il contatore dei prestiti attivi dell'utente
+     * viene decrementato e il numero di copie del libro incrementato.
+     */
+    public void restituisciPrestito(Prestito p) throws Exception {
+        if (p == null || p.getUtente() == null || p.getLibro() == null) {
+            throw new Exception("Prestito non trovato per la rimozione.");
+        }
+        Libro l = p.getLibro();
+        Utente u = p.getUtente();
+
+        CompletableFuture<Void> salvataggio;
+        lockCatalogo.readLock().lock();
+        LockStriati.Blocco b = lockStriati.blocca(l.getISBN(), u.getMatricola());
+        try{
+            synchronized(prestiti){
+                int pos = prestiti.posizioneDi(p);
+                if (pos < 0) {
+                    throw new Exception("Prestito non trovato per la rimozione.");
+                }
+                Prestito memorizzato = prestiti.getPrestiti().get(pos);
+                prestiti.rimuoviPrestito(p);
+                Prestito spostato = pos < prestiti.getPrestiti().size() ? prestiti.getPrestiti().get(pos) : null;
+                notifica(a -> a.prestitoRimosso(memorizzato, pos, spostato));
+            }
+
+            l.aumentaCopie();
+            u.decrementaPrestitiAttivi();
+            aggiornaDisponibilita(l);
+
+            int posUtente = clienti.posizioneDi(u);
+            int posLibro = libreria.posizioneDi(l);
+            notifica(a -> {
+                a.prestitiAttiviCambiati(u, posUtente);
+                a.disponibilitaCambiata(l, posLibro);
+            });
+
+            salvataggio = registra(Operazione.restituisciPrestito(p));
+        }finally{
+            b.rilascia();
+            lockCatalogo.readLock().unlock();
+            consegnaNotifiche();
+        }
+        attendi(salvataggio);
+        compattaSeNecessario();
+    }
+
+    /**
+     * @brief Registra più prestiti per lo stesso utente, tutti o nessuno.
+     *
+     * Tutti i controlli (copie disponibili, limite dell'utente, libri ripetuti, prestiti già
+     * registrati) vengono eseguiti prima di modificare qualsiasi dato, sotto i lock di tutti i
+     * libri e dell'utente: se uno fallisce non viene registrato alcun prestito, altrimenti le
+     * modifiche successive non possono fallire. Gli ascoltatori ricevono le notifiche tra
+     * inizioLotto() e fineLotto(), ed il lotto occupa una sola voce del registro.
+     *
+     * @param u L'Utente che richiede i prestiti.
+     * @param libri I Libri richiesti.
+     * @param data La data di restituzione dei prestiti.
+     * @return I prestiti registrati, nell'ordine dei libri.
+     * @throws Exception Se un libro o l'utente non sono registrati, un libro non è disponibile, è ripetuto
+     * o l'utente supererebbe il limite di prestiti.
+     * @post Per ogni libro è creato un Prestito, le copie disponibili sono decrementate ed
+     * i prestiti attivi dell'utente incrementati del numero di libri.
+     */
+    public List<Prestito> aggiungiPrestiti(Utente u, List<Libro> libri, LocalDate data) throws Exception {
+        if(u == null || libri == null || libri.isEmpty() || data == null || libri.contains(null)) throw new Exception("Dati non validi");
+
+        // Copia della lista: i lock e i controlli devono riguardare gli stessi libri
+        List<Libro> richiesti = new ArrayList<>(libri);
+        List<Prestito> nuovi = new ArrayList<>(richiesti.size());
+        for(Libro l : richiesti) nuovi.add(new Prestito(u, l, data));
+
+        CompletableFuture<Void> salvataggio;
+        lockCatalogo.readLock().lock();
+        // Le chiavi sono lette sotto il lock del catalogo, che impedisce modifiche di ISBN e matricole
+        String[] chiavi = new String[richiesti.size() + 1];
+        for(int i = 0; i < richiesti.size(); i++) chiavi[i] = richiesti.get(i).getISBN();
+        chiavi[richiesti.size()] = u.getMatricola();
+        LockStriati.Blocco b = lockStriati.blocca(chiavi);
+        try{
+            controllaRegistrati(u, richiesti);
+            if(u.getNumPrestitiAttivi() + richiesti.size() > Utente.MAX_PRESTITI)
+                throw new Exception("L'utente selezionato supererebbe il limite di " + Utente.MAX_PRESTITI + " prestiti");
+            Set<String> visti = new HashSet<>();
+            for(Libro l : richiesti){
+                if(!visti.add(l.getISBN())) throw new Exception("Libro ripetuto nella richiesta: " + l.getISBN());
+                if(l.getNumCopieDisponibili() <= 0) throw new Exception("Copie del libro non disponibili: " + l.getISBN());
+            }
+
+            List<Operazione> operazioni = new ArrayList<>(nuovi.size());
+            synchronized(prestiti){
+                for(Prestito p : nuovi)
+                    if(prestiti.contienePrestito(p)) throw new Exception("ERRORE DUPLICATO: Il prestito risulta già registrato nel sistema.");
+
+                int primo = prestiti.getPrestiti().size();
+                for(Prestito p : nuovi){
+                    prestiti.aggiungiPrestito(p);
+                    p.getLibro().diminuisciCopie();
+                    u.incrementaPrestitiAttivi();
+                    aggiornaDisponibilita(p.getLibro());
+                    operazioni.add(Operazione.aggiungiPrestito(p));
+                }
+
+                int posUtente = clienti.posizioneDi(u);
+                int[] posLibri = new int[richiesti.size()];
+                for(int i = 0; i < posLibri.length; i++) posLibri[i] = libreria.posizioneDi(richiesti.get(i));
+                notifica(a -> {
+                    a.inizioLotto();
+                    for(int i = 0; i < nuovi.size(); i++) a.prestitoAggiunto(nuovi.get(i), primo + i);
+                    a.prestitiAttiviCambiati(u, posUtente);
+                    for(int i = 0; i < posLibri.length; i++) a.disponibilitaCambiata(richiesti.get(i), posLibri[i]);
+                    a.fineLotto();
+                });
+            }
+
+            salvataggio = registra(Operazione.lotto(operazioni));
+        }finally{
+            b.rilascia();
+            lockCatalogo.readLock().unlock();
+            consegnaNotifiche();
+        }
+        attendi(salvataggio);
+        compattaSeNecessario();
+        return nuovi;
+    }
+
+    /**
+     * @brief Controlla che utente e libri siano gli oggetti memorizzati nel catalogo.
+     *
+     * Va chiamato sotto i lock striati delle loro chiavi.
+     *
+     * @param u L'Utente da controllare.
+     * @param libri I Libri da controllare.
+     * @throws Exception Se l'utente o uno dei libri è stato eliminato o non è mai stato registrato.
+     */
+    private void controllaRegistrati(Utente u, List<Libro> libri) throws Exception {
+        if(clienti.cercaPerMatricola(u.getMatricola()) != u) throw new Exception("Utente non registrato: " + u.getMatricola());
+        for(Libro l : libri)
+            if(libreria.cercaPerISBN(l.getISBN()) != l) throw new Exception("Libro non presente nella Libreria: " + l.getISBN());
+    }
+
+    /**
+     * @brief Gestisce la restituzione di più prestiti, tutti o nessuno.
+     *
+     * Tutti i prestiti vengono cercati ed i contatori controllati prima di modificare qualsiasi
+     * dato, sotto i lock di tutti i libri ed utenti coinvolti: se un prestito non è attivo o è
+     * ripetuto non ne viene restituito alcuno. Notifiche e registro come in aggiungiPrestiti().
+     *
+     * @param daRestituire I Prestiti da restituire.
+     * @throws Exception Se un prestito non è più attivo, non esiste o è ripetuto.
+     * @post I Prestiti sono rimossi, le copie dei libri incrementate ed i prestiti attivi
+     * degli utenti decrementati.
+     */
+    public void restituisciPrestiti(List<Prestito> daRestituire) throws Exception {
+        if(daRestituire == null || daRestituire.isEmpty()) throw new Exception("Dati non validi");
+
+        String[] chiavi = new String[daRestituire.size() * 2];
+        for(int i = 0; i < daRestituire.size(); i++){
+            Prestito p = daRestituire.get(i);
+            if(p == null || p.getUtente() == null || p.getLibro() == null) throw new Exception("Prestito non trovato per la rimozione.");
+            chiavi[2 * i] = p.getLibro().getISBN();
+            chiavi[2 * i + 1] = p.getUtente().getMatricola();
+        }
+
+        CompletableFuture<Void> salvataggio;
+        lockCatalogo.readLock().lock();
+        LockStriati.Blocco b = lockStriati.blocca(chiavi);
+        try{
+            Map<Utente, Integer> perUtente = new HashMap<>();
+            for(Prestito p : daRestituire) perUtente.merge(p.getUtente(), 1, Integer::sum);
+            for(Map.Entry<Utente, Integer> e : perUtente.entrySet())
+                if(e.getKey().getNumPrestitiAttivi() < e.getValue()) throw new Exception("Non si possono avere prestiti negativi");
+
+            List<Operazione> operazioni = new ArrayList<>(daRestituire.size());
+            synchronized(prestiti){
+                Set<Prestito> visti = new HashSet<>();
+                for(Prestito p : daRestituire){
+                    if(!prestiti.contienePrestito(p)) throw new Exception("Prestito non trovato per la rimozione.");
+                    if(!visti.add(p)) throw new Exception("Prestito ripetuto nella richiesta.");
+                }
+
+                List<Prestito> rimossi = new ArrayList<>(daRestituire.size());
+                int[] posizioni = new int[daRestituire.size()];
+                List<Prestito> spostati = new ArrayList<>(daRestituire.size());
+                Set<Libro> libri = new LinkedHashSet<>();
+                Set<Utente> utenti = new LinkedHashSet<>();
+                for(int i = 0; i < daRestituire.size(); i++){
+                    Prestito p = daRestituire.get(i);
+                    posizioni[i] = prestiti.posizioneDi(p);
+                    rimossi.add(prestiti.getPrestiti().get(posizioni[i]));
+                    prestiti.rimuoviPrestito(p);
+                    spostati.add(posizioni[i] < prestiti.getPrestiti().size() ? prestiti.getPrestiti().get(posizioni[i]) : null);
+
+                    p.getLibro().aumentaCopie();
+                    p.getUtente().decrementaPrestitiAttivi();
+                    aggiornaDisponibilita(p.getLibro());
+                    libri.add(p.getLibro());
+                    utenti.add(p.getUtente());
+                    operazioni.add(Operazione.restituisciPrestito(p));
+                }
+
+                Map<Utente, Integer> posUtenti = new LinkedHashMap<>();
+                for(Utente u : utenti) posUtenti.put(u, clienti.posizioneDi(u));
+                Map<Libro, Integer> posLibri = new LinkedHashMap<>();
+                for(Libro l : libri) posLibri.put(l, libreria.posizioneDi(l));
+                notifica(a -> {
+                    a.inizioLotto();
+                    for(int i = 0; i < rimossi.size(); i++) a.prestitoRimosso(rimossi.get(i), posizioni[i], spostati.get(i));
+                    for(Map.Entry<Utente, Integer> e : posUtenti.entrySet()) a.prestitiAttiviCambiati(e.getKey(), e.getValue());
+                    for(Map.Entry<Libro, Integer> e : posLibri.entrySet()) a.disponibilitaCambiata(e.getKey(), e.getValue());
+                    a.fineLotto();
+                });
+            }
+
+            salvataggio = registra(Operazione.lotto(operazioni));
+        }finally{
+            b.rilascia();
+            lockCatalogo.readLock().unlock();
+            consegnaNotifiche();
+        }
+        attendi(salvataggio);
+        compattaSeNecessario();
+    }
+
+    /**
+     * @brief Importa un catalogo di libri da un file CSV o JSON.
+     *
+     * Il file viene letto un lotto alla volta, ed i record vengono convertiti e validati in
+     * parallelo (ImportatoreRecord). I libri validi vengono aggiunti nell'ordine del file; quelli
+     * il cui ISBN è già presente, anche più avanti nello stesso file, vengono scartati.
+     * Lettura, conversione e validazione avvengono senza lock; ogni lotto di record viene poi
+     * applicato con un solo accesso esclusivo al catalogo, registrato come una sola voce
+     * (Operazione.lotto) e notificato agli ascoltatori come un lotto di notifiche, così che tra
+     * un lotto e l'altro prestiti e modifiche possano proseguire. Al termine viene scritto un
+     * unico snapshot, che svuota il registro.
+     *
+     * @param sorgente Il testo da importare, con i campi di CAMPI_LIBRO (nel CSV come intestazione).
+     * @param formato Il formato del testo.
+     * @return Il rapporto con i record importati e scartati.
+     * @throws Exception Se l'intestazione del file non è valida o il salvataggio non riesce.
+     * @post I libri validi sono aggiunti alla Libreria e salvati.
+     */
+    public RapportoImportazione importaLibri(Reader sorgente, LettoreRecord.Formato formato) throws Exception {
+        LettoreRecord lettore;
+        try{
+            lettore = LettoreRecord.apri(sorgente, formato, CAMPI_LIBRO);
+        }catch(IOException e){ throw new Exception("File non valido: " + e.getMessage()); }
+
+        ImportatoreRecord<Libro> importatore = new ImportatoreRecord<>(this::libroDaRecord,
+                Runtime.getRuntime().availableProcessors(), DIM_LOTTO_IMPORTAZIONE);
+        List<Libro> lotto = new ArrayList<>(DIM_LOTTO_IMPORTAZIONE);
+
+        RapportoImportazione rapporto = importatore.importa(lettore, new ImportatoreRecord.Destinazione<Libro>() {
+            @Override
+            public void inizioLotto() {
+                lockCatalogo.writeLock().lock();
+            }
+
+            @Override
+            public void applica(Libro l) throws Exception {
+                if(libreria.cercaPerISBN(l.getISBN()) != null) throw new Exception("Libro già presente: ISBN " + l.getISBN());
+                libreria.aggiungiLibro(l);
+                lotto.add(l);
+            }
+
+            @Override
+            public void fineLotto() {
+                CompletableFuture<Void> salvataggio = null;
+                try{
+                    if(lotto.isEmpty()) return;
+                    List<Libro> aggiunti = new ArrayList<>(lotto);
+                    List<Operazione> operazioni = new ArrayList<>(aggiunti.size());
+                    int[] posizioni = new int[aggiunti.size()];
+                    synchronized(lockIndici){
+                        for(Libro l : aggiunti) indicizzaLibro(l);
+                    }
+                    for(int i = 0; i < posizioni.length; i++){
+                        posizioni[i] = libreria.posizioneDi(aggiunti.get(i));
+                        operazioni.add(Operazione.aggiungiLibro(aggiunti.get(i)));
+                    }
+                    notifica(a -> {
+                        a.inizioLotto();
+                        for(int i = 0; i < posizioni.length; i++) a.libroAggiunto(aggiunti.get(i), posizioni[i]);
+                        a.fineLotto();
+                    });
+                    // Le operazioni successive al lotto possono riferirsi ai libri importati: il lotto va nel registro
+                    salvataggio = registra(Operazione.lotto(operazioni));
+                }catch(Exception e){
+                    throw new IllegalStateException(e.getMessage(), e);
+                }finally{
+                    lotto.clear();
+                    lockCatalogo.writeLock().unlock();
+                    consegnaNotifiche();
+                }
+                try{
+                    attendi(salvataggio);
+                }catch(Exception e){
+                    throw new IllegalStateException(e.getMessage(), e);
+                }
+            }
+        });
+
+        if(rapporto.getImportati() > 0) salvaSnapshot();
+        return rapporto;
+    }
+
+    /**
+     * @brief Converte e valida un record del catalogo da importare.
+     *
+     * Gli autori sono separati da virgole, e per ciascuno l'ultima parola è il cognome, come
+     * nell'inserimento dall'interfaccia. Può essere chiamato da più thread contemporaneamente.
+     *
+     * @param campi I valori dei campi CAMPI_LIBRO.
+     * @return Il libro.
+     * @throws Exception Se un campo manca o non è valido.
+     */
+    private Libro libroDaRecord(String[] campi) throws Exception {
+        for(int i = 0; i < campi.length; i++)
+            if(campi[i] == null) throw new Exception("Campo mancante: " + CAMPI_LIBRO[i]);
+        String errore = ValidatoreCampi.descrivi(validatore.validaRecordLibro(campi));
+        if(errore != null) throw new Exception(errore);
+
+        String titolo = campi[0].trim();
+        ArrayList<Autore> autori = new ArrayList<>();
+        for(String a : campi[1].split(",")){
+            a = a.trim();
+            if(a.isEmpty()) continue;
+            int ultimoSpazio = a.lastIndexOf(' ');
+            if(ultimoSpazio == -1) autori.add(new Autore(a, ""));
+            else autori.add(new Autore(a.substring(0, ultimoSpazio).trim(), a.substring(ultimoSpazio + 1).trim()));
+        }
+        int anno = Integer.parseInt(campi[2].trim());
+        String ISBN = campi[3].trim();
+        int copieTot = Integer.parseInt(campi[4].trim());
+        int copieDisp = Integer.parseInt(campi[5].trim());
+        return new Libro(titolo, autori, anno, ISBN, copieTot, copieDisp);
+    }
+
+    /**
+     * @brief Allinea gli utenti all'anagrafe universitaria letta da un file CSV o JSON.
+     *
+     * Ogni record è identificato dalla matricola: gli utenti nuovi vengono aggiunti, quelli con
+     * nome, cognome o email diversi vengono aggiornati e gli altri lasciati invariati. I record
+     * non validi (stesse regole di checkValiditaCampiUtente), con un'email già di un altro utente o
+     * con una matricola già comparsa nel file vengono scartati ed annotati nel rapporto.
+     * Se rimuoviAssenti è true, al termine vengono rimossi gli utenti che non compaiono
+     * nel file, tranne quelli con prestiti attivi, che vengono conservati e contati a parte; se la
+     * lettura del file si interrompe non viene rimosso nessuno.
+     * Il file viene letto un lotto alla volta (ImportatoreRecord), quindi la memoria occupata non
+     * dipende dalla sua dimensione. Come in importaLibri(), ogni lotto viene applicato con un solo
+     * accesso esclusivo al catalogo e registrato come una sola voce, così che tra un lotto e l'altro
+     * prestiti e modifiche possano proseguire; la rimozione degli assenti è un ultimo lotto. Al
+     * termine viene scritto un unico snapshot.
+     *
+     * @param sorgente Il testo da sincronizzare, con i campi di CAMPI_UTENTE (nel CSV come intestazione).
+     * @param formato Il formato del testo.
+     * @param rimuoviAssenti True per rimuovere gli utenti assenti dall'anagrafe.
+     * @return Il rapporto con gli utenti inseriti, aggiornati, invariati, rimossi e scartati.
+     * @throws Exception Se l'intestazione del file non è valida o il salvataggio non riesce.
+     * @post Gli utenti rispecchiano l'anagrafe e sono salvati.
+     */
+    public RapportoSincronizzazione sincronizzaUtenti(Reader sorgente, LettoreRecord.Formato formato, boolean rimuoviAssenti) throws Exception {
+        LettoreRecord lettore;
+        try{
+            lettore = LettoreRecord.apri(sorgente, formato, CAMPI_UTENTE);
+        }catch(IOException e){ throw new Exception("File non valido: " + e.getMessage()); }
+
+        ImportatoreRecord<Utente> importatore = new ImportatoreRecord<>(this::utenteDaRecord,
+                Runtime.getRuntime().availableProcessors(), DIM_LOTTO_IMPORTAZIONE);
+        RapportoSincronizzazione rapporto = new RapportoSincronizzazione();
+        Set<Utente> visti = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Utente> aggiunti = new ArrayList<>(DIM_LOTTO_IMPORTAZIONE);
+        List<Utente> aggiornati = new ArrayList<>(DIM_LOTTO_IMPORTAZIONE);
+        List<Operazione> operazioni = new ArrayList<>(DIM_LOTTO_IMPORTAZIONE);
+
+        importatore.importa(lettore, new ImportatoreRecord.Destinazione<Utente>() {
+            @Override
+            public void inizioLotto() {
+                lockCatalogo.writeLock().lock();
+            }
+
+            @Override
+            public void applica(Utente letto) throws Exception {
+                Utente u = clienti.cercaPerMatricola(letto.getMatricola());
+                if(u == null){
+                    clienti.aggiungiUtente(letto);
+                    visti.add(letto);
+                    aggiunti.add(letto);
+                    operazioni.add(Operazione.aggiungiUtente(letto));
+                    rapporto.contaInserito();
+                    return;
+                }
+                if(!visti.add(u)) throw new Exception("Matricola ripetuta nel file: " + u.getMatricola());
+                if(u.getNome().equals(letto.getNome()) && u.getCognome().equals(letto.getCognome())
+                        && Objects.equals(u.getEmail(), letto.getEmail())){
+                    rapporto.contaInvariato();
+                    return;
+                }
+                try{
+                    clienti.modificaUtente(u, letto.getNome(), letto.getCognome(), u.getMatricola(), letto.getEmail());
+                }catch(Exception e){
+                    visti.remove(u);
+                    throw e;
+                }
+                aggiornati.add(u);
+                operazioni.add(Operazione.modificaUtente(u.getMatricola(), u));
+                rapporto.contaAggiornato();
+            }
+
+            @Override
+            public void fineLotto() {
+                CompletableFuture<Void> salvataggio = null;
+                try{
+                    if(operazioni.isEmpty()) return;
+                    for(Utente u : aggiunti) indicizzaUtente(u);
+                    List<Utente> nuovi = new ArrayList<>(aggiunti);
+                    List<Utente> modificati = new ArrayList<>(aggiornati);
+                    int[] posNuovi = new int[nuovi.size()];
+                    for(int i = 0; i < posNuovi.length; i++) posNuovi[i] = clienti.posizioneDi(nuovi.get(i));
+                    int[] posModificati = new int[modificati.size()];
+                    for(int i = 0; i < posModificati.length; i++) posModificati[i] = clienti.posizioneDi(modificati.get(i));
+                    notifica(a -> {
+                        a.inizioLotto();
+                        for(int i = 0; i < posNuovi.length; i++) a.utenteAggiunto(nuovi.get(i), posNuovi[i]);
+                        for(int i = 0; i < posModificati.length; i++) a.utenteModificato(modificati.get(i), posModificati[i]);
+                        a.fineLotto();
+                    });
+                    salvataggio = registra(Operazione.lotto(operazioni));
+                }catch(Exception e){
+                    throw new IllegalStateException(e.getMessage(), e);
+                }finally{
+                    aggiunti.clear();
+                    aggiornati.clear();
+                    operazioni.clear();
+                    lockCatalogo.writeLock().unlock();
+                    consegnaNotifiche();
+                }
+                try{
+                    attendi(salvataggio);
+                }catch(Exception e){
+                    throw new IllegalStateException(e.getMessage(), e);
+                }
+            }
+        }, rapporto);
+
+        if(rimuoviAssenti && !rapporto.isInterrotta()){
+            CompletableFuture<Void> salvataggio;
+            lockCatalogo.writeLock().lock();
+            try{
+                salvataggio = rimuoviAssenti(visti, rapporto);
+            }finally{
+                lockCatalogo.writeLock().unlock();
+                consegnaNotifiche();
+            }
+            if(salvataggio != null) attendi(salvataggio);
+        }
+        if(rapporto.getInseriti() + rapporto.getAggiornati() + rapporto.getRimossi() > 0) salvaSnapshot();
+        return rapporto;
+    }
+
+    /**
+     * @brief Rimuove, con un solo passaggio sulla lista, gli utenti non comparsi nell'anagrafe.
+     *
+     * Va chiamato sotto il lock esclusivo del catalogo. Le rimozioni sono registrate come un lotto.
+     *
+     * @param visti Gli utenti comparsi nell'anagrafe.
+     * @param rapporto Il rapporto in cui contare rimossi e conservati.
+     * @return L'esito della scrittura del lotto nel registro, null se non è stato rimosso nessuno.
+     */
+    private CompletableFuture<Void> rimuoviAssenti(Set<Utente> visti, RapportoSincronizzazione rapporto) throws Exception {
+        List<Utente> assenti = new ArrayList<>();
+        for(Utente u : clienti.getClienti()){
+            if(visti.contains(u)) continue;
+            if(u.inPrestito()) rapporto.contaConservato();
+            else assenti.add(u);
+        }
+        if(assenti.isEmpty()) return null;
+
+        //Le posizioni vanno lette prima della compattazione; le notifiche partono dall'ultima,
+        //così che ogni posizione resti valida dopo le rimozioni precedenti
+        int[] posizioni = new int[assenti.size()];
+        for(int i = 0; i < posizioni.length; i++) posizioni[i] = clienti.posizioneDi(assenti.get(i));
+        clienti.eliminaUtenti(assenti);
+        for(Utente u : assenti) deindicizzaUtente(u);
+        notifica(a -> {
+            a.inizioLotto();
+            for(int i = posizioni.length - 1; i >= 0; i--) a.utenteRimosso(assenti.get(i), posizioni[i]);
+            a.fineLotto();
+        });
+        rapporto.contaRimossi(assenti.size());
+
+        List<Operazione> operazioni = new ArrayList<>(assenti.size());
+        for(Utente u : assenti) operazioni.add(Operazione.eliminaUtente(u.getMatricola()));
+        return registra(Operazione.lotto(operazioni));
+    }
+
+    /**
+     * @brief Converte e valida un record dell'anagrafe.
+     * @param campi I valori dei campi CAMPI_UTENTE.
+     * @return L'utente descritto dal record, senza prestiti attivi.
+     * @throws Exception Se un campo manca o non è valido.
+     */
+    private Utente utenteDaRecord(String[] campi) throws Exception {
+        for(int i = 0; i < campi.length; i++){
+            if(campi[i] == null) throw new Exception("Campo mancante: " + CAMPI_UTENTE[i]);
+            campi[i] = campi[i].trim();
+        }
+        String errore = ValidatoreCampi.descrivi(validatore.validaRecordUtente(campi));
+        if(errore != null) throw new Exception(errore);
+        return new Utente(campi[0], campi[1], campi[2], campi[3], 0);
+    }
+
+    /**
+     * @brief Accoda una notifica per gli ascoltatori.
+     *
+     * Va chiamato mentre si tengono i lock dell'operazione, così che le notifiche vengano
+     * consegnate nell'ordine in cui sono state applicate le modifiche. Le posizioni vanno lette
+     * prima di accodare la notifica, e le notifiche di un lotto accodate insieme.
+     *
+     * @param n La notifica da consegnare a ciascun ascoltatore.
+     */
+    private void notifica(Consumer<AscoltatoreBiblioteca> n) {
+        if(!ascoltatori.isEmpty()) daNotificare.add(n);
+    }
+
+    /**
+     * @brief Consegna agli ascoltatori le notifiche accodate.
+     *
+     * Va chiamato dopo aver rilasciato i lock dell'operazione, così che gli ascoltatori possano
+     * leggere i gestori o avviare altre operazioni. Un solo thread alla volta consegna le
+     * notifiche, anche quelle accodate da altri thread: gli ascoltatori non vengono mai chiamati
+     * in modo concorrente e ricevono le notifiche nell'ordine delle modifiche.
+     */
+    private void consegnaNotifiche() {
+        synchronized(lockNotifiche){
+            Consumer<AscoltatoreBiblioteca> n;
+            while((n = daNotificare.poll()) != null)
+                for(AscoltatoreBiblioteca a : ascoltatori) n.accept(a);
+        }
+    }
+
+    /**
+     * @brief Accoda un'operazione al registro.
+     *
+     * Va chiamato mentre si tengono i lock dell'operazione, così che operazioni sugli stessi
+     * libri ed utenti compaiano nel registro nell'ordine in cui sono state eseguite. L'esito
+     * va atteso con attendi() dopo aver rilasciato i lock, così che lo scrittore possa
+     * raggruppare nella stessa scrittura le operazioni concorrenti.
+     *
+     * @param op L'operazione appena eseguita.
+     * @return L'esito della scrittura dell'operazione.
+     * @throws Exception Se l'operazione non può essere codificata.
+     */
+    private CompletableFuture<Void> registra(Operazione op) throws Exception {
+        synchronized(lockRegistro){
+            CompletableFuture<Void> esito = scrittore.accoda(++sequenza, op.codifica());
+            operazioniDaSnapshot++;
+            return esito;
+        }
+    }
+
+    /**
+     * @brief Attende la scrittura su disco di un'operazione o di uno snapshot.
+     *
+     * Va chiamato senza tenere lock. Se la scrittura è fallita, la modifica resta applicata in
+     * memoria ma non è salvata: l'errore viene segnalato al chiamante dell'operazione.
+     *
+     * @param esito L'esito restituito da registra() o salvaSuFile().
+     * @throws Exception Se la scrittura è fallita.
+     */
+    private static void attendi(CompletableFuture<Void> esito) throws Exception {
+        try{
+            esito.get();
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new Exception("Attesa del salvataggio interrotta");
+        }catch(ExecutionException e){
+            throw new Exception("Errore nel salvataggio dei dati: " + e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * @brief Scrive uno snapshot completo e svuota il registro, se questo supera SOGLIA_COMPATTAZIONE operazioni.
+     *
+     * Va chiamato senza tenere i lock dei prestiti: lo snapshot richiede che nessuna operazione sia in corso.
+     *
+     * @throws Exception Se si verificano errori durante la serializzazione.
+     */
+    private void compattaSeNecessario() throws Exception {
+        synchronized(lockRegistro){
+            if(operazioniDaSnapshot < SOGLIA_COMPATTAZIONE) return;
+        }
+        lockCatalogo.writeLock().lock();
+        try{
+            // Un altro thread può aver già scritto lo snapshot nel frattempo
+            if(operazioniDaSnapshot >= SOGLIA_COMPATTAZIONE) salvaSuFile();
+        }finally{ lockCatalogo.writeLock().unlock(); }
+    }
+
+    /**
+     * @brief Scrive uno snapshot completo ed attende che sia su disco.
+     *
+     * Lo snapshot viene codificato sotto il lock esclusivo del catalogo, che viene rilasciato
+     * prima di attendere la scrittura. Va chiamato senza tenere lock.
+     *
+     * @throws Exception Se la codifica o la scrittura non riescono.
+     */
+    private void salvaSnapshot() throws Exception {
+        CompletableFuture<Void> salvataggio;
+        lockCatalogo.writeLock().lock();
+        try{
+            salvataggio = salvaSuFile();
+        }finally{ lockCatalogo.writeLock().unlock(); }
+        attendi(salvataggio);
+    }
+
+    /**
+     * @brief Salva lo stato corrente della biblioteca su un file esterno.
+     *
+     * Codifica in memoria, nel formato di CodecBinario, i gestori Clienti, Libreria, Prestiti
+     * insieme al numero di sequenza dell'ultima operazione inclusa, ed affida la scrittura del
+     * file specificato da 'filename' allo ScrittoreAsincrono, che svuota poi il registro.
+     *
+     * @return L'esito della scrittura dello snapshot.
+     * @throws Exception Se si verificano errori durante la serializzazione.
+     * @post Lo snapshot è accodato per il salvataggio.
+     */
+    private CompletableFuture<Void> salvaSuFile() throws Exception {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try(DataOutputStream out = new DataOutputStream(buffer)){
+
+            CodecBinario.scrivi(out, libreria, clienti, prestiti, sequenza);
+
+        }catch(IOException e){ throw new Exception("Errore nel salvataggio dei dati"); }
+
+        CompletableFuture<Void> esito = scrittore.accodaSnapshot(sequenza, buffer.toByteArray());
+        operazioniDaSnapshot = 0;
+        return esito;
+    }
+
+    /**
+     * @brief Attende che tutte le modifiche effettuate siano state scritte su disco e rilascia lo scrittore.
+     *
+     * Va chiamato prima di chiudere l'applicazione o di leggere i file da un altro processo;
+     * dopo la chiusura le modifiche non possono più essere salvate. Chiamate successive non hanno effetto.
+     *
+     * @throws Exception Se si verificano errori di I/O durante il salvataggio.
+     * @post I dati sono salvati sul file.
+     */
+    public void chiudi() throws Exception {
+        synchronized(lockRegistro){
+            if(chiuso) return;
+            chiuso = true;
+        }
+        try{
+            scrittore.close();
+        }catch(IOException e){ throw new Exception("Errore nel salvataggio dei dati: " + e.getMessage()); }
+    }
+
+    /**
+     * @brief Carica lo stato della biblioteca da un file esterno.
+     *
+     * Legge lo snapshot dal file e ripristina lo stato interno, poi riapplica le operazioni
+     * del registro successive allo snapshot. Se lo snapshot non esiste si parte da una biblioteca
+     * vuota e viene scritto il primo snapshot, che svuota il registro: le operazioni registrate
+     * sono valide solo sopra lo snapshot da cui partono. I file salvati con la serializzazione
+     * Java delle versioni precedenti vengono letti e riscritti nel formato compatto.
+     *
+     * Un'operazione non riapplicabile rende inattendibile tutto ciò che la segue nel registro:
+     * i dati vengono ricaricati dallo snapshot con le sole operazioni precedenti, così che un lotto
+     * non resti applicato a metà, il registro viene spostato da parte e viene scritto un nuovo
+     * snapshot. Lo stesso avviene se il registro non può essere letto. Il motivo è salvato in
+     * erroreCaricamento.
+     *
+     * @throws Exception Se lo snapshot esiste ma non può essere letto.
+     */
+    private void caricaDaFile() throws Exception {
+        if(!new File(filename).exists()){
+            libreria = new Libreria(new ArrayList<>());
+            clienti = new Clienti(new ArrayList<>());
+            prestiti = new Prestiti(new ArrayList<>());
+            sequenza = 0;
+            salvaSuFile();
+            try{
+                scrittore.flush();
+            }catch(IOException e){ System.err.println("Errore nel salvataggio dei dati: " + e.getMessage()); }
+            return;
+        }
+
+        boolean formatoPrecedente = caricaSnapshot();
+        long sequenzaSnapshot = sequenza;
+
+        String errore = null;
+        List<RegistroOperazioni.Voce> voci;
+        try{
+            voci = scrittore.getRegistro().leggi();
+        }catch(IOException e){
+            voci = Collections.emptyList();
+            errore = "Registro " + filenameRegistro + " non leggibile: " + e.getMessage();
+        }
+
+        int riapplicate = voci.size();
+        for(int i = 0; i < voci.size(); i++){
+            RegistroOperazioni.Voce v = voci.get(i);
+            if(v.getSequenza() <= sequenzaSnapshot) continue;
+            try{
+                Operazione.decodifica(v.getDati()).applica(libreria, clienti, prestiti);
+            }catch(Exception e){
+                errore = "Operazione " + v.getSequenza() + " del registro " + filenameRegistro + " non riapplicabile: " + e.getMessage();
+                riapplicate = i;
+                break;
+            }
+            sequenza = v.getSequenza();
+            operazioniDaSnapshot++;
+        }
+
+        if(errore != null){
+            if(riapplicate < voci.size()){
+                // L'operazione fallita può essere un lotto applicato solo in parte: si riparte dallo snapshot
+                caricaSnapshot();
+                for(RegistroOperazioni.Voce v : voci.subList(0, riapplicate)){
+                    if(v.getSequenza() <= sequenzaSnapshot) continue;
+                    Operazione.decodifica(v.getDati()).applica(libreria, clienti, prestiti);
+                    sequenza = v.getSequenza();
+                }
+            }
+            // Il nuovo snapshot svuota il registro, che va prima conservato
+            erroreCaricamento = accantonaFile(errore, filenameRegistro)
+                    + " e la biblioteca è stata aperta dallo snapshot con le operazioni precedenti.";
+        }
+
+        if(formatoPrecedente || errore != null){
+            salvaSuFile();
+            try{
+                scrittore.flush();
+            }catch(IOException e){ System.err.println("Errore nel salvataggio dei dati: " + e.getMessage()); }
+        }
+    }
+
+    /**
+     * @brief Legge lo snapshot dal file e ne ripristina libri, utenti, prestiti e numero di sequenza.
+     *
+     * @return True se il file è stato salvato con la serializzazione Java delle versioni precedenti.
+     * @throws Exception Se il file non può essere letto.
+     */
+    private boolean caricaSnapshot() throws Exception {
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)))){
+
+            in.mark(4);
+            boolean formatoPrecedente = in.readInt() != CodecBinario.MAGIC;
+            in.reset();
+
+            if(formatoPrecedente){
+                sequenza = caricaFormatoPrecedente(in);
+            }else{
+                CodecBinario.Snapshot snap = CodecBinario.leggi(in);
+                libreria = snap.getLibreria();
+                clienti = snap.getClienti();
+                prestiti = snap.getPrestiti();
+                sequenza = snap.getSequenza();
+            }
+            operazioniDaSnapshot = 0;
+            return formatoPrecedente;
+
+        }catch(Exception e){ throw new Exception("Archivio " + filename + " non leggibile: " + e); }
+    }
+
+    /**
+     * @brief Sposta da parte i file che non è stato possibile caricare.
+     *
+     * I file vengono rinominati aggiungendo ".illeggibile-" ed un numero progressivo basato
+     * sull'ora, senza modificarne il contenuto, così che possano essere recuperati.
+     *
+     * @param causa La descrizione dell'errore di caricamento.
+     * @param files I file da spostare; quelli inesistenti vengono ignorati.
+     * @return La descrizione dell'errore e dei file spostati.
+     * @throws IllegalStateException Se i file non possono essere spostati.
+     */
+    private String accantonaFile(String causa, String... files) {
+        String suffisso = ".illeggibile-" + System.currentTimeMillis();
+        StringBuilder spostati = new StringBuilder();
+        try{
+            // Il registro potrebbe essere ancora aperto dallo scrittore
+            scrittore.getRegistro().close();
+            for(String f : files){
+                File file = new File(f);
+                if(!file.exists()) continue;
+                Files.move(file.toPath(), new File(f + suffisso).toPath());
+                spostati.append(spostati.length() == 0 ? "" : ", ").append(f).append(suffisso);
+            }
+        }catch(IOException e){
+            throw new IllegalStateException(causa + ". Impossibile spostare i file da parte: " + e.getMessage(), e);
+        }
+        return causa + ". I file sono stati conservati in " + spostati;
+    }
+
+    /**
+     * @brief Legge uno snapshot salvato con la serializzazione Java.
+     *
+     * @param in Lo stream posizionato all'inizio del file.
+     * @return Il numero di sequenza salvato nello snapshot (0 se assente).
+     * @throws Exception Se il file non è leggibile.
+     */
+    private long caricaFormatoPrecedente(InputStream in) throws Exception {
+        ObjectInputStream ois = new ObjectInputStream(in);
+
+        libreria = (Libreria) ois.readObject();
+        clienti = (Clienti) ois.readObject();
+        prestiti = (Prestiti) ois.readObject();
+
+        try{
+            return ois.readLong();
+        }catch(EOFException | OptionalDataException e){ return 0; } // File salvato senza registro
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * @file SessioneRicerca.java
+ * @brief Questo file contiene la sessione di ricerca usata durante la digitazione.
+ *
+ * La classe SessioneRicerca ricorda i risultati delle ultime ricerche. Quando la nuova ricerca
+ * estende la precedente (l'utente ha aggiunto caratteri in fondo), i risultati possono solo
+ * diminuire: basta quindi verificare i risultati precedenti invece di interrogare gli indici.
+ * Quando l'utente cancella caratteri, i risultati delle ricerche più corte sono ancora in memoria
+ * e vengono riusati direttamente.
+ */
+package Controller;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+public class SessioneRicerca<T> {
+
+    /// Numero massimo di ricerche precedenti mantenute in memoria.
+    private static final int MAX_RICERCHE = 32;
+
+    /// Ricerca completa sugli indici, usata quando non ci sono risultati precedenti da riusare.
+    private final Function<String, Set<T>> ricercaCompleta;
+
+    /// Verifica se un elemento corrisponde ad una ricerca, usata per restringere i risultati precedenti.
+    private final BiPredicate<T, String> corrisponde;
+
+    /// Ricerche precedenti, ciascuna prefisso della successiva; in cima c'è la più recente.
+    private final ArrayDeque<Voce<T>> pila = new ArrayDeque<>();
+
+    /// Numero di elementi verificati dall'ultima chiamata a cerca (usato nei test).
+    private int numVerifiche;
+
+    /**
+     * @brief Costruttore della classe.
+     * @param ricercaCompleta La funzione che calcola i risultati di una ricerca sugli indici
+     * (null se la ricerca è vuota).
+     * @param corrisponde Il predicato che verifica un singolo elemento, con la stessa semantica di ricercaCompleta.
+     */
+    public SessioneRicerca(Function<String, Set<T>> ricercaCompleta, BiPredicate<T, String> corrisponde) {
+        this.ricercaCompleta = ricercaCompleta;
+        this.corrisponde = corrisponde;
+    }
+
+    ///Getter del numero di elementi verificati durante l'ultima ricerca
+    public int getNumVerifiche() { return numVerifiche; }
+
+    /**
+     * @brief Restituisce i risultati di una ricerca, riusando quando possibile quelli delle ricerche precedenti.
+     * @param ricerca Il testo digitato dall'utente.
+     * @return L'insieme (da non modificare) degli elementi trovati, oppure null se la ricerca è vuota.
+     */
+    public Set<T> cerca(String ricerca) {
+        numVerifiche = 0;
+        if(ricerca == null || ricerca.isEmpty()) return null;
+        String chiave = ricerca.toLowerCase(Locale.ROOT);
+
+        // Si scartano le ricerche che non sono un prefisso di quella attuale
+        while(!pila.isEmpty() && !chiave.startsWith(pila.peek().chiave)) pila.pop();
+
+        Set<T> risultato;
+        if(pila.isEmpty()){
+            risultato = ricercaCompleta.apply(ricerca);
+            if(risultato == null) return null;
+        }else if(pila.peek().chiave.equals(chiave)){
+            return pila.peek().risultato;
+        }else{
+            risultato = Collections.newSetFromMap(new IdentityHashMap<>());
+            for(T elemento : pila.peek().risultato){
+                numVerifiche++;
+                if(corrisponde.test(elemento, ricerca)) risultato.add(elemento);
+            }
+        }
+
+        pila.push(new Voce<>(chiave, risultato));
+        if(pila.size() > MAX_RICERCHE) pila.removeLast();
+        return risultato;
+    }
+
+    /**
+     * @brief Dimentica i risultati memorizzati.
+     *
+     * Va chiamato ad ogni modifica dei dati, perché i risultati precedenti potrebbero non essere più validi.
+     */
+    public void invalida() {
+        pila.clear();
+    }
+
+    /// Ricerca precedente ed i suoi risultati.
+    private static class Voce<T> {
+        final String chiave;
+        final Set<T> risultato;
+
+        Voce(String chiave, Set<T> risultato) {
+            this.chiave = chiave;
+            this.risultato = risultato;
+        }
+    }
+}
@@ -0,0 +1,350 @@
+/**
+ * @file ValidatoreCampi.java
+ * @brief Questo file contiene la validazione dei campi di libri ed utenti.
+ *
+ * La classe ValidatoreCampi applica le regole di validità di titoli, autori, ISBN, matricole,
+ * email istituzionali e nomi con scanner scritti a mano, equivalenti alle espressioni regolari
+ * usate in precedenza ma senza compilarle ad ogni chiamata e senza allocare memoria.
+ * Ogni campo non valido ha il suo codice (Errore); l'esito di una validazione è la maschera
+ * dei codici di tutti i campi non validi, 0 se il record è valido.
+ * Il validatore è immutabile e può essere usato da più thread contemporaneamente.
+ */
+package Controller;
+
+import Model.Autore;
+import java.util.List;
+
+public class ValidatoreCampi {
+
+    /// Codici degli errori, uno per ogni regola di ogni campo.
+    public enum Errore {
+        TITOLO("titolo"),
+        AUTORE("autori"),
+        ANNO("anno"),
+        ISBN_FORMATO("isbn"),
+        ISBN_CHECKSUM("isbn"),
+        COPIE_TOTALI("copieTotali"),
+        COPIE_DISPONIBILI("copieDisponibili"),
+        NOME("nome"),
+        COGNOME("cognome"),
+        MATRICOLA("matricola"),
+        EMAIL("email"),
+        PRESTITI_ATTIVI("numPrestitiAttivi");
+
+        private final String campo;
+
+        Errore(String campo) { this.campo = campo; }
+
+        ///Getter del nome del campo a cui si riferisce l'errore
+        public String getCampo() { return campo; }
+
+        ///Getter del bit dell'errore nella maschera restituita dalla validazione
+        public long bit() { return 1L << ordinal(); }
+    }
+
+    private static final Errore[] ERRORI = Errore.values();
+
+    /// True se l'ultima cifra dell'ISBN deve essere il codice di controllo ISBN-13.
+    private final boolean verificaChecksumISBN;
+
+    /**
+     * @brief Costruttore della classe.
+     * @param verificaChecksumISBN True per rifiutare gli ISBN il cui codice di controllo non è corretto.
+     */
+    public ValidatoreCampi(boolean verificaChecksumISBN) {
+        this.verificaChecksumISBN = verificaChecksumISBN;
+    }
+
+    ///Getter dell'opzione di verifica del codice di controllo degli ISBN
+    public boolean isVerificaChecksumISBN() { return verificaChecksumISBN; }
+
+    /**
+     * @brief Valida i campi di un libro.
+     * @param titolo Il titolo del libro.
+     * @param autori La lista degli autori del libro.
+     * @param anno L'anno di pubblicazione.
+     * @param ISBN Il codice ISBN.
+     * @param copieTot Il numero di copie totali.
+     * @param copieDisp Il numero di copie disponibili.
+     * @return La maschera degli errori, 0 se i campi sono validi.
+     */
+    public long validaLibro(String titolo, List<Autore> autori, int anno, String ISBN, int copieTot, int copieDisp) {
+        long errori = validaISBN(ISBN);
+        if(!isTitolo(titolo)) errori |= Errore.TITOLO.bit();
+        if(anno <= 0) errori |= Errore.ANNO.bit();
+        if(copieDisp < 0) errori |= Errore.COPIE_DISPONIBILI.bit();
+        if(copieTot < copieDisp) errori |= Errore.COPIE_TOTALI.bit();
+        if(autori != null){
+            for(int i = 0; i < autori.size(); i++){
+                Autore a = autori.get(i);
+                if(!isNomeAutore(a.getNome()) || !isCognomeAutore(a.getCognome())){
+                    errori |= Errore.AUTORE.bit();
+                    break;
+                }
+            }
+        }
+        return errori;
+    }
+
+    /**
+     * @brief Valida i campi di un utente.
+     * @param nome Il nome dell'utente.
+     * @param cognome Il cognome dell'utente.
+     * @param matricola La matricola.
+     * @param email L'email istituzionale.
+     * @param numPrestitiAttivi Il numero di prestiti attivi.
+     * @return La maschera degli errori, 0 se i campi sono validi.
+     */
+    public long validaUtente(String nome, String cognome, String matricola, String email, int numPrestitiAttivi) {
+        long errori = 0;
+        if(!isNome(nome)) errori |= Errore.NOME.bit();
+        if(!isNome(cognome)) errori |= Errore.COGNOME.bit();
+        if(!isMatricola(matricola)) errori |= Errore.MATRICOLA.bit();
+        if(!isEmailIstituzionale(email)) errori |= Errore.EMAIL.bit();
+        if(numPrestitiAttivi < 0) errori |= Errore.PRESTITI_ATTIVI.bit();
+        return errori;
+    }
+
+    /**
+     * @brief Valida un record di libro letto da file, senza convertirlo.
+     *
+     * Gli autori sono separati da virgole; anno e copie devono essere numeri interi.
+     *
+     * @param campi I valori dei campi ServizioBiblioteca.CAMPI_LIBRO, eventualmente con spazi ai lati.
+     * @return La maschera degli errori, 0 se il record è valido.
+     */
+    public long validaRecordLibro(String[] campi) {
+        long errori = validaISBN(campi[3] == null ? null : campi[3].trim());
+        if(!isTitolo(campi[0])) errori |= Errore.TITOLO.bit();
+        if(!isListaAutori(campi[1])) errori |= Errore.AUTORE.bit();
+        long anno = intero(campi[2]);
+        if(anno <= 0) errori |= Errore.ANNO.bit();
+        long copieTot = intero(campi[4]);
+        long copieDisp = intero(campi[5]);
+        if(copieDisp < 0) errori |= Errore.COPIE_DISPONIBILI.bit();
+        if(copieTot == NON_NUMERICO || copieTot < copieDisp) errori |= Errore.COPIE_TOTALI.bit();
+        return errori;
+    }
+
+    /**
+     * @brief Valida un record dell'anagrafe degli utenti letto da file, senza convertirlo.
+     * @param campi I valori dei campi ServizioBiblioteca.CAMPI_UTENTE, già privati degli spazi ai lati.
+     * @return La maschera degli errori, 0 se il record è valido.
+     */
+    public long validaRecordUtente(String[] campi) {
+        return validaUtente(campi[0], campi[1], campi[2], campi[3], 0);
+    }
+
+    /**
+     * @brief Descrive una maschera di errori.
+     * @param errori La maschera restituita da una validazione.
+     * @return Il testo "Campi non validi: ..." con i campi non validi, oppure null se la maschera è 0.
+     */
+    public static String descrivi(long errori) {
+        if(errori == 0) return null;
+        StringBuilder sb = new StringBuilder("Campi non validi:");
+        for(Errore e : ERRORI){
+            if((errori & e.bit()) == 0) continue;
+            sb.append(' ').append(e.getCampo());
+            if(e == Errore.ISBN_CHECKSUM) sb.append(" (codice di controllo errato)");
+        }
+        return sb.toString();
+    }
+
+    // --- Regole dei singoli campi ---
+
+    private long validaISBN(String ISBN) {
+        if(!isISBN13(ISBN)) return Errore.ISBN_FORMATO.bit();
+        if(verificaChecksumISBN && !checksumISBN13Valido(ISBN)) return Errore.ISBN_CHECKSUM.bit();
+        return 0;
+    }
+
+    /**
+     * @brief Controlla che l'ISBN sia composto da 13 cifre.
+     * @param ISBN Il codice da controllare.
+     * @return true se il formato è valido.
+     */
+    public static boolean isISBN13(CharSequence ISBN) {
+        return cifre(ISBN, 13);
+    }
+
+    /**
+     * @brief Controlla il codice di controllo di un ISBN-13.
+     *
+     * Le cifre sono pesate alternativamente 1 e 3; la somma, compresa l'ultima cifra, deve
+     * essere un multiplo di 10.
+     *
+     * @param ISBN Un codice di 13 cifre.
+     * @return true se l'ultima cifra è il codice di controllo corretto.
+     */
+    public static boolean checksumISBN13Valido(CharSequence ISBN) {
+        if(!isISBN13(ISBN)) return false;
+        int somma = 0;
+        for(int i = 0; i < 13; i++) somma += (ISBN.charAt(i) - '0') * ((i & 1) == 0 ? 1 : 3);
+        return somma % 10 == 0;
+    }
+
+    /**
+     * @brief Controlla che la matricola sia composta da 10 cifre.
+     * @param matricola La matricola da controllare.
+     * @return true se il formato è valido.
+     */
+    public static boolean isMatricola(CharSequence matricola) {
+        return cifre(matricola, 10);
+    }
+
+    /**
+     * @brief Controlla che l'email sia istituzionale (es. a.rossi12@studenti.unisa.it).
+     *
+     * L'email è composta dall'iniziale del nome, un punto, il cognome (lettere ed apostrofi),
+     * eventuali cifre ed il dominio @studenti.unisa.it.
+     *
+     * @param email L'email da controllare.
+     * @return true se il formato è valido.
+     */
+    public static boolean isEmailIstituzionale(String email) {
+        if(email == null || email.length() < 3 + DOMINIO.length()) return false;
+        char iniziale = email.charAt(0);
+        if(!((iniziale >= 'A' && iniziale <= 'Z') || (iniziale >= 'a' && iniziale <= 'z')) || email.charAt(1) != '.') return false;
+        int fine = email.length() - DOMINIO.length();
+        if(!email.startsWith(DOMINIO, fine)) return false;
+
+        int i = 2;
+        while(i < fine){
+            int c = email.codePointAt(i);
+            if(!Character.isLetter(c) && c != '\'') break;
+            i += Character.charCount(c);
+        }
+        if(i == 2) return false;
+        while(i < fine && email.charAt(i) >= '0' && email.charAt(i) <= '9') i++;
+        return i == fine;
+    }
+
+    /**
+     * @brief Controlla il nome o il cognome di un utente: lettere, apostrofi e spazi.
+     * @param nome Il testo da controllare.
+     * @return true se non è vuoto ed è composto solo dai caratteri ammessi.
+     */
+    public static boolean isNome(String nome) {
+        return nome != null && soloAmmessi(nome, 0, nome.length(), "' ", false) && !nome.isEmpty();
+    }
+
+    /**
+     * @brief Controlla un titolo: lettere, cifre, spazi e la punteggiatura '":-.,?!.
+     * @param titolo Il titolo da controllare; gli spazi ai lati vengono ignorati.
+     * @return true se, esclusi gli spazi ai lati, non è vuoto ed è composto solo dai caratteri ammessi.
+     */
+    public static boolean isTitolo(String titolo) {
+        if(titolo == null) return false;
+        int inizio = inizioTrim(titolo, 0, titolo.length());
+        int fine = fineTrim(titolo, inizio, titolo.length());
+        return inizio < fine && soloAmmessi(titolo, inizio, fine, "'\":-.,?! ", true);
+    }
+
+    /**
+     * @brief Controlla il nome di un autore: lettere, apostrofi, punti e spazi.
+     * @param nome Il nome da controllare; gli spazi ai lati vengono ignorati.
+     * @return true se, esclusi gli spazi ai lati, non è vuoto ed è composto solo dai caratteri ammessi.
+     */
+    public static boolean isNomeAutore(String nome) {
+        if(nome == null) return false;
+        int inizio = inizioTrim(nome, 0, nome.length());
+        int fine = fineTrim(nome, inizio, nome.length());
+        return inizio < fine && soloAmmessi(nome, inizio, fine, "'. ", false);
+    }
+
+    /**
+     * @brief Controlla il cognome di un autore, che a differenza del nome può essere vuoto.
+     * @param cognome Il cognome da controllare; gli spazi ai lati vengono ignorati.
+     * @return true se è composto solo dai caratteri ammessi.
+     */
+    public static boolean isCognomeAutore(String cognome) {
+        if(cognome == null) return false;
+        int inizio = inizioTrim(cognome, 0, cognome.length());
+        return soloAmmessi(cognome, inizio, fineTrim(cognome, inizio, cognome.length()), "'. ", false);
+    }
+
+    /**
+     * @brief Controlla una lista di autori separati da virgole, come letta da file.
+     *
+     * Ogni autore diventa nome e cognome separando l'ultima parola, quindi è valido se, esclusi
+     * gli spazi ai lati, è composto solo da lettere, apostrofi, punti e spazi.
+     */
+    private static boolean isListaAutori(String autori) {
+        if(autori == null) return false;
+        int inizio = 0;
+        while(inizio <= autori.length()){
+            int virgola = autori.indexOf(',', inizio);
+            if(virgola == -1) virgola = autori.length();
+            int a = inizioTrim(autori, inizio, virgola);
+            if(!soloAmmessi(autori, a, fineTrim(autori, a, virgola), "'. ", false)) return false;
+            inizio = virgola + 1;
+        }
+        return true;
+    }
+
+    private static final String DOMINIO = "@studenti.unisa.it";
+
+    /// Valore restituito da intero per un testo che non è un numero intero.
+    private static final long NON_NUMERICO = Long.MIN_VALUE;
+
+    /**
+     * @brief Legge un intero con segno opzionale, ignorando gli spazi ai lati, come Integer.parseInt(s.trim()).
+     * @return Il valore, oppure NON_NUMERICO.
+     */
+    private static long intero(String s) {
+        if(s == null) return NON_NUMERICO;
+        int i = inizioTrim(s, 0, s.length());
+        int fine = fineTrim(s, i, s.length());
+        boolean negativo = false;
+        if(i < fine && (s.charAt(i) == '-' || s.charAt(i) == '+')) negativo = s.charAt(i++) == '-';
+        if(i == fine) return NON_NUMERICO;
+        long valore = 0;
+        for(; i < fine; i++){
+            char c = s.charAt(i);
+            if(c < '0' || c > '9') return NON_NUMERICO;
+            valore = valore * 10 + (c - '0');
+            if(valore > Integer.MAX_VALUE + 1L) return NON_NUMERICO;
+        }
+        valore = negativo ? -valore : valore;
+        return valore > Integer.MAX_VALUE ? NON_NUMERICO : valore;
+    }
+
+    private static boolean cifre(CharSequence s, int lunghezza) {
+        if(s == null || s.length() != lunghezza) return false;
+        for(int i = 0; i < lunghezza; i++){
+            char c = s.charAt(i);
+            if(c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+
+    /**
+     * @brief Controlla che i caratteri tra inizio e fine siano lettere, caratteri ammessi o, se richiesto, numeri.
+     */
+    private static boolean soloAmmessi(String s, int inizio, int fine, String ammessi, boolean numeri) {
+        for(int i = inizio; i < fine; ){
+            int c = s.codePointAt(i);
+            if(!Character.isLetter(c) && ammessi.indexOf(c) < 0 && !(numeri && isNumero(c))) return false;
+            i += Character.charCount(c);
+        }
+        return true;
+    }
+
+    /// Equivalente della classe \p{N} delle espressioni regolari.
+    private static boolean isNumero(int c) {
+        int tipo = Character.getType(c);
+        return tipo == Character.DECIMAL_DIGIT_NUMBER || tipo == Character.LETTER_NUMBER || tipo == Character.OTHER_NUMBER;
+    }
+
+    /// Indici dell'intervallo [inizio, fine) esclusi i caratteri scartati da String.trim().
+    private static int inizioTrim(String s, int inizio, int fine) {
+        while(inizio < fine && s.charAt(inizio) <= ' ') inizio++;
+        return inizio;
+    }
+
+    private static int fineTrim(String s, int inizio, int fine) {
+        while(fine > inizio && s.charAt(fine - 1) <= ' ') fine--;
+        return fine;
+    }
+}
@@ -3,6 +3,8 @@
  * @brief Questo file contiene la gestione degli autori.
  * 
  * La classe Autore definirà i componenti di una lista che farà parte degli attributi della classe Libro.
+ * La stessa istanza è condivisa da tutti i libri dell'autore (RegistroAutori): per cambiare l'autore
+ * di un libro si usano conNome() e conCognome(), che restituiscono un nuovo Autore.
  */
 
 package Model;
@@ -12,11 +14,16 @@ import java.util.Objects;
 
 public class Autore implements Serializable{
 
+    private static final long serialVersionUID = -4411128124027275304L;
+
     /// Nome dell'autore.
     private String nome;
     
     /// Cognome dell'autore.
     private String cognome;
+
+    /// Registro di cui l'autore è l'istanza canonica, null se non è registrato.
+    transient RegistroAutori registro;
     
     ///Costruttore della classe Autore
     public Autore(String nome, String cognome){
@@ -30,11 +37,35 @@ public class Autore implements Serializable{
     ///Getter del cognome
     public String getCognome() { return cognome; }
 
-    ///Setter del Nome
-    public void setNome(String nome) { this.nome = nome; }
+    /**
+     * @brief Setter del Nome.
+     * @deprecated L'istanza registrata è condivisa da tutti i libri dell'autore: questi vengono
+     * registrati di nuovo con un nuovo Autore con il nuovo nome, e l'istanza modificata non fa più
+     * parte dei libri. Usare conNome() e Libro.setAutori() per cambiare l'autore di un solo libro.
+     */
+    @Deprecated
+    public void setNome(String nome) { rinomina(nome, this.cognome); }
+
+    /**
+     * @brief Setter del Cognome.
+     * @deprecated Vedi setNome(): usare conCognome() e Libro.setAutori().
+     */
+    @Deprecated
+    public void setCognome(String cognome) { rinomina(this.nome, cognome); }
+
+    /// Sostituisce l'autore nei libri che lo condividono con un Autore con il nuovo nome, poi lo rinomina
+    private void rinomina(String nome, String cognome) {
+        RegistroAutori r = this.registro;
+        if(r != null) r.sostituisci(this, new Autore(nome, cognome));
+        this.nome = nome;
+        this.cognome = cognome;
+    }
+
+    ///Restituisce un Autore con lo stesso cognome ed il nome dato
+    public Autore conNome(String nome) { return new Autore(nome, cognome); }
 
-    ///Setter del Cognome
-    public void setCognome(String cognome) { this.cognome = cognome; }   
+    ///Restituisce un Autore con lo stesso nome ed il cognome dato
+    public Autore conCognome(String cognome) { return new Autore(nome, cognome); }
     
     /**
      * @brief Ritorna una rappresentazione in stringa dell'oggetto Autore.
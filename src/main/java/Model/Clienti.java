@@ -6,14 +6,33 @@
  */
 
 package Model;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Set;
 
 public class Clienti implements Serializable{
 
+    private static final long serialVersionUID = 1682106714222951401L;
+
     /// Lista degli utenti.
     private ArrayList<Utente> clienti;
 
+    /// Indice degli utenti per matricola compressa, ricostruito dalla lista dopo la deserializzazione.
+    private transient volatile IndiceCodici<Utente> indiceMatricola;
+
+    /// Indice univoco degli utenti per email (in minuscolo), ricostruito dalla lista dopo la deserializzazione.
+    private transient volatile HashMap<String, Utente> indiceEmail;
+
+    /// Posizione di ogni utente nella lista, ricostruita dalla lista dopo la deserializzazione.
+    private transient volatile IdentityHashMap<Utente, Integer> posizioni;
+
     ///Costruttore della classe
     public Clienti(ArrayList<Utente> clienti) {
         if (clienti != null) {
@@ -21,10 +40,12 @@ public class Clienti implements Serializable{
         } else {
             this.clienti = new ArrayList<>();
         }
+        ricostruisciIndici();
     }
     //Costruttore di Default
     public Clienti(){
         this.clienti = new ArrayList<>();
+        ricostruisciIndici();
     }
     
     //Getter di Clienti
@@ -34,6 +55,7 @@ public class Clienti implements Serializable{
      * @brief Permette di aggiungere un'utente alla lista
      * 
      * L'utente può essere aggiunto solamente se i suoi campi sono corretti
+     * e se matricola ed email non sono già usate da un altro utente
      * 
      * @post L'utente è stato aggiunto alla lista
      * 
@@ -43,7 +65,13 @@ public class Clienti implements Serializable{
         if (this.esisteUtente(u)) {
             throw new Exception("ERRORE DUPLICATO: Utente " + u.toString() + " già presente.");
         }
+        if (this.esisteEmail(u.getEmail())) {
+            throw new Exception("ERRORE DUPLICATO: Email " + u.getEmail() + " già associata ad un altro utente.");
+        }
         this.clienti.add(u);
+        this.posizioni.put(u, this.clienti.size() - 1);
+        this.indiceMatricola.put(u.getMatricola(), u);
+        if(u.getEmail() != null) this.indiceEmail.put(chiaveEmail(u.getEmail()), u);
     }
 
     /**
@@ -62,14 +90,60 @@ public class Clienti implements Serializable{
         if (u.inPrestito()) { 
              throw new Exception("IMPOSSIBILE ELIMINARE UTENTE! L'utente ha ancora " + u.getNumPrestitiAttivi() + " prestiti attivi.");
         }
-        this.clienti.remove(u);
+        int pos = posizioneDi(u);
+        Utente memorizzato = memorizzato(u);
+        this.indiceMatricola.remove(memorizzato.getMatricola());
+        if(memorizzato.getEmail() != null) this.indiceEmail.remove(chiaveEmail(memorizzato.getEmail()));
+        this.posizioni.remove(memorizzato);
+        this.clienti.remove(pos);
+        // Gli utenti successivi scalano di una posizione
+        for(int i = pos; i < this.clienti.size(); i++) this.posizioni.put(this.clienti.get(i), i);
+    }
+
+    /**
+     * @brief Permette di eliminare più utenti con un solo passaggio sulla lista
+     * 
+     * A differenza di eliminaUtente, che fa scalare gli utenti successivi ad ogni rimozione,
+     * la lista viene compattata una volta sola.
+     * 
+     * @pre Gli utenti devono essere presenti in lista e senza prestiti attivi
+     * @post Nessuno degli utenti è più presente in lista; se un utente non può essere eliminato la lista non cambia
+     * 
+     * @param daEliminare Sono gli utenti da eliminare dalla lista
+     */
+    public void eliminaUtenti(Collection<Utente> daEliminare) throws Exception{
+        Set<Utente> memorizzati = Collections.newSetFromMap(new IdentityHashMap<>());
+        for(Utente u : daEliminare){
+            Utente memorizzato = memorizzato(u);
+            if(memorizzato == null){
+                throw new Exception ("IMPOSSIBILE ELIMINARE UTENTE! Utente : " + u + " non presente nella lista!");
+            }
+            if(memorizzato.inPrestito()){
+                throw new Exception("IMPOSSIBILE ELIMINARE UTENTE! L'utente ha ancora " + memorizzato.getNumPrestitiAttivi() + " prestiti attivi.");
+            }
+            memorizzati.add(memorizzato);
+        }
         
+        for(Utente memorizzato : memorizzati){
+            this.indiceMatricola.remove(memorizzato.getMatricola());
+            if(memorizzato.getEmail() != null) this.indiceEmail.remove(chiaveEmail(memorizzato.getEmail()));
+            this.posizioni.remove(memorizzato);
+        }
+        int j = 0;
+        for(int i = 0; i < this.clienti.size(); i++){
+            Utente u = this.clienti.get(i);
+            if(memorizzati.contains(u)) continue;
+            this.clienti.set(j, u);
+            this.posizioni.put(u, j++);
+        }
+        this.clienti.subList(j, this.clienti.size()).clear();
     }
 
     /**
      * @brief Permette di modificare i campi di un'utente
      * 
-     * @post Campi dell'utente modificati
+     * @pre Matricola ed email, se cambiate, non devono essere già usate da un altro utente
+     * @post Campi dell'utente modificati e indici aggiornati
      * 
      * @param u E' l'utente a cui bisogna modificare i campi
      * @param nome E' il nome dell'utente da modificare
@@ -80,10 +154,24 @@ public class Clienti implements Serializable{
     public void modificaUtente(Utente u, String nome, String cognome, String matricola, String email) throws Exception{
         if(!esisteUtente(u)) throw new Exception("ERRORE: Utente non trovato per la modifica!");
         
+        String vecchiaMatricola = u.getMatricola();
+        String vecchiaEmail = u.getEmail();
+        boolean cambioMatricola = !vecchiaMatricola.equals(matricola);
+        if(cambioMatricola && indiceMatricola.containsKey(matricola))
+            throw new Exception("ERRORE DUPLICATO: Matricola " + matricola + " già assegnata ad un altro utente.");
+        Utente conEmail = cercaPerEmail(email);
+        if(conEmail != null && !conEmail.equals(u))
+            throw new Exception("ERRORE DUPLICATO: Email " + email + " già associata ad un altro utente.");
+        
         u.setNome(nome);
         u.setCognome(cognome);
         u.setMatricola(matricola);
         u.setEmail(email);
+        
+        Utente memorizzato = cambioMatricola ? indiceMatricola.remove(vecchiaMatricola) : indiceMatricola.get(matricola);
+        if(cambioMatricola) indiceMatricola.put(matricola, memorizzato);
+        if(vecchiaEmail != null) indiceEmail.remove(chiaveEmail(vecchiaEmail));
+        if(email != null) indiceEmail.put(chiaveEmail(email), memorizzato);
     }
 
     /**
@@ -92,6 +180,92 @@ public class Clienti implements Serializable{
      * @return True se l'Utente passato come parametro è presente nella lista
      */
     public boolean esisteUtente(Utente u){
-        return this.clienti.contains(u);
+        return memorizzato(u) != null;
+    }
+    
+    /**
+     * @brief Cerca un utente della lista tramite la sua matricola
+     * @param matricola È la matricola da cercare
+     * @return L'utente con la matricola data, oppure null se non è presente
+     */
+    public Utente cercaPerMatricola(String matricola){
+        return this.indiceMatricola.get(matricola);
+    }
+    
+    /**
+     * @brief Cerca un utente della lista tramite la sua email, senza distinguere maiuscole e minuscole
+     * @param email È l'email da cercare
+     * @return L'utente con l'email data, oppure null se non è presente
+     */
+    public Utente cercaPerEmail(String email){
+        return email == null ? null : this.indiceEmail.get(chiaveEmail(email));
+    }
+    
+    /**
+     * @brief Permette di verificare se un'email è già associata ad un utente della lista
+     * @param email È l'email su cui effettuare la verifica
+     * @return True se l'email è già usata
+     */
+    public boolean esisteEmail(String email){
+        return cercaPerEmail(email) != null;
+    }
+    
+    /**
+     * @brief Cerca nell'indice l'utente con la stessa matricola di quello dato, senza ricostruire la matricola come String
+     */
+    private Utente memorizzato(Utente u){
+        if(u == null) return null;
+        long codice = u.getCodiceMatricola();
+        return codice != CodiceNumerico.NON_NUMERICO ? this.indiceMatricola.get(codice) : this.indiceMatricola.get(u.getMatricola());
+    }
+    
+    private static String chiaveEmail(String email){
+        return email.toLowerCase(Locale.ROOT);
+    }
+    
+    /**
+     * @brief Restituisce la posizione nella lista dell'utente con la stessa matricola di quello dato
+     * 
+     * @param u È l'utente da cercare
+     * @return L'indice dell'utente in getClienti(), oppure -1 se non è presente nella lista
+     */
+    public int posizioneDi(Utente u){
+        Utente memorizzato = memorizzato(u);
+        if(memorizzato == null) return -1;
+        
+        Integer pos = this.posizioni.get(memorizzato);
+        if(pos == null || pos >= this.clienti.size() || this.clienti.get(pos) != memorizzato){
+            // La lista è stata modificata senza passare da Clienti
+            ricostruisciIndici();
+            pos = this.posizioni.get(memorizzato);
+        }
+        return pos == null ? -1 : pos;
+    }
+    
+    /**
+     * @brief Ricostruisce gli indici per matricola ed email e le posizioni a partire dalla lista degli utenti
+     *
+     * Può essere chiamato da posizioneDi() durante letture concorrenti: i nuovi indici vengono
+     * riempiti a parte e pubblicati solo quando sono completi.
+     */
+    private synchronized void ricostruisciIndici(){
+        int capacita = Math.max(16, this.clienti.size() * 4 / 3 + 1);
+        IndiceCodici<Utente> matricole = new IndiceCodici<>(CodiceNumerico.CIFRE_MATRICOLA, this.clienti.size());
+        HashMap<String, Utente> email = new HashMap<>(capacita);
+        IdentityHashMap<Utente, Integer> pos = new IdentityHashMap<>(this.clienti.size());
+        for(int i = 0; i < this.clienti.size(); i++){
+            Utente u = this.clienti.get(i);
+            if(u.getMatricola() != null) matricole.putIfAbsent(u.getMatricola(), u);
+            if(u.getEmail() != null) email.putIfAbsent(chiaveEmail(u.getEmail()), u);
+            pos.put(u, i);
+        }
+        this.indiceMatricola = matricole;
+        this.indiceEmail = email;
+        this.posizioni = pos;
+    }
+    
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        ricostruisciIndici();
     }
 }
\ No newline at end of file
@@ -0,0 +1,57 @@
+/**
+ * @file CodiceNumerico.java
+ * @brief Questo file contiene la rappresentazione compatta dei codici composti da sole cifre.
+ *
+ * ISBN (13 cifre) e matricole (10 cifre) vengono memorizzati come long invece che come String:
+ * a parità di numero di cifre il valore decimale identifica il codice, zeri iniziali compresi,
+ * quindi confronti e codici hash non devono scorrere i caratteri.
+ * I codici che non sono composti dal numero di cifre previsto (ad esempio quelli dei cataloghi
+ * più vecchi) restano String; per loro il valore compresso è NON_NUMERICO.
+ */
+package Model;
+
+public final class CodiceNumerico {
+
+    /// Valore compresso dei codici che non sono composti dal numero di cifre previsto.
+    public static final long NON_NUMERICO = -1;
+
+    /// Numero di cifre di un ISBN.
+    public static final int CIFRE_ISBN = 13;
+
+    /// Numero di cifre di una matricola.
+    public static final int CIFRE_MATRICOLA = 10;
+
+    private CodiceNumerico() {}
+
+    /**
+     * @brief Comprime un codice in un long.
+     * @param codice Il codice da comprimere.
+     * @param cifre Il numero di cifre previsto (al più 18).
+     * @return Il valore del codice, oppure NON_NUMERICO se non è composto da esattamente cifre cifre.
+     */
+    public static long comprimi(String codice, int cifre) {
+        if(codice == null || codice.length() != cifre) return NON_NUMERICO;
+        long valore = 0;
+        for(int i = 0; i < cifre; i++){
+            char c = codice.charAt(i);
+            if(c < '0' || c > '9') return NON_NUMERICO;
+            valore = valore * 10 + (c - '0');
+        }
+        return valore;
+    }
+
+    /**
+     * @brief Riporta un codice compresso alla sua forma testuale.
+     * @param valore Il valore restituito da comprimi.
+     * @param cifre Il numero di cifre del codice, zeri iniziali compresi.
+     * @return Il codice come String.
+     */
+    public static String espandi(long valore, int cifre) {
+        char[] c = new char[cifre];
+        for(int i = cifre - 1; i >= 0; i--){
+            c[i] = (char) ('0' + valore % 10);
+            valore /= 10;
+        }
+        return new String(c);
+    }
+}
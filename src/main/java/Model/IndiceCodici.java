@@ -0,0 +1,178 @@
+/**
+ * @file IndiceCodici.java
+ * @brief Questo file contiene l'indice per ISBN o matricola usato da Libreria, Clienti e Prestiti.
+ *
+ * La classe IndiceCodici associa un valore ad ogni codice. I codici composti dal numero di cifre
+ * previsto sono compressi in long (CodiceNumerico) e memorizzati in una tabella ad
+ * indirizzamento aperto su array primitivi, senza un oggetto per ogni voce; i pochi codici non
+ * numerici finiscono in una HashMap a parte.
+ * Le rimozioni spostano indietro le voci successive della stessa sequenza di scansione, quindi
+ * la tabella non accumula voci cancellate.
+ */
+package Model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+public class IndiceCodici<V> {
+
+    /// Chiave delle celle vuote: i codici compressi non sono mai negativi.
+    private static final long VUOTA = CodiceNumerico.NON_NUMERICO;
+
+    private final int cifre;
+
+    private long[] chiavi;
+    private Object[] valori;
+    private int numerici;
+
+    /// Voci con codici non numerici, creata al primo utilizzo.
+    private HashMap<String, V> altri;
+
+    /**
+     * @brief Costruttore della classe.
+     * @param cifre Il numero di cifre dei codici numerici (CodiceNumerico.CIFRE_ISBN o CIFRE_MATRICOLA).
+     * @param capacita Il numero di voci previsto.
+     */
+    public IndiceCodici(int cifre, int capacita) {
+        this.cifre = cifre;
+        int n = 16;
+        while(n * 2 < capacita * 3) n <<= 1;
+        alloca(n);
+    }
+
+    ///Getter del numero di voci
+    public int size() { return numerici + (altri == null ? 0 : altri.size()); }
+
+    /**
+     * @brief Restituisce il valore associato ad un codice.
+     * @param codice Il codice (ISBN o matricola).
+     * @return Il valore, oppure null se il codice non è presente.
+     */
+    public V get(String codice) {
+        long c = CodiceNumerico.comprimi(codice, cifre);
+        if(c != CodiceNumerico.NON_NUMERICO) return get(c);
+        return altri == null || codice == null ? null : altri.get(codice);
+    }
+
+    /**
+     * @brief Restituisce il valore associato ad un codice già compresso.
+     * @param codice Il codice compresso, oppure NON_NUMERICO.
+     * @return Il valore, oppure null se il codice non è presente.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long codice) {
+        if(codice == VUOTA) return null;
+        int i = cella(codice);
+        return chiavi[i] == VUOTA ? null : (V) valori[i];
+    }
+
+    ///True se il codice è presente
+    public boolean containsKey(String codice) {
+        return get(codice) != null;
+    }
+
+    /**
+     * @brief Associa un valore ad un codice.
+     * @param codice Il codice.
+     * @param valore Il valore (non null).
+     * @return Il valore associato in precedenza, oppure null.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(String codice, V valore) {
+        long c = CodiceNumerico.comprimi(codice, cifre);
+        if(c == CodiceNumerico.NON_NUMERICO){
+            if(altri == null) altri = new HashMap<>();
+            return altri.put(codice, valore);
+        }
+        int i = cella(c);
+        if(chiavi[i] == VUOTA){
+            chiavi[i] = c;
+            numerici++;
+            valori[i] = valore;
+            if(numerici * 3 > chiavi.length * 2) ridimensiona();
+            return null;
+        }
+        V precedente = (V) valori[i];
+        valori[i] = valore;
+        return precedente;
+    }
+
+    /**
+     * @brief Associa un valore ad un codice solo se il codice non è già presente.
+     * @return Il valore già presente, oppure null se il valore è stato associato.
+     */
+    public V putIfAbsent(String codice, V valore) {
+        V presente = get(codice);
+        if(presente == null) put(codice, valore);
+        return presente;
+    }
+
+    /**
+     * @brief Rimuove un codice.
+     * @param codice Il codice da rimuovere.
+     * @return Il valore associato, oppure null se il codice non era presente.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(String codice) {
+        long c = CodiceNumerico.comprimi(codice, cifre);
+        if(c == CodiceNumerico.NON_NUMERICO) return altri == null || codice == null ? null : altri.remove(codice);
+
+        int i = cella(c);
+        if(chiavi[i] == VUOTA) return null;
+        V rimosso = (V) valori[i];
+        numerici--;
+        // Le voci successive della sequenza che passavano per la cella liberata vengono spostate indietro
+        int maschera = chiavi.length - 1;
+        int libera = i;
+        for(int j = (i + 1) & maschera; chiavi[j] != VUOTA; j = (j + 1) & maschera){
+            int ideale = hash(chiavi[j]) & maschera;
+            if(((j - ideale) & maschera) >= ((j - libera) & maschera)){
+                chiavi[libera] = chiavi[j];
+                valori[libera] = valori[j];
+                libera = j;
+            }
+        }
+        chiavi[libera] = VUOTA;
+        valori[libera] = null;
+        return rimosso;
+    }
+
+    ///Rimuove tutte le voci
+    public void clear() {
+        Arrays.fill(chiavi, VUOTA);
+        Arrays.fill(valori, null);
+        numerici = 0;
+        altri = null;
+    }
+
+    /// Cella del codice, oppure la cella vuota in cui inserirlo.
+    private int cella(long codice) {
+        int maschera = chiavi.length - 1;
+        int i = hash(codice) & maschera;
+        while(chiavi[i] != VUOTA && chiavi[i] != codice) i = (i + 1) & maschera;
+        return i;
+    }
+
+    private static int hash(long codice) {
+        long h = codice * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private void alloca(int n) {
+        chiavi = new long[n];
+        Arrays.fill(chiavi, VUOTA);
+        valori = new Object[n];
+    }
+
+    private void ridimensiona() {
+        long[] vecchieChiavi = chiavi;
+        Object[] vecchiValori = valori;
+        alloca(chiavi.length * 2);
+        for(int i = 0; i < vecchieChiavi.length; i++){
+            if(vecchieChiavi[i] == VUOTA) continue;
+            int j = cella(vecchieChiavi[i]);
+            chiavi[j] = vecchieChiavi[i];
+            valori[j] = vecchiValori[i];
+        }
+    }
+}
@@ -3,19 +3,43 @@
  * @brief Questo file contiene la lista dei libri presenti nella Biblioteca.
  * 
  * La classe Libreria include la struttura che contiene tutti i libri della biblioteca ed i relativi metodi utili per la maipolazioni di tale struttura.
+ * Gli autori dei libri sono condivisi tramite il RegistroAutori, che permette anche di cercare i libri di un autore.
+ * Per le ricerche per prefisso dell'ISBN i codici numerici vengono tenuti ordinati in un array
+ * di long, riordinato solo alla prima ricerca dopo una modifica.
  */
 
 package Model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
 
 public class Libreria implements Serializable{
 
+    private static final long serialVersionUID = 6048157388563301041L;
+
     /// Lista dei libri.
     private ArrayList<Libro> libreria;
 
+    /// Indice dei libri per ISBN compresso, ricostruito dalla lista dopo la deserializzazione.
+    private transient volatile IndiceCodici<Libro> indiceISBN;
+
+    /// Posizione di ogni libro nella lista, ricostruita dalla lista dopo la deserializzazione.
+    private transient volatile IdentityHashMap<Libro, Integer> posizioni;
+
+    /// Autori canonici e libri di ogni autore, ricostruiti dalla lista dopo la deserializzazione.
+    private transient volatile RegistroAutori autori;
+
+    /// Codici ISBN numerici in ordine crescente, oppure null se vanno ricalcolati.
+    private transient volatile long[] isbnOrdinati;
+
+    /// Libri con ISBN non numerico, controllati uno ad uno nelle ricerche per prefisso.
+    private transient List<Libro> isbnNonNumerici;
+
     ///Costruttore della classe
     public Libreria(ArrayList<Libro> libreria) {
         if (libreria != null) {
@@ -23,11 +47,13 @@ public class Libreria implements Serializable{
         } else {
             this.libreria = new ArrayList<>();
         }
+        ricostruisciIndice();
     }
     
     //Costruttore di default
     public Libreria(){
         this.libreria = new ArrayList<>();
+        ricostruisciIndice();
     }
     
     ///Getter di Libreria
@@ -47,6 +73,10 @@ public class Libreria implements Serializable{
             throw new Exception("ERRORE DUPLICATO: Libro " + l.toString() + " già presente.");
         }
         this.libreria.add(l);
+        this.indiceISBN.put(l.getISBN(), l);
+        this.posizioni.put(l, this.libreria.size() - 1);
+        this.autori.aggiungi(l);
+        this.isbnOrdinati = null;
     }
 
     /**
@@ -64,14 +94,23 @@ public class Libreria implements Serializable{
         if(l.isLibroInPrestito()){
             throw new Exception ("IMPOSSIBILE ELIMINARE LIBRO! Libro : " + l.toString() + " in prestito!");
         }
-        this.libreria.remove(l);
+        Libro memorizzato = memorizzato(l);
+        int pos = posizioneDi(memorizzato);
+        this.indiceISBN.remove(memorizzato.getISBN());
+        this.posizioni.remove(memorizzato);
+        this.autori.rimuovi(memorizzato);
+        this.isbnOrdinati = null;
+        this.libreria.remove(pos);
+        // I libri successivi scalano di una posizione
+        for(int i = pos; i < this.libreria.size(); i++) this.posizioni.put(this.libreria.get(i), i);
     }
     
     /**
      * @brief Permette di modificare i campi di un libro della lista
      * 
      * @pre Il libro dato in input dev'essere presente nella lista
-     * @post I campi desiderati sono stati modificati
+     * @pre Il nuovo ISBN, se diverso dal precedente, non dev'essere già usato da un altro libro
+     * @post I campi desiderati sono stati modificati e l'indice per ISBN è aggiornato
      * 
      * @param l E' il libro i cui campi devono essere modificati
      * @param titolo E' il titolo del libro da modificare
@@ -84,12 +123,17 @@ public class Libreria implements Serializable{
     public void modificaLibro(Libro l, String titolo, List<Autore> autori, int anno, String ISBN, int copieTot, int copieDisp) throws Exception{
         if(!isInLibreria(l)) throw new Exception("ERRORE: Libro non trovato per la modifica!");
         
-        l.setTitolo(titolo);
-        l.setAutori(autori);
-        l.setAnno(anno);
-        l.setISBN(ISBN);
-        l.setNumCopieTotali(copieTot);
-        l.setNumCopieDisponibili(copieDisp);
+        String vecchioISBN = l.getISBN();
+        boolean cambioISBN = !vecchioISBN.equals(ISBN);
+        if(cambioISBN && indiceISBN.containsKey(ISBN)) throw new Exception("ERRORE DUPLICATO: ISBN " + ISBN + " già assegnato ad un altro libro.");
+        
+        // Gli osservatori (gli indici di ricerca) vengono notificati una volta sola, a campi già aggiornati
+        l.modifica(titolo, autori, anno, ISBN, copieTot, copieDisp);
+        
+        if(cambioISBN){
+            indiceISBN.put(ISBN, indiceISBN.remove(vecchioISBN));
+            this.isbnOrdinati = null;
+        }
     }
     
     /**
@@ -99,7 +143,171 @@ public class Libreria implements Serializable{
      * @return True se il libro è presente nella libreria
      */
     public boolean isInLibreria(Libro l) {
-        return this.libreria.contains(l);
+        return memorizzato(l) != null;
+    }
+    
+    /**
+     * @brief Cerca un libro della lista tramite il suo codice ISBN
+     * 
+     * @param ISBN È il codice ISBN da cercare
+     * @return Il libro con l'ISBN dato, oppure null se non è presente nella libreria
+     */
+    public Libro cercaPerISBN(String ISBN) {
+        return this.indiceISBN.get(ISBN);
+    }
+    
+    /**
+     * @brief Cerca i libri di un autore
+     * 
+     * @param a È l'autore da cercare (conta solo nome e cognome)
+     * @return La lista (da non modificare) dei libri dell'autore, nell'ordine di inserimento
+     */
+    public List<Libro> cercaPerAutore(Autore a) {
+        return this.autori.cercaLibri(a);
+    }
+    
+    /**
+     * @brief Conta i libri il cui ISBN inizia con un prefisso
+     * 
+     * Per gli ISBN numerici bastano due ricerche binarie sui codici ordinati.
+     * 
+     * @param prefisso È l'inizio dell'ISBN
+     * @return Il numero di libri trovati
+     */
+    public int contaPerPrefissoISBN(String prefisso) {
+        ordinaISBN();
+        long[] intervallo = intervalloPrefisso(prefisso);
+        int n = intervallo == null ? 0 : primoNonMinore(intervallo[1]) - primoNonMinore(intervallo[0]);
+        for(Libro l : this.isbnNonNumerici)
+            if(l.getISBN().startsWith(prefisso)) n++;
+        return n;
+    }
+    
+    /**
+     * @brief Cerca i libri il cui ISBN inizia con un prefisso
+     * 
+     * @param prefisso È l'inizio dell'ISBN
+     * @return La lista dei libri trovati: prima quelli con ISBN numerico, in ordine di ISBN, poi gli altri
+     */
+    public List<Libro> cercaPerPrefissoISBN(String prefisso) {
+        ordinaISBN();
+        List<Libro> trovati = new ArrayList<>();
+        long[] intervallo = intervalloPrefisso(prefisso);
+        if(intervallo != null){
+            for(int i = primoNonMinore(intervallo[0]); i < this.isbnOrdinati.length && this.isbnOrdinati[i] < intervallo[1]; i++)
+                trovati.add(this.indiceISBN.get(this.isbnOrdinati[i]));
+        }
+        for(Libro l : this.isbnNonNumerici)
+            if(l.getISBN().startsWith(prefisso)) trovati.add(l);
+        return trovati;
+    }
+    
+    ///Getter del registro degli autori presenti nella libreria
+    public RegistroAutori getRegistroAutori() { return autori; }
+    
+    /**
+     * @brief Restituisce la posizione nella lista del libro con lo stesso ISBN di quello dato
+     * 
+     * @param l È il libro da cercare
+     * @return L'indice del libro in getLibreria(), oppure -1 se non è presente nella libreria
+     */
+    public int posizioneDi(Libro l) {
+        Libro memorizzato = memorizzato(l);
+        if(memorizzato == null) return -1;
+        
+        Integer pos = this.posizioni.get(memorizzato);
+        if(pos == null || pos >= this.libreria.size() || this.libreria.get(pos) != memorizzato){
+            // La lista è stata modificata senza passare da Libreria
+            ricostruisciIndice();
+            pos = this.posizioni.get(memorizzato);
+        }
+        return pos == null ? -1 : pos;
+    }
+    
+    /**
+     * @brief Cerca nell'indice il libro con lo stesso ISBN di quello dato, senza ricostruire l'ISBN come String.
+     */
+    private Libro memorizzato(Libro l) {
+        if(l == null) return null;
+        long codice = l.getCodiceISBN();
+        return codice != CodiceNumerico.NON_NUMERICO ? this.indiceISBN.get(codice) : this.indiceISBN.get(l.getISBN());
+    }
+    
+    /**
+     * @brief Restituisce l'intervallo [da, a) dei codici numerici che iniziano con il prefisso, oppure null se non ce ne sono.
+     */
+    private static long[] intervalloPrefisso(String prefisso) {
+        int cifre = prefisso.length();
+        if(cifre > CodiceNumerico.CIFRE_ISBN) return null;
+        long da = 0;
+        for(int i = 0; i < cifre; i++){
+            char c = prefisso.charAt(i);
+            if(c < '0' || c > '9') return null;
+            da = da * 10 + (c - '0');
+        }
+        long passo = 1;
+        for(int i = cifre; i < CodiceNumerico.CIFRE_ISBN; i++) passo *= 10;
+        return new long[]{da * passo, (da + 1) * passo};
+    }
+    
+    /**
+     * @brief Restituisce la posizione del primo codice ordinato non minore di quello dato.
+     */
+    private int primoNonMinore(long codice) {
+        int da = 0, a = this.isbnOrdinati.length;
+        while(da < a){
+            int m = (da + a) >>> 1;
+            if(this.isbnOrdinati[m] < codice) da = m + 1;
+            else a = m;
+        }
+        return da;
+    }
+    
+    /**
+     * @brief Ordina i codici ISBN numerici, se sono cambiati dopo l'ultima ricerca per prefisso.
+     */
+    private void ordinaISBN() {
+        if(this.isbnOrdinati != null) return;
+        long[] codici = new long[this.libreria.size()];
+        int n = 0;
+        this.isbnNonNumerici = new ArrayList<>();
+        for(Libro l : this.libreria){
+            if(memorizzato(l) != l) continue;
+            long codice = l.getCodiceISBN();
+            if(codice != CodiceNumerico.NON_NUMERICO) codici[n++] = codice;
+            else this.isbnNonNumerici.add(l);
+        }
+        codici = Arrays.copyOf(codici, n);
+        Arrays.sort(codici);
+        this.isbnOrdinati = codici;
+    }
+    
+    /**
+     * @brief Ricostruisce l'indice per ISBN, le posizioni ed il registro degli autori a partire dalla lista dei libri
+     *
+     * Può essere chiamato da posizioneDi() durante letture concorrenti: i nuovi indici vengono
+     * riempiti a parte e pubblicati solo quando sono completi, così che chi legge nel frattempo
+     * continui ad usare quelli precedenti.
+     */
+    private synchronized void ricostruisciIndice() {
+        IndiceCodici<Libro> indice = new IndiceCodici<>(CodiceNumerico.CIFRE_ISBN, this.libreria.size());
+        IdentityHashMap<Libro, Integer> pos = new IdentityHashMap<>(this.libreria.size());
+        RegistroAutori registro = new RegistroAutori();
+        for(int i = 0; i < this.libreria.size(); i++){
+            Libro l = this.libreria.get(i);
+            if(l.getISBN() != null) indice.putIfAbsent(l.getISBN(), l);
+            pos.put(l, i);
+            registro.aggiungi(l);
+        }
+        this.indiceISBN = indice;
+        this.posizioni = pos;
+        this.autori = registro;
+        this.isbnOrdinati = null;
+    }
+    
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        ricostruisciIndice();
     }
     
 }
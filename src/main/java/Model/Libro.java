@@ -8,12 +8,31 @@
 package Model;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.Consumer;
 
 public class Libro implements Serializable{
 
+    private static final long serialVersionUID = 6340771559124731753L;
+
+    /// Campi salvati: l'ISBN resta una String, come nei file salvati prima di CodiceNumerico.
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("titolo", String.class),
+        new ObjectStreamField("autori", ArrayList.class),
+        new ObjectStreamField("anno", int.class),
+        new ObjectStreamField("ISBN", String.class),
+        new ObjectStreamField("numCopieTotali", int.class),
+        new ObjectStreamField("numCopieDisponibili", int.class)
+    };
+
     /// Titolo del libro.
     private String titolo;
     
@@ -23,14 +42,27 @@ public class Libro implements Serializable{
     /// Anno di pubblicazione.
     private int anno;
     
-    /// Codice ISBN a 13 cifre.
-    private String ISBN;
+    /// Codice ISBN a 13 cifre, compresso in un long (CodiceNumerico).
+    private transient long codiceISBN;
+    
+    /// Codice ISBN, solo se non è composto da 13 cifre (in tal caso codiceISBN è NON_NUMERICO).
+    private transient String ISBNNonNumerico;
     
     /// Numero di copie totali.
     private int numCopieTotali;
     
-    /// Numero di copie disponibili.
-    private int numCopieDisponibili;
+    /// Numero di copie disponibili, aggiornato con compare-and-set da prestiti e restituzioni.
+    private volatile int numCopieDisponibili;
+
+    /// Accesso atomico a numCopieDisponibili, senza cambiare il formato serializzato del campo.
+    private static final AtomicIntegerFieldUpdater<Libro> COPIE_DISPONIBILI =
+            AtomicIntegerFieldUpdater.newUpdater(Libro.class, "numCopieDisponibili");
+    
+    /// Osservatori notificati quando cambia titolo, autori o ISBN (ad esempio gli indici di ricerca).
+    private transient List<Consumer<Libro>> osservatori;
+
+    /// Registro degli autori in cui il libro è registrato, aggiornato ad ogni modifica degli autori.
+    transient RegistroAutori registro;
 
     /// Costruttore della classe.
     public Libro(String titolo, ArrayList<Autore> autori, int anno, String ISBN, int numCopieTotali, int numCopieDisponibili) {
@@ -41,7 +73,7 @@ public class Libro implements Serializable{
             this.autori = new ArrayList<>();
         }
         this.anno = anno;
-        this.ISBN = ISBN;
+        impostaISBN(ISBN);
         this.numCopieTotali = numCopieTotali;
         this.numCopieDisponibili = numCopieDisponibili;      //< All'inizio, le copie disponibili sono pari al totale
     }
@@ -49,14 +81,22 @@ public class Libro implements Serializable{
     /// Getter del titolo.
     public String getTitolo() { return titolo; }
 
-    /// Getter degli autori.
-    public List<Autore> getAutori() { return autori; }
+    /// Getter degli autori (la lista non è modificabile: vedi aggiungiAutore, rimuoviAutore e setAutori).
+    public List<Autore> getAutori() { return Collections.unmodifiableList(autori); }
+
+    /// Lista degli autori modificabile, usata da RegistroAutori per sostituirli con le istanze canoniche.
+    ArrayList<Autore> listaAutori() { return autori; }
 
     /// Getter dell'anno di pubblicazione.
     public int getAnno() { return anno; }
 
     /// Getter del codice ISBN.
-    public String getISBN() { return ISBN; }
+    public String getISBN() {
+        return codiceISBN != CodiceNumerico.NON_NUMERICO ? CodiceNumerico.espandi(codiceISBN, CodiceNumerico.CIFRE_ISBN) : ISBNNonNumerico;
+    }
+
+    /// Getter del codice ISBN compresso, NON_NUMERICO se l'ISBN non è composto da 13 cifre.
+    public long getCodiceISBN() { return codiceISBN; }
 
     /// Getter del numero di copie totali.
     public int getNumCopieTotali() { return numCopieTotali; }
@@ -65,24 +105,58 @@ public class Libro implements Serializable{
     public int getNumCopieDisponibili(){return numCopieDisponibili;}
 
     /// Setter del titolo.
-    public void setTitolo(String titolo) { this.titolo = titolo; }
+    public void setTitolo(String titolo) {
+        this.titolo = titolo;
+        notificaModifica();
+    }
 
     /// Setter della lista degli autori.
     public void setAutori(List<Autore> autori) {
-        this.autori = new ArrayList<>(autori);
+        ArrayList<Autore> nuovi = new ArrayList<>(autori);
+        modificaAutori(() -> this.autori = nuovi);
     }
 
     /// Setter dell'anno di pubblicazione.
     public void setAnno(int anno) { this.anno = anno; }
 
     /// Setter del codice ISBN.
-    public void setISBN(String ISBN) { this.ISBN = ISBN; }
+    public void setISBN(String ISBN) {
+        impostaISBN(ISBN);
+        notificaModifica();
+    }
+
+    private void impostaISBN(String ISBN) {
+        this.codiceISBN = CodiceNumerico.comprimi(ISBN, CodiceNumerico.CIFRE_ISBN);
+        this.ISBNNonNumerico = this.codiceISBN == CodiceNumerico.NON_NUMERICO ? ISBN : null;
+    }
 
     // Setter del numero di copie TOTALI
     public void setNumCopieTotali(int numCopieTotali) { this.numCopieTotali = numCopieTotali; }
     
     // Setter del numero di copie DISPONIBILI
     public void setNumCopieDisponibili(int numCopieDisponibili) { this.numCopieDisponibili = numCopieDisponibili; }
+
+    /**
+     * @brief Modifica tutti i campi del libro, notificando gli osservatori una volta sola.
+     *
+     * @param titolo Il nuovo titolo.
+     * @param autori La nuova lista di autori.
+     * @param anno Il nuovo anno di pubblicazione.
+     * @param ISBN Il nuovo codice ISBN.
+     * @param numCopieTotali Il nuovo numero di copie totali.
+     * @param numCopieDisponibili Il nuovo numero di copie disponibili.
+     */
+    public void modifica(String titolo, List<Autore> autori, int anno, String ISBN, int numCopieTotali, int numCopieDisponibili) {
+        ArrayList<Autore> nuovi = new ArrayList<>(autori);
+        modificaAutori(() -> {
+            this.titolo = titolo;
+            this.autori = nuovi;
+            this.anno = anno;
+            impostaISBN(ISBN);
+            this.numCopieTotali = numCopieTotali;
+            this.numCopieDisponibili = numCopieDisponibili;
+        });
+    }
      
     /**
      * @brief Aggiunge un autore alla lista degli autori.
@@ -95,7 +169,7 @@ public class Libro implements Serializable{
         //Verifico che l'autore a non sia già presente nella lista
         //e in quel caso lo aggiungo
         if(!this.autori.contains(a)){
-            this.autori.add(a);
+            modificaAutori(() -> this.autori.add(a));
         }
         else{
             throw new Exception("L'autore " + a.toString() + " è già presente in questo libro.");
@@ -117,9 +191,60 @@ public class Libro implements Serializable{
         }
         else{
             //AUTORE PRESENTE NELLA LISTA
-            this.autori.remove(a);
+            modificaAutori(() -> this.autori.remove(a));
         }
     }
+    
+    /**
+     * @brief Registra un osservatore da notificare quando cambiano titolo, autori o ISBN.
+     * 
+     * Gli osservatori non vengono salvati su file.
+     * 
+     * @param o L'osservatore, che riceve il libro modificato.
+     */
+    public void aggiungiOsservatore(Consumer<Libro> o) {
+        if(this.osservatori == null) this.osservatori = new ArrayList<>(1);
+        this.osservatori.add(o);
+    }
+    
+    /**
+     * @brief Rimuove un osservatore registrato in precedenza.
+     * @param o L'osservatore da rimuovere.
+     */
+    public void rimuoviOsservatore(Consumer<Libro> o) {
+        if(this.osservatori != null) this.osservatori.remove(o);
+    }
+    
+    /**
+     * @brief Sostituisce un autore del libro con un altro, aggiornando il registro.
+     * @param vecchio L'istanza da sostituire (confrontata per identità).
+     * @param nuovo L'autore da inserire al suo posto.
+     */
+    void sostituisciAutore(Autore vecchio, Autore nuovo) {
+        modificaAutori(() -> {
+            for(int i = 0; i < this.autori.size(); i++){
+                if(this.autori.get(i) == vecchio) this.autori.set(i, nuovo);
+            }
+        });
+    }
+    
+    /**
+     * @brief Applica una modifica che può cambiare gli autori, mantenendo aggiornato il registro
+     * in cui il libro è registrato, e notifica gli osservatori.
+     * @param modifica La modifica dei campi.
+     */
+    private void modificaAutori(Runnable modifica) {
+        RegistroAutori r = this.registro;
+        if(r != null) r.rimuovi(this);
+        modifica.run();
+        if(r != null) r.aggiungi(this);
+        notificaModifica();
+    }
+    
+    private void notificaModifica() {
+        if(this.osservatori == null) return;
+        for(Consumer<Libro> o : new ArrayList<>(this.osservatori)) o.accept(this);
+    }
    
     /**
      * @brief Permette di controllare che un libro sia preso in prestito.
@@ -141,24 +266,27 @@ public class Libro implements Serializable{
     
     /**
      * @brief Aumenta il numero di copie disponibili dell'istanza corrente di Libro
+     * 
+     * L'incremento è atomico: restituzioni concorrenti dello stesso libro non si perdono.
      */
     public void aumentaCopie(){
-        this.numCopieDisponibili++;
-        
+        COPIE_DISPONIBILI.incrementAndGet(this);
     }
     
     /**
      * @brief Diminuisce il numero di copie disponibili dell'istanza corrente di Libro
+     * 
+     * Controllo e decremento avvengono in un unico compare-and-set, quindi prestiti concorrenti
+     * dello stesso libro non possono portare le copie disponibili sotto zero.
+     * 
      * @pre Il numero di copie disponibili deve essere > 0.
      */
     public void diminuisciCopie()throws Exception{
-        if(this.numCopieDisponibili > 0){
-            this.numCopieDisponibili--;
-        }
-        else{
-            throw new Exception("Non ci sono copie disponibili di questo libro per il prestito.");
-        }
-        
+        int copie;
+        do{
+            copie = this.numCopieDisponibili;
+            if(copie <= 0) throw new Exception("Non ci sono copie disponibili di questo libro per il prestito.");
+        }while(!COPIE_DISPONIBILI.compareAndSet(this, copie, copie - 1));
     }
     /**
      * @brief Ritorna una rappresentazione in stringa dell'oggetto Libro.
@@ -166,7 +294,7 @@ public class Libro implements Serializable{
      */
     @Override
     public String toString() {
-        return String.format("%s (Autori : %s) [ISBN: %s]\n", titolo, this.autoriToString(), ISBN);
+        return String.format("%s (Autori : %s) [ISBN: %s]\n", titolo, this.autoriToString(), getISBN());
     }
     
     /**
@@ -195,9 +323,10 @@ public class Libro implements Serializable{
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass() || ISBN == null) return false; 
+        if (o == null || getClass() != o.getClass()) return false; 
         Libro libro = (Libro) o;
-        return this.ISBN.equals(libro.ISBN);
+        if (this.codiceISBN != CodiceNumerico.NON_NUMERICO) return this.codiceISBN == libro.codiceISBN;
+        return this.ISBNNonNumerico != null && this.ISBNNonNumerico.equals(libro.ISBNNonNumerico);
     }
     
     /**
@@ -205,7 +334,30 @@ public class Libro implements Serializable{
      */
     @Override
     public int hashCode() {
+        if (codiceISBN != CodiceNumerico.NON_NUMERICO) return Long.hashCode(codiceISBN);
         int hash = 7;
-        return 31 * hash + ISBN.hashCode();
+        return 31 * hash + ISBNNonNumerico.hashCode();
+    }
+    
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField campi = out.putFields();
+        campi.put("titolo", titolo);
+        campi.put("autori", autori);
+        campi.put("anno", anno);
+        campi.put("ISBN", getISBN());
+        campi.put("numCopieTotali", numCopieTotali);
+        campi.put("numCopieDisponibili", numCopieDisponibili);
+        out.writeFields();
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField campi = in.readFields();
+        titolo = (String) campi.get("titolo", null);
+        autori = (ArrayList<Autore>) campi.get("autori", null);
+        anno = campi.get("anno", 0);
+        impostaISBN((String) campi.get("ISBN", null));
+        numCopieTotali = campi.get("numCopieTotali", 0);
+        numCopieDisponibili = campi.get("numCopieDisponibili", 0);
     }
 }
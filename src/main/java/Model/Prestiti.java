@@ -3,17 +3,43 @@
  * @brief Il file contiene l'implementazione della classe Prestiti.
  * 
  * La classe Prestiti gestisce la lista di prestiti attualmente presenti.
+ * Accanto alla lista mantiene degli indici per matricola dell'utente, per ISBN del libro
+ * e per data di restituzione, in modo da rispondere alle interrogazioni più frequenti
+ * senza scorrere tutti i prestiti attivi.
  */
 
 package Model;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
 
 public class Prestiti implements Serializable{
 
+    private static final long serialVersionUID = -8061318880260807062L;
+
     /// Lista dei prestiti.
     private ArrayList<Prestito> prestiti;
 
+    /// Posizione di ciascun prestito nella lista, per la rimozione in tempo costante.
+    private transient IdentityHashMap<Prestito, Integer> posizioni;
+
+    /// Prestiti raggruppati per matricola compressa dell'utente.
+    private transient IndiceCodici<List<Prestito>> perUtente;
+
+    /// Prestiti raggruppati per ISBN compresso del libro.
+    private transient IndiceCodici<List<Prestito>> perLibro;
+
+    /// Prestiti ordinati per data di restituzione.
+    private transient TreeMap<LocalDate, Set<Prestito>> perScadenza;
+
     /// Costruttore della classe.
     public Prestiti(ArrayList<Prestito> prestiti) {
         if (prestiti != null) {
@@ -21,11 +47,13 @@ public class Prestiti implements Serializable{
         } else {
             this.prestiti = new ArrayList<>();
         }
+        ricostruisciIndici();
     }
     
     //Costruttore di Default
     public Prestiti(){
         this.prestiti = new ArrayList<>();
+        ricostruisciIndici();
     }
 
     ///Getter di Prestiti
@@ -40,26 +68,192 @@ public class Prestiti implements Serializable{
      * @param p La variabile di tipo Prestito che specifica il prestito da aggiungere alla lista.
      */
     public void aggiungiPrestito(Prestito p) throws Exception{
-        if (this.prestiti.contains(p)) {
+        if (this.contienePrestito(p)) {
             throw new Exception("ERRORE DUPLICATO: Il prestito risulta già registrato nel sistema.");
         }
         this.prestiti.add(p);
+        indicizza(p, this.prestiti.size() - 1);
     }
 
     /**
      * @brief Rimuove un prestito dalla lista dei prestiti.
      * 
+     * Il prestito rimosso viene sostituito dall'ultimo della lista, quindi l'ordine
+     * dei prestiti rimanenti può cambiare.
+     * 
      * @pre Il prestito `p` deve trovarsi nella lista.
      * @post Dalla lista è stato rimosso il prestito specificato in input.
      * 
      * @param p La variabile di tipo Prestito che specifica il prestito da rimuovere dalla lista.
      */
     public void rimuoviPrestito(Prestito p) throws Exception{
-        if (!this.prestiti.contains(p)) {
+        Prestito memorizzato = cerca(p);
+        if (memorizzato == null) {
             throw new Exception("ERRORE RIMOZIONE: Il prestito da rimuovere non è presente nella lista dei prestiti attivi.");
         }
 
-        this.prestiti.remove(p);
+        int pos = this.posizioni.remove(memorizzato);
+        Prestito ultimo = this.prestiti.remove(this.prestiti.size() - 1);
+        if (ultimo != memorizzato) {
+            this.prestiti.set(pos, ultimo);
+            this.posizioni.put(ultimo, pos);
+        }
+
+        rimuoviDa(perUtente, memorizzato.getUtente().getMatricola(), memorizzato);
+        rimuoviDa(perLibro, memorizzato.getLibro().getISBN(), memorizzato);
+        if (memorizzato.getDataRestituzione() != null) {
+            Set<Prestito> stessaData = perScadenza.get(memorizzato.getDataRestituzione());
+            stessaData.remove(memorizzato);
+            if (stessaData.isEmpty()) perScadenza.remove(memorizzato.getDataRestituzione());
+        }
+    }
+    
+    /**
+     * @brief Verifica se un prestito è presente nella lista.
+     * @param p Il prestito da cercare.
+     * @return True se nella lista c'è un prestito uguale a quello dato.
+     */
+    public boolean contienePrestito(Prestito p) {
+        return cerca(p) != null;
+    }
+
+    /**
+     * @brief Restituisce la posizione nella lista del prestito uguale a quello dato.
+     * @param p Il prestito da cercare.
+     * @return L'indice del prestito in getPrestiti(), oppure -1 se non presente.
+     */
+    public int posizioneDi(Prestito p) {
+        Prestito memorizzato = cerca(p);
+        return memorizzato == null ? -1 : posizioni.get(memorizzato);
+    }
+
+    /**
+     * @brief Restituisce i prestiti attivi di un utente.
+     * @param matricola La matricola dell'utente.
+     * @return La lista (non modificabile) dei prestiti dell'utente, vuota se non ne ha.
+     */
+    public List<Prestito> getPrestitiUtente(String matricola) {
+        List<Prestito> l = perUtente.get(matricola);
+        return l == null ? Collections.<Prestito>emptyList() : Collections.unmodifiableList(l);
+    }
+    
+    /**
+     * @brief Restituisce i prestiti attivi di un libro.
+     * @param ISBN Il codice ISBN del libro.
+     * @return La lista (non modificabile) dei prestiti del libro, vuota se non ce ne sono.
+     */
+    public List<Prestito> getPrestitiLibro(String ISBN) {
+        List<Prestito> l = perLibro.get(ISBN);
+        return l == null ? Collections.<Prestito>emptyList() : Collections.unmodifiableList(l);
+    }
+    
+    /**
+     * @brief Restituisce i prestiti con data di restituzione compresa tra due date.
+     * @param da La prima data (inclusa).
+     * @param a L'ultima data (inclusa).
+     * @return I prestiti ordinati per data di restituzione.
+     */
+    public List<Prestito> getPrestitiInScadenza(LocalDate da, LocalDate a) {
+        return appiattisci(perScadenza.subMap(da, true, a, true).values());
+    }
+    
+    /**
+     * @brief Restituisce i prestiti in ritardo rispetto ad una data.
+     * @param oggi La data di riferimento.
+     * @return I prestiti con data di restituzione precedente ad oggi, ordinati per data.
+     */
+    public List<Prestito> getPrestitiInRitardo(LocalDate oggi) {
+        return appiattisci(perScadenza.headMap(oggi, false).values());
+    }
+    
+    /**
+     * @brief Aggiorna gli indici dopo la modifica della matricola di un utente.
+     * @param vecchiaMatricola La matricola prima della modifica.
+     * @param nuovaMatricola La matricola dopo la modifica.
+     */
+    public void aggiornaMatricola(String vecchiaMatricola, String nuovaMatricola) {
+        spostaChiave(perUtente, vecchiaMatricola, nuovaMatricola);
+    }
+    
+    /**
+     * @brief Aggiorna gli indici dopo la modifica dell'ISBN di un libro.
+     * @param vecchioISBN L'ISBN prima della modifica.
+     * @param nuovoISBN L'ISBN dopo la modifica.
+     */
+    public void aggiornaISBN(String vecchioISBN, String nuovoISBN) {
+        spostaChiave(perLibro, vecchioISBN, nuovoISBN);
+    }
+    
+    /**
+     * @brief Cerca nella lista il prestito uguale a quello dato, tra quelli dello stesso utente.
+     * @return Il prestito memorizzato, oppure null se non presente.
+     */
+    private Prestito cerca(Prestito p) {
+        if (p == null || p.getUtente() == null) return null;
+        long codice = p.getUtente().getCodiceMatricola();
+        List<Prestito> l = codice != CodiceNumerico.NON_NUMERICO ? perUtente.get(codice) : perUtente.get(p.getUtente().getMatricola());
+        if (l == null) return null;
+        for (Prestito q : l) {
+            if (q.equals(p)) return q;
+        }
+        return null;
+    }
+    
+    private void indicizza(Prestito p, int pos) {
+        posizioni.put(p, pos);
+        aggiungiA(perUtente, p.getUtente().getMatricola(), p, 3);
+        aggiungiA(perLibro, p.getLibro().getISBN(), p, 2);
+        if (p.getDataRestituzione() != null)
+            perScadenza.computeIfAbsent(p.getDataRestituzione(), k -> Collections.newSetFromMap(new IdentityHashMap<>())).add(p);
+    }
+    
+    private static void aggiungiA(IndiceCodici<List<Prestito>> indice, String chiave, Prestito p, int capacita) {
+        List<Prestito> l = indice.get(chiave);
+        if (l == null) {
+            l = new ArrayList<>(capacita);
+            indice.put(chiave, l);
+        }
+        l.add(p);
+    }
+    
+    private static void rimuoviDa(IndiceCodici<List<Prestito>> indice, String chiave, Prestito p) {
+        List<Prestito> l = indice.get(chiave);
+        if (l == null) return;
+        for (int i = 0; i < l.size(); i++) {
+            if (l.get(i) == p) {
+                l.remove(i);
+                break;
+            }
+        }
+        if (l.isEmpty()) indice.remove(chiave);
+    }
+    
+    private static void spostaChiave(IndiceCodici<List<Prestito>> indice, String vecchia, String nuova) {
+        if (vecchia.equals(nuova)) return;
+        List<Prestito> l = indice.remove(vecchia);
+        if (l != null) indice.put(nuova, l);
+    }
+    
+    private static List<Prestito> appiattisci(Collection<Set<Prestito>> gruppi) {
+        List<Prestito> risultato = new ArrayList<>();
+        for (Set<Prestito> gruppo : gruppi) risultato.addAll(gruppo);
+        return risultato;
+    }
+    
+    /**
+     * @brief Ricostruisce gli indici a partire dalla lista dei prestiti
+     */
+    private void ricostruisciIndici() {
+        this.posizioni = new IdentityHashMap<>();
+        this.perUtente = new IndiceCodici<>(CodiceNumerico.CIFRE_MATRICOLA, 16);
+        this.perLibro = new IndiceCodici<>(CodiceNumerico.CIFRE_ISBN, 16);
+        this.perScadenza = new TreeMap<>();
+        for (int i = 0; i < this.prestiti.size(); i++) indicizza(this.prestiti.get(i), i);
+    }
+    
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        ricostruisciIndici();
     }
     
 }
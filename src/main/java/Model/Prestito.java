@@ -9,9 +9,12 @@ package Model;
 
 import java.time.LocalDate;
 import java.io.Serializable;
+import java.util.Objects;
 
 public class Prestito implements Serializable{
 
+    private static final long serialVersionUID = -7116642341753645979L;
+
     /// Uente che richiede il prestito.
     private Utente utente;
     
@@ -86,10 +89,12 @@ public class Prestito implements Serializable{
 
     /**
      * @brief Ritorna il codice hash, coerente con equals().
+     * 
+     * I tre componenti sono combinati in modo polinomiale, così che prestiti con gli stessi
+     * elementi in ruoli diversi non producano lo stesso codice.
      */
     @Override
     public int hashCode() {
-        int hash =7;
-        return 31*hash + utente.hashCode() + libro.hashCode() + dataRestituzione.hashCode();
+        return Objects.hash(utente, libro, dataRestituzione);
     }
 }
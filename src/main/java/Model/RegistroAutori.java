@@ -0,0 +1,131 @@
+/**
+ * @file RegistroAutori.java
+ * @brief Questo file contiene il registro degli autori della Libreria.
+ *
+ * La classe RegistroAutori conserva un'unica istanza di Autore per ogni coppia nome-cognome:
+ * quando un libro viene registrato, gli autori della sua lista vengono sostituiti dalle istanze
+ * canoniche, così che un autore presente in migliaia di libri occupi memoria una volta sola.
+ * Per ogni autore mantiene inoltre i libri in cui compare, nell'ordine di registrazione, così
+ * che "tutti i libri di questo autore" costi quanto il numero di libri trovati.
+ * Un autore senza più libri viene dimenticato.
+ * Le istanze canoniche sono condivise tra i libri: un autore rinominato con i setter deprecati
+ * viene prima sostituito, in tutti i suoi libri, da un nuovo Autore con il nuovo nome.
+ * Un libro registrato ricorda il proprio registro: le modifiche ai suoi autori (setAutori,
+ * aggiungiAutore, rimuoviAutore) lo rimuovono e lo registrano di nuovo con i nuovi autori.
+ */
+package Model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+public class RegistroAutori {
+
+    /// Istanza canonica di un autore ed i libri in cui compare.
+    private static class Voce {
+        final Autore autore;
+        final List<Libro> libri = new ArrayList<>(2);
+
+        Voce(Autore autore) { this.autore = autore; }
+    }
+
+    private final HashMap<Autore, Voce> voci = new HashMap<>();
+
+    /**
+     * @brief Registra un libro: ne sostituisce gli autori con le istanze canoniche e lo aggiunge ai loro libri.
+     * @param l Il libro da registrare, non ancora registrato.
+     * @post Gli autori di l sono istanze canoniche e cercaLibri(a) contiene l per ognuno di essi.
+     */
+    public void aggiungi(Libro l) {
+        l.registro = this;
+        List<Autore> autori = l.listaAutori();
+        for(int i = 0; i < autori.size(); i++){
+            Autore a = autori.get(i);
+            if(a == null) continue;
+            Voce v = voci.get(a);
+            if(v == null){
+                v = new Voce(a);
+                voci.put(a, v);
+                a.registro = this;
+            }else{
+                autori.set(i, v.autore);
+                // Lo stesso autore ripetuto nella lista compare una volta sola tra i suoi libri
+                if(v.libri.get(v.libri.size() - 1) == l) continue;
+            }
+            v.libri.add(l);
+        }
+    }
+
+    /**
+     * @brief Rimuove un libro dai libri dei suoi autori.
+     * @param l Il libro registrato in precedenza, con gli stessi autori.
+     * @post Gli autori rimasti senza libri non sono più nel registro.
+     */
+    public void rimuovi(Libro l) {
+        if(l.registro == this) l.registro = null;
+        for(Autore a : l.getAutori()){
+            Voce v = a == null ? null : voci.get(a);
+            if(v == null) continue;
+            for(int i = v.libri.size() - 1; i >= 0; i--){
+                if(v.libri.get(i) == l){
+                    v.libri.remove(i);
+                    break;
+                }
+            }
+            if(v.libri.isEmpty()){
+                voci.remove(a);
+                if(v.autore.registro == this) v.autore.registro = null;
+            }
+        }
+    }
+
+    /**
+     * @brief Sostituisce un autore con un altro in tutti i libri in cui compare.
+     * @param vecchio L'istanza canonica da sostituire.
+     * @param nuovo Il nuovo autore, che viene registrato (o sostituito dall'istanza canonica già presente).
+     * @post vecchio non compare più in nessun libro e non è più un'istanza canonica.
+     */
+    void sostituisci(Autore vecchio, Autore nuovo) {
+        Voce v = voci.get(vecchio);
+        if(v == null || v.autore != vecchio) return;
+        for(Libro l : new ArrayList<>(v.libri)) l.sostituisciAutore(vecchio, nuovo);
+    }
+
+    /**
+     * @brief Restituisce i libri di un autore.
+     * @param a L'autore (anche un'istanza non canonica con lo stesso nome e cognome).
+     * @return La lista (da non modificare) dei libri, nell'ordine di registrazione; vuota se l'autore non è presente.
+     */
+    public List<Libro> cercaLibri(Autore a) {
+        Voce v = a == null ? null : voci.get(a);
+        return v == null ? Collections.<Libro>emptyList() : Collections.unmodifiableList(v.libri);
+    }
+
+    /**
+     * @brief Restituisce l'istanza canonica di un autore.
+     * @param a L'autore da cercare.
+     * @return L'istanza condivisa dai libri, oppure null se l'autore non compare in nessun libro.
+     */
+    public Autore canonico(Autore a) {
+        Voce v = a == null ? null : voci.get(a);
+        return v == null ? null : v.autore;
+    }
+
+    ///Getter degli autori presenti in almeno un libro
+    public Collection<Autore> getAutori() {
+        return Collections.unmodifiableSet(voci.keySet());
+    }
+
+    ///Getter del numero di autori distinti
+    public int size() { return voci.size(); }
+
+    ///Svuota il registro
+    public void clear() {
+        for(Voce v : voci.values()){
+            if(v.autore.registro == this) v.autore.registro = null;
+        }
+        voci.clear();
+    }
+}
@@ -6,30 +6,62 @@
  */
 
 package Model;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.Consumer;
 
 public class Utente implements Serializable{
 
+    private static final long serialVersionUID = -5193907540231114351L;
+
+    /// Campi salvati: la matricola resta una String, come nei file salvati prima di CodiceNumerico.
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("nome", String.class),
+        new ObjectStreamField("cognome", String.class),
+        new ObjectStreamField("matricola", String.class),
+        new ObjectStreamField("email", String.class),
+        new ObjectStreamField("numPrestitiAttivi", int.class)
+    };
+
+    /// Numero massimo di prestiti attivi per utente.
+    public static final int MAX_PRESTITI = 3;
+
     /// Nome dell'utente.
     private String nome;
     
     /// Cognome dell'utente.
     private String cognome;
 
-    /// Numero di matricola.
-    private String matricola;
+    /// Numero di matricola a 10 cifre, compresso in un long (CodiceNumerico).
+    private transient long codiceMatricola;
+    
+    /// Matricola, solo se non è composta da 10 cifre (in tal caso codiceMatricola è NON_NUMERICO).
+    private transient String matricolaNonNumerica;
     
     /// Email istituzionale.
     private String email;
     
-    /// Numero di Prestiti attivi dell'Utente.
-    private int numPrestitiAttivi;
+    /// Numero di Prestiti attivi dell'Utente, aggiornato con compare-and-set da prestiti e restituzioni.
+    private volatile int numPrestitiAttivi;
+
+    /// Accesso atomico a numPrestitiAttivi, senza cambiare il formato serializzato del campo.
+    private static final AtomicIntegerFieldUpdater<Utente> PRESTITI_ATTIVI =
+            AtomicIntegerFieldUpdater.newUpdater(Utente.class, "numPrestitiAttivi");
+    
+    /// Osservatori notificati quando cambia nome, cognome o matricola (ad esempio gli indici di ricerca).
+    private transient List<Consumer<Utente>> osservatori;
 
     ///Costruttore della classe Utente
     public Utente(String nome, String cognome, String matricola, String email, int numPrestitiAttivi) {
         this.nome = nome;
         this.cognome = cognome;
-        this.matricola = matricola;
+        impostaMatricola(matricola);
         this.email = email;
         this.numPrestitiAttivi = numPrestitiAttivi;
     }
@@ -41,7 +73,12 @@ public class Utente implements Serializable{
     public String getCognome() { return cognome; }
 
     ///@brief Getter della matricola
-    public String getMatricola() { return matricola; }
+    public String getMatricola() {
+        return codiceMatricola != CodiceNumerico.NON_NUMERICO ? CodiceNumerico.espandi(codiceMatricola, CodiceNumerico.CIFRE_MATRICOLA) : matricolaNonNumerica;
+    }
+
+    ///Getter della matricola compressa, NON_NUMERICO se la matricola non è composta da 10 cifre
+    public long getCodiceMatricola() { return codiceMatricola; }
 
     ///Getter del nome
     public String getEmail() { return email; }
@@ -50,13 +87,27 @@ public class Utente implements Serializable{
     public int getNumPrestitiAttivi(){return numPrestitiAttivi;}
 
     ///Setter del nome
-    public void setNome(String nome) { this.nome = nome; }
+    public void setNome(String nome) {
+        this.nome = nome;
+        notificaModifica();
+    }
 
     ///Setter del cognome
-    public void setCognome(String cognome) { this.cognome = cognome; }
+    public void setCognome(String cognome) {
+        this.cognome = cognome;
+        notificaModifica();
+    }
 
     ///Setter della matricola
-    public void setMatricola(String matricola) { this.matricola = matricola; }
+    public void setMatricola(String matricola) {
+        impostaMatricola(matricola);
+        notificaModifica();
+    }
+
+    private void impostaMatricola(String matricola) {
+        this.codiceMatricola = CodiceNumerico.comprimi(matricola, CodiceNumerico.CIFRE_MATRICOLA);
+        this.matricolaNonNumerica = this.codiceMatricola == CodiceNumerico.NON_NUMERICO ? matricola : null;
+    }
 
     ///Setter del'email
     public void setEmail(String email) { this.email = email; }
@@ -64,6 +115,31 @@ public class Utente implements Serializable{
     //Setter del numero di prestiti attivi
     public void setNumPrestitiAttivi(int npa) {this.numPrestitiAttivi = npa;}
 
+    /**
+     * @brief Registra un osservatore da notificare quando cambiano nome, cognome o matricola.
+     * 
+     * Gli osservatori non vengono salvati su file.
+     * 
+     * @param o L'osservatore, che riceve l'utente modificato.
+     */
+    public void aggiungiOsservatore(Consumer<Utente> o) {
+        if(this.osservatori == null) this.osservatori = new ArrayList<>(1);
+        this.osservatori.add(o);
+    }
+    
+    /**
+     * @brief Rimuove un osservatore registrato in precedenza.
+     * @param o L'osservatore da rimuovere.
+     */
+    public void rimuoviOsservatore(Consumer<Utente> o) {
+        if(this.osservatori != null) this.osservatori.remove(o);
+    }
+    
+    private void notificaModifica() {
+        if(this.osservatori == null) return;
+        for(Consumer<Utente> o : new ArrayList<>(this.osservatori)) o.accept(this);
+    }
+
     /**
      * @brief Controlla se il numero di prestiti in cui compare l'utente è stato superato
      * 
@@ -72,7 +148,7 @@ public class Utente implements Serializable{
      * @return True se il limite è stato raggiunto
      */
     public boolean limitePrestiti() {
-        return this.numPrestitiAttivi >= 3;
+        return this.numPrestitiAttivi >= MAX_PRESTITI;
     }
     
     /**
@@ -86,18 +162,27 @@ public class Utente implements Serializable{
     
     /**
      * @brief Incrementa il numero di prestiti attivi dell'utente
+     * 
+     * Controllo del limite ed incremento avvengono in un unico compare-and-set, quindi prestiti
+     * concorrenti dello stesso utente non possono superare MAX_PRESTITI.
      */
     public void incrementaPrestitiAttivi()throws Exception{
-        if(this.numPrestitiAttivi >=3) throw new Exception("Impossibile incrementare: L'utente ha raggiunto il numero massimo di prestiti possibili.");
-        this.numPrestitiAttivi++;
+        int attivi;
+        do{
+            attivi = this.numPrestitiAttivi;
+            if(attivi >= MAX_PRESTITI) throw new Exception("Impossibile incrementare: L'utente ha raggiunto il numero massimo di prestiti possibili.");
+        }while(!PRESTITI_ATTIVI.compareAndSet(this, attivi, attivi + 1));
     }
     
     /**
      * @brief Decrementa il numero di prestiti attivi dell'utente
      */
     public void decrementaPrestitiAttivi()throws Exception{
-        if(this.numPrestitiAttivi <= 0) throw new Exception("Non si possono avere prestiti negativi");
-        this.numPrestitiAttivi--;
+        int attivi;
+        do{
+            attivi = this.numPrestitiAttivi;
+            if(attivi <= 0) throw new Exception("Non si possono avere prestiti negativi");
+        }while(!PRESTITI_ATTIVI.compareAndSet(this, attivi, attivi - 1));
     }
     
     /**
@@ -107,7 +192,7 @@ public class Utente implements Serializable{
     @Override
     public String toString() {
         return String.format("%s %s (Matr: %s, Email: %s) - Prestiti Attivi: %d", 
-            nome, cognome, matricola, email, numPrestitiAttivi);
+            nome, cognome, getMatricola(), email, numPrestitiAttivi);
     }
 
     /**
@@ -117,9 +202,10 @@ public class Utente implements Serializable{
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || this.getClass() != o.getClass() || matricola == null) return false; 
+        if (o == null || this.getClass() != o.getClass()) return false; 
         Utente utente = (Utente) o;
-        return matricola.equals(utente.matricola);
+        if (codiceMatricola != CodiceNumerico.NON_NUMERICO) return codiceMatricola == utente.codiceMatricola;
+        return matricolaNonNumerica != null && matricolaNonNumerica.equals(utente.matricolaNonNumerica);
     }
 
     /**
@@ -127,8 +213,28 @@ public class Utente implements Serializable{
      */
     @Override
     public int hashCode() {
+        if (codiceMatricola != CodiceNumerico.NON_NUMERICO) return Long.hashCode(codiceMatricola);
         int hash = 7;
-        return 31*hash + matricola.hashCode();
+        return 31*hash + matricolaNonNumerica.hashCode();
+    }
+    
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField campi = out.putFields();
+        campi.put("nome", nome);
+        campi.put("cognome", cognome);
+        campi.put("matricola", getMatricola());
+        campi.put("email", email);
+        campi.put("numPrestitiAttivi", numPrestitiAttivi);
+        out.writeFields();
+    }
+    
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField campi = in.readFields();
+        nome = (String) campi.get("nome", null);
+        cognome = (String) campi.get("cognome", null);
+        impostaMatricola((String) campi.get("matricola", null));
+        email = (String) campi.get("email", null);
+        numPrestitiAttivi = campi.get("numPrestitiAttivi", 0);
     }
     
     
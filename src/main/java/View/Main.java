@@ -75,6 +75,8 @@ public class Main extends Application {
             // Opzionale: Ottieni il controller Main se devi passargli dati
             // MainController controller = loader.getController();
             // controller.setDatiUtente(utenteLoggato);
+            MainController controller = loader.getController();
+            primaryStage.setUserData(controller.getBiblioteca());
 
             // Cambia la Scena corrente dello Stage
             primaryStage.setTitle("Homepage Applicazione");
@@ -87,6 +89,17 @@ public class Main extends Application {
         }
     }
 
+    /**
+     * Chiude la Biblioteca aperta dalla schermata principale, se presente, così che le ultime
+     * modifiche vengano scritte su disco prima dell'uscita.
+     */
+    @Override
+    public void stop() throws Exception {
+        if (primaryStage != null && primaryStage.getUserData() instanceof Biblioteca) {
+            ((Biblioteca) primaryStage.getUserData()).chiudi();
+        }
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
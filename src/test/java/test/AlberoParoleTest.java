@@ -0,0 +1,81 @@
+/**
+ * @file AlberoParoleTest.java
+ * @brief Test unitario per la classe AlberoParole.
+ */
+package test;
+
+import Controller.AlberoParole;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AlberoParoleTest {
+
+    /// Distanza di Levenshtein calcolata con la matrice completa.
+    private static int levenshtein(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for(int i = 0; i <= a.length(); i++) d[i][0] = i;
+        for(int j = 0; j <= b.length(); j++) d[0][j] = j;
+        for(int i = 1; i <= a.length(); i++)
+            for(int j = 1; j <= b.length(); j++)
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1));
+        return d[a.length()][b.length()];
+    }
+
+    private static String parolaCasuale(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int lunghezza = 3 + random.nextInt(7);
+        for(int i = 0; i < lunghezza; i++) sb.append("aeiorstnlc".charAt(random.nextInt(10)));
+        return sb.toString();
+    }
+
+    @Test
+    public void testCerca_ComeConfrontoCompleto() {
+        Random random = new Random(25);
+        AlberoParole albero = new AlberoParole();
+        List<String> parole = new ArrayList<>();
+        for(int i = 0; i < 3000; i++){
+            String p = parolaCasuale(random);
+            parole.add(p);
+            albero.aggiungi(p);
+        }
+        List<String> rimaste = new ArrayList<>();
+        for(String p : parole){
+            if(random.nextInt(3) > 0) albero.rimuovi(p);
+            else rimaste.add(p);
+        }
+        for(String p : rimaste) albero.aggiungi(p);
+
+        for(int q = 0; q < 200; q++){
+            String cercata = parolaCasuale(random);
+            int massimo = random.nextInt(3);
+            Map<String, Integer> attese = new HashMap<>();
+            for(String p : rimaste){
+                int d = levenshtein(cercata, p);
+                if(d <= massimo) attese.put(p, d);
+            }
+            Map<String, Integer> trovate = new HashMap<>();
+            albero.cerca(cercata, massimo, trovate::put);
+
+            // ASSERT
+            assertEquals(attese, trovate, cercata);
+        }
+        assertEquals(new HashSet<>(rimaste).size(), albero.size());
+    }
+
+    @Test
+    public void testCerca_VisitaPochiNodi() {
+        Random random = new Random(26);
+        AlberoParole albero = new AlberoParole();
+        for(int i = 0; i < 20000; i++) albero.aggiungi(parolaCasuale(random) + parolaCasuale(random));
+        albero.cerca("castelloni", 1, (p, d) -> {});
+
+        // ASSERT
+        assertTrue(albero.getNumVisitati() < albero.size() / 4, "Visitati " + albero.getNumVisitati() + " nodi per " + albero.size() + " parole");
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * @file AscoltatoreDifferitoTest.java
+ * @brief Test unitario per la classe AscoltatoreDifferito.
+ */
+package test;
+import Controller.AscoltatoreBiblioteca;
+import Controller.AscoltatoreDifferito;
+import Model.Libro;
+import Model.Prestito;
+import Model.Utente;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.List;
+
+public class AscoltatoreDifferitoTest {
+
+    /// Notifiche consegnate al delegato, nell'ordine
+    private List<String> consegnate;
+
+    /// Azioni affidate al thread dell'interfaccia simulato
+    private List<Runnable> threadUI;
+
+    private boolean sulThreadUI;
+
+    private AscoltatoreDifferito differito;
+
+    @BeforeEach
+    void setUp(){
+        consegnate = new ArrayList<>();
+        threadUI = new ArrayList<>();
+        sulThreadUI = false;
+        differito = new AscoltatoreDifferito(new AscoltatoreBiblioteca() {
+            @Override
+            public void libroAggiunto(Libro l, int posizione) { consegnate.add("+L " + l.getISBN() + "@" + posizione); }
+
+            @Override
+            public void prestitoAggiunto(Prestito p, int posizione) { consegnate.add("+P @" + posizione); }
+
+            @Override
+            public void prestitiAttiviCambiati(Utente u, int posizione) { consegnate.add("#U @" + posizione); }
+
+            @Override
+            public void inizioLotto() { consegnate.add("("); }
+
+            @Override
+            public void fineLotto() { consegnate.add(")"); }
+        }, threadUI::add, () -> sulThreadUI);
+    }
+
+    @Test
+    public void testDaAltroThread_ConsegnateSulThreadUIInOrdine() {
+        differito.inizioLotto();
+        differito.prestitoAggiunto(null, 4);
+        differito.prestitiAttiviCambiati(null, 2);
+        differito.fineLotto();
+
+        // ASSERT
+        assertTrue(consegnate.isEmpty(), "Le notifiche non devono essere consegnate fuori dal thread dell'interfaccia.");
+        assertEquals(4, threadUI.size());
+        threadUI.get(0).run();
+        assertEquals("[(, +P @4, #U @2, )]", consegnate.toString());
+        for(Runnable r : threadUI) r.run();
+        assertEquals(4, consegnate.size(), "Ogni notifica deve essere consegnata una volta sola.");
+    }
+
+    @Test
+    public void testSulThreadUI_ConsegnaSubitoDopoQuelleInAttesa() {
+        differito.libroAggiunto(new Libro("Primo", new ArrayList<>(), 2000, "1111111111111", 1, 1), 0);
+        sulThreadUI = true;
+        differito.libroAggiunto(new Libro("Secondo", new ArrayList<>(), 2000, "2222222222222", 1, 1), 1);
+
+        // ASSERT
+        assertEquals("[+L 1111111111111@0, +L 2222222222222@1]", consegnate.toString());
+        threadUI.get(0).run();
+        assertEquals(2, consegnate.size());
+    }
+}
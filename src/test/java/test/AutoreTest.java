@@ -35,6 +35,7 @@ public class AutoreTest {
     
     // --- Test dei Setter ---
     @Test
+    @SuppressWarnings("deprecation")
     public void testSetNome(){
         autore.setNome(NOME_NUOVO);
         
@@ -44,6 +45,7 @@ public class AutoreTest {
     }
     
     @Test
+    @SuppressWarnings("deprecation")
     public void testSetCognome(){
         autore.setCognome(COGNOME_NUOVO);
         
@@ -52,6 +54,27 @@ public class AutoreTest {
         assertEquals(COGNOME_NUOVO, autore.getCognome(), "Il cognome deve essere modificato dal setter");
     }
     
+    // --- Test di conNome() e conCognome() ---
+    @Test
+    public void testConNome(){
+        Autore nuovo = autore.conNome(NOME_NUOVO);
+        
+        // Assert
+        assertEquals(NOME_NUOVO, nuovo.getNome(), "Il nuovo autore deve avere il nome dato.");
+        assertEquals(COGNOME_INIZIALE, nuovo.getCognome(), "Il cognome non deve essere modificato da conNome.");
+        assertEquals(NOME_INIZIALE, autore.getNome(), "L'autore originale non deve essere modificato.");
+    }
+    
+    @Test
+    public void testConCognome(){
+        Autore nuovo = autore.conCognome(COGNOME_NUOVO);
+        
+        // Assert
+        assertEquals(NOME_INIZIALE, nuovo.getNome(), "Il nome non deve essere modificato da conCognome.");
+        assertEquals(COGNOME_NUOVO, nuovo.getCognome(), "Il nuovo autore deve avere il cognome dato.");
+        assertEquals(COGNOME_INIZIALE, autore.getCognome(), "L'autore originale non deve essere modificato.");
+    }
+    
     // --- Test di toString() ---
     @Test
     public void testToString(){
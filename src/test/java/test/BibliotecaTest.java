@@ -5,16 +5,23 @@
 package test;
 
 import Controller.Biblioteca;
+import Controller.CodecBinario;
 import Model.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.function.BooleanSupplier;
+import javafx.collections.ListChangeListener;
 import static org.junit.jupiter.api.Assertions.*;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.DataInputStream;
+import java.io.ObjectOutputStream;
 
 
 public class BibliotecaTest {
@@ -344,10 +351,13 @@ public class BibliotecaTest {
     @Test
     void testAggiungiPrestito_Successo_AggiornaTuttiGliStati() throws Exception {
         ArrayList<Autore> nuovaLista = new ArrayList<>();
-        Utente utente = new Utente("Ferdinando", "Cipriano","0612709081","f.cipriano1@studenti.unisa.it",0);
-        Libro libroInPrestito = new Libro("In Prestito", nuovaLista, 2000, "1111111111111", 5, 4);
-        biblioteca.aggiungiUtente(utente.getNome(), utente.getCognome(), utente.getMatricola(), utente.getEmail(), utente.getNumPrestitiAttivi());
-        biblioteca.aggiungiLibro(libroInPrestito.getTitolo(), libroInPrestito.getAutori(), 1840, libroInPrestito.getISBN(), 5, 5);
+        Utente datiUtente = new Utente("Ferdinando", "Cipriano","0612709081","f.cipriano1@studenti.unisa.it",0);
+        Libro datiLibro = new Libro("In Prestito", nuovaLista, 2000, "1111111111111", 5, 4);
+        biblioteca.aggiungiUtente(datiUtente.getNome(), datiUtente.getCognome(), datiUtente.getMatricola(), datiUtente.getEmail(), datiUtente.getNumPrestitiAttivi());
+        biblioteca.aggiungiLibro(datiLibro.getTitolo(), datiLibro.getAutori(), 1840, datiLibro.getISBN(), 5, 5);
+        // Il prestito va richiesto sugli oggetti registrati, come quelli mostrati dall'interfaccia
+        Utente utente = biblioteca.getClienti().cercaPerMatricola(datiUtente.getMatricola());
+        Libro libroInPrestito = biblioteca.getLibreria().cercaPerISBN(datiLibro.getISBN());
         
         int copieIniziali = libroInPrestito.getNumCopieDisponibili();
         int prestitiAttiviIniziali = utente.getNumPrestitiAttivi();
@@ -382,10 +392,12 @@ public class BibliotecaTest {
     @Test
     void testAggiungiPrestito_CopieNonDisponibili_LanciaEccezione() throws Exception {
         ArrayList<Autore> nuovaLista = new ArrayList<>();
-        Utente utente = new Utente("Vincenzo", "Cipriano","0612709082","v.cipriano1@studenti.unisa.it",0);
-        Libro libroEsaurito = new Libro("Esaurito", nuovaLista, 2020, "2222222222222", 1, 0);
-        biblioteca.aggiungiUtente(utente.getNome(), utente.getCognome(), utente.getMatricola(), utente.getEmail(), utente.getNumPrestitiAttivi());
-        biblioteca.aggiungiLibro(libroEsaurito.getTitolo(), libroEsaurito.getAutori(), 2020, libroEsaurito.getISBN(), 1, 0);
+        Utente datiUtente = new Utente("Vincenzo", "Cipriano","0612709082","v.cipriano1@studenti.unisa.it",0);
+        Libro datiLibro = new Libro("Esaurito", nuovaLista, 2020, "2222222222222", 1, 0);
+        biblioteca.aggiungiUtente(datiUtente.getNome(), datiUtente.getCognome(), datiUtente.getMatricola(), datiUtente.getEmail(), datiUtente.getNumPrestitiAttivi());
+        biblioteca.aggiungiLibro(datiLibro.getTitolo(), datiLibro.getAutori(), 2020, datiLibro.getISBN(), 1, 0);
+        Utente utente = biblioteca.getClienti().cercaPerMatricola(datiUtente.getMatricola());
+        Libro libroEsaurito = biblioteca.getLibreria().cercaPerISBN(datiLibro.getISBN());
 
         Exception e = assertThrows(Exception.class, () -> {
             biblioteca.aggiungiPrestito(utente, libroEsaurito, LocalDate.now());
@@ -397,10 +409,12 @@ public class BibliotecaTest {
     void testAggiungiPrestito_UtenteLimiteRaggiunto_LanciaEccezione() throws Exception {
         // Istanzio un utente con 3 prestiti attivi
         ArrayList<Autore> nuovaLista = new ArrayList<>();
-        Utente utenteAlLimite = new Utente("Kevin", "Cipriano","0612709083","k.cipriano1@studenti.unisa.it", 3);
-        Libro libro = new Libro("In Prestito", nuovaLista, 2000, "1111111111111", 5, 4);
-        biblioteca.aggiungiUtente(utenteAlLimite.getNome(), utenteAlLimite.getCognome(), utenteAlLimite.getMatricola(), utenteAlLimite.getEmail(), utenteAlLimite.getNumPrestitiAttivi());
-        biblioteca.aggiungiLibro(libro.getTitolo(), libro.getAutori(), 1840, libro.getISBN(), 5, 5);
+        Utente datiUtente = new Utente("Kevin", "Cipriano","0612709083","k.cipriano1@studenti.unisa.it", 3);
+        Libro datiLibro = new Libro("In Prestito", nuovaLista, 2000, "1111111111111", 5, 4);
+        biblioteca.aggiungiUtente(datiUtente.getNome(), datiUtente.getCognome(), datiUtente.getMatricola(), datiUtente.getEmail(), datiUtente.getNumPrestitiAttivi());
+        biblioteca.aggiungiLibro(datiLibro.getTitolo(), datiLibro.getAutori(), 1840, datiLibro.getISBN(), 5, 5);
+        Utente utenteAlLimite = biblioteca.getClienti().cercaPerMatricola(datiUtente.getMatricola());
+        Libro libro = biblioteca.getLibreria().cercaPerISBN(datiLibro.getISBN());
 
         Exception e = assertThrows(Exception.class, () -> {
             biblioteca.aggiungiPrestito(utenteAlLimite, libro, LocalDate.now());
@@ -413,11 +427,13 @@ public class BibliotecaTest {
     @Test
     void testRestituisciPrestito_Successo_AggiornaTuttiGliStati() throws Exception {
         ArrayList<Autore> nuovaLista = new ArrayList<>();
-        Utente utente = new Utente("Antonia", "Cipriano","0612709084","a.cipriano2@studenti.unisa.it", 0);
-        Libro libro = new Libro("In Prestito", nuovaLista, 2000, "1111111111111", 5, 5);
+        Utente datiUtente = new Utente("Antonia", "Cipriano","0612709084","a.cipriano2@studenti.unisa.it", 0);
+        Libro datiLibro = new Libro("In Prestito", nuovaLista, 2000, "1111111111111", 5, 5);
         //Aggiungo un prestito
-        biblioteca.aggiungiUtente(utente.getNome(), utente.getCognome(), utente.getMatricola(), utente.getEmail(), utente.getNumPrestitiAttivi());
-        biblioteca.aggiungiLibro(libro.getTitolo(), libro.getAutori(), 1840, libro.getISBN(), 5, 5);
+        biblioteca.aggiungiUtente(datiUtente.getNome(), datiUtente.getCognome(), datiUtente.getMatricola(), datiUtente.getEmail(), datiUtente.getNumPrestitiAttivi());
+        biblioteca.aggiungiLibro(datiLibro.getTitolo(), datiLibro.getAutori(), 1840, datiLibro.getISBN(), 5, 5);
+        Utente utente = biblioteca.getClienti().cercaPerMatricola(datiUtente.getMatricola());
+        Libro libro = biblioteca.getLibreria().cercaPerISBN(datiLibro.getISBN());
         biblioteca.aggiungiPrestito(utente, libro, LocalDate.now());
 
         Prestito prestitoAttivo = biblioteca.getObPrestiti().get(0);
@@ -446,4 +462,212 @@ public class BibliotecaTest {
         assertTrue(e.getMessage().contains("Prestito non trovato per la rimozione."), "Deve lanciare eccezione se il prestito non esiste.");
     }
     
+    
+    // --- TEST RICERCA
+    
+    @Test
+    void testFiltraLibri_PrefissoEPiuParole() throws Exception {
+        biblioteca.aggiungiLibro("Il Nome della Rosa", new ArrayList<>(Collections.singletonList(new Autore("Umberto", "Eco"))), 1980, "9788845278655", 5, 5);
+        biblioteca.aggiungiLibro("Il Pendolo di Foucault", new ArrayList<>(Collections.singletonList(new Autore("Umberto", "Eco"))), 1988, "9788845292613", 5, 5);
+        biblioteca.aggiungiLibro("Se questo è un uomo", new ArrayList<>(Collections.singletonList(new Autore("Primo", "Levi"))), 1947, "9788806219352", 5, 5);
+        
+        biblioteca.filtraLibri("eco");
+        assertEquals(2, biblioteca.getFlLibreria().size(), "La ricerca per autore deve trovare entrambi i libri.");
+        
+        biblioteca.filtraLibri("Umb pend");
+        assertEquals(1, biblioteca.getFlLibreria().size(), "Più parole devono essere tutte presenti.");
+        assertEquals("Il Pendolo di Foucault", biblioteca.getFlLibreria().get(0).getTitolo());
+        
+        biblioteca.filtraLibri("978880621");
+        assertEquals(1, biblioteca.getFlLibreria().size(), "La ricerca deve considerare l'ISBN.");
+        
+        biblioteca.filtraLibri("");
+        assertEquals(3, biblioteca.getFlLibreria().size(), "Una ricerca vuota deve mostrare tutti i libri.");
+    }
+    
+    @Test
+    void testFiltraLibri_AggiornatoDopoModifiche() throws Exception {
+        biblioteca.aggiungiLibro("Il Nome della Rosa", new ArrayList<>(), 1980, "9788845278655", 5, 5);
+        biblioteca.filtraLibri("rosa");
+        biblioteca.aggiungiLibro("La Rosa Bianca", new ArrayList<>(), 1990, "9788845278656", 5, 5);
+        assertEquals(2, biblioteca.getFlLibreria().size(), "Un libro aggiunto deve comparire se corrisponde alla ricerca attiva.");
+        
+        Libro l = biblioteca.getLibreria().cercaPerISBN("9788845278656");
+        biblioteca.modificaLibro(l, "La Camelia Bianca", new ArrayList<>(), 1990, "9788845278656", 5, 5);
+        assertEquals(1, biblioteca.getFlLibreria().size(), "Un libro modificato non deve più comparire se non corrisponde.");
+        
+        biblioteca.filtraLibri("camelia");
+        assertEquals(1, biblioteca.getFlLibreria().size());
+        biblioteca.eliminaLibro(l);
+        biblioteca.filtraLibri("camelia");
+        assertEquals(0, biblioteca.getFlLibreria().size(), "Un libro eliminato non deve più essere trovato.");
+    }
+    
+    @Test
+    void testFiltraLibri_SottostringaInternaAllaParola() throws Exception {
+        biblioteca.aggiungiLibro("Il Nome della Rosa", new ArrayList<>(Collections.singletonList(new Autore("Paolo", "Rossi"))), 1980, "9788845278655", 5, 5);
+        biblioteca.aggiungiLibro("Baudolino", new ArrayList<>(Collections.singletonList(new Autore("Umberto", "Eco"))), 2000, "9788845292613", 5, 5);
+        
+        biblioteca.filtraLibri("ssi");
+        assertEquals(1, biblioteca.getFlLibreria().size(), "La ricerca deve trovare sottostringhe interne alle parole.");
+        
+        biblioteca.filtraLibri("LL");
+        assertEquals(1, biblioteca.getFlLibreria().size(), "Anche ricerche di meno di tre caratteri devono funzionare.");
+        
+        biblioteca.filtraLibri("278655");
+        assertEquals(1, biblioteca.getFlLibreria().size(), "La ricerca deve considerare le sottostringhe dell'ISBN.");
+    }
+    
+    @Test
+    void testFiltraUtenti_SottostringaEModifiche() throws Exception {
+        biblioteca.aggiungiUtente("Marco", "Rossi", "0612707788", "m.rossi4@studenti.unisa.it", 0);
+        biblioteca.aggiungiUtente("Giulia", "Russo", "0612707789", "g.russo7@studenti.unisa.it", 0);
+        
+        biblioteca.filtraUtenti("ssi");
+        assertEquals(1, biblioteca.getFlClienti().size(), "\"ssi\" deve trovare Rossi.");
+        
+        biblioteca.filtraUtenti("0612707");
+        assertEquals(2, biblioteca.getFlClienti().size(), "La ricerca deve considerare la matricola.");
+        
+        Utente russo = biblioteca.getClienti().cercaPerMatricola("0612707789");
+        biblioteca.modificaUtente(russo, "Giulia", "Russo", "0612700000", "g.russo7@studenti.unisa.it");
+        assertEquals(1, biblioteca.getFlClienti().size(), "Un utente modificato non deve più comparire se non corrisponde.");
+    }
+    
+    @Test
+    void testFiltraLibri_SetterAggiornaIndici() throws Exception {
+        biblioteca.aggiungiLibro("Il Nome della Rosa", new ArrayList<>(), 1980, "9788845278655", 5, 5);
+        Libro l = biblioteca.getLibreria().cercaPerISBN("9788845278655");
+        
+        //Modifica diretta del libro, senza passare da modificaLibro
+        l.setTitolo("Baudolino");
+        
+        biblioteca.filtraLibri("rosa");
+        assertEquals(0, biblioteca.getFlLibreria().size(), "Il vecchio titolo non deve più essere trovato.");
+        biblioteca.filtraLibri("udol");
+        assertEquals(1, biblioteca.getFlLibreria().size(), "Il nuovo titolo deve essere trovato.");
+    }
+    
+    @Test
+    void testListeOsservabili_VistaSenzaCopia() throws Exception {
+        biblioteca.aggiungiUtente("Antonia", "Cipriano","0612709084","a.cipriano2@studenti.unisa.it", 0);
+        biblioteca.aggiungiLibro("Primo", new ArrayList<>(), 2000, "1111111111111", 5, 5);
+        biblioteca.aggiungiLibro("Secondo", new ArrayList<>(), 2000, "2222222222222", 5, 5);
+        Utente utente = biblioteca.getObClienti().get(0);
+        biblioteca.aggiungiPrestito(utente, biblioteca.getObLibreria().get(0), LocalDate.now());
+        biblioteca.aggiungiPrestito(utente, biblioteca.getObLibreria().get(1), LocalDate.now());
+        
+        List<String> modifiche = new ArrayList<>();
+        biblioteca.getObPrestiti().addListener((ListChangeListener<Prestito>) c -> {
+            while(c.next()) modifiche.add(c.getFrom() + ":" + c.getRemovedSize() + "/" + c.getAddedSize());
+        });
+        
+        //Il primo prestito viene sostituito dall'ultimo, che esce dalla coda della lista
+        biblioteca.restituisciPrestito(biblioteca.getObPrestiti().get(0));
+        
+        assertEquals(biblioteca.getPrestiti().getPrestiti(), new ArrayList<>(biblioteca.getObPrestiti()), "La vista deve rispecchiare la lista dei Prestiti.");
+        assertEquals("2222222222222", biblioteca.getObPrestiti().get(0).getLibro().getISBN());
+        assertFalse(modifiche.isEmpty(), "La restituzione deve essere notificata alla vista.");
+        assertThrows(UnsupportedOperationException.class, () -> biblioteca.getObLibreria().clear(), "La vista non deve essere modificabile direttamente.");
+        assertEquals(2, biblioteca.getSlLibreria().size());
+    }
+    
+    @Test
+    void testListeOsservabili_PrestitoAggiornaSoloLeRigheCoinvolte() throws Exception {
+        biblioteca.aggiungiUtente("Antonia", "Cipriano","0612709084","a.cipriano2@studenti.unisa.it", 0);
+        biblioteca.aggiungiLibro("Primo", new ArrayList<>(), 2000, "1111111111111", 5, 5);
+        biblioteca.aggiungiLibro("Secondo", new ArrayList<>(), 2000, "2222222222222", 5, 5);
+        
+        List<String> modifiche = new ArrayList<>();
+        biblioteca.getObLibreria().addListener((ListChangeListener<Libro>) c -> {
+            while(c.next()) if(c.wasUpdated()) modifiche.add(c.getFrom() + "-" + c.getTo());
+        });
+        
+        biblioteca.aggiungiPrestito(biblioteca.getObClienti().get(0), biblioteca.getObLibreria().get(1), LocalDate.now());
+        
+        assertEquals(Collections.singletonList("1-2"), modifiche, "Deve essere aggiornata solo la riga del libro prestato.");
+        assertEquals(4, biblioteca.getSlLibreria().get(1).getNumCopieDisponibili(), "La vista ordinata deve mostrare le copie aggiornate.");
+    }
+    
+    @Test
+    void testListeOsservabili_PrestitiMultipliUnicaModifica() throws Exception {
+        biblioteca.aggiungiUtente("Antonia", "Cipriano","0612709084","a.cipriano2@studenti.unisa.it", 0);
+        biblioteca.aggiungiLibro("Primo", new ArrayList<>(), 2000, "1111111111111", 5, 5);
+        biblioteca.aggiungiLibro("Secondo", new ArrayList<>(), 2000, "2222222222222", 5, 5);
+        biblioteca.aggiungiLibro("Terzo", new ArrayList<>(), 2000, "3333333333333", 5, 5);
+        Utente utente = biblioteca.getObClienti().get(0);
+        
+        List<Integer> eventi = new ArrayList<>();
+        //Copia aggiornata solo attraverso le modifiche notificate
+        List<Prestito> copia = new ArrayList<>(biblioteca.getObPrestiti());
+        biblioteca.getObPrestiti().addListener((ListChangeListener<Prestito>) c -> {
+            eventi.add(1);
+            while(c.next()){
+                copia.subList(c.getFrom(), c.getFrom() + c.getRemovedSize()).clear();
+                copia.addAll(c.getFrom(), c.getAddedSubList());
+            }
+        });
+        biblioteca.getObLibreria().addListener((ListChangeListener<Libro>) c -> eventi.add(2));
+        
+        biblioteca.aggiungiPrestiti(utente, new ArrayList<>(biblioteca.getObLibreria()), LocalDate.now());
+        
+        assertEquals(Arrays.asList(1, 2), eventi, "Ogni lista deve ricevere una sola modifica per l'intero lotto.");
+        assertEquals(3, biblioteca.getObPrestiti().size());
+        assertEquals(4, biblioteca.getSlLibreria().get(2).getNumCopieDisponibili());
+        
+        eventi.clear();
+        biblioteca.restituisciPrestiti(new ArrayList<>(biblioteca.getObPrestiti().subList(0, 2)));
+        
+        assertEquals(Arrays.asList(1, 2), eventi, "Ogni lista deve ricevere una sola modifica per l'intero lotto.");
+        assertEquals(biblioteca.getPrestiti().getPrestiti(), new ArrayList<>(biblioteca.getObPrestiti()));
+        assertEquals(biblioteca.getPrestiti().getPrestiti(), copia, "Le modifiche notificate devono riprodurre la lista dei Prestiti.");
+        assertEquals(1, biblioteca.getObClienti().get(0).getNumPrestitiAttivi());
+    }
+    
+    // --- TEST PERSISTENZA
+    
+    @Test
+    void testPersistenza_RiaperturaRiapplicaRegistro() throws Exception {
+        biblioteca.aggiungiUtente("Antonia", "Cipriano","0612709084","a.cipriano2@studenti.unisa.it", 0);
+        biblioteca.aggiungiLibro("In Prestito", new ArrayList<>(), 2000, "1111111111111", 5, 5);
+        Utente utente = biblioteca.getObClienti().get(0);
+        Libro libro = biblioteca.getObLibreria().get(0);
+        biblioteca.aggiungiPrestito(utente, libro, LocalDate.now().plusDays(30));
+        biblioteca.modificaUtente(utente, "Antonia", "Cipriano", "0612709099", "a.cipriano2@studenti.unisa.it");
+        
+        //Una nuova istanza ricarica lo snapshot e riapplica le operazioni registrate
+        Biblioteca riaperta = new Biblioteca();
+        
+        assertEquals(1, riaperta.getObLibreria().size(), "Il libro deve essere ricaricato.");
+        assertEquals(1, riaperta.getObClienti().size(), "L'utente deve essere ricaricato.");
+        assertEquals(1, riaperta.getObPrestiti().size(), "Il prestito deve essere ricaricato.");
+        assertEquals(4, riaperta.getObLibreria().get(0).getNumCopieDisponibili(), "Le copie disponibili devono essere ripristinate.");
+        assertEquals("0612709099", riaperta.getObClienti().get(0).getMatricola(), "La modifica dell'utente deve essere riapplicata.");
+        assertEquals(1, riaperta.getObClienti().get(0).getNumPrestitiAttivi(), "I prestiti attivi devono essere ripristinati.");
+    }
+    
+    @Test
+    void testPersistenza_FormatoPrecedenteMigrato() throws Exception {
+        Libreria vecchiaLibreria = new Libreria();
+        vecchiaLibreria.aggiungiLibro(new Libro("1984", new ArrayList<>(Collections.singletonList(new Autore("George", "Orwell"))), 1949, "9788804668237", 3, 3));
+        Clienti vecchiClienti = new Clienti();
+        vecchiClienti.aggiungiUtente(new Utente("Pasquale", "Petraglia", "0612709535", "p.petraglia2@studenti.unisa.it", 0));
+        
+        //File salvato con la serializzazione Java delle versioni precedenti
+        try(ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream("output.bin"))){
+            out.writeObject(vecchiaLibreria);
+            out.writeObject(vecchiClienti);
+            out.writeObject(new Prestiti());
+        }
+        
+        Biblioteca migrata = new Biblioteca();
+        migrata.chiudi();
+        
+        assertEquals(1, migrata.getObLibreria().size(), "I libri del vecchio formato devono essere caricati.");
+        assertEquals("0612709535", migrata.getObClienti().get(0).getMatricola(), "Gli utenti del vecchio formato devono essere caricati.");
+        try(DataInputStream in = new DataInputStream(new FileInputStream("output.bin"))){
+            assertEquals(CodecBinario.MAGIC, in.readInt(), "Il file deve essere riscritto nel formato compatto.");
+        }
+        assertEquals(1, new Biblioteca().getObLibreria().size(), "Il file migrato deve essere rileggibile.");
+    }
 }
\ No newline at end of file
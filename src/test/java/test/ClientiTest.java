@@ -7,6 +7,7 @@ import Model.*;
 import org.junit.jupiter.api.*;
 import static org.junit.jupiter.api.Assertions.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 public class ClientiTest {
     private Clienti clienti;
@@ -105,6 +106,34 @@ public class ClientiTest {
         assertTrue(exception.getMessage().contains("IMPOSSIBILE ELIMINARE UTENTE! Utente : " + utente1.toString() + " non presente nella lista!"));
     }
     
+    @Test
+    public void testEliminaUtenti_UnSoloPassaggio() throws Exception {
+        Utente utente3 = new Utente("Marco", "Bianchi", "0612708972", "m.bianchi@studenti.unisa.it", 0);
+        clienti.aggiungiUtente(utente1);
+        clienti.aggiungiUtente(utente2);
+        clienti.aggiungiUtente(utente3);
+        
+        clienti.eliminaUtenti(Arrays.asList(utente1, utente3));
+        
+        // ASSERT
+        assertEquals(1, clienti.getClienti().size());
+        assertEquals(0, clienti.posizioneDi(utente2), "Le posizioni dei rimasti devono essere aggiornate.");
+        assertNull(clienti.cercaPerMatricola(utente3.getMatricola()));
+        assertFalse(clienti.esisteEmail(utente1.getEmail()));
+    }
+    
+    @Test
+    public void testEliminaUtenti_UnoConPrestiti_NessunaRimozione() throws Exception {
+        Utente conPrestito = new Utente("Marco", "Bianchi", "0612708972", "m.bianchi@studenti.unisa.it", 1);
+        clienti.aggiungiUtente(utente1);
+        clienti.aggiungiUtente(conPrestito);
+        
+        // ASSERT
+        assertThrows(Exception.class, () -> clienti.eliminaUtenti(Arrays.asList(utente1, conPrestito)));
+        assertEquals(2, clienti.getClienti().size(), "Se un utente non può essere eliminato la lista non cambia.");
+        assertTrue(clienti.esisteUtente(utente1));
+    }
+    
     // --- Test Modifica Utente --- 
     @Test
     void modificaUtente_Successo_AggiornaTuttiICampi() {
@@ -166,4 +195,61 @@ public class ClientiTest {
     }
     
     
+    
+    // --- Test Indici Matricola ed Email ---
+    
+    @Test
+    public void testCercaPerMatricola_Presente() throws Exception{
+        clienti.aggiungiUtente(utente1);
+        clienti.aggiungiUtente(utente2);
+        
+        // ASSERT
+        assertSame(utente2, clienti.cercaPerMatricola("0612708971"), "Deve essere restituita l'istanza presente nella lista.");
+        assertNull(clienti.cercaPerMatricola("0612700000"), "Una matricola non presente deve restituire null.");
+    }
+    
+    @Test
+    public void testAggiungiUtente_EmailDuplicata_LanciaEccezione() throws Exception{
+        clienti.aggiungiUtente(utente1);
+        Utente stessaEmail = new Utente("Paolo", "Petraglia", "0612708999", "P.Petraglia3@studenti.unisa.it", 0);
+        
+        // ASSERT
+        assertThrows(Exception.class, () -> clienti.aggiungiUtente(stessaEmail), "L'email deve essere univoca, senza distinguere maiuscole e minuscole.");
+        assertEquals(1, clienti.getClienti().size());
+        assertFalse(clienti.esisteUtente(stessaEmail));
+    }
+    
+    @Test
+    public void testModificaUtente_NuovaMatricolaEdEmail_IndiciAggiornati() throws Exception{
+        clienti.aggiungiUtente(utente1);
+        clienti.modificaUtente(utente1, "Pasquale", "Petraglia", "0612709000", "p.petraglia9@studenti.unisa.it");
+        
+        // ASSERT
+        assertNull(clienti.cercaPerMatricola("0612708970"), "La vecchia matricola non deve più essere indicizzata.");
+        assertSame(utente1, clienti.cercaPerMatricola("0612709000"));
+        assertFalse(clienti.esisteEmail("p.petraglia3@studenti.unisa.it"), "La vecchia email deve tornare disponibile.");
+        assertSame(utente1, clienti.cercaPerEmail("p.petraglia9@studenti.unisa.it"));
+    }
+    
+    @Test
+    public void testModificaUtente_DatiGiaUsati_LanciaEccezione() throws Exception{
+        clienti.aggiungiUtente(utente1);
+        clienti.aggiungiUtente(utente2);
+        
+        // ASSERT
+        assertThrows(Exception.class, () -> clienti.modificaUtente(utente1, "Pasquale", "Petraglia", utente2.getMatricola(), utente1.getEmail()));
+        assertThrows(Exception.class, () -> clienti.modificaUtente(utente1, "Pasquale", "Petraglia", utente1.getMatricola(), utente2.getEmail()));
+        assertEquals("0612708970", utente1.getMatricola(), "L'utente non deve essere modificato se i dati sono già usati.");
+        assertEquals("p.petraglia3@studenti.unisa.it", utente1.getEmail());
+    }
+    
+    @Test
+    public void testEliminaUtente_IndiciAggiornati() throws Exception{
+        clienti.aggiungiUtente(utente1);
+        clienti.eliminaUtente(utente1);
+        
+        // ASSERT
+        assertNull(clienti.cercaPerMatricola(utente1.getMatricola()));
+        assertFalse(clienti.esisteEmail(utente1.getEmail()));
+    }
 }
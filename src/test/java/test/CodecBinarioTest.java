@@ -0,0 +1,119 @@
+/**
+ * @file CodecBinarioTest.java
+ * @brief Test unitario per la classe CodecBinario.
+ */
+package test;
+import Controller.CodecBinario;
+import Model.*;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+
+public class CodecBinarioTest {
+
+    private Libreria libreria;
+    private Clienti clienti;
+    private Prestiti prestiti;
+    private Libro libro1, libro2;
+    private Utente utente1;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        //Inizializzo oggetti di supporto
+        ArrayList<Autore> autori1 = new ArrayList<>();
+        Collections.addAll(autori1, new Autore("Andrea","Torrente"),new Autore("Piero","Schlesinger"));
+        libro1 = new Libro("Manuale di Diritto Privato", autori1, 2025, "9788828869269", 10, 9);
+        libro2 = new Libro("Il Nome della Rosa", new ArrayList<>(), 1980, "ISBN-NON-NUM", 3, 3);
+        utente1 = new Utente("Luca", "Cipriano", "0612707386", "l.cipriano12@studenti.unisa.it", 1);
+
+        libreria = new Libreria();
+        libreria.aggiungiLibro(libro1);
+        libreria.aggiungiLibro(libro2);
+        clienti = new Clienti();
+        clienti.aggiungiUtente(utente1);
+        prestiti = new Prestiti();
+        prestiti.aggiungiPrestito(new Prestito(utente1, libro1, LocalDate.of(2026, 1, 28)));
+    }
+
+    private byte[] codifica(long sequenza) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        CodecBinario.scrivi(new DataOutputStream(buffer), libreria, clienti, prestiti, sequenza);
+        return buffer.toByteArray();
+    }
+
+    private CodecBinario.Snapshot decodifica(byte[] dati) throws IOException {
+        return CodecBinario.leggi(new DataInputStream(new ByteArrayInputStream(dati)));
+    }
+
+    @Test
+    public void testScriviLeggi_DatiConservati() throws Exception {
+        CodecBinario.Snapshot snap = decodifica(codifica(42));
+
+        // ASSERT
+        assertEquals(42, snap.getSequenza());
+        assertEquals(2, snap.getLibreria().getLibreria().size());
+        Libro l = snap.getLibreria().getLibreria().get(0);
+        assertEquals(libro1.getTitolo(), l.getTitolo());
+        assertEquals(libro1.getAutori(), l.getAutori());
+        assertEquals(libro1.getAnno(), l.getAnno());
+        assertEquals(libro1.getISBN(), l.getISBN());
+        assertEquals(libro1.getNumCopieTotali(), l.getNumCopieTotali());
+        assertEquals(libro1.getNumCopieDisponibili(), l.getNumCopieDisponibili());
+
+        Utente u = snap.getClienti().getClienti().get(0);
+        assertEquals("0612707386", u.getMatricola(), "Gli zeri iniziali della matricola devono essere conservati.");
+        assertEquals(utente1.getEmail(), u.getEmail());
+        assertEquals(1, u.getNumPrestitiAttivi());
+
+        assertEquals("ISBN-NON-NUM", snap.getLibreria().getLibreria().get(1).getISBN(), "I codici non numerici devono essere salvati come stringa.");
+    }
+
+    @Test
+    public void testPrestiti_RiferisconoLeStesseIstanze() throws Exception {
+        CodecBinario.Snapshot snap = decodifica(codifica(0));
+        Prestito p = snap.getPrestiti().getPrestiti().get(0);
+
+        // ASSERT
+        assertSame(snap.getClienti().getClienti().get(0), p.getUtente(), "Il prestito deve riferire l'utente caricato, non una copia.");
+        assertSame(snap.getLibreria().getLibreria().get(0), p.getLibro(), "Il prestito deve riferire il libro caricato, non una copia.");
+        assertEquals(LocalDate.of(2026, 1, 28), p.getDataRestituzione());
+    }
+
+    @Test
+    public void testPrestito_ElementoNonInElenco_SalvatoPerIntero() throws Exception {
+        Utente esterno = new Utente("Marco", "Rossi", "0612707788", "m.rossi4@studenti.unisa.it", 1);
+        prestiti.aggiungiPrestito(new Prestito(esterno, libro2, LocalDate.of(2026, 2, 1)));
+
+        Prestito p = decodifica(codifica(0)).getPrestiti().getPrestiti().get(1);
+
+        // ASSERT
+        assertEquals(esterno, p.getUtente());
+        assertEquals("Rossi", p.getUtente().getCognome());
+    }
+
+    @Test
+    public void testDimensione_MinoreDellaSerializzazioneJava() throws Exception {
+        ByteArrayOutputStream java = new ByteArrayOutputStream();
+        try(ObjectOutputStream out = new ObjectOutputStream(java)){
+            out.writeObject(libreria);
+            out.writeObject(clienti);
+            out.writeObject(prestiti);
+        }
+
+        // ASSERT
+        assertTrue(codifica(0).length * 3 < java.size(), "Il formato compatto deve essere molto più piccolo della serializzazione Java.");
+    }
+
+    @Test
+    public void testLeggi_FormatoNonRiconosciuto_LanciaEccezione() {
+        assertThrows(IOException.class, () -> decodifica(new byte[]{(byte) 0xAC, (byte) 0xED, 0, 5}));
+    }
+}
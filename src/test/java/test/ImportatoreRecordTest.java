@@ -0,0 +1,69 @@
+/**
+ * @file ImportatoreRecordTest.java
+ * @brief Test unitario per la classe ImportatoreRecord.
+ */
+package test;
+
+import Controller.ImportatoreRecord;
+import Controller.LettoreCSV;
+import Controller.RapportoImportazione;
+import org.junit.jupiter.api.Test;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImportatoreRecordTest {
+
+    /// Converte il record in un numero, scartando i valori negativi
+    private static Integer converti(String[] campi) throws Exception {
+        int n = Integer.parseInt(campi[0]);
+        if(n < 0) throw new Exception("Negativo: " + n);
+        return n;
+    }
+
+    @Test
+    public void testImporta_OrdineDelFileConservato() throws Exception {
+        StringBuilder csv = new StringBuilder("n\n");
+        for(int i = 0; i < 10000; i++) csv.append(i % 1000 == 999 ? -i : i).append('\n');
+        List<Integer> ricevuti = new ArrayList<>();
+        int[] lotti = {0};
+
+        //Lotti piccoli e più thread: i lotti vengono convertiti fuori ordine
+        ImportatoreRecord<Integer> importatore = new ImportatoreRecord<>(ImportatoreRecordTest::converti, 4, 64);
+        RapportoImportazione rapporto = importatore.importa(new LettoreCSV(new StringReader(csv.toString()), "n"), new ImportatoreRecord.Destinazione<Integer>() {
+            @Override
+            public void applica(Integer n) { ricevuti.add(n); }
+
+            @Override
+            public void fineLotto() { lotti[0]++; }
+        });
+
+        // ASSERT
+        assertEquals(10000, rapporto.getLetti());
+        assertEquals(9990, rapporto.getImportati());
+        assertEquals(10, rapporto.getScartati());
+        assertEquals((10000 + 63) / 64, lotti[0]);
+        for(int i = 1; i < ricevuti.size(); i++) assertTrue(ricevuti.get(i - 1) < ricevuti.get(i), "Gli elementi devono arrivare nell'ordine del file.");
+        assertEquals("Record 1001: Negativo: -999", rapporto.getErrori().get(0).toString(), "L'errore riporta la riga del file.");
+    }
+
+    @Test
+    public void testImporta_ScartiDellaDestinazioneEInterruzione() throws Exception {
+        String csv = "n\n1\n2\nx\n2\n\"3\n";
+        List<Integer> ricevuti = new ArrayList<>();
+
+        RapportoImportazione rapporto = new ImportatoreRecord<>(ImportatoreRecordTest::converti, 2, 2)
+                .importa(new LettoreCSV(new StringReader(csv), "n"), n -> {
+                    if(ricevuti.contains(n)) throw new Exception("Duplicato: " + n);
+                    ricevuti.add(n);
+                });
+
+        // ASSERT
+        assertEquals(2, rapporto.getImportati());
+        assertEquals(2, rapporto.getScartati(), "Il valore non numerico ed il duplicato vengono scartati.");
+        assertTrue(rapporto.isInterrotta(), "Le virgolette non chiuse interrompono la lettura.");
+        assertEquals("Record 5: Duplicato: 2", rapporto.getErrori().get(1).toString());
+        assertEquals(3, rapporto.getErrori().size());
+    }
+}
@@ -0,0 +1,154 @@
+/**
+ * @file IndiceCatalogoTest.java
+ * @brief Test unitario per la classe IndiceCatalogo.
+ */
+package test;
+
+import Controller.ConteggiFaccette;
+import Controller.IndiceCatalogo;
+import Model.Autore;
+import Model.Libro;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndiceCatalogoTest {
+
+    private IndiceCatalogo indice;
+    private Libro a1990, b1995, c1995, d2001;
+
+    @BeforeEach
+    void setUp(){
+        indice = new IndiceCatalogo();
+        a1990 = new Libro("A", new ArrayList<>(), 1990, "1111111111111", 1, 1);
+        b1995 = new Libro("B", new ArrayList<>(), 1995, "2222222222222", 1, 0);
+        c1995 = new Libro("C", new ArrayList<>(), 1995, "3333333333333", 2, 2);
+        d2001 = new Libro("D", new ArrayList<>(), 2001, "4444444444444", 1, 1);
+        for(Libro l : Arrays.asList(d2001, c1995, b1995, a1990)) indice.aggiungi(l);
+    }
+
+    @Test
+    public void testCerca_IntervalloEDisponibilita() {
+        // ASSERT
+        assertEquals(Arrays.asList(a1990, c1995, b1995), indice.cerca(1990, 2000, false), "I libri sono ordinati per anno.");
+        assertEquals(Arrays.asList(a1990, c1995), indice.cerca(1990, 2000, true));
+        assertEquals(3, indice.contaAnnoTra(1995, 2001));
+        assertEquals(3, indice.getNumDisponibili());
+        assertTrue(indice.cerca(2000, 1990, false).isEmpty(), "Un intervallo vuoto non trova libri.");
+    }
+
+    @Test
+    public void testAggiornaERimuovi() {
+        b1995.aumentaCopie();
+        indice.aggiornaDisponibilita(b1995);
+        a1990.setAnno(2001);
+        indice.aggiorna(a1990);
+        indice.rimuovi(c1995);
+
+        // ASSERT
+        assertEquals(Arrays.asList(b1995), indice.cerca(1990, 2000, true));
+        assertEquals(Arrays.asList(d2001, a1990), indice.cerca(2001, 2001, true));
+        assertEquals(3, indice.size());
+
+        Libro e = new Libro("E", new ArrayList<>(), 1995, "5555555555555", 1, 1);
+        indice.aggiungi(e);
+        assertEquals(Arrays.asList(e, b1995), indice.cerca(1995, 1995, false), "Il nuovo libro riusa l'identificativo del libro rimosso.");
+    }
+
+    @Test
+    public void testCerca_EquivalenteAllaScansione() {
+        Random random = new Random(22);
+        IndiceCatalogo grande = new IndiceCatalogo();
+        List<Libro> libri = new ArrayList<>();
+        for(int i = 0; i < 5000; i++){
+            Libro l = new Libro("T" + i, new ArrayList<>(), 1900 + random.nextInt(120), String.format("%013d", i), 2, random.nextInt(3));
+            libri.add(l);
+            grande.aggiungi(l);
+        }
+        for(int i = 0; i < 1000; i++) grande.rimuovi(libri.remove(random.nextInt(libri.size())));
+
+        for(int q = 0; q < 50; q++){
+            int da = 1900 + random.nextInt(120), a = da + random.nextInt(30);
+            boolean soloDisponibili = random.nextBoolean();
+            int attesi = 0;
+            for(Libro l : libri)
+                if(l.getAnno() >= da && l.getAnno() <= a && (!soloDisponibili || l.isDisponibile())) attesi++;
+            List<Libro> trovati = grande.cerca(da, a, soloDisponibili);
+
+            // ASSERT
+            assertEquals(attesi, trovati.size());
+            for(int i = 1; i < trovati.size(); i++) assertTrue(trovati.get(i - 1).getAnno() <= trovati.get(i).getAnno());
+        }
+    }
+
+    @Test
+    public void testFaccette_CatalogoERisultati() {
+        Autore eco = new Autore("Umberto", "Eco"), calvino = new Autore("Italo", "Calvino");
+        a1990.setAutori(new ArrayList<>(Arrays.asList(eco, calvino)));
+        b1995.setAutori(new ArrayList<>(Arrays.asList(eco, eco)));
+        c1995.setAutori(new ArrayList<>(Arrays.asList(calvino)));
+        for(Libro l : Arrays.asList(a1990, b1995, c1995)) indice.aggiorna(l);
+
+        ConteggiFaccette tutti = indice.faccette(null, 10);
+        ConteggiFaccette risultati = indice.faccette(Arrays.asList(a1990, b1995, d2001), 1);
+
+        // ASSERT
+        assertEquals(4, tutti.getTotale());
+        assertEquals(3, tutti.getDisponibili());
+        assertEquals("{1990=3, 2000=1}", tutti.getPerDecennio().toString());
+        assertEquals("{Umberto Eco=2, Italo Calvino=2}", tutti.getAutoriPrincipali().toString(), "Un autore ripetuto nello stesso libro conta una volta.");
+        assertEquals(3, risultati.getTotale());
+        assertEquals(2, risultati.getDisponibili());
+        assertEquals("{1990=2, 2000=1}", risultati.getPerDecennio().toString());
+        assertEquals("{Umberto Eco=2}", risultati.getAutoriPrincipali().toString());
+    }
+
+    @Test
+    public void testFaccette_AggiornateDalleModifiche() {
+        Random random = new Random(24);
+        Autore[] autori = {new Autore("Umberto", "Eco"), new Autore("Italo", "Calvino"), new Autore("Elsa", "Morante")};
+        IndiceCatalogo grande = new IndiceCatalogo();
+        List<Libro> libri = new ArrayList<>();
+        for(int i = 0; i < 2000; i++){
+            Libro l = new Libro("T" + i, new ArrayList<>(Arrays.asList(autori[random.nextInt(3)])), 1900 + random.nextInt(120), String.format("%013d", i), 2, random.nextInt(3));
+            libri.add(l);
+            grande.aggiungi(l);
+        }
+        for(int i = 0; i < 3000; i++){
+            Libro l = libri.get(random.nextInt(libri.size()));
+            switch(random.nextInt(4)){
+                case 0: grande.rimuovi(l); libri.remove(l); break;
+                case 1: l.setAnno(1900 + random.nextInt(120)); grande.aggiorna(l); break;
+                case 2: l.setAutori(new ArrayList<>(Arrays.asList(autori[random.nextInt(3)]))); grande.aggiorna(l); break;
+                default: l.setNumCopieDisponibili(random.nextInt(3)); grande.aggiornaDisponibilita(l); break;
+            }
+        }
+        List<Libro> risultati = libri.subList(0, libri.size() / 2);
+
+        // ASSERT
+        for(Collection<Libro> insieme : Arrays.<Collection<Libro>>asList(null, risultati)){
+            Collection<Libro> attesi = insieme == null ? libri : insieme;
+            Map<Integer, Integer> decenni = new TreeMap<>();
+            Map<Autore, Integer> perAutore = new HashMap<>();
+            int disponibili = 0;
+            for(Libro l : attesi){
+                decenni.merge(l.getAnno() / 10 * 10, 1, Integer::sum);
+                perAutore.merge(l.getAutori().get(0), 1, Integer::sum);
+                if(l.isDisponibile()) disponibili++;
+            }
+            ConteggiFaccette f = grande.faccette(insieme, 3);
+            assertEquals(attesi.size(), f.getTotale());
+            assertEquals(disponibili, f.getDisponibili());
+            assertEquals(decenni, f.getPerDecennio());
+            assertEquals(perAutore, f.getAutoriPrincipali());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * @file IndiceCodiciTest.java
+ * @brief Test unitario per le classi IndiceCodici e CodiceNumerico.
+ */
+package test;
+
+import Model.CodiceNumerico;
+import Model.IndiceCodici;
+import org.junit.jupiter.api.Test;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndiceCodiciTest {
+
+    @Test
+    public void testComprimiEdEspandi() {
+        // ASSERT
+        assertEquals(9788845292613L, CodiceNumerico.comprimi("9788845292613", CodiceNumerico.CIFRE_ISBN));
+        assertEquals("0000000042", CodiceNumerico.espandi(CodiceNumerico.comprimi("0000000042", 10), 10));
+        assertEquals(CodiceNumerico.NON_NUMERICO, CodiceNumerico.comprimi("978884529261", CodiceNumerico.CIFRE_ISBN));
+        assertEquals(CodiceNumerico.NON_NUMERICO, CodiceNumerico.comprimi("97888452926X3", CodiceNumerico.CIFRE_ISBN));
+        assertEquals(CodiceNumerico.NON_NUMERICO, CodiceNumerico.comprimi(null, CodiceNumerico.CIFRE_ISBN));
+    }
+
+    @Test
+    public void testCodiciNonNumerici() {
+        IndiceCodici<String> indice = new IndiceCodici<>(CodiceNumerico.CIFRE_MATRICOLA, 0);
+        indice.put("0612700001", "numerico");
+        indice.put("MAT-1", "testuale");
+        indice.put("612700001", "nove cifre");
+
+        // ASSERT
+        assertEquals(3, indice.size());
+        assertEquals("numerico", indice.get(612700001L), "La ricerca per codice compresso trova le matricole numeriche.");
+        assertEquals("nove cifre", indice.get("612700001"), "Un codice con meno cifre non è la stessa matricola.");
+        assertEquals("testuale", indice.remove("MAT-1"));
+        assertNull(indice.get("MAT-1"));
+        assertNull(indice.get(CodiceNumerico.NON_NUMERICO));
+        assertNull(indice.get((String) null));
+    }
+
+    @Test
+    public void testCasualeComeHashMap() {
+        // Codici vicini tra loro, così da provocare collisioni e sequenze lunghe da compattare
+        IndiceCodici<Integer> indice = new IndiceCodici<>(CodiceNumerico.CIFRE_ISBN, 0);
+        Map<String, Integer> atteso = new HashMap<>();
+        Random random = new Random(20);
+        for(int i = 0; i < 200000; i++){
+            String codice = String.format("978%010d", random.nextInt(5000));
+            if(random.nextInt(3) == 0) assertEquals(atteso.remove(codice), indice.remove(codice));
+            else assertEquals(atteso.put(codice, i), indice.put(codice, i));
+        }
+
+        // ASSERT
+        assertEquals(atteso.size(), indice.size());
+        for(int i = 0; i < 5000; i++){
+            String codice = String.format("978%010d", i);
+            assertEquals(atteso.get(codice), indice.get(codice), codice);
+        }
+        indice.clear();
+        assertEquals(0, indice.size());
+        assertNull(indice.get("9780000000001"));
+    }
+}
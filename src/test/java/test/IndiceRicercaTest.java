@@ -0,0 +1,102 @@
+/**
+ * @file IndiceRicercaTest.java
+ * @brief Test unitario per la classe IndiceRicerca.
+ */
+package test;
+import Controller.IndiceRicerca;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+public class IndiceRicercaTest {
+
+    private IndiceRicerca<String[]> indice;
+    private String[] rosa, pendolo, commedia;
+
+    @BeforeEach
+    void setUp(){
+        //Ogni elemento è un array di testi: titolo ed autore
+        indice = new IndiceRicerca<>(Arrays::asList);
+        rosa = new String[]{"Il Nome della Rosa", "Umberto Eco"};
+        pendolo = new String[]{"Il pendolo di Foucault", "Umberto Eco"};
+        commedia = new String[]{"La Divina Commedia", "Dante Alighieri"};
+        indice.aggiungi(rosa);
+        indice.aggiungi(pendolo);
+        indice.aggiungi(commedia);
+    }
+
+    @Test
+    public void testTokenizza_MinuscoloESeparatori() {
+        // ASSERT
+        assertEquals(Arrays.asList("l", "isola", "di", "arturo", "vol", "2"), IndiceRicerca.tokenizza("L'Isola di Arturo - Vol.2"));
+        assertTrue(IndiceRicerca.tokenizza("  ,.- ").isEmpty());
+    }
+
+    @Test
+    public void testCerca_Prefisso() {
+        // ASSERT
+        assertEquals(Collections.singleton(commedia), indice.cerca("comm"));
+        assertEquals(2, indice.cerca("UMB").size(), "La ricerca non deve distinguere maiuscole e minuscole.");
+    }
+
+    @Test
+    public void testCerca_PiuParole_TutteRichieste() {
+        // ASSERT
+        assertEquals(Collections.singleton(pendolo), indice.cerca("eco pend"));
+        assertTrue(indice.cerca("eco dante").isEmpty(), "Tutte le parole devono essere presenti.");
+    }
+
+    @Test
+    public void testCerca_RicercaVuota_RestituisceNull() {
+        // ASSERT
+        assertNull(indice.cerca(""));
+        assertNull(indice.cerca(" - "));
+        assertNull(indice.cerca(null));
+    }
+
+    @Test
+    public void testAggiorna_ParoleVecchieRimosse() {
+        rosa[0] = "Baudolino";
+        indice.aggiorna(rosa);
+
+        // ASSERT
+        assertTrue(indice.cerca("rosa").isEmpty(), "Le parole precedenti alla modifica non devono più essere indicizzate.");
+        assertEquals(Collections.singleton(rosa), indice.cerca("baud"));
+        assertEquals(3, indice.getNumElementi());
+    }
+
+    @Test
+    public void testRimuovi() {
+        indice.rimuovi(pendolo);
+
+        // ASSERT
+        assertEquals(Collections.singleton(rosa), indice.cerca("eco"));
+        assertEquals(2, indice.getNumElementi());
+    }
+
+    @Test
+    public void testCercaApprossimata_ErroriDiBattitura() {
+        Map<String[], Integer> trovati = indice.cercaApprossimata("Umbreto Ecco");
+
+        // ASSERT
+        assertEquals(2, trovati.size());
+        assertEquals(3, trovati.get(rosa).intValue(), "Le distanze delle parole della ricerca si sommano.");
+        assertEquals(Integer.valueOf(1), indice.cercaApprossimata("Comedia").get(commedia));
+        assertEquals(Collections.singletonMap(pendolo, 2), indice.cercaApprossimata("pendlo foucalt"));
+        assertTrue(indice.cercaApprossimata("rosa penddolo").isEmpty(), "Ogni parola della ricerca deve trovare una parola simile.");
+        assertTrue(indice.cercaApprossimata("da").isEmpty(), "Sotto i tre caratteri non sono tollerati errori.");
+        assertNull(indice.cercaApprossimata(" - "));
+    }
+
+    @Test
+    public void testCercaApprossimata_DopoRimozione() {
+        indice.rimuovi(commedia);
+
+        // ASSERT
+        assertTrue(indice.cercaApprossimata("comedia").isEmpty(), "Le parole degli elementi rimossi non devono più essere trovate.");
+        indice.aggiungi(commedia);
+        assertEquals(1, indice.cercaApprossimata("comedia").size());
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * @file IndiceTrigrammiTest.java
+ * @brief Test unitario per la classe IndiceTrigrammi.
+ */
+package test;
+import Controller.IndiceTrigrammi;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class IndiceTrigrammiTest {
+
+    private IndiceTrigrammi<String[]> indice;
+    private String[] rossi, russo, bianchi;
+
+    @BeforeEach
+    void setUp(){
+        //Ogni elemento è un array di testi: cognome e matricola
+        indice = new IndiceTrigrammi<>(Arrays::asList);
+        rossi = new String[]{"Rossi", "0612707788"};
+        russo = new String[]{"Russo", "0612707789"};
+        bianchi = new String[]{"Bianchi", "0612701234"};
+        indice.aggiungi(rossi);
+        indice.aggiungi(russo);
+        indice.aggiungi(bianchi);
+    }
+
+    @Test
+    public void testCerca_SottostringaInterna() {
+        // ASSERT
+        assertEquals(Collections.singleton(rossi), indice.cerca("ssi"));
+        assertEquals(Collections.singleton(bianchi), indice.cerca("ANCH"), "La ricerca non deve distinguere maiuscole e minuscole.");
+        assertEquals(3, indice.cerca("061270").size());
+    }
+
+    @Test
+    public void testCerca_TrigrammaMancante() {
+        // "ssi" è presente in Rossi, ma "sis" ed "iss" non sono presenti in nessun testo
+        assertTrue(indice.cerca("ssiss").isEmpty(), "Tutti i trigrammi della ricerca devono essere presenti.");
+    }
+
+    @Test
+    public void testCerca_NonAttraversaITesti() {
+        // Il cognome e la matricola sono testi separati
+        assertTrue(indice.cerca("ssi06").isEmpty());
+    }
+
+    @Test
+    public void testCerca_RicercaBreve() {
+        // ASSERT
+        assertEquals(2, indice.cerca("ss").size());
+        assertEquals(Collections.singleton(bianchi), indice.cerca("b"));
+    }
+
+    @Test
+    public void testCerca_RicercaVuota_RestituisceNull() {
+        // ASSERT
+        assertNull(indice.cerca(""));
+        assertNull(indice.cerca(null));
+    }
+
+    @Test
+    public void testAggiornaERimuovi() {
+        rossi[0] = "Verdi";
+        indice.aggiorna(rossi);
+        indice.rimuovi(russo);
+
+        // ASSERT
+        assertTrue(indice.cerca("ross").isEmpty(), "Il vecchio cognome non deve più essere indicizzato.");
+        assertEquals(Collections.singleton(rossi), indice.cerca("erd"));
+        assertTrue(indice.cerca("russ").isEmpty(), "L'elemento rimosso non deve più essere trovato.");
+        assertEquals(2, indice.getNumElementi());
+    }
+
+    @Test
+    public void testRimozioniNumerose_RicercheCorrette() {
+        String[][] altri = new String[3000][];
+        for(int i = 0; i < altri.length; i++){
+            altri[i] = new String[]{"Cognome" + i, String.format("06127%05d", i)};
+            indice.aggiungi(altri[i]);
+        }
+        // Dopo molte rimozioni i numeri degli elementi vengono riassegnati
+        for(int i = 0; i < altri.length; i++)
+            if(i % 10 != 0) indice.rimuovi(altri[i]);
+
+        // ASSERT
+        assertEquals(303, indice.getNumElementi());
+        assertEquals(Collections.singleton(altri[2990]), indice.cerca("cognome2990"));
+        assertTrue(indice.cerca("cognome2991").isEmpty());
+        assertEquals(Collections.singleton(rossi), indice.cerca("ssi"));
+        assertEquals(300, indice.cerca("cognome").size());
+    }
+}
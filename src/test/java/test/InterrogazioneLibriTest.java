@@ -0,0 +1,138 @@
+/**
+ * @file InterrogazioneLibriTest.java
+ * @brief Test unitario per le classi InterrogazioneLibri e PianoInterrogazione.
+ */
+package test;
+
+import Controller.InterrogazioneLibri;
+import Controller.PianoInterrogazione;
+import Controller.PianoInterrogazione.Accesso;
+import Controller.ServizioBiblioteca;
+import Model.Autore;
+import Model.Libro;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InterrogazioneLibriTest {
+
+    private final String FILE_SNAPSHOT = "test_interrogazione.bin";
+    private final String FILE_REGISTRO = "test_interrogazione.journal";
+
+    private static final String[] PAROLE = {"rosa", "nome", "pendolo", "isola", "giorno", "prima", "storia", "mare"};
+    private static final Autore[] AUTORI = {new Autore("Umberto", "Eco"), new Autore("Italo", "Calvino"),
+            new Autore("Elsa", "Morante"), new Autore("Primo", "Levi")};
+
+    private ServizioBiblioteca servizio;
+    private List<Libro> libri;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        new File(FILE_SNAPSHOT).delete();
+        new File(FILE_REGISTRO).delete();
+        servizio = new ServizioBiblioteca(FILE_SNAPSHOT, FILE_REGISTRO);
+
+        Random random = new Random(23);
+        libri = new ArrayList<>();
+        for(int i = 0; i < 400; i++){
+            ArrayList<Autore> autori = new ArrayList<>();
+            autori.add(AUTORI[random.nextInt(AUTORI.length)]);
+            String titolo = PAROLE[random.nextInt(PAROLE.length)] + " " + PAROLE[random.nextInt(PAROLE.length)];
+            String isbn = (random.nextBoolean() ? "978" : "979") + String.format("%010d", i);
+            libri.add(servizio.aggiungiLibro(titolo, autori, 1950 + random.nextInt(70), isbn, 2, random.nextInt(3)));
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        servizio.chiudi();
+        new File(FILE_SNAPSHOT).delete();
+        new File(FILE_REGISTRO).delete();
+    }
+
+    @Test
+    public void testPiano_SceglieLIndicePiuSelettivo() {
+        Libro raro = libri.get(7);
+        PianoInterrogazione perISBN = servizio.interrogaLibri().prefissoISBN(raro.getISBN()).disponibili().annoTra(1950, 2020).spiega();
+        PianoInterrogazione perAnno = servizio.interrogaLibri().annoTra(1960, 1960).disponibili().spiega();
+        PianoInterrogazione breve = servizio.interrogaLibri().titoloContiene("ro").spiega();
+
+        // ASSERT
+        assertEquals(Accesso.PREFISSO_ISBN, perISBN.getAccesso());
+        assertEquals(1, perISBN.getStima());
+        assertEquals(400, perISBN.getStime().get(Accesso.SCANSIONE).intValue());
+        assertTrue(perISBN.toString().contains("Filtri: anno tra 1950 e 2020, disponibili"), perISBN.toString());
+        assertEquals(Accesso.ANNO, perAnno.getAccesso());
+        assertTrue(perAnno.toString().contains("Filtri: nessuno"), "Anno e disponibilità sono intersecati dagli indici.");
+        assertEquals(Accesso.SCANSIONE, breve.getAccesso(), "Una ricerca di meno di tre caratteri non usa i trigrammi.");
+        assertEquals(-1, breve.getEsaminati());
+    }
+
+    @Test
+    public void testEsegui_OrdinamentoEdIntervallo() {
+        List<Libro> tutti = servizio.interrogaLibri().autore(AUTORI[0]).ordinaPer(InterrogazioneLibri.Ordine.ANNO, true).esegui();
+        List<Libro> pagina = servizio.interrogaLibri().autore(AUTORI[0]).ordinaPer(InterrogazioneLibri.Ordine.ANNO, true).salta(3).limite(5).esegui();
+
+        // ASSERT
+        for(int i = 1; i < tutti.size(); i++) assertTrue(tutti.get(i - 1).getAnno() >= tutti.get(i).getAnno());
+        assertEquals(tutti.subList(3, 8), pagina);
+        assertEquals(libri.subList(0, 10), servizio.interrogaLibri().limite(10).esegui(), "Senza condizioni si ottiene il catalogo.");
+        assertTrue(servizio.interrogaLibri().annoTra(2000, 1990).esegui().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> servizio.interrogaLibri().limite(-1));
+    }
+
+    @Test
+    public void testEsegui_EquivalenteAllaScansione() throws Exception {
+        Random random = new Random(5);
+        for(int n = 0; n < 300; n++){
+            InterrogazioneLibri q = servizio.interrogaLibri();
+            String titolo = random.nextInt(3) == 0 ? PAROLE[random.nextInt(PAROLE.length)].substring(0, 2 + random.nextInt(3)) : null;
+            Autore autore = random.nextInt(3) == 0 ? AUTORI[random.nextInt(AUTORI.length)] : null;
+            int da = 1940 + random.nextInt(90), a = da + random.nextInt(15);
+            boolean conAnno = random.nextBoolean();
+            boolean soloDisponibili = random.nextBoolean();
+            String prefisso = random.nextInt(4) == 0 ? "97" + random.nextInt(10) + (random.nextBoolean() ? "000000" : "") : null;
+            q.titoloContiene(titolo).autore(autore).prefissoISBN(prefisso);
+            if(conAnno) q.annoTra(da, a);
+            if(soloDisponibili) q.disponibili();
+
+            List<Libro> attesi = new ArrayList<>();
+            for(Libro l : servizio.getLibreria().getLibreria()){
+                if(titolo != null && !l.getTitolo().toLowerCase(Locale.ROOT).contains(titolo)) continue;
+                if(autore != null && !l.getAutori().contains(autore)) continue;
+                if(conAnno && (l.getAnno() < da || l.getAnno() > a)) continue;
+                if(soloDisponibili && !l.isDisponibile()) continue;
+                if(prefisso != null && !l.getISBN().startsWith(prefisso)) continue;
+                attesi.add(l);
+            }
+
+            // ASSERT
+            assertEquals(attesi, q.esegui(), q.spiega().toString());
+
+            // Le modifiche devono restare visibili agli indici usati dal piano
+            if(n % 50 == 0){
+                Libro l = libri.get(random.nextInt(libri.size()));
+                servizio.modificaLibro(l, l.getTitolo(), new ArrayList<>(l.getAutori()), 1950 + random.nextInt(70), l.getISBN(), 2, random.nextInt(3));
+            }
+        }
+    }
+
+    @Test
+    public void testAnalizza_LibriEsaminati() {
+        PianoInterrogazione perTitolo = servizio.interrogaLibri().titoloContiene("storia").limite(3).analizza();
+        PianoInterrogazione scansione = servizio.interrogaLibri().titoloContiene("ia").limite(3).analizza();
+
+        // ASSERT
+        assertEquals(Accesso.TITOLO, perTitolo.getAccesso());
+        assertEquals(perTitolo.getStima(), perTitolo.getEsaminati(), "Vengono esaminati solo i candidati dei trigrammi.");
+        assertEquals(3, perTitolo.getRestituiti());
+        assertTrue(perTitolo.toString().endsWith("Esecuzione: esaminati " + perTitolo.getEsaminati() + " libri, restituiti 3"), perTitolo.toString());
+        assertTrue(scansione.getEsaminati() < 400, "Senza ordinamento la scansione si ferma al limite.");
+    }
+}
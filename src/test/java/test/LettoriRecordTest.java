@@ -0,0 +1,101 @@
+/**
+ * @file LettoriRecordTest.java
+ * @brief Test unitario per le classi LettoreCSV e LettoreJSON.
+ */
+package test;
+
+import Controller.LettoreCSV;
+import Controller.LettoreJSON;
+import Controller.LettoreRecord;
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.io.StringReader;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LettoriRecordTest {
+
+    // --- Test CSV ---
+
+    @Test
+    public void testCSV_ColonneInOrdineRichiesto() throws Exception {
+        LettoreRecord lettore = new LettoreCSV(new StringReader("ISBN,Titolo,extra\r\n9788845292613,Il nome della rosa,x\r\n"), "titolo", "isbn");
+
+        String[] record = lettore.prossimo();
+
+        // ASSERT
+        assertArrayEquals(new String[]{"Il nome della rosa", "9788845292613"}, record);
+        assertEquals(2, lettore.getPosizione());
+        assertNull(lettore.prossimo(), "Il file è terminato.");
+    }
+
+    @Test
+    public void testCSV_VirgoletteEARigheVuote() throws Exception {
+        String csv = "titolo,autori\n"
+                + "\"Uno, nessuno e \"\"centomila\"\"\",Luigi Pirandello\n"
+                + "\n"
+                + "Multilinea,\"Umberto Eco,\nItalo Calvino\"\n"
+                + "Corto\n";
+        LettoreRecord lettore = new LettoreCSV(new StringReader(csv), "titolo", "autori");
+
+        // ASSERT
+        assertArrayEquals(new String[]{"Uno, nessuno e \"centomila\"", "Luigi Pirandello"}, lettore.prossimo());
+        assertArrayEquals(new String[]{"Multilinea", "Umberto Eco,\nItalo Calvino"}, lettore.prossimo());
+        assertEquals(4, lettore.getPosizione(), "Le righe vuote contano nella numerazione.");
+        assertArrayEquals(new String[]{"Corto", null}, lettore.prossimo(), "Un campo mancante nel record è null.");
+        assertEquals(6, lettore.getPosizione());
+    }
+
+    @Test
+    public void testCSV_ColonnaMancanteNellIntestazione() {
+        // ASSERT
+        assertThrows(IOException.class, () -> new LettoreCSV(new StringReader("titolo,anno\n"), "titolo", "isbn"));
+        assertThrows(IOException.class, () -> new LettoreCSV(new StringReader(""), "titolo"));
+    }
+
+    @Test
+    public void testCSV_VirgoletteNonChiuse() throws Exception {
+        LettoreRecord lettore = new LettoreCSV(new StringReader("titolo\n\"aperto\n"), "titolo");
+
+        // ASSERT
+        assertThrows(IOException.class, lettore::prossimo);
+    }
+
+    // --- Test JSON ---
+
+    @Test
+    public void testJSON_ArrayDiOggetti() throws Exception {
+        String json = "[{\"titolo\": \"Il nome della \\\"rosa\\\"\", \"anno\": 1980, \"ignorato\": {\"a\": [1, 2]},"
+                + " \"autori\": [{\"nome\": \"Umberto\", \"cognome\": \"Eco\"}, \"Italo Calvino\"]},"
+                + " {\"titolo\": \"Secondo\", \"anno\": null}]";
+        LettoreRecord lettore = new LettoreJSON(new StringReader(json), "titolo", "autori", "anno");
+
+        // ASSERT
+        assertArrayEquals(new String[]{"Il nome della \"rosa\"", "Umberto Eco, Italo Calvino", "1980"}, lettore.prossimo());
+        assertArrayEquals(new String[]{"Secondo", null, null}, lettore.prossimo());
+        assertEquals(2, lettore.getPosizione());
+        assertNull(lettore.prossimo());
+        assertNull(lettore.prossimo(), "Dopo la fine dell'array non ci sono altri record.");
+    }
+
+    @Test
+    public void testJSON_OggettiUnoPerRiga() throws Exception {
+        LettoreRecord lettore = LettoreRecord.apri(new StringReader("{\"isbn\":\"1\"}\n{\"isbn\":\"\\u0032\"}\n"), LettoreRecord.Formato.JSON, "isbn");
+
+        // ASSERT
+        assertArrayEquals(new String[]{"1"}, lettore.prossimo());
+        assertArrayEquals(new String[]{"2"}, lettore.prossimo());
+        assertNull(lettore.prossimo());
+    }
+
+    @Test
+    public void testJSON_SintassiNonValida() throws Exception {
+        LettoreRecord lettore = new LettoreJSON(new StringReader("[{\"titolo\": \"Primo\"}, {\"titolo\" \"Secondo\"}]"), "titolo");
+
+        // ASSERT
+        assertArrayEquals(new String[]{"Primo"}, lettore.prossimo());
+        assertThrows(IOException.class, lettore::prossimo);
+        LettoreRecord nonChiuso = new LettoreJSON(new StringReader("[{\"titolo\": \"Primo\"}"), "titolo");
+        nonChiuso.prossimo();
+        assertThrows(IOException.class, nonChiuso::prossimo, "L'array non è chiuso.");
+    }
+}
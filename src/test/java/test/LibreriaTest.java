@@ -182,4 +182,169 @@ public class LibreriaTest {
         // ASSERTl
         assertTrue(libreria.isInLibreria(libro1), "Il libro 1 dev'essere presente");
     }
+    
+    // --- Test Indice ISBN ---
+    
+    @Test
+    public void testCercaPerISBN_Presente() throws Exception{
+        libreria.aggiungiLibro(libro1);
+        libreria.aggiungiLibro(libro2);
+        
+        // ASSERT
+        assertSame(libro2, libreria.cercaPerISBN("9788820733834"), "Deve essere restituita l'istanza presente nella libreria.");
+        assertNull(libreria.cercaPerISBN("9780000000000"), "Un ISBN non presente deve restituire null.");
+    }
+    
+    @Test
+    public void testCercaPerISBN_DopoEliminazione() throws Exception{
+        libreria.aggiungiLibro(libro1);
+        libreria.eliminaLibro(libro1);
+        
+        // ASSERT
+        assertNull(libreria.cercaPerISBN(libro1.getISBN()), "Il libro eliminato non deve essere più indicizzato.");
+    }
+    
+    @Test
+    public void testModificaLibro_NuovoISBN_IndiceAggiornato() throws Exception{
+        libreria.aggiungiLibro(libro1);
+        libreria.modificaLibro(libro1, libro1.getTitolo(), libro1.getAutori(), libro1.getAnno(), "9876543210987", 10, 10);
+        
+        // ASSERT
+        assertNull(libreria.cercaPerISBN("9788828869269"), "Il vecchio ISBN non deve più essere indicizzato.");
+        assertSame(libro1, libreria.cercaPerISBN("9876543210987"), "Il libro deve essere trovato con il nuovo ISBN.");
+        assertFalse(libreria.isInLibreria(new Libro("Altro", new ArrayList<>(), 2000, "9788828869269", 1, 1)));
+    }
+    
+    @Test
+    public void testModificaLibro_ISBNGiaUsato_LanciaEccezione() throws Exception{
+        libreria.aggiungiLibro(libro1);
+        libreria.aggiungiLibro(libro2);
+        
+        // ASSERT
+        assertThrows(Exception.class, () -> libreria.modificaLibro(libro1, "Titolo", libro1.getAutori(), 2000, libro2.getISBN(), 10, 10));
+        assertEquals("9788828869269", libro1.getISBN(), "Il libro non deve essere modificato se l'ISBN è già usato.");
+        assertSame(libro2, libreria.cercaPerISBN(libro2.getISBN()));
+    }
+    
+    @Test
+    public void testCostruttoreParametrizzato_IndiceCostruito() {
+        ArrayList<Libro> listaIniziale = new ArrayList<>();
+        listaIniziale.add(libro1);
+        
+        // ASSERT
+        assertSame(libro1, new Libreria(listaIniziale).cercaPerISBN(libro1.getISBN()));
+    }
+
+    @Test
+    public void testPosizioneDi_AggiornataDopoEliminazione() throws Exception {
+        libreria.aggiungiLibro(libro1);
+        libreria.aggiungiLibro(libro2);
+        libreria.eliminaLibro(libro1);
+        
+        // ASSERT
+        assertEquals(0, libreria.posizioneDi(libro2), "Il libro successivo a quello eliminato deve scalare di una posizione.");
+        assertEquals(-1, libreria.posizioneDi(libro1));
+    }
+    
+    // --- Test Registro Autori ---
+    
+    @Test
+    public void testCercaPerAutore_IstanzeCondivise() throws Exception {
+        ArrayList<Autore> autori3 = new ArrayList<>();
+        Collections.addAll(autori3, new Autore("Andrea","Torrente"), new Autore("Carlo","Sbordone"), new Autore("Carlo","Sbordone"));
+        Libro libro3 = new Libro("Titolo", autori3, 2000, "9788800000001", 1, 1);
+        libreria.aggiungiLibro(libro1);
+        libreria.aggiungiLibro(libro2);
+        libreria.aggiungiLibro(libro3);
+        
+        // ASSERT
+        assertSame(libro1.getAutori().get(0), libro3.getAutori().get(0), "Lo stesso autore deve essere un'unica istanza.");
+        assertSame(libro2.getAutori().get(1), libro3.getAutori().get(2), "Anche gli autori ripetuti nella lista vengono condivisi.");
+        assertEquals(Arrays.asList(libro1, libro3), libreria.cercaPerAutore(new Autore("Andrea","Torrente")));
+        assertEquals(Arrays.asList(libro2, libro3), libreria.cercaPerAutore(new Autore("Carlo","Sbordone")), "Un libro compare una volta sola tra quelli dell'autore.");
+        assertEquals(4, libreria.getRegistroAutori().size());
+        assertTrue(libreria.cercaPerAutore(new Autore("Italo","Calvino")).isEmpty());
+    }
+    
+    @Test
+    public void testCercaPerAutore_DopoModificaEdEliminazione() throws Exception {
+        libreria.aggiungiLibro(libro1);
+        libreria.aggiungiLibro(libro2);
+        
+        libreria.modificaLibro(libro1, libro1.getTitolo(), Arrays.asList(new Autore("Paolo","Marcellini")), 2025, libro1.getISBN(), 10, 10);
+        
+        // ASSERT
+        assertTrue(libreria.cercaPerAutore(new Autore("Andrea","Torrente")).isEmpty(), "L'autore rimasto senza libri viene dimenticato.");
+        assertEquals(Arrays.asList(libro2, libro1), libreria.cercaPerAutore(new Autore("Paolo","Marcellini")));
+        assertSame(libro2.getAutori().get(0), libro1.getAutori().get(0));
+        
+        libreria.eliminaLibro(libro2);
+        assertEquals(Arrays.asList(libro1), libreria.cercaPerAutore(new Autore("Paolo","Marcellini")));
+        assertNull(libreria.getRegistroAutori().canonico(new Autore("Carlo","Sbordone")));
+    }
+    
+    @Test
+    public void testCercaPerAutore_DopoModificaAutoriDelLibro() throws Exception {
+        libreria.aggiungiLibro(libro1);
+        libreria.aggiungiLibro(libro2);
+        
+        libro1.aggiungiAutore(new Autore("Carlo","Sbordone"));
+        libro1.rimuoviAutore(new Autore("Andrea","Torrente"));
+        
+        // ASSERT
+        assertTrue(libreria.cercaPerAutore(new Autore("Andrea","Torrente")).isEmpty(), "Gli autori rimossi dal libro devono essere aggiornati nel registro.");
+        assertEquals(Arrays.asList(libro2, libro1), libreria.cercaPerAutore(new Autore("Carlo","Sbordone")));
+        assertSame(libro2.getAutori().get(1), libro1.getAutori().get(1), "L'autore aggiunto deve essere l'istanza canonica.");
+        
+        libro1.setAutori(new ArrayList<>());
+        assertEquals(Arrays.asList(libro2), libreria.cercaPerAutore(new Autore("Carlo","Sbordone")));
+    }
+    
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testCercaPerAutore_DopoSetNomeDellAutore() throws Exception {
+        Libro libro3 = new Libro("Titolo", new ArrayList<>(Arrays.asList(new Autore("Andrea","Sbordone"))), 2000, "9788800000001", 1, 1);
+        libreria.aggiungiLibro(libro1);
+        libreria.aggiungiLibro(libro2);
+        libreria.aggiungiLibro(libro3);
+        Autore sbordone = libro2.getAutori().get(1);
+        
+        sbordone.setNome("Andrea");
+        
+        // ASSERT
+        assertEquals("Andrea Sbordone", sbordone.toString());
+        assertEquals("Andrea Sbordone", libro2.getAutori().get(1).toString(), "Il nuovo nome deve valere per i libri dell'autore.");
+        assertTrue(libreria.cercaPerAutore(new Autore("Carlo","Sbordone")).isEmpty(), "L'autore rinominato non deve restare nel registro con il vecchio nome.");
+        assertEquals(Arrays.asList(libro3, libro2), libreria.cercaPerAutore(new Autore("Andrea","Sbordone")));
+        assertSame(libro3.getAutori().get(0), libro2.getAutori().get(1), "L'autore rinominato deve essere sostituito dall'istanza canonica.");
+    }
+    
+    @Test
+    public void testCostruttoreParametrizzato_AutoriCondivisi() {
+        Libro copia = new Libro("Altro", new ArrayList<>(Arrays.asList(new Autore("Andrea","Torrente"))), 2000, "9788800000002", 1, 1);
+        Libreria costruita = new Libreria(new ArrayList<>(Arrays.asList(libro1, copia)));
+        
+        // ASSERT
+        assertSame(libro1.getAutori().get(0), copia.getAutori().get(0), "Il registro viene costruito anche dalla lista iniziale.");
+        assertEquals(2, costruita.cercaPerAutore(new Autore("Andrea","Torrente")).size());
+    }
+
+    @Test
+    public void testCercaPerPrefissoISBN() throws Exception {
+        Libro a = new Libro("A", new ArrayList<>(), 2000, "9788800000003", 1, 1);
+        Libro b = new Libro("B", new ArrayList<>(), 2000, "9788800000001", 1, 1);
+        Libro c = new Libro("C", new ArrayList<>(), 2000, "9791200000000", 1, 1);
+        Libro vecchio = new Libro("D", new ArrayList<>(), 2000, "97888-OLD", 1, 1);
+        for(Libro l : Arrays.asList(a, b, c, vecchio)) libreria.aggiungiLibro(l);
+
+        // ASSERT
+        assertEquals(Arrays.asList(b, a, vecchio), libreria.cercaPerPrefissoISBN("97888"), "I codici numerici sono in ordine di ISBN.");
+        assertEquals(3, libreria.contaPerPrefissoISBN("97888"));
+        assertEquals(Arrays.asList(vecchio), libreria.cercaPerPrefissoISBN("97888-"));
+        assertEquals(0, libreria.contaPerPrefissoISBN("97888000000011"), "Un prefisso più lungo di un ISBN non trova codici numerici.");
+
+        libreria.modificaLibro(c, "C", new ArrayList<>(), 2000, "9788800000002", 1, 1);
+        libreria.eliminaLibro(a);
+        assertEquals(Arrays.asList(b, c, vecchio), libreria.cercaPerPrefissoISBN("978"));
+    }
 }
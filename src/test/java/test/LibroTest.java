@@ -8,6 +8,12 @@ import Model.Autore;
 import org.junit.jupiter.api.*;
 import static org.junit.jupiter.api.Assertions.*;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class LibroTest {
     private Libro libro;
@@ -361,4 +367,106 @@ public class LibroTest {
         //Assert
         assertNotEquals(libro.hashCode(),libro2.hashCode(),"L'hashcode deve essere diverso per due oggetti diversi."); 
     }
+    
+    // --- Test ISBN compresso ---
+    
+    @Test
+    void testCodiceISBN_ZeriInizialiENonNumerico() throws Exception {
+        Libro zeri = new Libro(TITOLO_INIZIALE, listaAutori, ANNO_INIZIALE, "0000000000123", 1, 1);
+        Libro nonNumerico = new Libro(TITOLO_INIZIALE, listaAutori, ANNO_INIZIALE, "ISBN-NON-NUM", 1, 1);
+        Libro stessoNonNumerico = new Libro(TITOLO_NUOVO, listaAutori, ANNO_INIZIALE, "ISBN-NON-NUM", 1, 1);
+        
+        //Assert
+        assertEquals(9788807050268L, libro.getCodiceISBN());
+        assertEquals("0000000000123", zeri.getISBN(), "Gli zeri iniziali devono essere conservati.");
+        assertEquals(Model.CodiceNumerico.NON_NUMERICO, nonNumerico.getCodiceISBN());
+        assertEquals("ISBN-NON-NUM", nonNumerico.getISBN());
+        assertEquals(nonNumerico, stessoNonNumerico);
+        assertEquals(nonNumerico.hashCode(), stessoNonNumerico.hashCode());
+        assertNotEquals(zeri, new Libro(TITOLO_INIZIALE, listaAutori, ANNO_INIZIALE, "123", 1, 1), "Un codice di lunghezza diversa è un altro ISBN.");
+        libro.setISBN("ISBN-NON-NUM");
+        assertEquals(nonNumerico, libro, "Il setter aggiorna la forma compressa.");
+    }
+    
+    @Test
+    void testSerializzazione_ISBNComeString() throws Exception {
+        java.io.ByteArrayOutputStream buffer = new java.io.ByteArrayOutputStream();
+        try(java.io.ObjectOutputStream out = new java.io.ObjectOutputStream(buffer)){
+            out.writeObject(libro);
+        }
+        Libro letto;
+        try(java.io.ObjectInputStream in = new java.io.ObjectInputStream(new java.io.ByteArrayInputStream(buffer.toByteArray()))){
+            letto = (Libro) in.readObject();
+        }
+        
+        //Assert
+        assertEquals(ISBN_INIZIALE, letto.getISBN());
+        assertEquals(libro.getCodiceISBN(), letto.getCodiceISBN());
+        assertEquals(TITOLO_INIZIALE, letto.getTitolo());
+        assertEquals(NUM_COPIE_DISPONIBILI_INIZIALE, letto.getNumCopieDisponibili());
+        assertEquals(String.class, java.io.ObjectStreamClass.lookup(Libro.class).getField("ISBN").getType(), "Il formato salvato non cambia.");
+    }
+    
+    // --- Test degli Osservatori ---
+    
+    @Test
+    void testOsservatore_NotificatoSoloPerCampiIndicizzati() {
+        int[] notifiche = {0};
+        java.util.function.Consumer<Libro> osservatore = l -> notifiche[0]++;
+        libro.aggiungiOsservatore(osservatore);
+        
+        libro.setTitolo(TITOLO_NUOVO);
+        libro.setISBN(ISBN_NUOVO);
+        libro.setAutori(new ArrayList<>());
+        libro.setAnno(ANNO_NUOVO);
+        libro.aumentaCopie();
+        
+        //Assert
+        assertEquals(3, notifiche[0], "Devono essere notificate solo le modifiche di titolo, autori ed ISBN.");
+        
+        libro.rimuoviOsservatore(osservatore);
+        libro.setTitolo(TITOLO_INIZIALE);
+        assertEquals(3, notifiche[0], "Un osservatore rimosso non deve più essere notificato.");
+    }
+
+    @Test
+    void testModifica_UnaSolaNotificaACampiAggiornati() {
+        List<String> viste = new ArrayList<>();
+        libro.aggiungiOsservatore(l -> viste.add(l.getTitolo() + " " + l.getISBN() + " " + l.getAnno() + " " + l.getNumCopieTotali()));
+        
+        libro.modifica(TITOLO_NUOVO, new ArrayList<>(), ANNO_NUOVO, ISBN_NUOVO, 5, NUM_COPIE_DISPONIBILI_NUOVO);
+        
+        //Assert
+        assertEquals(1, viste.size(), "La modifica di tutti i campi deve notificare gli osservatori una volta sola.");
+        assertEquals(TITOLO_NUOVO + " " + ISBN_NUOVO + " " + ANNO_NUOVO + " " + 5, viste.get(0), "L'osservatore deve vedere tutti i campi già aggiornati.");
+        assertTrue(libro.getAutori().isEmpty());
+        assertEquals(NUM_COPIE_DISPONIBILI_NUOVO, libro.getNumCopieDisponibili());
+    }
+
+    @Test
+    public void testDiminuisciCopie_Concorrente_NessunaCopiaInEccesso() throws Exception {
+        Libro conteso = new Libro(TITOLO_INIZIALE, new ArrayList<>(), ANNO_INIZIALE, ISBN_INIZIALE, 500, 500);
+        AtomicInteger riusciti = new AtomicInteger();
+        
+        //8 thread tentano in tutto 800 prestiti su 500 copie
+        ExecutorService thread = Executors.newFixedThreadPool(8);
+        List<Callable<Void>> compiti = new ArrayList<>();
+        for(int t = 0; t < 8; t++){
+            compiti.add(() -> {
+                for(int i = 0; i < 100; i++){
+                    try{
+                        conteso.diminuisciCopie();
+                        riusciti.incrementAndGet();
+                    }catch(Exception e){ /* copie esaurite */ }
+                }
+                return null;
+            });
+        }
+        for(Future<Void> f : thread.invokeAll(compiti)) f.get();
+        thread.shutdown();
+        
+        //Assert
+        assertEquals(500, riusciti.get(), "Devono riuscire esattamente tanti prestiti quante sono le copie.");
+        assertEquals(0, conteso.getNumCopieDisponibili());
+    }
 }
@@ -0,0 +1,77 @@
+/**
+ * @file LockStriatiTest.java
+ * @brief Test unitario per la classe LockStriati.
+ */
+package test;
+
+import Controller.LockStriati;
+import org.junit.jupiter.api.Test;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LockStriatiTest {
+
+    @Test
+    public void testCostruttore_PotenzaDiDue() {
+        // ASSERT
+        assertEquals(64, new LockStriati(64).getNumStrisce());
+        assertEquals(64, new LockStriati(40).getNumStrisce());
+        assertEquals(1, new LockStriati(1).getNumStrisce());
+    }
+
+    @Test
+    public void testBlocca_ChiaviNellaStessaStriscia() throws Exception {
+        //Con una sola striscia tutte le chiavi coincidono: il lock va preso e rilasciato una volta sola
+        LockStriati lock = new LockStriati(1);
+        LockStriati.Blocco b = lock.blocca("9788804668237", "0612709535");
+        try{
+            assertEquals(lock.strisciaDi("9788804668237"), lock.strisciaDi("0612709535"));
+        }finally{ b.rilascia(); }
+
+        // ASSERT
+        ExecutorService altro = Executors.newSingleThreadExecutor();
+        Future<Boolean> preso = altro.submit(() -> {
+            lock.blocca("9788804668237").rilascia();
+            return true;
+        });
+        assertTrue(preso.get(5, TimeUnit.SECONDS), "Il lock deve essere stato rilasciato del tutto.");
+        altro.shutdown();
+    }
+
+    @Test
+    public void testBlocca_OrdineInversoSenzaDeadlock() throws Exception {
+        LockStriati lock = new LockStriati(64);
+        String a = "9788804668237", b = "0612709535";
+        int[] contatore = {0};
+        CountDownLatch via = new CountDownLatch(1);
+
+        ExecutorService thread = Executors.newFixedThreadPool(2);
+        Future<?> primo = thread.submit(() -> {
+            via.await();
+            for(int i = 0; i < 10000; i++){
+                LockStriati.Blocco x = lock.blocca(a, b);
+                try{ contatore[0]++; }finally{ x.rilascia(); }
+            }
+            return null;
+        });
+        Future<?> secondo = thread.submit(() -> {
+            via.await();
+            for(int i = 0; i < 10000; i++){
+                LockStriati.Blocco x = lock.blocca(b, a);
+                try{ contatore[0]++; }finally{ x.rilascia(); }
+            }
+            return null;
+        });
+        via.countDown();
+        primo.get(30, TimeUnit.SECONDS);
+        secondo.get(30, TimeUnit.SECONDS);
+        thread.shutdown();
+
+        // ASSERT
+        assertEquals(20000, contatore[0], "Nessun incremento deve andare perso.");
+    }
+}
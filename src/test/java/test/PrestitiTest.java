@@ -130,4 +130,72 @@ public class PrestitiTest {
         // Verifica il messaggio d'errore
         assertTrue(exception.getMessage().contains("ERRORE RIMOZIONE: Il prestito da rimuovere non è presente"));
     }
+    
+    // --- Test Indici ---
+    
+    @Test
+    public void testIndici_PerUtenteEPerLibro() throws Exception {
+        Utente utente2 = new Utente("Marco", "Rossi", "0612707788", "m.rossi4@studenti.unisa.it", 0);
+        Libro libro2 = new Libro("Il Nome della Rosa", new ArrayList<>(), 1980, "9788845278655", 3, 3);
+        Prestito prestito3 = new Prestito(utente2, libro2, LocalDate.now().plusDays(7));
+        prestiti.aggiungiPrestito(prestito1);
+        prestiti.aggiungiPrestito(prestito2);
+        prestiti.aggiungiPrestito(prestito3);
+        
+        // ASSERT
+        assertEquals(2, prestiti.getPrestitiUtente(utente1.getMatricola()).size());
+        assertEquals(Collections.singletonList(prestito3), prestiti.getPrestitiUtente(utente2.getMatricola()));
+        assertEquals(2, prestiti.getPrestitiLibro(libro1.getISBN()).size());
+        assertTrue(prestiti.getPrestitiLibro("9780000000000").isEmpty(), "Un libro senza prestiti deve restituire una lista vuota.");
+    }
+    
+    @Test
+    public void testIndici_PerScadenzaOrdinati() throws Exception {
+        Prestito scaduto = new Prestito(utente1, libro1, LocalDate.now().minusDays(3));
+        prestiti.aggiungiPrestito(prestito1);
+        prestiti.aggiungiPrestito(scaduto);
+        prestiti.aggiungiPrestito(prestito2);
+        
+        // ASSERT
+        assertEquals(Collections.singletonList(scaduto), prestiti.getPrestitiInRitardo(LocalDate.now()));
+        assertEquals(java.util.Arrays.asList(scaduto, prestito2, prestito1),
+                prestiti.getPrestitiInScadenza(LocalDate.now().minusDays(30), LocalDate.now().plusDays(30)),
+                "I prestiti devono essere ordinati per data di restituzione.");
+    }
+    
+    @Test
+    public void testRimuoviPrestito_IndiciAggiornati() throws Exception {
+        prestiti.aggiungiPrestito(prestito1);
+        prestiti.aggiungiPrestito(prestito2);
+        
+        // Rimuovo usando un oggetto uguale ma non identico
+        prestiti.rimuoviPrestito(new Prestito(utente1, libro1, prestito1.getDataRestituzione()));
+        
+        // ASSERT
+        assertEquals(Collections.singletonList(prestito2), prestiti.getPrestiti());
+        assertEquals(Collections.singletonList(prestito2), prestiti.getPrestitiUtente(utente1.getMatricola()));
+        assertEquals(Collections.singletonList(prestito2), prestiti.getPrestitiInScadenza(LocalDate.MIN, LocalDate.MAX));
+        assertFalse(prestiti.contienePrestito(prestito1));
+        
+        prestiti.aggiungiPrestito(prestito1);
+        assertTrue(prestiti.contienePrestito(prestito1), "Un prestito rimosso deve poter essere registrato di nuovo.");
+    }
+    
+    @Test
+    public void testAggiornaChiavi_DopoModifica() throws Exception {
+        prestiti.aggiungiPrestito(prestito1);
+        String vecchiaMatricola = utente1.getMatricola();
+        String vecchioISBN = libro1.getISBN();
+        utente1.setMatricola("0612700001");
+        libro1.setISBN("9780000000001");
+        prestiti.aggiornaMatricola(vecchiaMatricola, utente1.getMatricola());
+        prestiti.aggiornaISBN(vecchioISBN, libro1.getISBN());
+        
+        // ASSERT
+        assertTrue(prestiti.getPrestitiUtente(vecchiaMatricola).isEmpty());
+        assertEquals(1, prestiti.getPrestitiUtente("0612700001").size());
+        assertEquals(1, prestiti.getPrestitiLibro("9780000000001").size());
+        prestiti.rimuoviPrestito(prestito1);
+        assertTrue(prestiti.getPrestiti().isEmpty());
+    }
 }
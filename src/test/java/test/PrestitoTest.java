@@ -239,4 +239,17 @@ public class PrestitoTest {
         assertNotEquals(prestito.hashCode(),prestito2.hashCode(),"L'hashcode non deve essere uguale per due oggetti diversi."); 
     }
 
+    @Test
+    void testHashCode_ComponentiScambiati() {
+        //Utente e libro con codici che si compensano in una somma dei codici hash
+        Utente u1 = new Utente("Anna", "Bianchi", "1111111111", "a.bianchi1@studenti.unisa.it", 0);
+        Utente u2 = new Utente("Bruno", "Verdi", "2222222222", "b.verdi2@studenti.unisa.it", 0);
+        Libro l1 = new Libro("Primo", new ArrayList<>(), 2000, "1111111111", 1, 1);
+        Libro l2 = new Libro("Secondo", new ArrayList<>(), 2000, "2222222222", 1, 1);
+        
+        //Assert
+        assertNotEquals(new Prestito(u1, l2, DATA_NON_SCADUTA).hashCode(), new Prestito(u2, l1, DATA_NON_SCADUTA).hashCode(),
+                "Prestiti con utente e libro scambiati non devono avere lo stesso hashcode.");
+    }
+
 }
@@ -0,0 +1,158 @@
+/**
+ * @file RegistroOperazioniTest.java
+ * @brief Test unitario per le classi RegistroOperazioni e Operazione.
+ */
+package test;
+import Controller.Operazione;
+import Controller.RegistroOperazioni;
+import Model.*;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class RegistroOperazioniTest {
+
+    private final String FILE_REGISTRO = "test.journal";
+
+    private RegistroOperazioni registro;
+    private Libro libro1;
+    private Utente utente1;
+
+    @BeforeEach
+    void setUp(){
+        new File(FILE_REGISTRO).delete();
+        registro = new RegistroOperazioni(FILE_REGISTRO);
+
+        //Inizializzo oggetti di supporto
+        ArrayList<Autore> autori = new ArrayList<>();
+        Collections.addAll(autori, new Autore("Andrea","Torrente"),new Autore("Piero","Schlesinger"));
+        libro1 = new Libro("Manuale di Diritto Privato", autori, 2025, "9788828869269", 10, 10);
+        utente1 = new Utente("Luca", "Cipriano", "0612707386", "l.cipriano12@studenti.unisa.it", 0);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        registro.close();
+        new File(FILE_REGISTRO).delete();
+    }
+
+    // --- Test Scrittura e Lettura ---
+
+    @Test
+    public void testAppendiELeggi_OrdineESequenzaConservati() throws Exception {
+        registro.appendi(Arrays.asList(
+                new RegistroOperazioni.Voce(1, Operazione.aggiungiLibro(libro1).codifica()),
+                new RegistroOperazioni.Voce(2, Operazione.aggiungiUtente(utente1).codifica())));
+        registro.close();
+
+        List<RegistroOperazioni.Voce> voci = new RegistroOperazioni(FILE_REGISTRO).leggi();
+
+        // ASSERT
+        assertEquals(2, voci.size(), "Il registro deve contenere due operazioni.");
+        assertEquals(1, voci.get(0).getSequenza());
+        assertEquals(2, voci.get(1).getSequenza());
+        assertEquals(Operazione.Tipo.AGGIUNGI_LIBRO, Operazione.decodifica(voci.get(0).getDati()).getTipo());
+        assertEquals(Operazione.Tipo.AGGIUNGI_UTENTE, Operazione.decodifica(voci.get(1).getDati()).getTipo());
+    }
+
+    @Test
+    public void testLeggi_VoceTroncataIgnorata() throws Exception {
+        registro.appendi(Collections.singletonList(new RegistroOperazioni.Voce(1, Operazione.aggiungiLibro(libro1).codifica())));
+        registro.close();
+
+        //Simulo una scrittura interrotta accodando byte incompleti
+        try(FileOutputStream out = new FileOutputStream(FILE_REGISTRO, true)){
+            out.write(new byte[]{0, 0, 0, 40, 0, 0});
+        }
+
+        RegistroOperazioni riaperto = new RegistroOperazioni(FILE_REGISTRO);
+        assertEquals(1, riaperto.leggi().size(), "La voce troncata non deve essere letta.");
+
+        //Dopo la lettura la coda corrotta è rimossa e le nuove voci sono leggibili
+        riaperto.appendi(Collections.singletonList(new RegistroOperazioni.Voce(2, Operazione.eliminaLibro(libro1.getISBN()).codifica())));
+        riaperto.close();
+        assertEquals(2, new RegistroOperazioni(FILE_REGISTRO).leggi().size());
+    }
+
+    @Test
+    public void testAzzera_RegistroVuoto() throws Exception {
+        registro.appendi(Collections.singletonList(new RegistroOperazioni.Voce(1, Operazione.aggiungiLibro(libro1).codifica())));
+        registro.azzera();
+
+        // ASSERT
+        assertEquals(0, registro.getNumOperazioni());
+        assertTrue(new RegistroOperazioni(FILE_REGISTRO).leggi().isEmpty(), "Il registro deve essere vuoto dopo l'azzeramento.");
+    }
+
+    // --- Test Riapplicazione Operazioni ---
+
+    @Test
+    public void testApplica_PrestitoERestituzione() throws Exception {
+        Libreria libreria = new Libreria();
+        Clienti clienti = new Clienti();
+        Prestiti prestiti = new Prestiti();
+        LocalDate scadenza = LocalDate.now().plusDays(30);
+
+        Operazione.decodifica(Operazione.aggiungiLibro(libro1).codifica()).applica(libreria, clienti, prestiti);
+        Operazione.decodifica(Operazione.aggiungiUtente(utente1).codifica()).applica(libreria, clienti, prestiti);
+        Operazione.decodifica(Operazione.aggiungiPrestito(new Prestito(utente1, libro1, scadenza)).codifica()).applica(libreria, clienti, prestiti);
+
+        Libro caricato = libreria.getLibreria().get(0);
+        Utente caricatoU = clienti.getClienti().get(0);
+        assertEquals(1, prestiti.getPrestiti().size(), "Il prestito deve essere stato riapplicato.");
+        assertEquals(9, caricato.getNumCopieDisponibili(), "Le copie disponibili devono essere decrementate.");
+        assertEquals(1, caricatoU.getNumPrestitiAttivi(), "I prestiti attivi devono essere incrementati.");
+
+        Operazione.decodifica(Operazione.restituisciPrestito(new Prestito(utente1, libro1, scadenza)).codifica()).applica(libreria, clienti, prestiti);
+        assertTrue(prestiti.getPrestiti().isEmpty(), "Il prestito deve essere stato rimosso.");
+        assertEquals(10, caricato.getNumCopieDisponibili());
+        assertEquals(0, caricatoU.getNumPrestitiAttivi());
+    }
+
+    @Test
+    public void testApplica_LottoDiPrestiti() throws Exception {
+        Libreria libreria = new Libreria();
+        Clienti clienti = new Clienti();
+        Prestiti prestiti = new Prestiti();
+        Libro libro2 = new Libro("Secondo", new ArrayList<>(), 2000, "1111111111111", 1, 1);
+        LocalDate scadenza = LocalDate.now().plusDays(30);
+        Operazione.aggiungiLibro(libro1).applica(libreria, clienti, prestiti);
+        Operazione.aggiungiLibro(libro2).applica(libreria, clienti, prestiti);
+        Operazione.aggiungiUtente(utente1).applica(libreria, clienti, prestiti);
+
+        List<Operazione> operazioni = new ArrayList<>();
+        operazioni.add(Operazione.aggiungiPrestito(new Prestito(utente1, libro1, scadenza)));
+        operazioni.add(Operazione.aggiungiPrestito(new Prestito(utente1, libro2, scadenza)));
+        registro.appendi(Collections.singletonList(new RegistroOperazioni.Voce(1, Operazione.lotto(operazioni).codifica())));
+
+        Operazione letta = Operazione.decodifica(registro.leggi().get(0).getDati());
+        assertEquals(Operazione.Tipo.LOTTO, letta.getTipo());
+        assertEquals(2, letta.getOperazioni().size(), "Il lotto deve contenere entrambe le operazioni.");
+
+        letta.applica(libreria, clienti, prestiti);
+        assertEquals(2, prestiti.getPrestiti().size(), "Entrambi i prestiti devono essere riapplicati.");
+        assertEquals(2, clienti.getClienti().get(0).getNumPrestitiAttivi());
+        assertEquals(0, libreria.cercaPerISBN("1111111111111").getNumCopieDisponibili());
+    }
+
+    @Test
+    public void testApplica_ModificaLibroConNuovoISBN() throws Exception {
+        Libreria libreria = new Libreria();
+        Prestiti prestiti = new Prestiti();
+        Operazione.decodifica(Operazione.aggiungiLibro(libro1).codifica()).applica(libreria, null, prestiti);
+
+        Libro modificato = new Libro("Titolo Nuovo", new ArrayList<>(), 2020, "9876543210987", 5, 5);
+        Operazione.decodifica(Operazione.modificaLibro(libro1.getISBN(), modificato).codifica()).applica(libreria, null, prestiti);
+
+        Libro l = libreria.getLibreria().get(0);
+        assertEquals("Titolo Nuovo", l.getTitolo());
+        assertEquals("9876543210987", l.getISBN());
+        assertTrue(l.getAutori().isEmpty());
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * @file RicercaAsincronaTest.java
+ * @brief Test unitario per la classe RicercaAsincrona.
+ */
+package test;
+import Controller.RicercaAsincrona;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class RicercaAsincronaTest {
+
+    private List<String> calcolate;
+    private BlockingQueue<String> pubblicate;
+
+    @BeforeEach
+    void setUp(){
+        calcolate = new CopyOnWriteArrayList<>();
+        pubblicate = new LinkedBlockingQueue<>();
+    }
+
+    @Test
+    public void testDebounce_CalcolataSoloLUltimaRicerca() throws Exception {
+        RicercaAsincrona<String> ricerca = new RicercaAsincrona<>(r -> { calcolate.add(r); return r.toUpperCase(); },
+                (r, risultato) -> pubblicate.add(risultato), Runnable::run, 100);
+
+        ricerca.richiedi("r");
+        ricerca.richiedi("ro");
+        ricerca.richiedi("ros");
+
+        // ASSERT
+        assertEquals("ROS", pubblicate.poll(2, TimeUnit.SECONDS), "Deve essere pubblicato il risultato dell'ultima ricerca.");
+        assertNull(pubblicate.poll(300, TimeUnit.MILLISECONDS), "Le ricerche superate non devono essere pubblicate.");
+        assertEquals(1, calcolate.size(), "Le ricerche digitate in rapida successione non devono essere calcolate.");
+    }
+
+    @Test
+    public void testAnnulla_NessunaPubblicazione() throws Exception {
+        RicercaAsincrona<String> ricerca = new RicercaAsincrona<>(r -> r, (r, risultato) -> pubblicate.add(risultato), Runnable::run, 50);
+
+        ricerca.richiedi("ros");
+        ricerca.annulla();
+
+        // ASSERT
+        assertNull(pubblicate.poll(300, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testRisultatoSuperatoInAttesaDellInterfaccia_NonPubblicato() throws Exception {
+        //Il thread dell'interfaccia è simulato da una coda eseguita manualmente
+        BlockingQueue<Runnable> codaUI = new LinkedBlockingQueue<>();
+        RicercaAsincrona<String> ricerca = new RicercaAsincrona<>(r -> r, (r, risultato) -> pubblicate.add(risultato), codaUI::add, 0);
+
+        ricerca.richiedi("ros");
+        Runnable primo = codaUI.poll(2, TimeUnit.SECONDS);
+        ricerca.richiedi("rossi");
+        Runnable secondo = codaUI.poll(2, TimeUnit.SECONDS);
+        primo.run();
+        secondo.run();
+
+        // ASSERT
+        assertEquals("rossi", pubblicate.poll());
+        assertNull(pubblicate.poll(), "Il risultato superato non deve essere pubblicato.");
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * @file ScrittoreAsincronoTest.java
+ * @brief Test unitario per la classe ScrittoreAsincrono.
+ */
+package test;
+import Controller.RegistroOperazioni;
+import Controller.ScrittoreAsincrono;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+public class ScrittoreAsincronoTest {
+
+    private final String FILE_SNAPSHOT = "test_snapshot.bin";
+    private final String FILE_REGISTRO = "test_snapshot.journal";
+
+    private ScrittoreAsincrono scrittore;
+
+    @BeforeEach
+    void setUp(){
+        new File(FILE_SNAPSHOT).delete();
+        new File(FILE_REGISTRO).delete();
+        scrittore = new ScrittoreAsincrono(FILE_SNAPSHOT, new RegistroOperazioni(FILE_REGISTRO), 16, 50);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        scrittore.getRegistro().close();
+        new File(FILE_SNAPSHOT).delete();
+        new File(FILE_REGISTRO).delete();
+    }
+
+    @Test
+    public void testFlush_OperazioniScritteSuDisco() throws Exception {
+        for(int i = 1; i <= 40; i++) scrittore.accoda(i, new byte[]{(byte) i});
+        scrittore.flush();
+
+        List<RegistroOperazioni.Voce> voci = new RegistroOperazioni(FILE_REGISTRO).leggi();
+
+        // ASSERT
+        assertEquals(40, voci.size(), "Dopo flush() tutte le operazioni devono essere sul registro.");
+        for(int i = 0; i < voci.size(); i++)
+            assertEquals(i + 1, voci.get(i).getSequenza(), "Le operazioni devono rispettare l'ordine di accodamento.");
+    }
+
+    @Test
+    public void testSnapshot_SvuotaRegistroEMantieneOperazioniSuccessive() throws Exception {
+        scrittore.accoda(1, new byte[]{1});
+        scrittore.accoda(2, new byte[]{2});
+        scrittore.accodaSnapshot(2, new byte[]{42, 42});
+        scrittore.accoda(3, new byte[]{3});
+        scrittore.flush();
+
+        List<RegistroOperazioni.Voce> voci = new RegistroOperazioni(FILE_REGISTRO).leggi();
+
+        // ASSERT
+        assertArrayEquals(new byte[]{42, 42}, Files.readAllBytes(new File(FILE_SNAPSHOT).toPath()), "Lo snapshot deve essere scritto.");
+        assertEquals(1, voci.size(), "Nel registro deve rimanere solo l'operazione successiva allo snapshot.");
+        assertEquals(3, voci.get(0).getSequenza());
+    }
+
+    @Test
+    public void testSnapshotMultipli_ScrittoSoloLUltimo() throws Exception {
+        scrittore.accodaSnapshot(0, new byte[]{1});
+        scrittore.accodaSnapshot(0, new byte[]{2});
+        scrittore.accodaSnapshot(0, new byte[]{3});
+        scrittore.flush();
+
+        // ASSERT
+        assertArrayEquals(new byte[]{3}, Files.readAllBytes(new File(FILE_SNAPSHOT).toPath()), "Deve rimanere l'ultimo snapshot accodato.");
+        assertFalse(new File(FILE_SNAPSHOT + ".tmp").exists(), "Il file temporaneo non deve rimanere su disco.");
+    }
+
+    @Test
+    public void testScritturaFallita_SegnalataAllaSuaOperazione() throws Exception {
+        // Il registro è una cartella: ogni scrittura fallisce
+        File cartella = new File("test_registro_cartella");
+        cartella.mkdir();
+        ScrittoreAsincrono fallito = new ScrittoreAsincrono(FILE_SNAPSHOT, new RegistroOperazioni(cartella.getPath()), 16, 0);
+        try{
+            CompletableFuture<Void> primo = fallito.accoda(1, new byte[]{1});
+
+            // ASSERT
+            assertThrows(ExecutionException.class, primo::get, "L'esito dell'operazione deve riportare l'errore di scrittura.");
+            CompletableFuture<Void> secondo = fallito.accoda(2, new byte[]{2});
+            assertThrows(ExecutionException.class, secondo::get, "Ogni operazione riceve l'errore della propria scrittura.");
+            assertThrows(IOException.class, fallito::flush, "flush() deve segnalare che una scrittura è fallita.");
+        }finally{
+            fallito.getRegistro().close();
+            cartella.delete();
+        }
+    }
+
+    @Test
+    public void testClose_RimuoveLoScrittoreCondiviso() throws Exception {
+        ScrittoreAsincrono primo = ScrittoreAsincrono.per(FILE_SNAPSHOT, FILE_REGISTRO, 16, 0);
+        ScrittoreAsincrono secondo = ScrittoreAsincrono.per(FILE_SNAPSHOT, FILE_REGISTRO, 16, 0);
+        primo.accoda(1, new byte[]{1});
+        secondo.close();
+
+        // ASSERT
+        assertSame(primo, secondo, "Le istanze sugli stessi file condividono lo scrittore.");
+        assertSame(primo, ScrittoreAsincrono.per(FILE_SNAPSHOT, FILE_REGISTRO, 16, 0), "Lo scrittore resta attivo finché ha utilizzatori.");
+        primo.close();
+        primo.close();
+        assertEquals(1, new RegistroOperazioni(FILE_REGISTRO).leggi().size(), "Le operazioni accodate devono essere scritte prima della chiusura.");
+        assertThrows(ExecutionException.class, () -> primo.accoda(2, new byte[]{2}).get(), "Dopo la chiusura le operazioni non possono essere salvate.");
+
+        ScrittoreAsincrono nuovo = ScrittoreAsincrono.per(FILE_SNAPSHOT, FILE_REGISTRO, 16, 0);
+        assertNotSame(primo, nuovo, "Dopo la chiusura deve essere creato un nuovo scrittore.");
+        nuovo.close();
+    }
+}
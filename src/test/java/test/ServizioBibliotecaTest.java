@@ -0,0 +1,744 @@
+/**
+ * @file ServizioBibliotecaTest.java
+ * @brief Test unitario per la classe ServizioBiblioteca.
+ */
+package test;
+
+import Controller.AscoltatoreBiblioteca;
+import Controller.LettoreRecord;
+import Controller.Operazione;
+import Controller.RapportoImportazione;
+import Controller.RapportoSincronizzazione;
+import Controller.RegistroOperazioni;
+import Controller.ServizioBiblioteca;
+import Model.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.File;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ServizioBibliotecaTest {
+
+    private final String FILE_SNAPSHOT = "test_servizio.bin";
+    private final String FILE_REGISTRO = "test_servizio.journal";
+
+    private ServizioBiblioteca servizio;
+
+    /// Notifiche ricevute, nell'ordine, come testo
+    private List<String> notifiche;
+
+    private AscoltatoreBiblioteca ascoltatore;
+
+    @BeforeEach
+    void setUp(){
+        new File(FILE_SNAPSHOT).delete();
+        new File(FILE_REGISTRO).delete();
+        servizio = new ServizioBiblioteca(FILE_SNAPSHOT, FILE_REGISTRO);
+
+        notifiche = new ArrayList<>();
+        ascoltatore = new AscoltatoreBiblioteca() {
+            @Override
+            public void libroAggiunto(Libro l, int posizione) { notifiche.add("+L " + l.getISBN() + "@" + posizione); }
+
+            @Override
+            public void libroRimosso(Libro l, int posizione) { notifiche.add("-L " + l.getISBN() + "@" + posizione); }
+
+            @Override
+            public void libroModificato(Libro l, int posizione) { notifiche.add("~L " + l.getISBN() + "@" + posizione); }
+
+            @Override
+            public void disponibilitaCambiata(Libro l, int posizione) { notifiche.add("#L " + l.getISBN() + "@" + posizione); }
+
+            @Override
+            public void utenteAggiunto(Utente u, int posizione) { notifiche.add("+U " + u.getMatricola() + "@" + posizione); }
+
+            @Override
+            public void utenteRimosso(Utente u, int posizione) { notifiche.add("-U " + u.getMatricola() + "@" + posizione); }
+
+            @Override
+            public void utenteModificato(Utente u, int posizione) { notifiche.add("~U " + u.getMatricola() + "@" + posizione); }
+
+            @Override
+            public void prestitiAttiviCambiati(Utente u, int posizione) { notifiche.add("#U " + u.getMatricola() + "@" + posizione); }
+
+            @Override
+            public void prestitoAggiunto(Prestito p, int posizione) { notifiche.add("+P @" + posizione); }
+
+            @Override
+            public void prestitoRimosso(Prestito p, int posizione, Prestito spostato) {
+                notifiche.add("-P @" + posizione + (spostato == null ? "" : " " + spostato.getLibro().getISBN()));
+            }
+
+            @Override
+            public void inizioLotto() { notifiche.add("("); }
+
+            @Override
+            public void fineLotto() { notifiche.add(")"); }
+        };
+        servizio.aggiungiAscoltatore(ascoltatore);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        servizio.chiudi();
+        new File(FILE_SNAPSHOT).delete();
+        new File(FILE_REGISTRO).delete();
+    }
+
+    @Test
+    public void testAggiungiEdElimina_NotificaPosizioni() throws Exception {
+        servizio.aggiungiLibro("Primo", new ArrayList<>(), 2000, "1111111111111", 1, 1);
+        Libro secondo = servizio.aggiungiLibro("Secondo", new ArrayList<>(), 2000, "2222222222222", 1, 1);
+        servizio.aggiungiLibro("Terzo", new ArrayList<>(), 2000, "3333333333333", 1, 1);
+        servizio.eliminaLibro(secondo);
+
+        // ASSERT
+        assertEquals("[+L 1111111111111@0, +L 2222222222222@1, +L 3333333333333@2, -L 2222222222222@1]", notifiche.toString());
+        assertEquals(2, servizio.getLibreria().getLibreria().size());
+    }
+
+    @Test
+    public void testRestituisciPrestito_NotificaSpostamento() throws Exception {
+        Utente u = servizio.aggiungiUtente("Mario", "Rossi", "0612700001", "m.rossi@studenti.unisa.it", 0);
+        Libro a = servizio.aggiungiLibro("Primo", new ArrayList<>(), 2000, "1111111111111", 1, 1);
+        Libro b = servizio.aggiungiLibro("Secondo", new ArrayList<>(), 2000, "2222222222222", 1, 1);
+        Prestito p = servizio.aggiungiPrestito(u, a, LocalDate.of(2026, 3, 1));
+        servizio.aggiungiPrestito(u, b, LocalDate.of(2026, 3, 2));
+        notifiche.clear();
+
+        servizio.restituisciPrestito(p);
+
+        // ASSERT
+        assertEquals("[-P @0 2222222222222, #U 0612700001@0, #L 1111111111111@0]", notifiche.toString());
+        assertSame(b, servizio.getPrestiti().getPrestiti().get(0).getLibro());
+        assertEquals(1, a.getNumCopieDisponibili());
+        assertEquals(1, u.getNumPrestitiAttivi());
+    }
+
+    @Test
+    public void testPrestito_NotificaSoloDisponibilitaEPrestitiAttivi() throws Exception {
+        servizio.aggiungiUtente("Mario", "Rossi", "0612700001", "m.rossi@studenti.unisa.it", 0);
+        Utente u = servizio.aggiungiUtente("Luigi", "Verdi", "0612700002", "l.verdi@studenti.unisa.it", 0);
+        servizio.aggiungiLibro("Primo", new ArrayList<>(), 2000, "1111111111111", 1, 1);
+        Libro l = servizio.aggiungiLibro("Secondo", new ArrayList<>(), 2000, "2222222222222", 2, 2);
+        notifiche.clear();
+
+        servizio.aggiungiPrestito(u, l, LocalDate.of(2026, 3, 1));
+
+        // ASSERT
+        assertEquals("[+P @0, #U 0612700002@1, #L 2222222222222@1]", notifiche.toString());
+    }
+
+    @Test
+    public void testModificheEdEliminazioni_PosizioniAggiornate() throws Exception {
+        Utente primo = servizio.aggiungiUtente("Mario", "Rossi", "0612700001", "m.rossi@studenti.unisa.it", 0);
+        servizio.aggiungiUtente("Luigi", "Verdi", "0612700002", "l.verdi@studenti.unisa.it", 0);
+        Utente terzo = servizio.aggiungiUtente("Anna", "Bianchi", "0612700003", "a.bianchi@studenti.unisa.it", 0);
+        notifiche.clear();
+
+        servizio.eliminaUtente(primo);
+        servizio.modificaUtente(terzo, "Anna", "Neri", "0612700009", "a.neri@studenti.unisa.it");
+
+        // ASSERT
+        assertEquals("[-U 0612700001@0, ~U 0612700009@1]", notifiche.toString(), "Dopo l'eliminazione gli utenti successivi scalano di una posizione.");
+        assertEquals(1, servizio.getClienti().posizioneDi(terzo));
+    }
+
+    @Test
+    public void testOperazioneFallita_NessunaNotifica() throws Exception {
+        servizio.aggiungiLibro("Primo", new ArrayList<>(), 2000, "1111111111111", 1, 1);
+        notifiche.clear();
+
+        // ASSERT
+        assertThrows(Exception.class, () -> servizio.aggiungiLibro("Doppione", new ArrayList<>(), 2000, "1111111111111", 1, 1));
+        assertThrows(Exception.class, () -> servizio.aggiungiUtente("M4rio", "Rossi", "0612700001", "m.rossi@studenti.unisa.it", 0));
+        assertTrue(notifiche.isEmpty(), "Un'operazione rifiutata non deve notificare modifiche.");
+    }
+
+    @Test
+    public void testCerca_SenzaInterfaccia() throws Exception {
+        ArrayList<Autore> autori = new ArrayList<>();
+        autori.add(new Autore("Umberto", "Eco"));
+        Libro rosa = servizio.aggiungiLibro("Il nome della rosa", autori, 1980, "9788845292613", 2, 2);
+        servizio.aggiungiLibro("Il pendolo di Foucault", new ArrayList<>(), 1988, "9788845292620", 2, 2);
+        Utente u = servizio.aggiungiUtente("Mario", "Rossi", "0612700001", "m.rossi@studenti.unisa.it", 0);
+
+        Set<Libro> trovati = servizio.cercaLibri("eco ros");
+
+        // ASSERT
+        assertEquals(1, trovati.size());
+        assertTrue(trovati.contains(rosa));
+        assertTrue(servizio.cercaUtenti("ossi").contains(u));
+        assertNull(servizio.cercaLibri(""), "Una ricerca vuota non filtra.");
+    }
+
+    @Test
+    public void testCercaLibriPerAnno_AggiornatoDaPrestitiEModifiche() throws Exception {
+        Utente u = servizio.aggiungiUtente("Mario", "Rossi", "0612700001", "m.rossi@studenti.unisa.it", 0);
+        Libro a = servizio.aggiungiLibro("Primo", new ArrayList<>(), 1992, "1111111111111", 1, 1);
+        Libro b = servizio.aggiungiLibro("Secondo", new ArrayList<>(), 1998, "2222222222222", 1, 1);
+        servizio.aggiungiLibro("Terzo", new ArrayList<>(), 2005, "3333333333333", 1, 1);
+
+        Prestito p = servizio.aggiungiPrestito(u, a, LocalDate.of(2026, 3, 1));
+
+        // ASSERT
+        assertEquals(Arrays.asList(b), servizio.cercaLibriPerAnno(1990, 2000, true), "Un libro senza copie disponibili è escluso.");
+        assertEquals(Arrays.asList(a, b), servizio.cercaLibriPerAnno(1990, 2000, false));
+
+        servizio.restituisciPrestito(p);
+        servizio.modificaLibro(b, "Secondo", new ArrayList<>(), 2003, "2222222222222", 1, 1);
+        assertEquals(Arrays.asList(a), servizio.cercaLibriPerAnno(1990, 2000, true));
+        assertEquals(2, servizio.cercaLibriPerAnno(2001, 2010, true).size());
+
+        servizio.eliminaLibro(a);
+        assertTrue(servizio.cercaLibriPerAnno(1990, 2000, false).isEmpty());
+    }
+
+    @Test
+    public void testRicercaApprossimata_OrdinataPerDistanza() throws Exception {
+        ArrayList<Autore> autori = new ArrayList<>();
+        autori.add(new Autore("Umberto", "Eco"));
+        Libro rose = servizio.aggiungiLibro("Rose e spine", new ArrayList<>(), 1990, "9788845292637", 1, 1);
+        Libro pendolo = servizio.aggiungiLibro("Il pendolo di Foucault", autori, 1988, "9788845292620", 2, 2);
+        Libro rosa = servizio.aggiungiLibro("Il nome della rosa", new ArrayList<>(autori), 1980, "9788845292613", 2, 2);
+        Utente esposito = servizio.aggiungiUtente("Mario", "Esposito", "0612700001", "m.esposito@studenti.unisa.it", 0);
+        Utente espositi = servizio.aggiungiUtente("Luigi", "Espositi", "0612700002", "l.espositi@studenti.unisa.it", 0);
+
+        // ASSERT
+        assertTrue(servizio.cercaLibri("umbreto").isEmpty(), "La ricerca esatta non tollera errori.");
+        assertEquals(Arrays.asList(rosa, rose), servizio.cercaLibriApprossimata("rosa", 10), "Il libro più simile viene prima.");
+        assertEquals(Arrays.asList(rosa), servizio.cercaLibriApprossimata("umbreto nome", 10), "Ogni parola deve trovare una parola simile.");
+        assertEquals(Arrays.asList(pendolo, rosa), servizio.cercaLibriApprossimata("umbreto", 10), "A parità di distanza vale l'ordine del catalogo.");
+        assertEquals(Arrays.asList(espositi, esposito), servizio.cercaUtentiApprossimata("espositti", 10));
+        assertEquals(1, servizio.cercaUtentiApprossimata("espositti", 1).size());
+
+        servizio.modificaUtente(espositi, "Luigi", "Bianchi", "0612700002", "l.bianchi@studenti.unisa.it");
+        assertEquals(Arrays.asList(esposito), servizio.cercaUtentiApprossimata("espositti", 10));
+    }
+
+    @Test
+    public void testRiapertura_RicaricaDalRegistro() throws Exception {
+        Utente u = servizio.aggiungiUtente("Mario", "Rossi", "0612700001", "m.rossi@studenti.unisa.it", 0);
+        Libro l = servizio.aggiungiLibro("Primo", new ArrayList<>(), 2000, "1111111111111", 3, 3);
+        servizio.aggiungiPrestito(u, l, LocalDate.of(2026, 3, 1));
+        servizio.chiudi();
+
+        ServizioBiblioteca riaperto = new ServizioBiblioteca(FILE_SNAPSHOT, FILE_REGISTRO);
+
+        // ASSERT
+        assertEquals(2, riaperto.getLibreria().cercaPerISBN("1111111111111").getNumCopieDisponibili());
+        assertEquals(1, riaperto.getPrestiti().getPrestitiUtente("0612700001").size());
+        assertTrue(riaperto.cercaLibri("prim").contains(riaperto.getLibreria().cercaPerISBN("1111111111111")));
+    }
+
+    @Test
+    public void testRiapertura_SnapshotIlleggibileConservato() throws Exception {
+        servizio.aggiungiLibro("Primo", new ArrayList<>(), 2000, "1111111111111", 3, 3);
+        servizio.chiudi();
+        byte[] snapshot = Files.readAllBytes(new File(FILE_SNAPSHOT).toPath());
+        byte[] registro = Files.readAllBytes(new File(FILE_REGISTRO).toPath());
+        snapshot[0] ^= 0x01;
+        Files.write(new File(FILE_SNAPSHOT).toPath(), snapshot);
+
+        ServizioBiblioteca riaperto = new ServizioBiblioteca(FILE_SNAPSHOT, FILE_REGISTRO);
+        riaperto.chiudi();
+        File[] spostati = new File(".").listFiles((d, nome) -> nome.startsWith(FILE_SNAPSHOT + ".illeggibile-"));
+        File[] registriSpostati = new File(".").listFiles((d, nome) -> nome.startsWith(FILE_REGISTRO + ".illeggibile-"));
+        byte[] conservato = spostati.length == 1 ? Files.readAllBytes(spostati[0].toPath()) : null;
+        byte[] registroConservato = registriSpostati.length == 1 ? Files.readAllBytes(registriSpostati[0].toPath()) : null;
+        for(File f : spostati) f.delete();
+        for(File f : registriSpostati) f.delete();
+
+        // ASSERT
+        assertNotNull(riaperto.getErroreCaricamento(), "L'errore deve essere segnalato.");
+        assertTrue(riaperto.getLibreria().getLibreria().isEmpty());
+        assertArrayEquals(snapshot, conservato, "Lo snapshot illeggibile deve essere conservato senza modifiche.");
+        assertArrayEquals(registro, registroConservato, "Il registro deve essere conservato con lo snapshot.");
+        assertNull(new ServizioBiblioteca(FILE_SNAPSHOT, FILE_REGISTRO).getErroreCaricamento(), "La biblioteca vuota deve essere riapribile.");
+        assertNull(servizio.getErroreCaricamento());
+    }
+
+    @Test
+    public void testRiapertura_LottoNonRiapplicabile_NessunaModifica() throws Exception {
+        Utente u = servizio.aggiungiUtente("Mario", "Rossi", "0612700001", "m.rossi@studenti.unisa.it", 0);
+        Libro a = servizio.aggiungiLibro("Primo", new ArrayList<>(), 2000, "1111111111111", 1, 1);
+        Libro assente = new Libro("Assente", new ArrayList<>(), 2000, "9999999999999", 1, 1);
+        Operazione lotto = Operazione.lotto(Arrays.asList(
+                Operazione.aggiungiPrestito(new Prestito(u, a, LocalDate.of(2026, 3, 1))),
+                Operazione.aggiungiPrestito(new Prestito(u, assente, LocalDate.of(2026, 3, 1)))));
+
+        // La prima operazione del lotto è valida, la seconda no: al caricamento non deve essere applicata nessuna delle due
+        servizio.chiudi();
+        RegistroOperazioni registro = new RegistroOperazioni(FILE_REGISTRO);
+        List<RegistroOperazioni.Voce> voci = registro.leggi();
+        registro.appendi(Collections.singletonList(new RegistroOperazioni.Voce(voci.get(voci.size() - 1).getSequenza() + 1, lotto.codifica())));
+        registro.close();
+        byte[] registroScritto = Files.readAllBytes(new File(FILE_REGISTRO).toPath());
+
+        ServizioBiblioteca riaperto = new ServizioBiblioteca(FILE_SNAPSHOT, FILE_REGISTRO);
+        riaperto.chiudi();
+        File[] snapshotSpostati = new File(".").listFiles((d, nome) -> nome.startsWith(FILE_SNAPSHOT + ".illeggibile-"));
+        File[] registriSpostati = new File(".").listFiles((d, nome) -> nome.startsWith(FILE_REGISTRO + ".illeggibile-"));
+        byte[] registroConservato = registriSpostati.length == 1 ? Files.readAllBytes(registriSpostati[0].toPath()) : null;
+        for(File f : snapshotSpostati) f.delete();
+        for(File f : registriSpostati) f.delete();
+
+        // ASSERT
+        assertNotNull(riaperto.getErroreCaricamento(), "Un lotto non riapplicabile è un errore di caricamento.");
+        assertEquals(0, snapshotSpostati.length, "Lo snapshot è leggibile e resta al suo posto.");
+        assertArrayEquals(registroScritto, registroConservato, "Il registro deve essere conservato senza modifiche.");
+        assertEquals(1, riaperto.getLibreria().getLibreria().size(), "Le operazioni precedenti al lotto devono essere riapplicate.");
+        assertEquals(1, riaperto.getClienti().getClienti().size());
+        assertTrue(riaperto.getPrestiti().getPrestiti().isEmpty(), "Il lotto non deve essere riapplicato in parte.");
+        assertEquals(1, riaperto.getLibreria().cercaPerISBN("1111111111111").getNumCopieDisponibili());
+        assertEquals(0, riaperto.getClienti().cercaPerMatricola("0612700001").getNumPrestitiAttivi());
+
+        ServizioBiblioteca ancora = new ServizioBiblioteca(FILE_SNAPSHOT, FILE_REGISTRO);
+        assertNull(ancora.getErroreCaricamento(), "Lo stato recuperato deve essere salvato in un nuovo snapshot.");
+        assertEquals(1, ancora.getLibreria().getLibreria().size());
+        ancora.chiudi();
+    }
+
+    @Test
+    public void testAggiungiPrestiti_UnSoloLottoERiapertura() throws Exception {
+        Utente u = servizio.aggiungiUtente("Mario", "Rossi", "0612700001", "m.rossi@studenti.unisa.it", 0);
+        Libro a = servizio.aggiungiLibro("Primo", new ArrayList<>(), 2000, "1111111111111", 1, 1);
+        Libro b = servizio.aggiungiLibro("Secondo", new ArrayList<>(), 2000, "2222222222222", 2, 2);
+        notifiche.clear();
+
+        List<Prestito> registrati = servizio.aggiungiPrestiti(u, Arrays.asList(b, a), LocalDate.of(2026, 3, 1));
+
+        // ASSERT
+        assertEquals(2, registrati.size());
+        assertEquals("[(, +P @0, +P @1, #U 0612700001@0, #L 2222222222222@1, #L 1111111111111@0, )]", notifiche.toString());
+        assertEquals(0, a.getNumCopieDisponibili());
+        assertEquals(1, b.getNumCopieDisponibili());
+        assertEquals(2, u.getNumPrestitiAttivi());
+
+        servizio.chiudi();
+        ServizioBiblioteca riaperto = new ServizioBiblioteca(FILE_SNAPSHOT, FILE_REGISTRO);
+        assertEquals(2, riaperto.getPrestiti().getPrestitiUtente("0612700001").size(), "Il lotto deve essere riapplicato per intero.");
+        assertEquals(2, riaperto.getClienti().cercaPerMatricola("0612700001").getNumPrestitiAttivi());
+    }
+
+    @Test
+    public void testAggiungiPrestiti_UnLibroNonDisponibile_NessunPrestito() throws Exception {
+        Utente u = servizio.aggiungiUtente("Mario", "Rossi", "0612700001", "m.rossi@studenti.unisa.it", 0);
+        Libro a = servizio.aggiungiLibro("Primo", new ArrayList<>(), 2000, "1111111111111", 1, 1);
+        Libro b = servizio.aggiungiLibro("Secondo", new ArrayList<>(), 2000, "2222222222222", 1, 0);
+        Libro c = servizio.aggiungiLibro("Terzo", new ArrayList<>(), 2000, "3333333333333", 1, 1);
+        Libro d = servizio.aggiungiLibro("Quarto", new ArrayList<>(), 2000, "4444444444444", 1, 1);
+        notifiche.clear();
+
+        // ASSERT
+        assertThrows(Exception.class, () -> servizio.aggiungiPrestiti(u, Arrays.asList(a, b), LocalDate.of(2026, 3, 1)), "Copie non disponibili.");
+        assertThrows(Exception.class, () -> servizio.aggiungiPrestiti(u, Arrays.asList(a, a), LocalDate.of(2026, 3, 1)), "Libro ripetuto.");
+        assertThrows(Exception.class, () -> servizio.aggiungiPrestiti(u, Arrays.asList(a, c, d, b), LocalDate.of(2026, 3, 1)), "Limite dell'utente superato.");
+        assertTrue(notifiche.isEmpty(), "Un lotto rifiutato non deve notificare modifiche.");
+        assertTrue(servizio.getPrestiti().getPrestiti().isEmpty());
+        assertEquals(1, a.getNumCopieDisponibili());
+        assertEquals(0, u.getNumPrestitiAttivi());
+    }
+
+    @Test
+    public void testAggiungiPrestito_LibroOUtenteEliminati_Rifiutato() throws Exception {
+        Utente u = servizio.aggiungiUtente("Mario", "Rossi", "0612700001", "m.rossi@studenti.unisa.it", 0);
+        Utente v = servizio.aggiungiUtente("Luigi", "Verdi", "0612700002", "l.verdi@studenti.unisa.it", 0);
+        Libro a = servizio.aggiungiLibro("Primo", new ArrayList<>(), 2000, "1111111111111", 1, 1);
+        Libro b = servizio.aggiungiLibro("Secondo", new ArrayList<>(), 2000, "2222222222222", 1, 1);
+        Libro copia = new Libro("Primo", new ArrayList<>(), 2000, "1111111111111", 1, 1);
+        servizio.eliminaLibro(b);
+        servizio.eliminaUtente(v);
+        notifiche.clear();
+
+        // ASSERT
+        assertThrows(Exception.class, () -> servizio.aggiungiPrestito(u, b, LocalDate.of(2026, 3, 1)), "Libro eliminato.");
+        assertThrows(Exception.class, () -> servizio.aggiungiPrestito(v, a, LocalDate.of(2026, 3, 1)), "Utente eliminato.");
+        assertThrows(Exception.class, () -> servizio.aggiungiPrestito(u, copia, LocalDate.of(2026, 3, 1)), "Libro non memorizzato con lo stesso ISBN.");
+        assertThrows(Exception.class, () -> servizio.aggiungiPrestiti(u, Arrays.asList(a, b), LocalDate.of(2026, 3, 1)), "Lotto con un libro eliminato.");
+        assertTrue(notifiche.isEmpty(), "Un prestito rifiutato non deve notificare modifiche.");
+        assertTrue(servizio.getPrestiti().getPrestiti().isEmpty());
+        assertEquals(1, a.getNumCopieDisponibili());
+
+        servizio.chiudi();
+        ServizioBiblioteca riaperto = new ServizioBiblioteca(FILE_SNAPSHOT, FILE_REGISTRO);
+        assertNull(riaperto.getErroreCaricamento(), "Nessun prestito rifiutato deve finire nel registro.");
+        assertTrue(riaperto.getPrestiti().getPrestiti().isEmpty());
+    }
+
+    @Test
+    public void testRestituisciPrestiti_TuttiONessuno() throws Exception {
+        Utente u = servizio.aggiungiUtente("Mario", "Rossi", "0612700001", "m.rossi@studenti.unisa.it", 0);
+        Utente v = servizio.aggiungiUtente("Luigi", "Verdi", "0612700002", "l.verdi@studenti.unisa.it", 0);
+        Libro a = servizio.aggiungiLibro("Primo", new ArrayList<>(), 2000, "1111111111111", 2, 2);
+        Libro b = servizio.aggiungiLibro("Secondo", new ArrayList<>(), 2000, "2222222222222", 2, 2);
+        List<Prestito> diU = servizio.aggiungiPrestiti(u, Arrays.asList(a, b), LocalDate.of(2026, 3, 1));
+        Prestito diV = servizio.aggiungiPrestito(v, a, LocalDate.of(2026, 3, 2));
+        Prestito inesistente = new Prestito(v, b, LocalDate.of(2026, 3, 2));
+        notifiche.clear();
+
+        assertThrows(Exception.class, () -> servizio.restituisciPrestiti(Arrays.asList(diU.get(0), inesistente)));
+        assertTrue(notifiche.isEmpty(), "Un lotto rifiutato non deve notificare modifiche.");
+        assertEquals(3, servizio.getPrestiti().getPrestiti().size());
+
+        servizio.restituisciPrestiti(Arrays.asList(diU.get(0), diV));
+
+        // ASSERT
+        assertEquals("[(, -P @0 1111111111111, -P @0 2222222222222, #U 0612700001@0, #U 0612700002@1, #L 1111111111111@0, )]", notifiche.toString());
+        assertEquals(Arrays.asList(diU.get(1)), servizio.getPrestiti().getPrestiti());
+        assertEquals(2, a.getNumCopieDisponibili());
+        assertEquals(1, u.getNumPrestitiAttivi());
+        assertEquals(0, v.getNumPrestitiAttivi());
+
+        servizio.chiudi();
+        ServizioBiblioteca riaperto = new ServizioBiblioteca(FILE_SNAPSHOT, FILE_REGISTRO);
+        assertEquals(1, riaperto.getPrestiti().getPrestiti().size());
+        assertEquals(2, riaperto.getLibreria().cercaPerISBN("1111111111111").getNumCopieDisponibili());
+    }
+
+    @Test
+    public void testImportaLibri_CSVConScartiEUnSoloSnapshot() throws Exception {
+        servizio.aggiungiLibro("Presente", new ArrayList<>(), 2000, "1111111111111", 1, 1);
+        String csv = "isbn,titolo,autori,anno,copieTotali,copieDisponibili\n"
+                + "9788845292613,Il nome della rosa,Umberto Eco,1980,2,2\n"
+                + "1111111111111,Già presente,,2000,1,1\n"
+                + "9788804668237,\"Se una notte d'inverno, un viaggiatore\",Italo Calvino,1979,1,1\n"
+                + "9788845292613,Doppione nel file,,1980,1,1\n"
+                + "123,ISBN corto,,1980,1,1\n"
+                + "9788806219352,Anno sbagliato,,milleottocento,1,1\n";
+        notifiche.clear();
+
+        RapportoImportazione rapporto = servizio.importaLibri(new StringReader(csv), LettoreRecord.Formato.CSV);
+
+        // ASSERT
+        assertEquals(6, rapporto.getLetti());
+        assertEquals(2, rapporto.getImportati());
+        assertEquals(4, rapporto.getScartati());
+        assertEquals(3, rapporto.getErrori().get(0).getPosizione(), "Gli errori riportano la riga del file.");
+        assertEquals("[(, +L 9788845292613@1, +L 9788804668237@2, )]", notifiche.toString());
+        Libro rosa = servizio.getLibreria().cercaPerISBN("9788845292613");
+        assertEquals("Eco", rosa.getAutori().get(0).getCognome());
+        assertTrue(servizio.cercaLibri("viaggiatore").contains(servizio.getLibreria().cercaPerISBN("9788804668237")), "I libri importati devono essere indicizzati.");
+
+        servizio.chiudi();
+        assertEquals(0, new File(FILE_REGISTRO).length(), "L'importazione è salvata con uno snapshot, non nel registro.");
+        ServizioBiblioteca riaperto = new ServizioBiblioteca(FILE_SNAPSHOT, FILE_REGISTRO);
+        assertEquals(3, riaperto.getLibreria().getLibreria().size());
+    }
+
+    @Test
+    public void testImportaLibri_SnapshotNonScritto_ErroreSegnalato() throws Exception {
+        // Una cartella al posto del file temporaneo fa fallire la scrittura dello snapshot
+        File temporaneo = new File(FILE_SNAPSHOT + ".tmp");
+        File ostacolo = new File(temporaneo, "ostacolo");
+        assertTrue(ostacolo.mkdirs());
+        String csv = "isbn,titolo,autori,anno,copieTotali,copieDisponibili\n"
+                + "9788845292613,Il nome della rosa,Umberto Eco,1980,2,2\n";
+        try{
+            Exception e = assertThrows(Exception.class, () -> servizio.importaLibri(new StringReader(csv), LettoreRecord.Formato.CSV));
+
+            // ASSERT
+            assertTrue(e.getMessage().contains("Errore nel salvataggio"), "L'errore dello snapshot finale deve arrivare al chiamante.");
+            assertNotNull(servizio.getLibreria().cercaPerISBN("9788845292613"), "Il libro resta importato ed è salvato nel registro.");
+            assertThrows(Exception.class, () -> servizio.chiudi(), "Anche la chiusura segnala la scrittura fallita.");
+        }finally{
+            ostacolo.delete();
+            temporaneo.delete();
+        }
+    }
+
+    @Test
+    public void testImportaLibri_JSONeIntestazioneNonValida() throws Exception {
+        String json = "[{\"titolo\": \"Il nome della rosa\", \"autori\": [\"Umberto Eco\"], \"anno\": 1980,"
+                + " \"isbn\": \"9788845292613\", \"copieTotali\": 2, \"copieDisponibili\": 2},"
+                + " {\"titolo\": \"Senza copie\", \"anno\": 1980, \"isbn\": \"9788804668237\"}]";
+
+        RapportoImportazione rapporto = servizio.importaLibri(new StringReader(json), LettoreRecord.Formato.JSON);
+
+        // ASSERT
+        assertEquals(1, rapporto.getImportati());
+        assertEquals("Record 2: Campo mancante: autori", rapporto.getErrori().get(0).toString());
+        assertThrows(Exception.class, () -> servizio.importaLibri(new StringReader("titolo,anno\n"), LettoreRecord.Formato.CSV));
+    }
+
+    @Test
+    public void testImportaLibri_GrandeCatalogo() throws Exception {
+        servizio.rimuoviAscoltatore(ascoltatore);
+        final int NUM_LIBRI = 100000;
+        String[] cognomi = {"Rossi", "Verdi", "Bianchi", "Esposito", "Romano", "Colombo", "Ricci", "Marino"};
+        StringBuilder csv = new StringBuilder("titolo,autori,anno,isbn,copieTotali,copieDisponibili\n");
+        for(int i = 0; i < NUM_LIBRI; i++)
+            csv.append("Titolo ").append(i).append(",Autore ").append(cognomi[i % cognomi.length]).append(',').append(1900 + i % 120)
+               .append(',').append(String.format("978%010d", i)).append(",3,3\n");
+
+        RapportoImportazione rapporto = servizio.importaLibri(new StringReader(csv.toString()), LettoreRecord.Formato.CSV);
+
+        // ASSERT
+        assertEquals(NUM_LIBRI, rapporto.getImportati(), rapporto.getErrori().toString());
+        assertEquals(NUM_LIBRI, servizio.getLibreria().getLibreria().size());
+        assertEquals(NUM_LIBRI - 1, servizio.getLibreria().posizioneDi(servizio.getLibreria().cercaPerISBN(String.format("978%010d", NUM_LIBRI - 1))));
+        assertEquals(0, rapporto.getScartati());
+        assertFalse(rapporto.isInterrotta());
+        assertEquals(1, servizio.cercaLibri("Titolo 99999").size());
+    }
+
+    @Test
+    public void testSincronizzaUtenti_InseritiAggiornatiERimossi() throws Exception {
+        servizio.aggiungiUtente("Mario", "Rossi", "0612700001", "m.rossi@studenti.unisa.it", 0);
+        Utente verdi = servizio.aggiungiUtente("Luca", "Verdi", "0612700002", "l.verdi@studenti.unisa.it", 0);
+        Utente bianchi = servizio.aggiungiUtente("Anna", "Bianchi", "0612700003", "a.bianchi@studenti.unisa.it", 0);
+        servizio.aggiungiUtente("Paolo", "Neri", "0612700004", "p.neri@studenti.unisa.it", 0);
+        servizio.aggiungiPrestito(bianchi, servizio.aggiungiLibro("Libro", new ArrayList<>(), 2000, "9788845292613", 1, 1), LocalDate.now().plusDays(30));
+        String csv = "matricola,nome,cognome,email\n"
+                + "0612700001,Mario,Rossi,m.rossi@studenti.unisa.it\n"
+                + "0612700002,Luca,Verdi,l.verdi2@studenti.unisa.it\n"
+                + "0612700005, Sara , Gialli ,s.gialli@studenti.unisa.it\n"
+                + "0612700001,Mario,Rossi,m.rossi@studenti.unisa.it\n"
+                + "12345,Matricola,Corta,m.corta@studenti.unisa.it\n"
+                + "0612700006,Email,Doppia,m.rossi@studenti.unisa.it\n";
+        notifiche.clear();
+
+        RapportoSincronizzazione rapporto = servizio.sincronizzaUtenti(new StringReader(csv), LettoreRecord.Formato.CSV, true);
+
+        // ASSERT
+        assertEquals(1, rapporto.getInseriti());
+        assertEquals(1, rapporto.getAggiornati());
+        assertEquals(1, rapporto.getInvariati());
+        assertEquals(3, rapporto.getScartati());
+        assertEquals("Record 5: Matricola ripetuta nel file: 0612700001", rapporto.getErrori().get(0).toString());
+        assertEquals("Record 6: Campi non validi: matricola", rapporto.getErrori().get(1).toString());
+        assertEquals(1, rapporto.getRimossi());
+        assertEquals(1, rapporto.getConservati(), "L'utente assente con un prestito attivo viene conservato.");
+        assertEquals("[(, +U 0612700005@4, ~U 0612700002@1, ), (, -U 0612700004@3, )]", notifiche.toString());
+        assertEquals("l.verdi2@studenti.unisa.it", verdi.getEmail());
+        assertEquals("Sara", servizio.getClienti().cercaPerMatricola("0612700005").getNome(), "I campi vengono ripuliti dagli spazi.");
+        assertTrue(servizio.cercaUtenti("Gialli").contains(servizio.getClienti().cercaPerMatricola("0612700005")), "Gli utenti inseriti devono essere indicizzati.");
+        assertTrue(servizio.cercaUtenti("Neri").isEmpty(), "Gli utenti rimossi non devono essere più indicizzati.");
+
+        servizio.chiudi();
+        ServizioBiblioteca riaperto = new ServizioBiblioteca(FILE_SNAPSHOT, FILE_REGISTRO);
+        assertEquals(4, riaperto.getClienti().getClienti().size());
+        assertEquals("l.verdi2@studenti.unisa.it", riaperto.getClienti().cercaPerMatricola("0612700002").getEmail());
+        assertNull(riaperto.getClienti().cercaPerMatricola("0612700004"));
+    }
+
+    @Test
+    public void testSincronizzaUtenti_SenzaRimozioneELetturaInterrotta() throws Exception {
+        servizio.aggiungiUtente("Paolo", "Neri", "0612700004", "p.neri@studenti.unisa.it", 0);
+        String json = "{\"matricola\": \"0612700001\", \"nome\": \"Mario\", \"cognome\": \"Rossi\", \"email\": \"m.rossi@studenti.unisa.it\"}\n"
+                + "{\"matricola\": \"0612700002\", \"nome\": \"Luca\"}\n";
+
+        RapportoSincronizzazione rapporto = servizio.sincronizzaUtenti(new StringReader(json), LettoreRecord.Formato.JSON, false);
+        RapportoSincronizzazione interrotta = servizio.sincronizzaUtenti(new StringReader(json + "{\"matricola\" 1}"), LettoreRecord.Formato.JSON, true);
+
+        // ASSERT
+        assertEquals(1, rapporto.getInseriti());
+        assertEquals("Record 2: Campo mancante: cognome", rapporto.getErrori().get(0).toString());
+        assertEquals(0, rapporto.getRimossi(), "Senza rimuoviAssenti gli utenti assenti restano.");
+        assertTrue(interrotta.isInterrotta());
+        assertEquals(0, interrotta.getRimossi(), "Se la lettura si interrompe non si rimuove nessuno.");
+        assertNotNull(servizio.getClienti().cercaPerMatricola("0612700004"));
+    }
+
+    @Test
+    public void testSincronizzaUtenti_LottiNelRegistro() throws Exception {
+        servizio.aggiungiUtente("Mario", "Rossi", "0612700001", "m.rossi@studenti.unisa.it", 0);
+        servizio.aggiungiUtente("Paolo", "Neri", "0612700004", "p.neri@studenti.unisa.it", 0);
+        String csv = "matricola,nome,cognome,email\n"
+                + "0612700001,Mario,Rossi,m.rossi2@studenti.unisa.it\n"
+                + "0612700005,Sara,Gialli,s.gialli@studenti.unisa.it\n";
+        // Una cartella al posto del file temporaneo fa fallire lo snapshot finale: restano solo i lotti nel registro
+        File temporaneo = new File(FILE_SNAPSHOT + ".tmp");
+        File ostacolo = new File(temporaneo, "ostacolo");
+        assertTrue(ostacolo.mkdirs());
+        try{
+            assertThrows(Exception.class, () -> servizio.sincronizzaUtenti(new StringReader(csv), LettoreRecord.Formato.CSV, true));
+            assertThrows(Exception.class, () -> servizio.chiudi());
+        }finally{
+            ostacolo.delete();
+            temporaneo.delete();
+        }
+
+        ServizioBiblioteca riaperto = new ServizioBiblioteca(FILE_SNAPSHOT, FILE_REGISTRO);
+
+        // ASSERT
+        assertNull(riaperto.getErroreCaricamento());
+        assertEquals("m.rossi2@studenti.unisa.it", riaperto.getClienti().cercaPerMatricola("0612700001").getEmail(), "L'aggiornamento deve essere nel registro.");
+        assertNotNull(riaperto.getClienti().cercaPerMatricola("0612700005"), "L'inserimento deve essere nel registro.");
+        assertNull(riaperto.getClienti().cercaPerMatricola("0612700004"), "La rimozione degli assenti deve essere nel registro.");
+        riaperto.chiudi();
+    }
+
+    @Test
+    public void testNotifiche_DopoIlRilascioDeiLock() throws Exception {
+        Utente u = servizio.aggiungiUtente("Mario", "Rossi", "0612700001", "m.rossi@studenti.unisa.it", 0);
+        Libro a = servizio.aggiungiLibro("Primo", new ArrayList<>(), 2000, "1111111111111", 1, 1);
+        notifiche.clear();
+        servizio.aggiungiAscoltatore(new AscoltatoreBiblioteca() {
+            @Override
+            public void prestitoAggiunto(Prestito p, int posizione) {
+                // Con il lock dei prestiti ancora preso la modifica del catalogo resterebbe in attesa
+                try{
+                    servizio.aggiungiLibro("Secondo", new ArrayList<>(), 2000, "2222222222222", 1, 1);
+                }catch(Exception e){ throw new IllegalStateException(e); }
+            }
+        });
+
+        ExecutorService postazione = Executors.newSingleThreadExecutor();
+        Future<Prestito> prestito = postazione.submit(() -> servizio.aggiungiPrestito(u, a, LocalDate.of(2026, 3, 1)));
+
+        // ASSERT
+        assertNotNull(prestito.get(10, TimeUnit.SECONDS));
+        postazione.shutdown();
+        assertNotNull(servizio.getLibreria().cercaPerISBN("2222222222222"));
+        assertEquals("[+P @0, #U 0612700001@0, #L 1111111111111@0, +L 2222222222222@1]", notifiche.toString());
+    }
+
+    @Test
+    public void testPrestitiConcorrenti_NotificheSerializzateInOrdine() throws Exception {
+        servizio.rimuoviAscoltatore(ascoltatore);
+
+        final int NUM_THREAD = 8, NUM_LIBRI = 16, OPERAZIONI = 1000;
+        List<Libro> libri = new ArrayList<>();
+        for(int i = 0; i < NUM_LIBRI; i++)
+            libri.add(servizio.aggiungiLibro("Libro " + i, new ArrayList<>(), 2000, String.format("978000000%04d", i), 3, 3));
+        List<Utente> utenti = new ArrayList<>();
+        for(int i = 0; i < NUM_THREAD; i++)
+            utenti.add(servizio.aggiungiUtente("Nome", "Cognome", String.format("06127%05d", i), "n.cognome" + i + "@studenti.unisa.it", 0));
+
+        //Copia della lista dei prestiti ricostruita solo dalle notifiche
+        List<Prestito> copia = new ArrayList<>();
+        List<String> errori = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger inCorso = new AtomicInteger();
+        servizio.aggiungiAscoltatore(new AscoltatoreBiblioteca() {
+            @Override
+            public void prestitoAggiunto(Prestito p, int posizione) {
+                if(inCorso.incrementAndGet() > 1) errori.add("notifiche concorrenti");
+                if(posizione != copia.size()) errori.add("+P @" + posizione + " con " + copia.size() + " prestiti");
+                copia.add(p);
+                inCorso.decrementAndGet();
+            }
+
+            @Override
+            public void prestitoRimosso(Prestito p, int posizione, Prestito spostato) {
+                if(inCorso.incrementAndGet() > 1) errori.add("notifiche concorrenti");
+                if(copia.get(posizione) != p) errori.add("-P @" + posizione + " non corrisponde");
+                Prestito ultimo = copia.remove(copia.size() - 1);
+                if(ultimo != p) copia.set(posizione, ultimo);
+                if(ultimo != (spostato == null ? p : spostato)) errori.add("-P @" + posizione + " spostato errato");
+                inCorso.decrementAndGet();
+            }
+        });
+
+        ExecutorService postazioni = Executors.newFixedThreadPool(NUM_THREAD);
+        CountDownLatch via = new CountDownLatch(1);
+        List<Future<?>> risultati = new ArrayList<>();
+        for(int t = 0; t < NUM_THREAD; t++){
+            final int postazione = t;
+            risultati.add(postazioni.submit(() -> {
+                Random r = new Random(postazione);
+                List<Prestito> attivi = new ArrayList<>();
+                via.await();
+                for(int i = 0; i < OPERAZIONI; i++){
+                    try{
+                        if(attivi.isEmpty() || r.nextBoolean())
+                            attivi.add(servizio.aggiungiPrestito(utenti.get(postazione), libri.get(r.nextInt(NUM_LIBRI)), LocalDate.of(2026, 1, 1).plusDays(i)));
+                        else
+                            servizio.restituisciPrestito(attivi.remove(r.nextInt(attivi.size())));
+                    }catch(Exception e){
+                        // Copie esaurite o limite dell'utente raggiunto: il prestito è rifiutato
+                    }
+                }
+                return null;
+            }));
+        }
+        via.countDown();
+        for(Future<?> f : risultati) f.get(60, TimeUnit.SECONDS);
+        postazioni.shutdown();
+
+        // ASSERT
+        assertEquals("[]", errori.subList(0, Math.min(5, errori.size())).toString());
+        assertEquals(servizio.getPrestiti().getPrestiti(), copia, "Le notifiche devono riprodurre la lista dei prestiti.");
+    }
+
+    @Test
+    public void testPrestitiConcorrenti_NessunAggiornamentoPerso() throws Exception {
+        // Le notifiche di questo test arrivano da più thread
+        servizio.rimuoviAscoltatore(ascoltatore);
+
+        final int NUM_THREAD = 8, UTENTI_PER_THREAD = 5, NUM_LIBRI = 12, COPIE = 3, OPERAZIONI = 1500;
+        List<Libro> libri = new ArrayList<>();
+        for(int i = 0; i < NUM_LIBRI; i++)
+            libri.add(servizio.aggiungiLibro("Libro " + i, new ArrayList<>(), 2000, String.format("978000000%04d", i), COPIE, COPIE));
+        List<Utente> utenti = new ArrayList<>();
+        for(int i = 0; i < NUM_THREAD * UTENTI_PER_THREAD; i++)
+            utenti.add(servizio.aggiungiUtente("Nome", "Cognome", String.format("06127%05d", i), "n.cognome" + i + "@studenti.unisa.it", 0));
+
+        //Ogni postazione serve i propri utenti, ma tutte si contendono gli stessi libri
+        ExecutorService postazioni = Executors.newFixedThreadPool(NUM_THREAD);
+        CountDownLatch via = new CountDownLatch(1);
+        List<Future<List<Prestito>>> risultati = new ArrayList<>();
+        for(int t = 0; t < NUM_THREAD; t++){
+            final int postazione = t;
+            risultati.add(postazioni.submit(() -> {
+                Random r = new Random(postazione);
+                List<Prestito> attivi = new ArrayList<>();
+                via.await();
+                for(int i = 0; i < OPERAZIONI; i++){
+                    try{
+                        if(attivi.isEmpty() || r.nextBoolean()){
+                            Utente u = utenti.get(postazione * UTENTI_PER_THREAD + r.nextInt(UTENTI_PER_THREAD));
+                            Libro l = libri.get(r.nextInt(NUM_LIBRI));
+                            attivi.add(servizio.aggiungiPrestito(u, l, LocalDate.of(2026, 1, 1).plusDays(i)));
+                        }else{
+                            servizio.restituisciPrestito(attivi.remove(r.nextInt(attivi.size())));
+                        }
+                    }catch(Exception e){
+                        // Copie esaurite o limite dell'utente raggiunto: il prestito è rifiutato
+                    }
+                }
+                return attivi;
+            }));
+        }
+        via.countDown();
+        int totaleAttivi = 0;
+        for(Future<List<Prestito>> f : risultati) totaleAttivi += f.get(60, TimeUnit.SECONDS).size();
+        postazioni.shutdown();
+
+        // ASSERT
+        assertEquals(totaleAttivi, servizio.getPrestiti().getPrestiti().size(), "Ogni prestito registrato deve essere nella lista.");
+        for(Libro l : libri){
+            int inPrestito = servizio.getPrestiti().getPrestitiLibro(l.getISBN()).size();
+            assertTrue(l.getNumCopieDisponibili() >= 0, "Le copie disponibili non possono essere negative.");
+            assertEquals(COPIE, l.getNumCopieDisponibili() + inPrestito, "Copie disponibili e prestiti del libro " + l.getISBN() + " non coincidono.");
+        }
+        for(Utente u : utenti){
+            int attivi = servizio.getPrestiti().getPrestitiUtente(u.getMatricola()).size();
+            assertTrue(attivi <= 3, "Un utente non può superare 3 prestiti.");
+            assertEquals(attivi, u.getNumPrestitiAttivi(), "Prestiti attivi dell'utente " + u.getMatricola() + " non coincidono.");
+        }
+
+        //Il registro deve riprodurre lo stesso stato
+        servizio.chiudi();
+        ServizioBiblioteca riaperto = new ServizioBiblioteca(FILE_SNAPSHOT, FILE_REGISTRO);
+        assertEquals(totaleAttivi, riaperto.getPrestiti().getPrestiti().size());
+        for(Libro l : libri)
+            assertEquals(l.getNumCopieDisponibili(), riaperto.getLibreria().cercaPerISBN(l.getISBN()).getNumCopieDisponibili());
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * @file SessioneRicercaTest.java
+ * @brief Test unitario per la classe SessioneRicerca.
+ */
+package test;
+import Controller.IndiceTrigrammi;
+import Controller.SessioneRicerca;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.Arrays;
+import java.util.Set;
+
+public class SessioneRicercaTest {
+
+    private IndiceTrigrammi<String[]> indice;
+    private SessioneRicerca<String[]> sessione;
+    private int ricercheComplete;
+    private String[] rossi, rossini, russo;
+
+    @BeforeEach
+    void setUp(){
+        indice = new IndiceTrigrammi<>(Arrays::asList);
+        rossi = new String[]{"Rossi"};
+        rossini = new String[]{"Rossini"};
+        russo = new String[]{"Russo"};
+        indice.aggiungi(rossi);
+        indice.aggiungi(rossini);
+        indice.aggiungi(russo);
+        for(int i = 0; i < 100; i++) indice.aggiungi(new String[]{"Bianchi" + i});
+
+        ricercheComplete = 0;
+        sessione = new SessioneRicerca<>(r -> { ricercheComplete++; return indice.cerca(r); }, indice::corrisponde);
+    }
+
+    @Test
+    public void testEstensione_VerificaSoloIRisultatiPrecedenti() {
+        assertEquals(2, sessione.cerca("ros").size());
+        Set<String[]> risultato = sessione.cerca("Rossin");
+
+        // ASSERT
+        assertEquals(1, ricercheComplete, "L'estensione della ricerca non deve interrogare l'indice.");
+        assertEquals(2, sessione.getNumVerifiche(), "Devono essere verificati solo i risultati precedenti.");
+        assertEquals(1, risultato.size());
+        assertTrue(risultato.contains(rossini));
+    }
+
+    @Test
+    public void testCancellazione_RiusaRisultatiMemorizzati() {
+        Set<String[]> ros = sessione.cerca("ros");
+        sessione.cerca("ross");
+        sessione.cerca("rossi");
+        Set<String[]> indietro = sessione.cerca("ros");
+
+        // ASSERT
+        assertSame(ros, indietro, "Tornando ad una ricerca precedente deve essere riusato il suo risultato.");
+        assertEquals(1, ricercheComplete);
+        assertEquals(0, sessione.getNumVerifiche());
+    }
+
+    @Test
+    public void testNuovaRicerca_InterrogaLIndice() {
+        sessione.cerca("ros");
+        Set<String[]> risultato = sessione.cerca("rus");
+
+        // ASSERT
+        assertEquals(2, ricercheComplete, "Una ricerca che non estende la precedente deve usare l'indice.");
+        assertEquals(1, risultato.size());
+        assertTrue(risultato.contains(russo));
+    }
+
+    @Test
+    public void testInvalida_DopoModificaDeiDati() {
+        sessione.cerca("ros");
+        rossi[0] = "Verdi";
+        indice.aggiorna(rossi);
+        sessione.invalida();
+
+        // ASSERT
+        assertEquals(1, sessione.cerca("ros").size(), "Dopo invalida() i risultati devono essere ricalcolati.");
+        assertEquals(2, ricercheComplete);
+    }
+
+    @Test
+    public void testRicercaVuota_RestituisceNull() {
+        // ASSERT
+        assertNull(sessione.cerca(""));
+        assertNull(sessione.cerca(null));
+    }
+}
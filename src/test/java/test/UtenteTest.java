@@ -6,6 +6,13 @@ package test;
 import Model.Utente;
 import org.junit.jupiter.api.*;
 import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class UtenteTest {
     private Utente utente;
@@ -288,5 +295,85 @@ public class UtenteTest {
         //Assert
         assertNotEquals(utente.hashCode(),utente2.hashCode(),"L'hashcode deve essere diverso per due oggetti diversi."); 
     }
+    
+    // --- Test degli Osservatori ---
+    
+    @Test
+    void testCodiceMatricola_ZeriInizialiESerializzazione() throws Exception {
+        Utente zeri = new Utente("Anna", "Rossi", "0012345678", "a.rossi@studenti.unisa.it", 0);
+        java.io.ByteArrayOutputStream buffer = new java.io.ByteArrayOutputStream();
+        try(java.io.ObjectOutputStream out = new java.io.ObjectOutputStream(buffer)){
+            out.writeObject(zeri);
+        }
+        Utente letto;
+        try(java.io.ObjectInputStream in = new java.io.ObjectInputStream(new java.io.ByteArrayInputStream(buffer.toByteArray()))){
+            letto = (Utente) in.readObject();
+        }
+        
+        //Assert
+        assertEquals(12345678L, zeri.getCodiceMatricola());
+        assertEquals("0012345678", zeri.getMatricola());
+        assertEquals(zeri, letto);
+        assertEquals("0012345678", letto.getMatricola());
+        assertEquals("a.rossi@studenti.unisa.it", letto.getEmail());
+        assertEquals(Model.CodiceNumerico.NON_NUMERICO, new Utente("Anna", "Rossi", "MAT-1", null, 0).getCodiceMatricola());
+    }
+    
+    @Test
+    public void testOsservatore_NotificatoSoloPerCampiIndicizzati() {
+        int[] notifiche = {0};
+        utente.aggiungiOsservatore(u -> notifiche[0]++);
+        
+        utente.setNome(NOME_NUOVO);
+        utente.setCognome(COGNOME_NUOVO);
+        utente.setMatricola(MATRICOLA_NUOVA);
+        utente.setEmail(EMAIL_NUOVA);
+        utente.setNumPrestitiAttivi(0);
+        
+        // Assert
+        assertEquals(3, notifiche[0], "Devono essere notificate solo le modifiche di nome, cognome e matricola.");
+    }
+
+    @Test
+    public void testIncrementaPrestitiAttivi_Concorrente_LimiteRispettato() throws Exception {
+        Utente conteso = new Utente(NOME_INIZIALE, COGNOME_INIZIALE, MATRICOLA_INIZIALE, EMAIL_INIZIALE, 0);
+        AtomicInteger incrementi = new AtomicInteger();
+        AtomicInteger decrementi = new AtomicInteger();
+        
+        //8 thread tentano 10 prestiti ciascuno, poi 10 restituzioni ciascuno
+        ExecutorService thread = Executors.newFixedThreadPool(8);
+        List<Callable<Void>> prestiti = new ArrayList<>();
+        List<Callable<Void>> restituzioni = new ArrayList<>();
+        for(int t = 0; t < 8; t++){
+            prestiti.add(() -> {
+                for(int i = 0; i < 10; i++){
+                    try{
+                        conteso.incrementaPrestitiAttivi();
+                        incrementi.incrementAndGet();
+                    }catch(Exception e){ /* limite raggiunto */ }
+                }
+                return null;
+            });
+            restituzioni.add(() -> {
+                for(int i = 0; i < 10; i++){
+                    try{
+                        conteso.decrementaPrestitiAttivi();
+                        decrementi.incrementAndGet();
+                    }catch(Exception e){ /* nessun prestito attivo */ }
+                }
+                return null;
+            });
+        }
+        for(Future<Void> f : thread.invokeAll(prestiti)) f.get();
+        int dopoPrestiti = conteso.getNumPrestitiAttivi();
+        for(Future<Void> f : thread.invokeAll(restituzioni)) f.get();
+        thread.shutdown();
+        
+        // Assert
+        assertEquals(Utente.MAX_PRESTITI, incrementi.get(), "Devono riuscire esattamente MAX_PRESTITI prestiti.");
+        assertEquals(Utente.MAX_PRESTITI, dopoPrestiti);
+        assertEquals(Utente.MAX_PRESTITI, decrementi.get(), "Non si possono restituire più prestiti di quelli attivi.");
+        assertEquals(0, conteso.getNumPrestitiAttivi());
+    }
 }
 
@@ -0,0 +1,94 @@
+/**
+ * @file ValidatoreCampiTest.java
+ * @brief Test unitario per la classe ValidatoreCampi.
+ */
+package test;
+
+import Controller.ValidatoreCampi;
+import Controller.ValidatoreCampi.Errore;
+import Model.Autore;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ValidatoreCampiTest {
+
+    private final ValidatoreCampi validatore = new ValidatoreCampi(false);
+    private final ValidatoreCampi conChecksum = new ValidatoreCampi(true);
+
+    @Test
+    public void testChecksumISBN13() {
+        // ASSERT
+        assertTrue(ValidatoreCampi.checksumISBN13Valido("9788845292613"));
+        assertTrue(ValidatoreCampi.checksumISBN13Valido("9780306406157"));
+        assertFalse(ValidatoreCampi.checksumISBN13Valido("9780306406158"));
+        assertFalse(ValidatoreCampi.checksumISBN13Valido("978030640615"), "Il formato viene controllato prima del codice.");
+        assertFalse(ValidatoreCampi.checksumISBN13Valido(null));
+    }
+
+    @Test
+    public void testValidaLibro_CodiciPerCampo() {
+        List<Autore> autori = new ArrayList<>();
+        autori.add(new Autore("Umberto", "Eco"));
+
+        // ASSERT
+        assertEquals(0, validatore.validaLibro("Il nome della rosa", autori, 1980, "9788845292610", 2, 2), "Senza verifica il codice di controllo è ignorato.");
+        assertEquals(Errore.ISBN_CHECKSUM.bit(), conChecksum.validaLibro("Il nome della rosa", autori, 1980, "9788845292610", 2, 2));
+        assertEquals(Errore.ISBN_FORMATO.bit(), conChecksum.validaLibro("Il nome della rosa", autori, 1980, "97888452926", 2, 2));
+        autori.add(new Autore("Italo1", "Calvino"));
+        long errori = validatore.validaLibro("Titolo $", autori, 0, "9788845292613", 1, 2);
+        assertEquals(Errore.TITOLO.bit() | Errore.AUTORE.bit() | Errore.ANNO.bit() | Errore.COPIE_TOTALI.bit(), errori, "Vengono segnalati tutti i campi non validi.");
+        assertEquals("Campi non validi: titolo autori anno copieTotali", ValidatoreCampi.descrivi(errori));
+        assertNull(ValidatoreCampi.descrivi(0));
+    }
+
+    @Test
+    public void testValidaUtente_CodiciPerCampo() {
+        // ASSERT
+        assertEquals(0, validatore.validaUtente("Anna Maria", "D'Amico", "0612707766", "a.d'amico12@studenti.unisa.it", 0));
+        assertEquals(Errore.MATRICOLA.bit() | Errore.EMAIL.bit(),
+                validatore.validaUtente("Anna", "Rossi", "061270776", "a.rossi@studenti.unisa.it.com", 0));
+        assertEquals(Errore.NOME.bit() | Errore.COGNOME.bit() | Errore.PRESTITI_ATTIVI.bit(),
+                validatore.validaUtente("", null, "0612707766", "a.rossi@studenti.unisa.it", -1), "I campi null non sono validi.");
+    }
+
+    @Test
+    public void testValidaRecord() {
+        String[] libroValido = {" Il nome della rosa ", "Umberto Eco, Italo Calvino", " 1980", "9788845292613 ", "2", "+2"};
+        String[] libroSenzaAnno = {"Titolo", "", "anno", "9788845292613", "1", "-1"};
+        String[] libroFuoriIntervallo = {"Titolo", "Eco", "1980", "9788845292613", "99999999999", "1"};
+
+        // ASSERT
+        assertEquals(0, validatore.validaRecordLibro(libroValido));
+        assertEquals(Errore.ANNO.bit() | Errore.COPIE_DISPONIBILI.bit(), validatore.validaRecordLibro(libroSenzaAnno));
+        assertEquals(Errore.COPIE_TOTALI.bit(), validatore.validaRecordLibro(libroFuoriIntervallo), "Un numero fuori dall'intervallo degli int non è valido.");
+        assertEquals(0, validatore.validaRecordUtente(new String[]{"Mario", "Rossi", "0612700001", "m.rossi@studenti.unisa.it"}));
+        assertEquals(Errore.EMAIL.bit(), validatore.validaRecordUtente(new String[]{"Mario", "Rossi", "0612700001", "rossi@studenti.unisa.it"}));
+    }
+
+    @Test
+    public void testEquivalenzaConLeEspressioniRegolari() {
+        String alfabeto = "aZè'\". :-,?!$1²Ⅻ@\t_";
+        Random random = new Random(17);
+        for(int n = 0; n < 20000; n++){
+            StringBuilder sb = new StringBuilder();
+            int lunghezza = random.nextInt(6);
+            for(int i = 0; i < lunghezza; i++) sb.append(alfabeto.charAt(random.nextInt(alfabeto.length())));
+            String s = sb.toString();
+
+            // ASSERT
+            assertEquals(s.trim().matches("^[\\p{L}\\p{N}'\":\\-.,?! ]+$"), ValidatoreCampi.isTitolo(s), s);
+            assertEquals(s.trim().matches("^[\\p{L}'\\. ]+$"), ValidatoreCampi.isNomeAutore(s), s);
+            assertEquals(s.trim().matches("^[\\p{L}'\\. ]*$"), ValidatoreCampi.isCognomeAutore(s), s);
+            assertEquals(s.matches("^[\\p{L}' ]+$"), ValidatoreCampi.isNome(s), s);
+        }
+        String[] email = {"a.rossi@studenti.unisa.it", "a.rossi12@studenti.unisa.it", "a.d'amico@studenti.unisa.it", "a.rossi1a@studenti.unisa.it",
+                "ab.rossi@studenti.unisa.it", "a.@studenti.unisa.it", "a.12@studenti.unisa.it", "1.rossi@studenti.unisa.it",
+                "è.rossi@studenti.unisa.it", "a.rossì@studenti.unisa.it", "a.rossi@studenti.unisa.it ", "a.rossi@studenti.unimi.it", "a.r"};
+        for(String e : email)
+            assertEquals(e.matches("^[A-Za-z]\\.[\\p{L}']+\\d*+@studenti\\.unisa\\.it$"), ValidatoreCampi.isEmailIstituzionale(e), e);
+    }
+}